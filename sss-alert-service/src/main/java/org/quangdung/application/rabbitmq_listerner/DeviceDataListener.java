@@ -1,16 +1,22 @@
 package org.quangdung.application.rabbitmq_listerner;
 
+import java.io.IOException;
+
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import org.eclipse.microprofile.reactive.messaging.Incoming;
 import org.eclipse.microprofile.reactive.messaging.Message;
+import org.quangdung.domain.model.DeviceDataBatchModel;
 import org.quangdung.domain.model.DeviceDataModel;
+import org.quangdung.core.utils.time_util.EpochNanos;
 import org.quangdung.domain.usecase.interfaces.ISendMailAlertUseCase;
+import org.quangdung.infrastructure.component.rabbitmq.codec.DeviceMessageCodec;
 import io.smallrye.common.annotation.Blocking;
 import org.jboss.logging.Logger;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import io.smallrye.mutiny.Uni;
+import io.smallrye.reactive.messaging.rabbitmq.IncomingRabbitMQMetadata;
 import io.vertx.core.json.JsonObject;
 
 /**
@@ -21,6 +27,7 @@ import io.vertx.core.json.JsonObject;
 public class DeviceDataListener {
     
     private static final Logger LOG = Logger.getLogger(DeviceDataListener.class);
+    private static final String MESSAGE_TYPE_HEADER = "message-type";
     
     @Inject
     ISendMailAlertUseCase sendMailAlertUseCase;
@@ -28,36 +35,77 @@ public class DeviceDataListener {
     @Inject
     private ObjectMapper objectMapper;
 
+    @Inject
+    DeviceMessageCodec codec;
+
     /**
      * Listens to device-data-distribution channel and processes device data messages
-     * @param message Message containing JsonObject payload from RabbitMQ queue
+     * @param message Message containing a binary (see DeviceMessageCodec) or JSON payload from RabbitMQ queue
      * @return Uni<Void> for reactive processing
      */
     @Incoming("device-data-distribution")
     @Blocking
-    public Uni<Void> processDeviceData(Message<JsonObject> message) {
+    public Uni<Void> processDeviceData(Message<Object> message) {
+        if (isBatch(message)) {
+            return processDeviceDataBatch(message);
+        }
+
         DeviceDataModel deviceData;
-        String jsonString = null;
         
         try {
-            // Get JsonObject payload and convert to String
-            JsonObject jsonPayload = message.getPayload();
-            jsonString = jsonPayload.toString();
-            LOG.infof("Received raw message: %s", jsonString);
-            
-            // Convert String to DeviceDataModel
-            deviceData = objectMapper.readValue(jsonString, DeviceDataModel.class);
+            deviceData = DeviceMessageCodec.isBinary(message)
+                ? codec.decodeDeviceData((byte[]) message.getPayload())
+                : readJson(message.getPayload(), DeviceDataModel.class);
             LOG.infof("Successfully deserialized device data message for clientId: %s", deviceData.getClientId());
         } catch (Exception e) {
-            LOG.errorf(e, "Failed to deserialize device data message: %s. Acknowledging and discarding.", jsonString);
+            LOG.errorf(e, "Failed to deserialize device data message. Acknowledging and discarding.");
             message.ack();
             return Uni.createFrom().voidItem();
         }
 
+        processRecord(deviceData);
+        
+        // Always acknowledge the message
+        message.ack();
+        return Uni.createFrom().voidItem();
+    }
+
+    /**
+     * Unpacks a batch envelope and processes each device data record it contains
+     * @param message Message containing a DeviceDataBatchModel payload
+     * @return Uni<Void> for reactive processing
+     */
+    private Uni<Void> processDeviceDataBatch(Message<Object> message) {
+        DeviceDataBatchModel batch;
+        try {
+            batch = DeviceMessageCodec.isBinary(message)
+                ? codec.decodeDeviceDataBatch((byte[]) message.getPayload())
+                : readJson(message.getPayload(), DeviceDataBatchModel.class);
+            LOG.debugf("Received device data batch of %d records", batch.getSize());
+        } catch (Exception e) {
+            LOG.errorf(e, "Failed to deserialize device data batch message. Acknowledging and discarding.");
+            message.ack();
+            return Uni.createFrom().voidItem();
+        }
+
+        if (batch.getRecords() != null) {
+            batch.getRecords().forEach(this::processRecord);
+        }
+
+        // Always acknowledge the message
+        message.ack();
+        return Uni.createFrom().voidItem();
+    }
+
+    /**
+     * Runs anomaly detection for a single device data record
+     * @param deviceData The device data record to process
+     */
+    private void processRecord(DeviceDataModel deviceData) {
         try {
             // Process device data logic here
             LOG.infof("Processing device data for client: %s at timestamp: %s", 
-                     deviceData.getClientId(), deviceData.getTimestamp());
+                     deviceData.getClientId(), EpochNanos.toInstant(deviceData.getTimestamp()));
             
             // Log device data details
             LOG.infof("Device data details: %s", deviceData.getData());
@@ -66,7 +114,7 @@ public class DeviceDataListener {
             if (isAnomalyDetected(deviceData)) {
                 LOG.warnf("Anomaly detected for device %s at %s. Data: %s", 
                          deviceData.getClientId(), 
-                         deviceData.getTimestamp(),
+                         EpochNanos.toInstant(deviceData.getTimestamp()),
                          deviceData.getData());
                 
                 // Uncomment to send email alerts
@@ -74,7 +122,7 @@ public class DeviceDataListener {
                 //     "Device Data Anomaly Alert", 
                 //     String.format("Anomaly detected for device %s at %s\nData: %s", 
                 //                 deviceData.getClientId(), 
-                //                 deviceData.getTimestamp(),
+                //                 EpochNanos.toInstant(deviceData.getTimestamp()),
                 //                 deviceData.getData())
                 // );
             }
@@ -84,12 +132,42 @@ public class DeviceDataListener {
         } catch (Exception e) {
             LOG.errorf(e, "Error processing device data for clientId: %s", deviceData.getClientId());
         }
-        
-        // Always acknowledge the message
-        message.ack();
-        return Uni.createFrom().voidItem();
+    }
+
+    /**
+     * Checks whether the message carries a batch envelope instead of a single record
+     * @param message Message received from RabbitMQ
+     * @return true if the message-type header marks a device data batch
+     */
+    private boolean isBatch(Message<Object> message) {
+        return message.getMetadata(IncomingRabbitMQMetadata.class)
+            .map(metadata -> metadata.getHeaders().get(MESSAGE_TYPE_HEADER))
+            .map(type -> DeviceDataBatchModel.MESSAGE_TYPE.equals(type.toString()))
+            .orElse(false);
     }
     
+    /**
+     * Reads a JSON payload; the connector hands over a JsonObject for application/json bodies and the raw bytes otherwise
+     * @param payload The message payload
+     * @param type The model to read
+     * @return the deserialized model
+     * @throws IOException if the payload is not valid JSON for the model
+     */
+    private <T> T readJson(Object payload, Class<T> type) throws IOException {
+        if (payload instanceof JsonObject json) {
+            // Binds the tree the connector already parsed, instead of writing it back to text to parse it again
+            try {
+                return objectMapper.convertValue(json.getMap(), type);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Invalid JSON for " + type.getSimpleName(), e);
+            }
+        }
+        if (payload instanceof byte[] bytes) {
+            return objectMapper.readValue(bytes, type);
+        }
+        return objectMapper.readValue(payload.toString(), type);
+    }
+
     /**
      * Checks if the device data indicates an anomaly
      * @param deviceData The device data to analyze
@@ -1,14 +1,21 @@
 package org.quangdung.application.rabbitmq_listerner;
 
+import java.io.IOException;
+
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import org.eclipse.microprofile.reactive.messaging.Incoming;
+import org.eclipse.microprofile.reactive.messaging.Message;
 import org.quangdung.domain.model.DeviceStatusModel;
+import org.quangdung.core.utils.time_util.EpochNanos;
 import org.quangdung.domain.usecase.interfaces.ISendMailAlertUseCase;
+import org.quangdung.infrastructure.component.rabbitmq.codec.DeviceMessageCodec;
 import io.smallrye.common.annotation.Blocking;
 import org.jboss.logging.Logger;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.json.JsonObject;
 
 /**
  * RabbitMQ listener for device status exchange messages
@@ -21,6 +28,9 @@ public class DeviceStatusListener {
     
     @Inject
     ISendMailAlertUseCase sendMailAlertUseCase;
+
+    @Inject
+    DeviceMessageCodec codec;
     
     private final ObjectMapper objectMapper;
     
@@ -31,19 +41,21 @@ public class DeviceStatusListener {
 
     /**
      * Listens to device-status-updates channel and processes device status updates
-     * @param message Raw JSON message from RabbitMQ queue
+     * @param message Message containing a binary (see DeviceMessageCodec) or JSON payload from RabbitMQ queue
+     * @return Uni<Void> for reactive processing
      */
     @Incoming("device-status-updates")
     @Blocking
-    public void processDeviceStatus(String message) {
+    public Uni<Void> processDeviceStatus(Message<Object> message) {
         try {
-            LOG.infof("Received device status message: %s", message);
-            
-            DeviceStatusModel deviceStatus = objectMapper.readValue(message, DeviceStatusModel.class);
+            DeviceStatusModel deviceStatus = DeviceMessageCodec.isBinary(message)
+                ? codec.decodeDeviceStatus((byte[]) message.getPayload())
+                : readJson(message.getPayload(), DeviceStatusModel.class);
+            LOG.infof("Received device status message: %s", deviceStatus);
             
             // Process device status
             LOG.infof("Processing status for device: %s, Status: %s at %s", 
-                     deviceStatus.getClientId(), deviceStatus.getStatus(), deviceStatus.getTimestamp());
+                     deviceStatus.getClientId(), deviceStatus.getStatus(), EpochNanos.toInstant(deviceStatus.getTimestamp()));
             
             // Check for critical device conditions
             if (isCriticalStatus(deviceStatus)) {
@@ -54,15 +66,19 @@ public class DeviceStatusListener {
                     "Timestamp: %s",
                     deviceStatus.getClientId(),
                     deviceStatus.getStatus(),
-                    deviceStatus.getTimestamp()
+                    EpochNanos.toInstant(deviceStatus.getTimestamp())
                 );
                 
                 // sendMailAlertUseCase.sendAlert(alertSubject, alertBody);
             }
             
         } catch (Exception e) {
-            LOG.errorf(e, "Error processing device status message: %s", message);
+            LOG.errorf(e, "Error processing device status message");
         }
+
+        // Always acknowledge the message
+        message.ack();
+        return Uni.createFrom().voidItem();
     }
     
     /**
@@ -75,4 +91,26 @@ public class DeviceStatusListener {
                "ERROR".equalsIgnoreCase(deviceStatus.getStatus()) ||
                "DISCONNECTED".equalsIgnoreCase(deviceStatus.getStatus());
     }
-}
\ No newline at end of file
+
+    /**
+     * Reads a JSON payload; the connector hands over a JsonObject for application/json bodies and the raw bytes otherwise
+     * @param payload The message payload
+     * @param type The model to read
+     * @return the deserialized model
+     * @throws IOException if the payload is not valid JSON for the model
+     */
+    private <T> T readJson(Object payload, Class<T> type) throws IOException {
+        if (payload instanceof JsonObject json) {
+            // Binds the tree the connector already parsed, instead of writing it back to text to parse it again
+            try {
+                return objectMapper.convertValue(json.getMap(), type);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Invalid JSON for " + type.getSimpleName(), e);
+            }
+        }
+        if (payload instanceof byte[] bytes) {
+            return objectMapper.readValue(bytes, type);
+        }
+        return objectMapper.readValue(payload.toString(), type);
+    }
+}
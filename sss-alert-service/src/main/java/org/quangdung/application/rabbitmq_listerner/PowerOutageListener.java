@@ -1,14 +1,20 @@
 package org.quangdung.application.rabbitmq_listerner;
 
+import java.io.IOException;
+
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import org.eclipse.microprofile.reactive.messaging.Incoming;
+import org.eclipse.microprofile.reactive.messaging.Message;
 import org.quangdung.domain.model.DevicePowerOutageModel;
+import org.quangdung.core.utils.time_util.EpochNanos;
 import org.quangdung.domain.usecase.interfaces.ISendMailAlertUseCase;
+import org.quangdung.infrastructure.component.rabbitmq.codec.DeviceMessageCodec;
 import io.smallrye.common.annotation.Blocking;
 import org.jboss.logging.Logger;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.smallrye.mutiny.Uni;
 import io.vertx.core.json.JsonObject;
 
 /**
@@ -22,6 +28,9 @@ public class PowerOutageListener {
     
     @Inject
     ISendMailAlertUseCase sendMailAlertUseCase;
+
+    @Inject
+    DeviceMessageCodec codec;
     
     private final ObjectMapper objectMapper;
 
@@ -32,20 +41,21 @@ public class PowerOutageListener {
 
     /**
      * Listens to power-outage-alert channel and processes power outage alerts
-     * @param jsonMessage JsonObject message from RabbitMQ queue
+     * @param message Message containing a binary (see DeviceMessageCodec) or JSON payload from RabbitMQ queue
+     * @return Uni<Void> for reactive processing
      */
     @Incoming("power-outage-alert")
     @Blocking
-    public void processPowerOutageAlert(JsonObject jsonMessage) {
+    public Uni<Void> processPowerOutageAlert(Message<Object> message) {
         try {
-            String message = jsonMessage.toString();
-            LOG.infof("Received power outage alert: %s", message);
-            
-            DevicePowerOutageModel powerOutage = objectMapper.readValue(message, DevicePowerOutageModel.class);
+            DevicePowerOutageModel powerOutage = DeviceMessageCodec.isBinary(message)
+                ? codec.decodePowerOutage((byte[]) message.getPayload())
+                : readJson(message.getPayload(), DevicePowerOutageModel.class);
+            LOG.infof("Received power outage alert: %s", powerOutage);
             
             // Process power outage alert
             LOG.infof("Processing power outage alert for client: %s, Power Status: %d at %s", 
-                     powerOutage.getClientId(), powerOutage.getPowerStatus(), powerOutage.getTimestamp());
+                     powerOutage.getClientId(), powerOutage.getPowerStatus(), EpochNanos.toInstant(powerOutage.getTimestamp()));
             
             // Send email alert for power outage (assuming 0 = power off, 1 = power on)
             if (powerOutage.getPowerStatus() != null && powerOutage.getPowerStatus() == 0) {
@@ -56,14 +66,40 @@ public class PowerOutageListener {
                     "Timestamp: %s",
                     powerOutage.getClientId(),
                     powerOutage.getPowerStatus() == 0 ? "OFF" : "ON",
-                    powerOutage.getTimestamp()
+                    EpochNanos.toInstant(powerOutage.getTimestamp())
                 );
                 
                 // sendMailAlertUseCase.sendAlert(alertSubject, alertBody);
             }
             
         } catch (Exception e) {
-            LOG.errorf(e, "Error processing power outage alert: %s", jsonMessage.toString());
+            LOG.errorf(e, "Error processing power outage alert");
+        }
+
+        // Always acknowledge the message
+        message.ack();
+        return Uni.createFrom().voidItem();
+    }
+
+    /**
+     * Reads a JSON payload; the connector hands over a JsonObject for application/json bodies and the raw bytes otherwise
+     * @param payload The message payload
+     * @param type The model to read
+     * @return the deserialized model
+     * @throws IOException if the payload is not valid JSON for the model
+     */
+    private <T> T readJson(Object payload, Class<T> type) throws IOException {
+        if (payload instanceof JsonObject json) {
+            // Binds the tree the connector already parsed, instead of writing it back to text to parse it again
+            try {
+                return objectMapper.convertValue(json.getMap(), type);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Invalid JSON for " + type.getSimpleName(), e);
+            }
+        }
+        if (payload instanceof byte[] bytes) {
+            return objectMapper.readValue(bytes, type);
         }
+        return objectMapper.readValue(payload.toString(), type);
     }
-}
\ No newline at end of file
+}
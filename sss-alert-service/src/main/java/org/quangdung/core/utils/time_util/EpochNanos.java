@@ -0,0 +1,241 @@
+package org.quangdung.core.utils.time_util;
+
+import java.time.Instant;
+
+/**
+ * Timestamps carried as a primitive long of nanoseconds since the epoch (UTC), which is also
+ * the precision InfluxDB line protocol expects.
+ * Parsing works on characters in place and does not allocate on the success path.
+ * Accepted text forms:
+ * - ISO-8601 date-time: yyyy-MM-dd('T'|' ')HH:mm[:ss[.fraction]][Z|±HH[:]mm|±HH];
+ *   a date-time without offset is taken as UTC, which is how device clocks are set
+ * - a plain integer, read as an epoch number (see fromEpochNumber)
+ */
+public final class EpochNanos {
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final long SECONDS_PER_DAY = 86_400L;
+    // Largest epoch numbers of each unit that can be converted to epoch nanoseconds (2262-04-11T23:47:16Z)
+    private static final long MAX_EPOCH_SECONDS = Long.MAX_VALUE / NANOS_PER_SECOND;
+    private static final long MAX_EPOCH_MILLIS = Long.MAX_VALUE / 1_000_000L;
+    private static final long MAX_EPOCH_MICROS = Long.MAX_VALUE / 1_000L;
+    // Longest accepted text: 2024-01-15T10:30:00.123456789+07:00 plus some slack
+    private static final int MAX_TEXT_LENGTH = 64;
+    private static final ThreadLocal<char[]> BUFFERS = ThreadLocal.withInitial(() -> new char[MAX_TEXT_LENGTH]);
+
+    private EpochNanos() {
+    }
+
+    /**
+     * @return the current time in epoch nanoseconds
+     */
+    public static long now() {
+        Instant now = Instant.now();
+        return now.getEpochSecond() * NANOS_PER_SECOND + now.getNano();
+    }
+
+    /**
+     * Converts an epoch number whose unit is guessed from its magnitude: it is read in the coarsest unit (seconds,
+     * milliseconds, microseconds, nanoseconds) that keeps it within the range of epoch nanoseconds, up to
+     * 2262-04-11. Every unit therefore covers 1970-04-17 to 2262; only epoch numbers of the first months of 1970
+     * in milliseconds or finer are misread as a coarser unit.
+     * @param value the epoch number
+     * @return the epoch nanoseconds
+     * @throws IllegalArgumentException if the value is negative
+     */
+    public static long fromEpochNumber(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative epoch timestamp: " + value);
+        }
+        if (value <= MAX_EPOCH_SECONDS) {
+            return value * NANOS_PER_SECOND;
+        }
+        if (value <= MAX_EPOCH_MILLIS) {
+            return value * 1_000_000L;
+        }
+        if (value <= MAX_EPOCH_MICROS) {
+            return value * 1_000L;
+        }
+        return value;
+    }
+
+    /**
+     * Parses a timestamp text
+     * @param text ISO-8601 date-time or integer epoch number
+     * @return the epoch nanoseconds
+     * @throws IllegalArgumentException if the text is not a valid timestamp
+     */
+    public static long parse(String text) {
+        int length = text.length();
+        if (length > MAX_TEXT_LENGTH) {
+            throw new IllegalArgumentException("Invalid timestamp: " + text);
+        }
+        char[] buffer = BUFFERS.get();
+        text.getChars(0, length, buffer, 0);
+        return parse(buffer, 0, length);
+    }
+
+    /**
+     * Parses a timestamp from a region of a character buffer, such as the one exposed by a Jackson parser
+     * @param chars the buffer
+     * @param offset start of the text
+     * @param length length of the text
+     * @return the epoch nanoseconds
+     * @throws IllegalArgumentException if the text is not a valid timestamp
+     */
+    public static long parse(char[] chars, int offset, int length) {
+        int end = offset + length;
+        if (length > 0 && isDigits(chars, offset, end)) {
+            if (length > 19) {
+                throw invalid(chars, offset, length);
+            }
+            long value = digits(chars, offset, end);
+            if (value < 0) {
+                throw invalid(chars, offset, length);
+            }
+            return fromEpochNumber(value);
+        }
+        // yyyy-MM-ddTHH:mm is the shortest date-time
+        if (length < 16
+            || chars[offset + 4] != '-' || chars[offset + 7] != '-'
+            || (chars[offset + 10] != 'T' && chars[offset + 10] != 't' && chars[offset + 10] != ' ')
+            || chars[offset + 13] != ':') {
+            throw invalid(chars, offset, length);
+        }
+        int year = number(chars, offset, offset + 4);
+        int month = number(chars, offset + 5, offset + 7);
+        int day = number(chars, offset + 8, offset + 10);
+        int hour = number(chars, offset + 11, offset + 13);
+        int minute = number(chars, offset + 14, offset + 16);
+        int second = 0;
+        int nanos = 0;
+        int position = offset + 16;
+
+        if (position < end && chars[position] == ':') {
+            if (position + 3 > end) {
+                throw invalid(chars, offset, length);
+            }
+            second = number(chars, position + 1, position + 3);
+            position += 3;
+            if (position < end && (chars[position] == '.' || chars[position] == ',')) {
+                int digitsStart = ++position;
+                int scale = 100_000_000;
+                while (position < end && isDigit(chars[position])) {
+                    if (position - digitsStart >= 9) {
+                        throw invalid(chars, offset, length);
+                    }
+                    nanos += (chars[position] - '0') * scale;
+                    scale /= 10;
+                    position++;
+                }
+                if (position == digitsStart) {
+                    throw invalid(chars, offset, length);
+                }
+            }
+        }
+
+        int offsetSeconds = 0;
+        if (position < end) {
+            char zone = chars[position];
+            if ((zone == 'Z' || zone == 'z') && position + 1 == end) {
+                position++;
+            } else if (zone == '+' || zone == '-') {
+                int remaining = end - position - 1;
+                int offsetHours;
+                int offsetMinutes = 0;
+                if (remaining == 2) {
+                    offsetHours = number(chars, position + 1, position + 3);
+                } else if (remaining == 4) {
+                    offsetHours = number(chars, position + 1, position + 3);
+                    offsetMinutes = number(chars, position + 3, position + 5);
+                } else if (remaining == 5 && chars[position + 3] == ':') {
+                    offsetHours = number(chars, position + 1, position + 3);
+                    offsetMinutes = number(chars, position + 4, position + 6);
+                } else {
+                    throw invalid(chars, offset, length);
+                }
+                if (offsetHours < 0 || offsetHours > 18 || offsetMinutes < 0 || offsetMinutes > 59) {
+                    throw invalid(chars, offset, length);
+                }
+                offsetSeconds = (offsetHours * 3600 + offsetMinutes * 60) * (zone == '-' ? -1 : 1);
+                position = end;
+            }
+        }
+        if (position != end || year < 0 || hour < 0 || minute < 0 || second < 0
+            || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)
+            || hour > 23 || minute > 59 || second > 59) {
+            throw invalid(chars, offset, length);
+        }
+
+        long epochSecond = daysFromCivil(year, month, day) * SECONDS_PER_DAY
+            + hour * 3600L + minute * 60L + second - offsetSeconds;
+        try {
+            return Math.addExact(Math.multiplyExact(epochSecond, NANOS_PER_SECOND), nanos);
+        } catch (ArithmeticException e) {
+            throw invalid(chars, offset, length);
+        }
+    }
+
+    /**
+     * @param epochNanos epoch nanoseconds
+     * @return the same point in time as an Instant, for display
+     */
+    public static Instant toInstant(long epochNanos) {
+        return Instant.ofEpochSecond(0, epochNanos);
+    }
+
+    // Days since 1970-01-01 of a proleptic Gregorian date (H. Hinnant's days_from_civil)
+    private static long daysFromCivil(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146_097L + dayOfEra - 719_468L;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        return switch (month) {
+            case 2 -> (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+    }
+
+    // Value of a run of digits, -1 if it contains anything else
+    private static int number(char[] chars, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = chars[i];
+            if (!isDigit(c)) {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static long digits(char[] chars, int start, int end) {
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            value = value * 10 + (chars[i] - '0');
+        }
+        return value;
+    }
+
+    private static boolean isDigits(char[] chars, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (!isDigit(chars[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static IllegalArgumentException invalid(char[] chars, int offset, int length) {
+        return new IllegalArgumentException("Invalid timestamp: " + new String(chars, offset, length));
+    }
+}
@@ -0,0 +1,54 @@
+package org.quangdung.domain.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import java.util.List;
+
+/**
+ * Data Transfer Object for batched device data messages from RabbitMQ
+ * Envelope grouping several device data records published as one message
+ */
+@RegisterForReflection
+public class DeviceDataBatchModel {
+    public static final String MESSAGE_TYPE = "device-data-batch";
+
+    @JsonProperty("size")
+    private int size;
+
+    @JsonProperty("records")
+    private List<DeviceDataModel> records;
+
+    // Default constructor
+    public DeviceDataBatchModel() {}
+
+    // Constructor with all fields
+    public DeviceDataBatchModel(int size, List<DeviceDataModel> records) {
+        this.size = size;
+        this.records = records;
+    }
+
+    // Getters and Setters
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public List<DeviceDataModel> getRecords() {
+        return records;
+    }
+
+    public void setRecords(List<DeviceDataModel> records) {
+        this.records = records;
+    }
+
+    @Override
+    public String toString() {
+        return "DeviceDataBatchModel{" +
+                "size=" + size +
+                ", records=" + records +
+                '}';
+    }
+}
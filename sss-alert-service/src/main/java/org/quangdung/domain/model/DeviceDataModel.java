@@ -1,8 +1,10 @@
 package org.quangdung.domain.model;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import io.quarkus.runtime.annotations.RegisterForReflection;
-import java.time.LocalDateTime;
+import org.quangdung.core.utils.time_util.EpochNanos;
+import org.quangdung.core.utils.time_util.EpochNanosDeserializer;
 import java.util.Map;
 
 /**
@@ -14,8 +16,10 @@ public class DeviceDataModel {
     @JsonProperty("clientId")
     private String clientId;
     
+    // Epoch nanoseconds (UTC)
     @JsonProperty("timestamp")
-    private LocalDateTime timestamp;
+    @JsonDeserialize(using = EpochNanosDeserializer.class)
+    private long timestamp;
     
     @JsonProperty("data")
     private Map<String, Object> data;
@@ -24,7 +28,7 @@ public class DeviceDataModel {
     public DeviceDataModel() {}
 
     // Constructor with all fields
-    public DeviceDataModel(String clientId, LocalDateTime timestamp, Map<String, Object> data) {
+    public DeviceDataModel(String clientId, long timestamp, Map<String, Object> data) {
         this.clientId = clientId;
         this.timestamp = timestamp;
         this.data = data;
@@ -39,11 +43,11 @@ public class DeviceDataModel {
         this.clientId = clientId;
     }
 
-    public LocalDateTime getTimestamp() {
+    public long getTimestamp() {
         return timestamp;
     }
 
-    public void setTimestamp(LocalDateTime timestamp) {
+    public void setTimestamp(long timestamp) {
         this.timestamp = timestamp;
     }
 
@@ -59,7 +63,7 @@ public class DeviceDataModel {
     public String toString() {
         return "DeviceDataModel{" +
                 "clientId='" + clientId + '\'' +
-                ", timestamp=" + timestamp +
+                ", timestamp=" + EpochNanos.toInstant(timestamp) +
                 ", data=" + data +
                 '}';
     }
@@ -1,8 +1,10 @@
 package org.quangdung.domain.model;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import io.quarkus.runtime.annotations.RegisterForReflection;
-import java.time.LocalDateTime;
+import org.quangdung.core.utils.time_util.EpochNanos;
+import org.quangdung.core.utils.time_util.EpochNanosDeserializer;
 
 /**
  * Data Transfer Object for power outage alert messages from RabbitMQ
@@ -16,14 +18,16 @@ public class DevicePowerOutageModel {
     @JsonProperty("powerStatus")
     private Integer powerStatus;
     
+    // Epoch nanoseconds (UTC)
     @JsonProperty("timestamp")
-    private LocalDateTime timestamp;
+    @JsonDeserialize(using = EpochNanosDeserializer.class)
+    private long timestamp;
 
     // Default constructor
     public DevicePowerOutageModel() {}
 
     // Constructor with all fields
-    public DevicePowerOutageModel(String clientId, Integer powerStatus, LocalDateTime timestamp) {
+    public DevicePowerOutageModel(String clientId, Integer powerStatus, long timestamp) {
         this.clientId = clientId;
         this.powerStatus = powerStatus;
         this.timestamp = timestamp;
@@ -46,11 +50,11 @@ public class DevicePowerOutageModel {
         this.powerStatus = powerStatus;
     }
 
-    public LocalDateTime getTimestamp() {
+    public long getTimestamp() {
         return timestamp;
     }
 
-    public void setTimestamp(LocalDateTime timestamp) {
+    public void setTimestamp(long timestamp) {
         this.timestamp = timestamp;
     }
 
@@ -59,7 +63,7 @@ public class DevicePowerOutageModel {
         return "DevicePowerOutageModel{" +
                 "clientId='" + clientId + '\'' +
                 ", powerStatus=" + powerStatus +
-                ", timestamp=" + timestamp +
+                ", timestamp=" + EpochNanos.toInstant(timestamp) +
                 '}';
     }
 }
\ No newline at end of file
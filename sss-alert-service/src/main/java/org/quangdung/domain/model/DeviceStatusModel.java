@@ -1,8 +1,10 @@
 package org.quangdung.domain.model;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import io.quarkus.runtime.annotations.RegisterForReflection;
-import java.time.LocalDateTime;
+import org.quangdung.core.utils.time_util.EpochNanos;
+import org.quangdung.core.utils.time_util.EpochNanosDeserializer;
 
 /**
  * Data Transfer Object for device status messages from RabbitMQ
@@ -16,14 +18,16 @@ public class DeviceStatusModel {
     @JsonProperty("status")
     private String status;
     
+    // Epoch nanoseconds (UTC)
     @JsonProperty("timestamp")
-    private LocalDateTime timestamp;
+    @JsonDeserialize(using = EpochNanosDeserializer.class)
+    private long timestamp;
 
     // Default constructor
     public DeviceStatusModel() {}
 
     // Constructor with all fields
-    public DeviceStatusModel(String clientId, String status, LocalDateTime timestamp) {
+    public DeviceStatusModel(String clientId, String status, long timestamp) {
         this.clientId = clientId;
         this.status = status;
         this.timestamp = timestamp;
@@ -46,11 +50,11 @@ public class DeviceStatusModel {
         this.status = status;
     }
 
-    public LocalDateTime getTimestamp() {
+    public long getTimestamp() {
         return timestamp;
     }
 
-    public void setTimestamp(LocalDateTime timestamp) {
+    public void setTimestamp(long timestamp) {
         this.timestamp = timestamp;
     }
 
@@ -59,7 +63,7 @@ public class DeviceStatusModel {
         return "DeviceStatusModel{" +
                 "clientId='" + clientId + '\'' +
                 ", status='" + status + '\'' +
-                ", timestamp=" + timestamp +
+                ", timestamp=" + EpochNanos.toInstant(timestamp) +
                 '}';
     }
 }
\ No newline at end of file
@@ -0,0 +1,64 @@
+package org.quangdung.core.utils.time_util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.quangdung.domain.model.DeviceDataModel;
+import org.quangdung.domain.model.DevicePowerOutageModel;
+import org.quangdung.domain.model.DeviceStatusModel;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Timestamps of the JSON messages the alert service consumes from the data ingestor
+ */
+class EpochNanosDeserializerTest {
+    // 2024-01-15T03:30:00.123456789Z
+    private static final long NANOS = 1_705_289_400_123_456_789L;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("Should read the epoch nanoseconds of device data, status and power outage messages")
+    void testEpochNanos() throws Exception {
+        DeviceDataModel deviceData = objectMapper.readValue(
+            "{\"clientId\":\"sensor-01\",\"timestamp\":1705289400123456789,\"data\":{\"temperature\":21.5}}",
+            DeviceDataModel.class);
+        DeviceStatusModel status = objectMapper.readValue(
+            "{\"clientId\":\"sensor-01\",\"status\":\"offline\",\"timestamp\":1705289400123456789}",
+            DeviceStatusModel.class);
+        DevicePowerOutageModel powerOutage = objectMapper.readValue(
+            "{\"clientId\":\"sensor-01\",\"powerStatus\":0,\"timestamp\":1705289400123456789}",
+            DevicePowerOutageModel.class);
+
+        assertEquals(NANOS, deviceData.getTimestamp());
+        assertEquals(NANOS, status.getTimestamp());
+        assertEquals(NANOS, powerOutage.getTimestamp());
+    }
+
+    @Test
+    @DisplayName("Should read epoch nanoseconds before 2001 as nanoseconds, not as microseconds")
+    void testEarlyEpochNanos() throws Exception {
+        // A status from a device whose clock was reset to 2000-02-29T12:00:00Z
+        DeviceStatusModel status = objectMapper.readValue(
+            "{\"clientId\":\"sensor-01\",\"status\":\"online\",\"timestamp\":951825600000000000}",
+            DeviceStatusModel.class);
+
+        assertEquals(951_825_600_000_000_000L, status.getTimestamp());
+    }
+
+    @Test
+    @DisplayName("Should read ISO-8601 timestamps of messages queued before epoch nanos, and reject invalid ones")
+    void testLegacyAndInvalidTimestamps() throws Exception {
+        DevicePowerOutageModel powerOutage = objectMapper.readValue(
+            "{\"clientId\":\"sensor-01\",\"powerStatus\":0,\"timestamp\":\"2024-01-15T10:30:00.123456789+07:00\"}",
+            DevicePowerOutageModel.class);
+        assertEquals(NANOS, powerOutage.getTimestamp());
+
+        assertThrows(JsonMappingException.class, () -> objectMapper.readValue(
+            "{\"clientId\":\"sensor-01\",\"status\":\"online\",\"timestamp\":\"2024-02-30T00:00:00Z\"}",
+            DeviceStatusModel.class));
+    }
+}
@@ -4,15 +4,21 @@ import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 
 import org.jboss.logging.Logger;
+import org.quangdung.application.dto.request.DeviceInfoBatchRequest;
 import org.quangdung.application.dto.request.MqttAclRequest;
 import org.quangdung.application.dto.request.MqttAuthRequest;
 import org.quangdung.application.dto.request.MqttCreateAccountRequest;
 import org.quangdung.application.service.MqttService;
 import org.quangdung.core.metric.MetricService;
 
+import java.util.function.Function;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
 import io.quarkus.hibernate.reactive.panache.common.WithSession;
 import io.quarkus.hibernate.reactive.panache.common.WithTransaction;
 import io.smallrye.mutiny.Uni;
+import jakarta.annotation.PostConstruct;
 import jakarta.inject.Inject;
 import jakarta.validation.Valid;
 import jakarta.ws.rs.Consumes;
@@ -30,6 +36,19 @@ public class MqttController {
     private final Logger log;
     private final MqttService mqttService;
     private final MetricService metricService;
+    // EMQX calls /auth and /acl for every connection and publish, so their meters are bound once.
+    // Responses are 200 (allow or deny in the body), other status codes are counted through a lookup
+    private Timer authTimer;
+    private Counter authSuccesses;
+    private Function<String, Counter> authErrors;
+    private Timer aclTimer;
+    private Counter aclPublishSuccesses;
+    private Counter aclSubscribeSuccesses;
+    private Function<String, Counter> aclPublishErrors;
+    private Function<String, Counter> aclSubscribeErrors;
+    private Timer createAccountTimer;
+    private Counter accountCreations;
+    private Function<String, Counter> createAccountErrors;
 
     @Inject
     public MqttController(
@@ -42,6 +61,24 @@ public class MqttController {
         this.metricService = metricService;
     }
 
+    @PostConstruct
+    void init() {
+        authTimer = metricService.timer("mqtt.controller.auth", "endpoint=/auth", "method=POST");
+        authSuccesses = metricService.counter("mqtt.controller.auth.requests", "result=success", "status_code=200");
+        authErrors = metricService.counters("mqtt.controller.auth.errors", "error_type");
+        aclTimer = metricService.timer("mqtt.controller.acl", "endpoint=/acl", "method=POST");
+        aclPublishSuccesses = metricService.counter("mqtt.controller.acl.requests",
+            "result=success", "status_code=200", "action=publish");
+        aclSubscribeSuccesses = metricService.counter("mqtt.controller.acl.requests",
+            "result=success", "status_code=200", "action=subscribe");
+        aclPublishErrors = metricService.counters("mqtt.controller.acl.errors", "error_type", "action=publish");
+        aclSubscribeErrors = metricService.counters("mqtt.controller.acl.errors", "error_type", "action=subscribe");
+        createAccountTimer = metricService.timer("mqtt.controller.create_account", "endpoint=/create_account", "method=POST");
+        accountCreations = metricService.counter("mqtt.controller.create_account.requests",
+            "result=success", "status_code=200");
+        createAccountErrors = metricService.counters("mqtt.controller.create_account.errors", "error_type");
+    }
+
     /**
      * Handles MQTT client authentication requests from EMQX HTTP Auth
      * @param request The authentication request containing username and clientId
@@ -56,25 +93,27 @@ public class MqttController {
         log.info("Received authentication request for username: " + request.getUsername() + 
                 ", clientId: " + request.getClientId());
         
-        return metricService.timeOperation("mqtt.controller.auth", () -> {
+        return MetricService.time(authTimer, () -> {
             return mqttService.authenticate(request)
                 .onItem().invoke(response -> {
                     log.info("Authentication response: " + response.getEntity());
                     
                     // Record counter based on response status
                     int statusCode = response.getStatus();
-                    String result = (statusCode == 200) ? "success" : "failure";
-                    metricService.incrementCounter("mqtt.controller.auth.requests", 
-                        "result=" + result, "status_code=" + statusCode);
+                    if (statusCode == 200) {
+                        authSuccesses.increment();
+                    } else {
+                        metricService.incrementCounter("mqtt.controller.auth.requests",
+                            "result=failure", "status_code=" + statusCode);
+                    }
                 })
                 .onFailure().invoke(throwable -> {
                     log.error("Authentication failed", throwable);
                     
                     // Record error counter
-                    metricService.incrementCounter("mqtt.controller.auth.errors", 
-                        "error_type=" + throwable.getClass().getSimpleName());
+                    authErrors.apply(throwable.getClass().getSimpleName()).increment();
                 });
-        }, "endpoint=/auth", "method=POST");
+        });
     }
 
     /**
@@ -91,28 +130,39 @@ public class MqttController {
         log.info("Received authorization request for username: " + request.getUsername() + 
                 ", topic: " + request.getTopic() + ", action: " + request.getAction());
         
-        return metricService.timeOperation("mqtt.controller.acl", () -> {
+        return MetricService.time(aclTimer, () -> {
             return mqttService.authorize(request)
                 .onItem().invoke(response -> {
                     log.info("Authorization response: " + response.getEntity());
                     
                     // Record counter based on response status and action type
                     int statusCode = response.getStatus();
-                    String result = (statusCode == 200) ? "success" : "failure";
-                    metricService.incrementCounter("mqtt.controller.acl.requests", 
-                        "result=" + result, 
-                        "status_code=" + statusCode,
-                        "action=" + request.getAction());
+                    if (statusCode == 200 && "publish".equals(request.getAction())) {
+                        aclPublishSuccesses.increment();
+                    } else if (statusCode == 200 && "subscribe".equals(request.getAction())) {
+                        aclSubscribeSuccesses.increment();
+                    } else {
+                        metricService.incrementCounter("mqtt.controller.acl.requests", 
+                            "result=" + (statusCode == 200 ? "success" : "failure"), 
+                            "status_code=" + statusCode,
+                            "action=" + request.getAction());
+                    }
                 })
                 .onFailure().invoke(throwable -> {
                     log.error("Authorization failed", throwable);
                     
                     // Record error counter
-                    metricService.incrementCounter("mqtt.controller.acl.errors", 
-                        "error_type=" + throwable.getClass().getSimpleName(),
-                        "action=" + request.getAction());
+                    String errorType = throwable.getClass().getSimpleName();
+                    if ("publish".equals(request.getAction())) {
+                        aclPublishErrors.apply(errorType).increment();
+                    } else if ("subscribe".equals(request.getAction())) {
+                        aclSubscribeErrors.apply(errorType).increment();
+                    } else {
+                        metricService.incrementCounter("mqtt.controller.acl.errors",
+                            "error_type=" + errorType, "action=" + request.getAction());
+                    }
                 });
-        }, "endpoint=/acl", "method=POST");
+        });
     }
 
     /**
@@ -126,23 +176,26 @@ public class MqttController {
     public Uni<Response> createAccount(@NotNull(message = "Request body is required") @Valid MqttCreateAccountRequest request){
         log.info("Received MQTT account creation request for username: " + request.getMqttUsername());
         
-        return metricService.timeOperation("mqtt.controller.create_account", () -> {
+        return MetricService.time(createAccountTimer, () -> {
             return mqttService.createNewAccount(request)
                 .onItem().invoke(response -> {
                     // Record counter based on response status
                     int statusCode = response.getStatus();
-                    String result = (statusCode >= 200 && statusCode < 300) ? "success" : "failure";
-                    metricService.incrementCounter("mqtt.controller.create_account.requests", 
-                        "result=" + result, "status_code=" + statusCode);
+                    if (statusCode == 200) {
+                        accountCreations.increment();
+                    } else {
+                        String result = (statusCode >= 200 && statusCode < 300) ? "success" : "failure";
+                        metricService.incrementCounter("mqtt.controller.create_account.requests", 
+                            "result=" + result, "status_code=" + statusCode);
+                    }
                 })
                 .onFailure().invoke(throwable -> {
                     log.error("Account creation failed", throwable);
                     
                     // Record error counter
-                    metricService.incrementCounter("mqtt.controller.create_account.errors", 
-                        "error_type=" + throwable.getClass().getSimpleName());
+                    createAccountErrors.apply(throwable.getClass().getSimpleName()).increment();
                 });
-        }, "endpoint=/create_account", "method=POST");
+        });
     }
 
 
@@ -154,6 +207,21 @@ public class MqttController {
         return mqttService.getDeviceInfoByClientId(clientId);
     }
 
+    /**
+     * Resolves the device info of several client ids at once, for consumers enriching messages in bulk
+     * @param request the client ids
+     * @return List of device info; client ids without an account or device are left out
+     */
+    @POST
+    @Path("/device-info/batch")
+    @WithSession
+    public Uni<Response> getDeviceInfoByClientIds(
+            @NotNull(message = "Request body is required") @Valid DeviceInfoBatchRequest request
+    ){
+        log.debugf("Received request to get device info for %d clientIds", request.getClientIds().size());
+        return mqttService.getDeviceInfoByClientIds(request.getClientIds());
+    }
+
     @GET
     @Path("/mqtt-username/{clientId}")
     @WithSession
@@ -0,0 +1,19 @@
+package org.quangdung.application.dto.request;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+@Data
+@RegisterForReflection
+public class DeviceInfoBatchRequest {
+    @NotNull(message = "clientIds is required")
+    @Size(max = 1000, message = "At most 1000 clientIds per request")
+    @JsonProperty("clientIds")
+    private List<String> clientIds;
+}
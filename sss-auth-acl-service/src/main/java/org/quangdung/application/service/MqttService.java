@@ -1,5 +1,7 @@
 package org.quangdung.application.service;
 
+import java.util.List;
+
 import org.jboss.logging.Logger;
 import org.quangdung.application.dto.request.MqttAclRequest;
 import org.quangdung.application.dto.request.MqttAuthRequest;
@@ -8,6 +10,7 @@ import org.quangdung.application.dto.response.MqttAccountInfoWithPass;
 import org.quangdung.application.dto.response.MqttResponse;
 import org.quangdung.application.dto.response.MqttUsernameRes;
 import org.quangdung.domain.use_case.interfaces.IGetDeviceDetailsByClientIdUseCase;
+import org.quangdung.domain.use_case.interfaces.IGetDeviceDetailsByClientIdsUseCase;
 import org.quangdung.domain.use_case.interfaces.IGetMqttUsernameByClientIdUseCase;
 import org.quangdung.domain.use_case.interfaces.IMqttAuthenticationUseCase;
 import org.quangdung.domain.use_case.interfaces.IMqttAuthorizationUseCase;
@@ -26,6 +29,7 @@ public class MqttService {
     private final IMqttCreateAccountUseCase createAccountUseCase;
     private final IGetDeviceDetailsByClientIdUseCase getDeviceDetailsByClientIdUseCase;
     private final IGetMqttUsernameByClientIdUseCase getMqttUsernameByClientIdUseCase;
+    private final IGetDeviceDetailsByClientIdsUseCase getDeviceDetailsByClientIdsUseCase;
 
 
     @Inject
@@ -35,7 +39,8 @@ public class MqttService {
         IMqttAuthorizationUseCase authorizationUseCase,
         IMqttCreateAccountUseCase createAccountUseCase, 
         IGetDeviceDetailsByClientIdUseCase getDeviceDetailsByClientIdUseCase,
-        IGetMqttUsernameByClientIdUseCase getMqttUsernameByClientIdUseCase
+        IGetMqttUsernameByClientIdUseCase getMqttUsernameByClientIdUseCase,
+        IGetDeviceDetailsByClientIdsUseCase getDeviceDetailsByClientIdsUseCase
     ) {
         this.log = log;
         this.authenticationUseCase = authenticationUseCase;
@@ -43,6 +48,7 @@ public class MqttService {
         this.createAccountUseCase = createAccountUseCase;
         this.getDeviceDetailsByClientIdUseCase = getDeviceDetailsByClientIdUseCase;
         this.getMqttUsernameByClientIdUseCase = getMqttUsernameByClientIdUseCase;
+        this.getDeviceDetailsByClientIdsUseCase = getDeviceDetailsByClientIdsUseCase;
     }
 
     public Uni<Response> createNewAccount(MqttCreateAccountRequest request){
@@ -118,6 +124,12 @@ public class MqttService {
         });
     }
 
+    public Uni<Response> getDeviceInfoByClientIds(List<String> clientIds) {
+        return getDeviceDetailsByClientIdsUseCase.execute(clientIds).onItem().transform(devicesInfo -> {
+            return Response.ok(devicesInfo).build();
+        });
+    }
+
     public Uni<Response> getMqttUsernameByClientId(String clientId){
         return getMqttUsernameByClientIdUseCase.execute(clientId).onItem().transform(mqttUsername ->{
             return Response.ok(
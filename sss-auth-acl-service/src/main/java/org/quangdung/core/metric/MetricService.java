@@ -1,15 +1,21 @@
 package org.quangdung.core.metric;
 
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 import org.jboss.logging.Logger;
 
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import io.micrometer.core.instrument.Tags;
+import io.smallrye.mutiny.Uni;
 
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
@@ -32,6 +38,79 @@ public class MetricService {
         this.log = log;
     }
     
+    /**
+     * Registers (or looks up) a counter once and returns its handle.
+     * Hot paths should keep the handle and call increment() on it directly,
+     * which involves no registry lookup and no allocation.
+     * @param name the name of the counter
+     * @param tags optional tags, either "key=value" strings or alternating key and value arguments
+     * @return the registered counter
+     */
+    public Counter counter(String name, String... tags) {
+        return Counter.builder(name)
+            .tags(parseTags(tags))
+            .register(meterRegistry);
+    }
+
+    /**
+     * Registers (or looks up) a timer once and returns its handle
+     * @param name the name of the timer
+     * @param tags optional tags, either "key=value" strings or alternating key and value arguments
+     * @return the registered timer
+     */
+    public Timer timer(String name, String... tags) {
+        return Timer.builder(name)
+            .tags(parseTags(tags))
+            .register(meterRegistry);
+    }
+
+    /**
+     * Binds the counters of a meter whose series differ in one tag whose values are not known upfront
+     * (e.g. exception types): each counter is registered on the first use of its value, later uses
+     * are a map lookup without registry lookup or tag parsing
+     * @param name the name of the counter
+     * @param tagKey the key of the varying tag
+     * @param tags optional fixed tags, either "key=value" strings or alternating key and value arguments
+     * @return the counter of a tag value
+     */
+    public Function<String, Counter> counters(String name, String tagKey, String... tags) {
+        Map<String, Counter> counters = new ConcurrentHashMap<>();
+        return value -> counters.computeIfAbsent(value, key -> {
+            String[] allTags = Arrays.copyOf(tags, tags.length + 2);
+            allTags[tags.length] = tagKey;
+            allTags[tags.length + 1] = key;
+            return counter(name, allTags);
+        });
+    }
+
+    /**
+     * Times an asynchronous operation from subscription to completion, failure or cancellation.
+     * Timing the supplier of the Uni instead would only measure how long it takes to assemble it
+     * @param <T> the item type
+     * @param timer the pre-bound timer
+     * @param operation supplies the operation, called on subscription
+     * @return the timed operation
+     */
+    public static <T> Uni<T> time(Timer timer, Supplier<Uni<T>> operation) {
+        return Uni.createFrom().deferred(() -> {
+            long start = System.nanoTime();
+            return operation.get()
+                .onTermination().invoke(() -> timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        });
+    }
+
+    /**
+     * Registers (or looks up) a distribution summary once and returns its handle
+     * @param name the name of the summary
+     * @param tags optional tags, either "key=value" strings or alternating key and value arguments
+     * @return the registered distribution summary
+     */
+    public DistributionSummary summary(String name, String... tags) {
+        return DistributionSummary.builder(name)
+            .tags(parseTags(tags))
+            .register(meterRegistry);
+    }
+
     /**
      * Increments a counter metric by 1
      * @param name the name of the counter
@@ -167,7 +246,7 @@ public class MetricService {
     
     /**
      * Parses tag strings into Micrometer Tags
-     * @param tags array of tag strings in format "key=value"
+     * @param tags array of tag strings in format "key=value", or alternating key and value strings
      * @return Tags object
      */
     private Tags parseTags(String... tags) {
@@ -176,12 +255,18 @@ public class MetricService {
         }
         
         Tags result = Tags.empty();
-        for (String tag : tags) {
-            if (tag != null && tag.contains("=")) {
-                String[] parts = tag.split("=", 2);
-                if (parts.length == 2) {
-                    result = result.and(parts[0].trim(), parts[1].trim());
-                }
+        for (int i = 0; i < tags.length; i++) {
+            String tag = tags[i];
+            if (tag == null) {
+                continue;
+            }
+            int separator = tag.indexOf('=');
+            if (separator > 0) {
+                result = result.and(tag.substring(0, separator).trim(), tag.substring(separator + 1).trim());
+            } else if (i + 1 < tags.length && tags[i + 1] != null) {
+                // Separate key and value arguments, e.g. ("channel", "device-data-in")
+                result = result.and(tag.trim(), tags[i + 1].trim());
+                i++;
             }
         }
         return result;
@@ -1,5 +1,7 @@
 package org.quangdung.domain.repository;
 
+import java.util.List;
+
 import org.quangdung.domain.entity.DeviceInfo;
 import org.quangdung.domain.entity.MqttAccount;
 
@@ -12,5 +14,6 @@ public interface IMqttRepository {
     Uni<MqttAccount> findByMqttUsername(String mqttUsername);
     Uni<MqttAccount> findByClientId(String clientId);
     Uni<DeviceInfo> getDeviceInfoByClientId(String clientId);
+    Uni<List<DeviceInfo>> getDeviceInfoByClientIds(List<String> clientIds);
     Uni<String> getMqttUsernameByClientId(String clientId);
 }
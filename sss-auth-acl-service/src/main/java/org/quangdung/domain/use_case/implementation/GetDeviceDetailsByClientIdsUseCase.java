@@ -0,0 +1,30 @@
+package org.quangdung.domain.use_case.implementation;
+
+import java.util.List;
+
+import org.quangdung.domain.entity.DeviceInfo;
+import org.quangdung.domain.repository.IMqttRepository;
+import org.quangdung.domain.use_case.interfaces.IGetDeviceDetailsByClientIdsUseCase;
+
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+@ApplicationScoped
+public class GetDeviceDetailsByClientIdsUseCase implements IGetDeviceDetailsByClientIdsUseCase {
+    private final IMqttRepository mqttRepository;
+
+    @Inject
+    public GetDeviceDetailsByClientIdsUseCase(IMqttRepository mqttRepository) {
+        this.mqttRepository = mqttRepository;
+    }
+
+    @Override
+    public Uni<List<DeviceInfo>> execute(List<String> clientIds) {
+        List<String> distinctClientIds = clientIds.stream().distinct().toList();
+        if (distinctClientIds.isEmpty()) {
+            return Uni.createFrom().item(List.of());
+        }
+        return mqttRepository.getDeviceInfoByClientIds(distinctClientIds);
+    }
+}
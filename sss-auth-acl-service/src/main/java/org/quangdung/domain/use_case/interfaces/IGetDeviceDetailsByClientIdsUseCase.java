@@ -0,0 +1,11 @@
+package org.quangdung.domain.use_case.interfaces;
+
+import java.util.List;
+
+import org.quangdung.domain.entity.DeviceInfo;
+
+import io.smallrye.mutiny.Uni;
+
+public interface IGetDeviceDetailsByClientIdsUseCase {
+    Uni<List<DeviceInfo>> execute(List<String> clientIds);
+}
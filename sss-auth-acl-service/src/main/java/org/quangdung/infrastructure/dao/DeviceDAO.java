@@ -3,7 +3,12 @@ package org.quangdung.infrastructure.dao;
 import org.eclipse.microprofile.rest.client.inject.RegisterRestClient;
 import org.quangdung.infrastructure.entity.DeviceDetailsResponse;
 
+import java.util.List;
+
+import org.quangdung.infrastructure.entity.DevicesByUuidsRequest;
+
 import jakarta.ws.rs.GET;
+import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
@@ -17,4 +22,8 @@ public interface DeviceDAO {
     @GET
     @Path("/{deviceUuid}")
     Uni<DeviceDetailsResponse> getDeviceByUuid(@PathParam("deviceUuid") String deviceUuid);
+
+    @POST
+    @Path("/batch")
+    Uni<List<DeviceDetailsResponse>> getDevicesByUuids(DevicesByUuidsRequest request);
 }
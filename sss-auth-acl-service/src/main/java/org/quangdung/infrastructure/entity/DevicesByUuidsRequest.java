@@ -0,0 +1,19 @@
+package org.quangdung.infrastructure.entity;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@RegisterForReflection
+public class DevicesByUuidsRequest {
+    @JsonProperty("device_uuids")
+    private List<String> deviceUuids;
+}
@@ -1,5 +1,9 @@
 package org.quangdung.infrastructure.repository;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 
 import org.eclipse.microprofile.rest.client.inject.RestClient;
 import org.jboss.logging.Logger;
@@ -16,9 +20,13 @@ import org.quangdung.domain.entity.MqttAccount;
 import org.quangdung.domain.repository.IMqttRepository;
 import org.quangdung.infrastructure.dao.DeviceDAO;
 import org.quangdung.infrastructure.entity.DeviceDetailsResponse;
+import org.quangdung.infrastructure.entity.DevicesByUuidsRequest;
 import org.quangdung.infrastructure.entity.MqttAccountEntity;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
 import io.smallrye.mutiny.Uni;
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.WebApplicationException;
@@ -29,6 +37,30 @@ public class MqttRepository implements IMqttRepository {
     private final MetricService metricsService;
     private final DeviceDAO deviceDAO;
 
+    // Meters are bound once: the lookups run for every EMQX auth and ACL call
+    private Timer checkUsernameTimer;
+    private Counter usernameFound;
+    private Counter usernameNotFound;
+    private Function<String, Counter> usernameCheckErrors;
+    private Timer checkClientIdTimer;
+    private Counter clientIdFound;
+    private Counter clientIdNotFound;
+    private Function<String, Counter> clientIdCheckErrors;
+    private Timer findByUsernameTimer;
+    private Counter findByUsernameFound;
+    private Counter findByUsernameNotFound;
+    private Function<String, Counter> findByUsernameErrors;
+    private Timer findByClientIdTimer;
+    private Counter findByClientIdFound;
+    private Counter findByClientIdNotFound;
+    private Function<String, Counter> findByClientIdErrors;
+    private Timer createAccountTimer;
+    private Counter accountsCreated;
+    private Function<String, Counter> createAccountErrors;
+    private Timer deviceInfoBatchTimer;
+    private Counter deviceInfoBatchFound;
+    private Counter deviceInfoBatchNotFound;
+    private Function<String, Counter> deviceInfoBatchErrors;
 
     @Inject
     public MqttRepository(
@@ -41,18 +73,49 @@ public class MqttRepository implements IMqttRepository {
         this.deviceDAO = deviceDAO;
     }
 
+    @PostConstruct
+    void init() {
+        checkUsernameTimer = metricsService.timer("mqtt.repository.check_username_exists", "operation=check_username_exists");
+        usernameFound = metricsService.counter("mqtt.repository.username_check", "result=found");
+        usernameNotFound = metricsService.counter("mqtt.repository.username_check", "result=not_found");
+        usernameCheckErrors = metricsService.counters("mqtt.repository.username_check_errors", "error_type");
+
+        checkClientIdTimer = metricsService.timer("mqtt.repository.check_client_id_exists", "operation=check_client_id_exists");
+        clientIdFound = metricsService.counter("mqtt.repository.client_id_check", "result=found");
+        clientIdNotFound = metricsService.counter("mqtt.repository.client_id_check", "result=not_found");
+        clientIdCheckErrors = metricsService.counters("mqtt.repository.client_id_check_errors", "error_type");
+
+        findByUsernameTimer = metricsService.timer("mqtt.repository.find_by_username", "operation=find_by_username");
+        findByUsernameFound = metricsService.counter("mqtt.repository.find_by_username", "result=found");
+        findByUsernameNotFound = metricsService.counter("mqtt.repository.find_by_username", "result=not_found");
+        findByUsernameErrors = metricsService.counters("mqtt.repository.find_by_username_errors", "error_type");
+
+        findByClientIdTimer = metricsService.timer("mqtt.repository.find_by_client_id", "operation=find_by_client_id");
+        findByClientIdFound = metricsService.counter("mqtt.repository.find_by_client_id", "result=found");
+        findByClientIdNotFound = metricsService.counter("mqtt.repository.find_by_client_id", "result=not_found");
+        findByClientIdErrors = metricsService.counters("mqtt.repository.find_by_client_id_errors", "error_type");
+
+        createAccountTimer = metricsService.timer("mqtt.repository.create_account", "operation=create_account");
+        accountsCreated = metricsService.counter("mqtt.repository.create_account", "result=success");
+        createAccountErrors = metricsService.counters("mqtt.repository.create_account_errors", "error_type");
+
+        deviceInfoBatchTimer = metricsService.timer("mqtt.repository.get_device_info_batch", "operation=get_device_info_batch");
+        deviceInfoBatchFound = metricsService.counter("mqtt.repository.get_device_info_batch", "result=found");
+        deviceInfoBatchNotFound = metricsService.counter("mqtt.repository.get_device_info_batch", "result=not_found");
+        deviceInfoBatchErrors = metricsService.counters("mqtt.repository.get_device_info_batch_errors", "error_type");
+    }
+
     @Override
     public Uni<Boolean> checkMqttUsernameExists(String mqttUsername) {
         log.info("Checking Mqtt Id ....");
         
-        return metricsService.timeOperation("mqtt.repository.check_username_exists", () -> {
+        return MetricService.time(checkUsernameTimer, () -> {
             return MqttAccountEntity.count("mqttUsername", mqttUsername)
                 .onItem().transform(count -> {
                     boolean exists = count > 0;
                     
                     // Record counter for username check results
-                    metricsService.incrementCounter("mqtt.repository.username_check", 
-                        "result=" + (exists ? "found" : "not_found"));
+                    (exists ? usernameFound : usernameNotFound).increment();
                     
                     return exists;
                 })
@@ -60,26 +123,24 @@ public class MqttRepository implements IMqttRepository {
                     log.error(throwable);
                     
                     // Record error counter
-                    metricsService.incrementCounter("mqtt.repository.username_check_errors", 
-                        "error_type=" + throwable.getClass().getSimpleName());
+                    usernameCheckErrors.apply(throwable.getClass().getSimpleName()).increment();
                     
                     return new CheckMqttUsernameExistsException(throwable.getMessage(), throwable);
                 });
-        }, "operation=check_username_exists");
+        });
     }
 
     @Override
     public Uni<Boolean> checkClientIdExists(String clientId) {
         log.info("Checking Client ID ....");
         
-        return metricsService.timeOperation("mqtt.repository.check_client_id_exists", () -> {
+        return MetricService.time(checkClientIdTimer, () -> {
             return MqttAccountEntity.count("clientId", clientId)
                 .onItem().transform(count -> {
                     boolean exists = count > 0;
                     
                     // Record counter for client ID check results
-                    metricsService.incrementCounter("mqtt.repository.client_id_check", 
-                        "result=" + (exists ? "found" : "not_found"));
+                    (exists ? clientIdFound : clientIdNotFound).increment();
                     
                     return exists;
                 })
@@ -87,27 +148,25 @@ public class MqttRepository implements IMqttRepository {
                     log.error(throwable);
                     
                     // Record error counter
-                    metricsService.incrementCounter("mqtt.repository.client_id_check_errors", 
-                        "error_type=" + throwable.getClass().getSimpleName());
+                    clientIdCheckErrors.apply(throwable.getClass().getSimpleName()).increment();
                     
                     throw new CheckClientIdExistsException(throwable.getMessage(), throwable);
                 });
-        }, "operation=check_client_id_exists");
+        });
     }
 
     @Override
     public Uni<MqttAccount> findByMqttUsername(String mqttUsername) {
         log.info("Finding MQTT account by mqttUsername: " + mqttUsername);
         
-        return metricsService.timeOperation("mqtt.repository.find_by_username", () -> {
+        return MetricService.time(findByUsernameTimer, () -> {
             return MqttAccountEntity.find("SELECT m FROM MqttAccountEntity m LEFT JOIN FETCH m.permissions WHERE m.mqttUsername = ?1", mqttUsername)
                 .firstResult()
                 .onItem().transform(entity -> {
                     MqttAccount result = (entity == null) ? null : MqttAccount.fromEntity((MqttAccountEntity) entity);
                     
                     // Record counter for find results
-                    metricsService.incrementCounter("mqtt.repository.find_by_username", 
-                        "result=" + (result != null ? "found" : "not_found"));
+                    (result != null ? findByUsernameFound : findByUsernameNotFound).increment();
                     
                     return result;
                 })
@@ -115,27 +174,25 @@ public class MqttRepository implements IMqttRepository {
                     log.error("Error finding MQTT account by mqttId", throwable);
                     
                     // Record error counter
-                    metricsService.incrementCounter("mqtt.repository.find_by_username_errors", 
-                        "error_type=" + throwable.getClass().getSimpleName());
+                    findByUsernameErrors.apply(throwable.getClass().getSimpleName()).increment();
                     
                     return new FindByMqttUsernameException(throwable.getMessage(), throwable);
                 });
-        }, "operation=find_by_username");
+        });
     }
 
     @Override
     public Uni<MqttAccount> findByClientId(String clientId) {
         log.info("Finding MQTT account by clientId: " + clientId);
         
-        return metricsService.timeOperation("mqtt.repository.find_by_client_id", () -> {
+        return MetricService.time(findByClientIdTimer, () -> {
             return MqttAccountEntity.find("SELECT m FROM MqttAccountEntity m LEFT JOIN FETCH m.permissions WHERE m.clientId = ?1", clientId)
                 .firstResult()
                 .onItem().transform(entity -> {
                     MqttAccount result = (entity == null) ? null : MqttAccount.fromEntity((MqttAccountEntity) entity);
                     
                     // Record counter for find results
-                    metricsService.incrementCounter("mqtt.repository.find_by_client_id", 
-                        "result=" + (result != null ? "found" : "not_found"));
+                    (result != null ? findByClientIdFound : findByClientIdNotFound).increment();
                     
                     return result;
                 })
@@ -143,24 +200,23 @@ public class MqttRepository implements IMqttRepository {
                     log.error("Error finding MQTT account by clientId", throwable);
                     
                     // Record error counter
-                    metricsService.incrementCounter("mqtt.repository.find_by_client_id_errors", 
-                        "error_type=" + throwable.getClass().getSimpleName());
+                    findByClientIdErrors.apply(throwable.getClass().getSimpleName()).increment();
                     
                     return new FindByClientIdException("Failed to find MQTT account", throwable);
                 });
-        }, "operation=find_by_client_id");
+        });
     }
 
     @Override
     public Uni<MqttAccount> createAccount(MqttAccount mqttAccount) {
         log.info("Saving account into DB...");
         
-        return metricsService.timeOperation("mqtt.repository.create_account", () -> {
+        return MetricService.time(createAccountTimer, () -> {
             MqttAccountEntity account = mqttAccount.toEntity();
             return account.persist().onItem().transform(savedAccount -> {
                 
                 // Record successful creation counter
-                metricsService.incrementCounter("mqtt.repository.create_account", "result=success");
+                accountsCreated.increment();
                 
                 return MqttAccount.fromEntity((MqttAccountEntity) savedAccount);
             })
@@ -168,12 +224,11 @@ public class MqttRepository implements IMqttRepository {
                 log.error("Error saving account into DB", throwable);
                 
                 // Record error counter
-                metricsService.incrementCounter("mqtt.repository.create_account_errors", 
-                    "error_type=" + throwable.getClass().getSimpleName());
+                createAccountErrors.apply(throwable.getClass().getSimpleName()).increment();
                 
                 return new FindByClientIdException("Failed to find MQTT account", throwable);
             });
-        }, "operation=create_account");
+        });
     }
 
     @Override
@@ -208,6 +263,64 @@ public class MqttRepository implements IMqttRepository {
             });
     }
 
+    /**
+     * Resolves the device info of several client ids with one IN query and one batched device-service call
+     * @param clientIds distinct client ids
+     * @return the device info of the client ids found; client ids without an account or device are left out
+     */
+    @Override
+    public Uni<List<DeviceInfo>> getDeviceInfoByClientIds(List<String> clientIds) {
+        return MetricService.time(deviceInfoBatchTimer, () -> {
+            return MqttAccountEntity.<MqttAccountEntity>list("clientId in ?1", clientIds)
+                .onItem().transformToUni(accounts -> {
+                    List<String> deviceUuids = accounts.stream()
+                        .map(MqttAccountEntity::getDeviceUuid)
+                        .filter(deviceUuid -> deviceUuid != null)
+                        .distinct()
+                        .toList();
+                    if (deviceUuids.isEmpty()) {
+                        return Uni.createFrom().item(List.<DeviceInfo>of());
+                    }
+                    log.debugf("Found %d MQTT accounts for %d clientIds. Fetching device info from DeviceService...",
+                               accounts.size(), clientIds.size());
+                    return deviceDAO.getDevicesByUuids(new DevicesByUuidsRequest(deviceUuids))
+                        .onItem().transform(devices -> {
+                            Map<String, DeviceDetailsResponse> devicesByUuid = new HashMap<>(devices.size() * 2);
+                            devices.forEach(device -> devicesByUuid.put(device.getDeviceUuid(), device));
+                            return accounts.stream()
+                                .filter(account -> devicesByUuid.containsKey(account.getDeviceUuid()))
+                                .map(account -> {
+                                    DeviceDetailsResponse device = devicesByUuid.get(account.getDeviceUuid());
+                                    return DeviceInfo.builder()
+                                        .deviceUuid(device.getDeviceUuid())
+                                        .deviceName(device.getDeviceName())
+                                        .mqttUsername(device.getMqttUsername())
+                                        .clientId(account.getClientId())
+                                        .build();
+                                })
+                                .toList();
+                        });
+                })
+                .onItem().invoke(found -> {
+                    // Record counters for batch lookup results
+                    deviceInfoBatchFound.increment(found.size());
+                    deviceInfoBatchNotFound.increment(clientIds.size() - found.size());
+                })
+                .onFailure().transform(throwable -> {
+                    log.error("Error fetching device info in batch", throwable);
+                    deviceInfoBatchErrors.apply(throwable.getClass().getSimpleName()).increment();
+                    if (throwable instanceof WebApplicationException) {
+                        return throwable;
+                    }
+                    return new ServiceCommunicationException(
+                        String.format("An unexpected error occurred while fetching device info for %d clientIds: %s",
+                                      clientIds.size(), throwable.getMessage()),
+                        throwable
+                    );
+                });
+        });
+    }
+
     @Override
     public Uni<String> getMqttUsernameByClientId(String clientId) {
         return MqttAccountEntity.find("clientId", clientId).firstResult()
@@ -0,0 +1,116 @@
+package org.quangdung.core.dedup;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size filter of recently seen messages, used to drop exact redeliveries.
+ * Keys are hashed to a slot holding a small ring of the last window fingerprints seen for that slot.
+ * Each ring entry packs a 40-bit fingerprint of (key, type, payload) with the 24-bit second it was
+ * recorded at, so the whole table is slots * window longs plus one int cursor per slot, whatever
+ * the number of keys. Keys sharing a slot share its ring, which can only make a duplicate be missed,
+ * never make a distinct message be reported as a duplicate (short of a fingerprint collision).
+ * Concurrent calls are safe; racing updates of the same slot may lose an entry.
+ */
+public class DuplicateFilter {
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final long SEED = 0x9E3779B97F4A7C15L;
+    private static final int TIME_BITS = 24;
+    private static final long TIME_MASK = (1L << TIME_BITS) - 1;
+
+    private final AtomicLongArray entries;
+    private final AtomicIntegerArray cursors;
+    private final int slotMask;
+    private final int window;
+    private final long ttlSeconds;
+    private final long epochMillis;
+
+    /**
+     * @param slots number of rings, rounded up to a power of two
+     * @param window number of fingerprints remembered per ring
+     * @param ttlSeconds how long a fingerprint is remembered, at most 2^24 seconds
+     */
+    public DuplicateFilter(int slots, int window, long ttlSeconds) {
+        if (slots < 1 || slots > (1 << 30)) {
+            throw new IllegalArgumentException("Slot count must be between 1 and 2^30");
+        }
+        if (window < 1) {
+            throw new IllegalArgumentException("Window must be at least 1");
+        }
+        if (ttlSeconds < 1 || ttlSeconds > TIME_MASK) {
+            throw new IllegalArgumentException("TTL must be between 1 and " + TIME_MASK + " seconds");
+        }
+        int slotCount = Integer.highestOneBit(slots) == slots ? slots : Integer.highestOneBit(slots) << 1;
+        if ((long) slotCount * window > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Slot count * window is too large");
+        }
+        this.entries = new AtomicLongArray(slotCount * window);
+        this.cursors = new AtomicIntegerArray(slotCount);
+        this.slotMask = slotCount - 1;
+        this.window = window;
+        this.ttlSeconds = ttlSeconds;
+        this.epochMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Checks a message against the filter and records it if it was not seen yet
+     * @param key the message source, e.g. the device client id
+     * @param type discriminates messages of one key carrying different kinds of payloads
+     * @param payload the raw message payload
+     * @param nowMillis the current time
+     * @return true if the same message was seen for this key within the TTL
+     */
+    public boolean isDuplicate(String key, int type, byte[] payload, long nowMillis) {
+        long keyHash = mix(key.hashCode() * SEED + type);
+        long fingerprint = mix(keyHash ^ hash(payload)) & ~TIME_MASK;
+        if (fingerprint == 0) {
+            fingerprint = TIME_MASK + 1;
+        }
+        long now = ((nowMillis - epochMillis) / 1000) & TIME_MASK;
+
+        int slot = (int) keyHash & slotMask;
+        int base = slot * window;
+        for (int i = 0; i < window; i++) {
+            long entry = entries.get(base + i);
+            if ((entry & ~TIME_MASK) == fingerprint && ((now - entry) & TIME_MASK) < ttlSeconds) {
+                return true;
+            }
+        }
+        int position = Math.floorMod(cursors.getAndIncrement(slot), window);
+        entries.lazySet(base + position, fingerprint | now);
+        return false;
+    }
+
+    /**
+     * @return number of bytes held by the filter tables
+     */
+    public long footprintBytes() {
+        return (long) entries.length() * Long.BYTES + (long) cursors.length() * Integer.BYTES;
+    }
+
+    private static long hash(byte[] payload) {
+        long h = SEED ^ payload.length;
+        int i = 0;
+        for (; i + Long.BYTES <= payload.length; i += Long.BYTES) {
+            h = (h ^ mix((long) LONGS.get(payload, i))) * SEED;
+        }
+        long tail = 0;
+        for (int shift = 0; i < payload.length; i++, shift += 8) {
+            tail |= (payload[i] & 0xFFL) << shift;
+        }
+        return mix(h ^ tail);
+    }
+
+    // MurmurHash3 fmix64 finalizer
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
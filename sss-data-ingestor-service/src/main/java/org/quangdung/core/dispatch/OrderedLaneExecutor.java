@@ -0,0 +1,133 @@
+package org.quangdung.core.dispatch;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.UniEmitter;
+
+/**
+ * Runs asynchronous tasks on a fixed number of lanes selected by hashing a key.
+ * Tasks sharing a key run one after the other in submission order, while tasks
+ * of keys mapped to different lanes run in parallel on the given executor.
+ * Each lane holds at most maxPending tasks (queued plus running); submitting to a full
+ * lane is accepted only once one of its tasks has completed.
+ */
+public class OrderedLaneExecutor {
+
+    private final Lane[] lanes;
+    private final int maxPending;
+    private final Executor executor;
+    private final Consumer<Throwable> failureHandler;
+
+    /**
+     * @param laneCount number of lanes
+     * @param maxPending maximum number of queued and running tasks per lane
+     * @param executor executor the tasks are started on
+     * @param failureHandler invoked with the failure of a task that did not recover itself
+     */
+    public OrderedLaneExecutor(int laneCount, int maxPending, Executor executor, Consumer<Throwable> failureHandler) {
+        if (laneCount < 1) {
+            throw new IllegalArgumentException("Lane count must be at least 1");
+        }
+        if (maxPending < 1) {
+            throw new IllegalArgumentException("Lane max pending must be at least 1");
+        }
+        this.lanes = new Lane[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new Lane();
+        }
+        this.maxPending = maxPending;
+        this.executor = executor;
+        this.failureHandler = failureHandler;
+    }
+
+    /**
+     * Queues a task on the lane of the given key
+     * @param key the ordering key, tasks with equal keys never run concurrently
+     * @param task supplier of the task, invoked on the executor when the task's turn comes
+     * @return Uni completing once the task has been accepted by its lane (not when it has run)
+     */
+    public Uni<Void> submit(String key, Supplier<Uni<Void>> task) {
+        Lane lane = lanes[laneOf(key)];
+        return Uni.createFrom().emitter(emitter -> {
+            lane.tasks.offer(task);
+            int depth = lane.depth.incrementAndGet();
+            if (depth == 1) {
+                // The lane was idle
+                runNext(lane);
+            }
+            if (depth <= maxPending) {
+                emitter.complete(null);
+                return;
+            }
+            lane.waiters.offer(emitter);
+            // The lane may have drained between the increment and the registration above
+            if (lane.depth.get() <= maxPending && lane.waiters.remove(emitter)) {
+                emitter.complete(null);
+            }
+        });
+    }
+
+    /**
+     * @param key the ordering key
+     * @return index of the lane the key is mapped to
+     */
+    public int laneOf(String key) {
+        int hash = key.hashCode() * 0x9E3779B9;
+        hash ^= hash >>> 16;
+        return Math.floorMod(hash, lanes.length);
+    }
+
+    /**
+     * @return number of lanes
+     */
+    public int laneCount() {
+        return lanes.length;
+    }
+
+    /**
+     * @param lane index of the lane
+     * @return number of queued and running tasks of the lane
+     */
+    public int depth(int lane) {
+        return lanes[lane].depth.get();
+    }
+
+    private void runNext(Lane lane) {
+        Supplier<Uni<Void>> task = lane.tasks.poll();
+        Uni.createFrom().deferred(task::get)
+            .runSubscriptionOn(executor)
+            .subscribe().with(
+                ignored -> complete(lane),
+                failure -> {
+                    failureHandler.accept(failure);
+                    complete(lane);
+                }
+            );
+    }
+
+    private void complete(Lane lane) {
+        int remaining = lane.depth.decrementAndGet();
+        if (remaining <= maxPending) {
+            UniEmitter<? super Void> waiter = lane.waiters.poll();
+            if (waiter != null) {
+                waiter.complete(null);
+            }
+        }
+        if (remaining > 0) {
+            runNext(lane);
+        }
+    }
+
+    private static final class Lane {
+        final Queue<Supplier<Uni<Void>>> tasks = new ConcurrentLinkedQueue<>();
+        final Queue<UniEmitter<? super Void>> waiters = new ConcurrentLinkedQueue<>();
+        // Queued plus running tasks, the lane has a running task whenever it is positive
+        final AtomicInteger depth = new AtomicInteger();
+    }
+}
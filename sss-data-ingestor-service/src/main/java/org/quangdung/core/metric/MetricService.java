@@ -6,6 +6,7 @@ import java.util.function.Supplier;
 import org.jboss.logging.Logger;
 
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
@@ -28,6 +29,44 @@ public class MetricService {
         this.log = log;
     }
     
+    /**
+     * Registers (or looks up) a counter once and returns its handle.
+     * Hot paths should keep the handle and call increment() on it directly,
+     * which involves no registry lookup and no allocation.
+     * @param name the name of the counter
+     * @param tags optional tags, either "key=value" strings or alternating key and value arguments
+     * @return the registered counter
+     */
+    public Counter counter(String name, String... tags) {
+        return Counter.builder(name)
+            .tags(parseTags(tags))
+            .register(meterRegistry);
+    }
+
+    /**
+     * Registers (or looks up) a timer once and returns its handle
+     * @param name the name of the timer
+     * @param tags optional tags, either "key=value" strings or alternating key and value arguments
+     * @return the registered timer
+     */
+    public Timer timer(String name, String... tags) {
+        return Timer.builder(name)
+            .tags(parseTags(tags))
+            .register(meterRegistry);
+    }
+
+    /**
+     * Registers (or looks up) a distribution summary once and returns its handle
+     * @param name the name of the summary
+     * @param tags optional tags, either "key=value" strings or alternating key and value arguments
+     * @return the registered distribution summary
+     */
+    public DistributionSummary summary(String name, String... tags) {
+        return DistributionSummary.builder(name)
+            .tags(parseTags(tags))
+            .register(meterRegistry);
+    }
+
     /**
      * Increments a counter metric by 1
      * @param name the name of the counter
@@ -74,6 +113,24 @@ public class MetricService {
             }
     }
     
+    /**
+     * Records a value in a distribution summary metric
+     * @param name the name of the summary
+     * @param amount the value to record
+     * @param tags optional tags for the metric
+     */
+    public void recordSummary(String name, double amount, String... tags) {
+
+            try {
+                DistributionSummary summary = DistributionSummary.builder(name)
+                    .tags(parseTags(tags))
+                    .register(meterRegistry);
+                summary.record(amount);
+            } catch (Exception e) {
+                log.warnf("Failed to record summary %s: %s", name, e.getMessage());
+            }
+    }
+
     /**
      * Times a runnable operation
      * @param name the name of the timer
@@ -163,7 +220,7 @@ public class MetricService {
     
     /**
      * Parses tag strings into Micrometer Tags
-     * @param tags array of tag strings in format "key=value"
+     * @param tags array of tag strings in format "key=value", or alternating key and value strings
      * @return Tags object
      */
     private Tags parseTags(String... tags) {
@@ -172,12 +229,18 @@ public class MetricService {
         }
         
         Tags result = Tags.empty();
-        for (String tag : tags) {
-            if (tag != null && tag.contains("=")) {
-                String[] parts = tag.split("=", 2);
-                if (parts.length == 2) {
-                    result = result.and(parts[0].trim(), parts[1].trim());
-                }
+        for (int i = 0; i < tags.length; i++) {
+            String tag = tags[i];
+            if (tag == null) {
+                continue;
+            }
+            int separator = tag.indexOf('=');
+            if (separator > 0) {
+                result = result.and(tag.substring(0, separator).trim(), tag.substring(separator + 1).trim());
+            } else if (i + 1 < tags.length && tags[i + 1] != null) {
+                // Separate key and value arguments, e.g. ("channel", "device-data-in")
+                result = result.and(tag.trim(), tags[i + 1].trim());
+                i++;
             }
         }
         return result;
@@ -0,0 +1,385 @@
+package org.quangdung.core.spool;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Append-only, first-in first-out log of byte records stored in fixed size memory-mapped segment files.
+ * Segment layout: [int magic][int read position] followed by records [int length][long append time][bytes].
+ * The length of a record is written last, so a record interrupted by a crash reads as the end of the segment.
+ * Fully consumed segments are deleted; the number of segment files is capped by maxBytes.
+ * Records can be read ahead of the consumed ones with next(), so that several of them are in flight
+ * at once; they are still consumed in order with commit().
+ */
+public class SegmentLog implements Closeable {
+    private static final int MAGIC = 0x53504F4C;
+    private static final int SEGMENT_HEADER_BYTES = 8;
+    private static final int READ_POSITION_OFFSET = 4;
+    private static final int RECORD_HEADER_BYTES = 12;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    /**
+     * A record read from the log
+     */
+    public static final class Entry {
+        private final byte[] payload;
+        private final long appendedAtMillis;
+
+        private Entry(byte[] payload, long appendedAtMillis) {
+            this.payload = payload;
+            this.appendedAtMillis = appendedAtMillis;
+        }
+
+        public byte[] getPayload() {
+            return payload;
+        }
+
+        public long getAppendedAtMillis() {
+            return appendedAtMillis;
+        }
+    }
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final long maxBytes;
+    private final Deque<Segment> segments = new ArrayDeque<>();
+
+    private long nextSequence;
+    private long pendingRecords;
+    private long pendingBytes;
+    // Read-ahead position of next(), at or after the oldest unconsumed record; null means that record
+    private Segment cursorSegment;
+    private int cursorPosition;
+
+    /**
+     * Opens the log, recovering the unconsumed records of existing segment files
+     * @param directory directory holding the segment files, created if missing
+     * @param segmentBytes size of each segment file
+     * @param maxBytes maximum total size of the segment files
+     * @throws IOException if the directory or a segment file cannot be opened
+     */
+    public SegmentLog(Path directory, int segmentBytes, long maxBytes) throws IOException {
+        if (segmentBytes <= SEGMENT_HEADER_BYTES + RECORD_HEADER_BYTES) {
+            throw new IllegalArgumentException("Segment size is too small: " + segmentBytes);
+        }
+        if (maxBytes < segmentBytes) {
+            throw new IllegalArgumentException("Max size must hold at least one segment");
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(directory);
+        recover();
+    }
+
+    /**
+     * Appends a record at the end of the log
+     * @param payload the record
+     * @param appendedAtMillis append time, reported back with the record
+     * @return false if the record does not fit within the size cap
+     * @throws IOException if a new segment file cannot be created
+     */
+    public synchronized boolean append(byte[] payload, long appendedAtMillis) throws IOException {
+        return appendAll(List.of(payload), appendedAtMillis);
+    }
+
+    /**
+     * Appends records at the end of the log, either all of them or none
+     * @param payloads the records, in order
+     * @param appendedAtMillis append time, reported back with each record
+     * @return false if the records do not all fit within the size cap, nothing is appended then
+     * @throws IOException if a new segment file cannot be created
+     */
+    public synchronized boolean appendAll(List<byte[]> payloads, long appendedAtMillis) throws IOException {
+        // Release consumed segments before checking the cap
+        headWithRecords();
+        if (!fits(payloads)) {
+            return false;
+        }
+        for (byte[] payload : payloads) {
+            write(payload, appendedAtMillis);
+        }
+        return true;
+    }
+
+    /**
+     * @return the oldest unconsumed record, or null if the log is empty
+     * @throws IOException if a consumed segment file cannot be deleted
+     */
+    public synchronized Entry peek() throws IOException {
+        Segment head = headWithRecords();
+        if (head == null) {
+            return null;
+        }
+        int position = head.readPosition;
+        int length = head.buffer.getInt(position);
+        byte[] payload = new byte[length];
+        head.buffer.get(position + RECORD_HEADER_BYTES, payload);
+        return new Entry(payload, head.buffer.getLong(position + 4));
+    }
+
+    /**
+     * Reads the record after the one returned by the previous call, without consuming it.
+     * The first call, and the first call after rewind(), returns the oldest unconsumed record.
+     * @return the next record, or null if every record has been read
+     * @throws IOException if a consumed segment file cannot be deleted
+     */
+    public synchronized Entry next() throws IOException {
+        if (cursorSegment == null || !segments.contains(cursorSegment)) {
+            cursorSegment = headWithRecords();
+            if (cursorSegment == null) {
+                return null;
+            }
+            cursorPosition = cursorSegment.readPosition;
+        }
+        while (cursorPosition == cursorSegment.writePosition) {
+            Segment following = following(cursorSegment);
+            if (following == null) {
+                return null;
+            }
+            cursorSegment = following;
+            cursorPosition = following.readPosition;
+        }
+        int length = cursorSegment.buffer.getInt(cursorPosition);
+        byte[] payload = new byte[length];
+        cursorSegment.buffer.get(cursorPosition + RECORD_HEADER_BYTES, payload);
+        Entry entry = new Entry(payload, cursorSegment.buffer.getLong(cursorPosition + 4));
+        cursorPosition += RECORD_HEADER_BYTES + length;
+        return entry;
+    }
+
+    /**
+     * Moves the read-ahead position of next() back to the oldest unconsumed record
+     */
+    public synchronized void rewind() {
+        cursorSegment = null;
+    }
+
+    /**
+     * Calls the action with every unconsumed record, oldest first
+     * @param action receives the record payloads
+     */
+    public synchronized void forEachPending(Consumer<byte[]> action) {
+        for (Segment segment : segments) {
+            int position = segment.readPosition;
+            while (position < segment.writePosition) {
+                int length = segment.buffer.getInt(position);
+                byte[] payload = new byte[length];
+                segment.buffer.get(position + RECORD_HEADER_BYTES, payload);
+                action.accept(payload);
+                position += RECORD_HEADER_BYTES + length;
+            }
+        }
+    }
+
+    /**
+     * Marks the oldest unconsumed record as consumed.
+     * When reading ahead with next(), only records it has returned may be committed
+     * @throws IOException if a consumed segment file cannot be deleted
+     */
+    public synchronized void commit() throws IOException {
+        Segment head = headWithRecords();
+        if (head == null) {
+            return;
+        }
+        int consumed = RECORD_HEADER_BYTES + head.buffer.getInt(head.readPosition);
+        head.readPosition += consumed;
+        head.buffer.putInt(READ_POSITION_OFFSET, head.readPosition);
+        pendingRecords--;
+        pendingBytes -= consumed;
+        if (head.readPosition == head.writePosition && head != segments.peekLast()) {
+            delete(segments.pollFirst());
+        }
+    }
+
+    /**
+     * @return append time of the oldest unconsumed record, or -1 if the log is empty
+     */
+    public synchronized long oldestAppendedAtMillis() {
+        for (Segment segment : segments) {
+            if (segment.readPosition < segment.writePosition) {
+                return segment.buffer.getLong(segment.readPosition + 4);
+            }
+        }
+        return -1;
+    }
+
+    public synchronized boolean isEmpty() {
+        return pendingRecords == 0;
+    }
+
+    /**
+     * @return number of unconsumed records
+     */
+    public synchronized long pendingRecords() {
+        return pendingRecords;
+    }
+
+    /**
+     * @return bytes taken by unconsumed records
+     */
+    public synchronized long pendingBytes() {
+        return pendingBytes;
+    }
+
+    /**
+     * @return bytes reserved on disk by the segment files
+     */
+    public synchronized long diskBytes() {
+        return (long) segments.size() * segmentBytes;
+    }
+
+    @Override
+    public synchronized void close() {
+        for (Segment segment : segments) {
+            segment.buffer.force();
+        }
+        segments.clear();
+    }
+
+    // Whether the records can be written without exceeding the cap, consumed segments being released
+    private boolean fits(List<byte[]> payloads) {
+        Segment tail = segments.peekLast();
+        int writePosition = tail == null ? segmentBytes : tail.writePosition;
+        int segmentCount = segments.size();
+        // A consumed tail is replaced rather than kept when a new segment is needed
+        boolean reusableTail = tail != null && tail.readPosition == tail.writePosition;
+        for (byte[] payload : payloads) {
+            int needed = RECORD_HEADER_BYTES + payload.length;
+            if (needed > segmentBytes - SEGMENT_HEADER_BYTES) {
+                return false;
+            }
+            if (writePosition + needed > segmentBytes) {
+                if (reusableTail) {
+                    reusableTail = false;
+                } else {
+                    segmentCount++;
+                }
+                if ((long) segmentCount * segmentBytes > maxBytes) {
+                    return false;
+                }
+                writePosition = SEGMENT_HEADER_BYTES;
+            }
+            writePosition += needed;
+        }
+        return true;
+    }
+
+    // Writes a record that fits
+    private void write(byte[] payload, long appendedAtMillis) throws IOException {
+        int needed = RECORD_HEADER_BYTES + payload.length;
+        Segment tail = segments.peekLast();
+        if (tail == null || tail.writePosition + needed > segmentBytes) {
+            if (tail != null && tail.readPosition == tail.writePosition) {
+                delete(segments.pollLast());
+            }
+            tail = createSegment();
+        }
+        MappedByteBuffer buffer = tail.buffer;
+        int position = tail.writePosition;
+        buffer.putLong(position + 4, appendedAtMillis);
+        buffer.put(position + RECORD_HEADER_BYTES, payload);
+        buffer.putInt(position, payload.length);
+        tail.writePosition = position + needed;
+        pendingRecords++;
+        pendingBytes += needed;
+    }
+
+    private Segment following(Segment segment) {
+        Iterator<Segment> iterator = segments.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next() == segment) {
+                return iterator.hasNext() ? iterator.next() : null;
+            }
+        }
+        return null;
+    }
+
+    private Segment headWithRecords() throws IOException {
+        Segment head = segments.peekFirst();
+        while (head != null && head.readPosition == head.writePosition && head != segments.peekLast()) {
+            delete(segments.pollFirst());
+            head = segments.peekFirst();
+        }
+        return head == null || head.readPosition == head.writePosition ? null : head;
+    }
+
+    private void recover() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        // Zero padded sequence numbers sort in creation order
+        files.sort(null);
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            long sequence = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+            Segment segment = new Segment(file, map(file));
+            if (segment.buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not a spool segment: " + file);
+            }
+            segment.readPosition = segment.buffer.getInt(READ_POSITION_OFFSET);
+            int position = segment.readPosition;
+            while (position + RECORD_HEADER_BYTES <= segmentBytes) {
+                int length = segment.buffer.getInt(position);
+                if (length <= 0 || position + RECORD_HEADER_BYTES + length > segmentBytes) {
+                    break;
+                }
+                position += RECORD_HEADER_BYTES + length;
+                pendingRecords++;
+                pendingBytes += RECORD_HEADER_BYTES + length;
+            }
+            segment.writePosition = position;
+            segments.addLast(segment);
+            nextSequence = sequence + 1;
+        }
+    }
+
+    private Segment createSegment() throws IOException {
+        long sequence = nextSequence++;
+        Path file = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX));
+        Segment segment = new Segment(file, map(file));
+        segment.buffer.putInt(0, MAGIC);
+        segment.buffer.putInt(READ_POSITION_OFFSET, SEGMENT_HEADER_BYTES);
+        segment.readPosition = SEGMENT_HEADER_BYTES;
+        segment.writePosition = SEGMENT_HEADER_BYTES;
+        segments.addLast(segment);
+        return segment;
+    }
+
+    private MappedByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // The mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+    }
+
+    private void delete(Segment segment) throws IOException {
+        Files.deleteIfExists(segment.file);
+    }
+
+    private static final class Segment {
+        private final Path file;
+        private final MappedByteBuffer buffer;
+        private int readPosition;
+        private int writePosition;
+
+        private Segment(Path file, MappedByteBuffer buffer) {
+            this.file = file;
+            this.buffer = buffer;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package org.quangdung.core.utils.time_util;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+/**
+ * Reads an epoch-nanos timestamp from an integer epoch number (unit guessed, see EpochNanos.fromEpochNumber)
+ * or an ISO-8601 string, so messages written before timestamps became epoch nanos can still be read.
+ * Absent or null timestamps read as 0.
+ */
+public class EpochNanosDeserializer extends StdDeserializer<Long> {
+
+    public EpochNanosDeserializer() {
+        super(Long.class);
+    }
+
+    @Override
+    public Long deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+        JsonToken token = parser.currentToken();
+        try {
+            if (token == JsonToken.VALUE_NUMBER_INT) {
+                return EpochNanos.fromEpochNumber(parser.getLongValue());
+            }
+            if (token == JsonToken.VALUE_STRING) {
+                return EpochNanos.parse(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+            }
+        } catch (IllegalArgumentException e) {
+            throw JsonMappingException.from(parser, e.getMessage(), e);
+        }
+        return (Long) context.handleUnexpectedToken(Long.class, parser);
+    }
+
+    @Override
+    public Long getNullValue(DeserializationContext context) {
+        return 0L;
+    }
+}
@@ -1,96 +1,236 @@
 package org.quangdung.infrastructure.component.mqtt;
 
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.reactive.messaging.Acknowledgment;
 import org.eclipse.microprofile.reactive.messaging.Incoming;
 import org.jboss.logging.Logger;
+import org.quangdung.core.dedup.DuplicateFilter;
+import org.quangdung.core.dispatch.OrderedLaneExecutor;
 import org.quangdung.core.metric.MetricService;
 import org.quangdung.infrastructure.component.mqtt.dispatcher.MqttMessageDispatcher;
 import org.quangdung.infrastructure.component.mqtt.handler.MessageHandler;
+import org.quangdung.infrastructure.component.mqtt.topic.DeviceTopicParser;
+import org.quangdung.infrastructure.component.mqtt.topic.ParsedTopic;
+import org.quangdung.infrastructure.component.mqtt.topic.TopicType;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
 import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
 import io.smallrye.reactive.messaging.mqtt.MqttMessage;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 
 @ApplicationScoped
 public class MqttClientComponent {
+    private static final String CHANNEL = "device-data-in";
+
     private final Logger log;
     private final MqttMessageDispatcher dispatcher;
     private final MetricService metricsService;
+    private final DeviceTopicParser topicParser;
+    // Keeps the messages of one device in order while different devices are handled in parallel
+    private final OrderedLaneExecutor laneExecutor;
+    // Drops QoS 1 redeliveries before they are handled, null when disabled
+    private final DuplicateFilter duplicateFilter;
+    // Topic types checked against the duplicate filter, indexed by TopicType ordinal
+    private final boolean[] dedupTypes;
+    // Meters bound once per topic type, indexed by TopicType ordinal
+    private final TopicMeters[] topicMeters;
     
     @Inject
     public MqttClientComponent(
         Logger log,
         MqttMessageDispatcher dispatcher,
-        MetricService metricsService
+        MetricService metricsService,
+        DeviceTopicParser topicParser,
+        @ConfigProperty(name = "mqtt.dispatch.lanes", defaultValue = "0") int lanes,
+        @ConfigProperty(name = "mqtt.dispatch.lane-max-pending", defaultValue = "64") int laneMaxPending,
+        @ConfigProperty(name = "mqtt.dedup.enabled", defaultValue = "true") boolean dedupEnabled,
+        @ConfigProperty(name = "mqtt.dedup.topic-types", defaultValue = "telemetry,power_outage") List<String> dedupTopicTypes,
+        @ConfigProperty(name = "mqtt.dedup.slots", defaultValue = "131072") int dedupSlots,
+        @ConfigProperty(name = "mqtt.dedup.window", defaultValue = "8") int dedupWindow,
+        @ConfigProperty(name = "mqtt.dedup.ttl-seconds", defaultValue = "300") long dedupTtlSeconds
     ) {
         this.log = log;
         this.dispatcher = dispatcher;
         this.metricsService = metricsService;
+        this.topicParser = topicParser;
+        metricsService.registerGauge("mqtt_client_id_cache_size", topicParser, DeviceTopicParser::size);
+
+        // 0 means one lane per available processor
+        int laneCount = lanes > 0 ? lanes : Runtime.getRuntime().availableProcessors();
+        this.laneExecutor = new OrderedLaneExecutor(laneCount, laneMaxPending, Infrastructure.getDefaultWorkerPool(),
+            throwable -> log.error("Unrecovered failure in MQTT dispatch lane", throwable));
+        for (int lane = 0; lane < laneCount; lane++) {
+            int laneIndex = lane;
+            metricsService.registerGauge("mqtt_dispatch_lane_depth", () -> laneExecutor.depth(laneIndex),
+                                         "channel", CHANNEL,
+                                         "lane", Integer.toString(lane));
+        }
+        log.infof("MQTT dispatch running on %d lanes (max pending per lane: %d)", laneCount, laneMaxPending);
+
+        TopicType[] types = TopicType.values();
+        this.topicMeters = new TopicMeters[types.length];
+        this.dedupTypes = new boolean[types.length];
+        for (TopicType type : types) {
+            TopicMeters meters = new TopicMeters(metricsService, type.getSegment());
+            topicMeters[type.ordinal()] = meters;
+            dedupTypes[type.ordinal()] = dedupEnabled && dedupTopicTypes.contains(type.getSegment());
+            if (dedupTypes[type.ordinal()]) {
+                metricsService.registerGauge("mqtt_dedup_hit_ratio", meters, TopicMeters::dedupHitRatio,
+                                             "channel", CHANNEL,
+                                             "topic_type", type.getSegment());
+            }
+        }
+
+        if (dedupEnabled) {
+            this.duplicateFilter = new DuplicateFilter(dedupSlots, dedupWindow, dedupTtlSeconds);
+            log.infof("MQTT duplicate filter enabled for %s (%d bytes, window %d, ttl %ds)",
+                      dedupTopicTypes, duplicateFilter.footprintBytes(), dedupWindow, dedupTtlSeconds);
+        } else {
+            this.duplicateFilter = null;
+        }
     }
 
-    @Incoming("device-data-in")
+    /**
+     * Acknowledges (PUBACK for QoS 1) each message once it has been handled, i.e. published to RabbitMQ or spooled,
+     * so that the broker redelivers the messages still in a lane when the ingestor stops or crashes.
+     * The channel only waits for the message to be queued on its device's lane; a full lane holds it back, but the
+     * broker's in-flight window (EMQX max_inflight) caps the unacknowledged QoS 1 messages below lane-max-pending.
+     */
+    @Incoming(CHANNEL)
+    @Acknowledgment(Acknowledgment.Strategy.MANUAL)
     public Uni<Void> process(MqttMessage<byte[]> message) {
         String topic = message.getTopic();
-        String topicType = getLastSegmentFromTopic(topic);
-        String channel = "device-data-in"; // Name of your incoming MQTT channel
+        ParsedTopic parsedTopic = topicParser.parse(topic);
+
+        if (parsedTopic == null) {
+            log.warn("Ignoring message on malformed topic: " + topic);
+            return ack(message);
+        }
+        String topicType = parsedTopic.getType().getSegment();
+        TopicMeters meters = topicMeters[parsedTopic.getType().ordinal()];
 
         // Record the total number of messages received
-        metricsService.incrementCounter("mqtt_messages_received_total", 
-                                        "channel", channel, 
-                                        "topic", topic);
+        meters.received.increment();
 
         log.infof("Processing MQTT message for topic: %s, type: %s", topic, topicType);
-        MessageHandler handler = dispatcher.getHandler(topicType);
+        MessageHandler handler = dispatcher.getHandler(parsedTopic.getType());
 
         if (handler != null) {
-            long startTime = System.nanoTime(); // Start timing the processing
-
-            return handler.handle(message)
-                .onItem().invoke(() -> {
-                    long duration = System.nanoTime() - startTime;
-                    // Record processing duration and total successfully processed messages
-                    metricsService.recordTimer("mqtt_message_processing_duration_seconds", duration, TimeUnit.NANOSECONDS,
-                                                "channel", channel,
-                                                "topic_type", topicType,
-                                                "result", "success");
-                    metricsService.incrementCounter("mqtt_messages_processed_total",
-                                                    "channel", channel,
-                                                    "topic_type", topicType,
-                                                    "result", "success");
-                    log.infof("Successfully processed message for topic: %s", topic);
-                })
-                .onFailure().invoke(throwable -> {
-                    long duration = System.nanoTime() - startTime;
-                    // Record processing duration and total failed messages
-                    metricsService.recordTimer("mqtt_message_processing_duration_seconds", duration, TimeUnit.NANOSECONDS,
-                                                "channel", channel,
-                                                "topic_type", topicType,
-                                                "result", "failure");
-                    metricsService.incrementCounter("mqtt_messages_processed_total",
-                                                    "channel", channel,
-                                                    "topic_type", topicType,
-                                                    "result", "failure");
-                    log.error("Failed to process message for topic: " + topic, throwable);
-                })
-                .onFailure().recoverWithItem(() -> {
-                    // Recover from failures to prevent message processing from stopping
-                    log.warn("Recovered from failure for topic: " + topic);
-                    return null; 
-                });
+            if (isDuplicate(message, parsedTopic, meters)) {
+                log.debugf("Dropping duplicate message for topic: %s", topic);
+                return ack(message);
+            }
+            // Accepted once queued on the device's lane, so a slow device only holds back its own lane;
+            // acknowledged once handled
+            return laneExecutor.submit(parsedTopic.getClientId(),
+                                       () -> handle(handler, message, parsedTopic, meters).chain(() -> ack(message)));
         } else {
             // Record the number of messages for which no handler was found
-            metricsService.incrementCounter("mqtt_no_handler_found_total", 
-                                            "channel", channel, 
-                                            "topic_type", topicType);
+            meters.noHandler.increment();
             log.warn("No handler found for topic type: " + topicType);
-            return Uni.createFrom().voidItem();
+            return ack(message);
+        }
+    }
+
+    private static Uni<Void> ack(MqttMessage<byte[]> message) {
+        return Uni.createFrom().completionStage(message::ack);
+    }
+
+    /**
+     * Checks a message against the duplicate filter when its topic type is deduplicated
+     * @return true if the exact same payload was already received from this device recently
+     */
+    private boolean isDuplicate(MqttMessage<byte[]> message, ParsedTopic parsedTopic, TopicMeters meters) {
+        TopicType type = parsedTopic.getType();
+        if (!dedupTypes[type.ordinal()]) {
+            return false;
         }
+        meters.dedupChecked.increment();
+        boolean duplicate = duplicateFilter.isDuplicate(parsedTopic.getClientId(), type.ordinal(), message.getPayload(),
+                                                        System.currentTimeMillis());
+        if (duplicate) {
+            meters.duplicates.increment();
+        }
+        return duplicate;
+    }
+
+    private Uni<Void> handle(MessageHandler handler, MqttMessage<byte[]> message, ParsedTopic parsedTopic, TopicMeters meters) {
+        String topic = message.getTopic();
+        long startTime = System.nanoTime(); // Start timing the processing
+
+        return handler.handle(message, parsedTopic)
+            .onItem().invoke(() -> {
+                // Record processing duration and total successfully processed messages
+                meters.successDuration.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+                meters.processedSuccess.increment();
+                log.infof("Successfully processed message for topic: %s", topic);
+            })
+            .onFailure().invoke(throwable -> {
+                // Record processing duration and total failed messages
+                meters.failureDuration.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+                meters.processedFailure.increment();
+                log.error("Failed to process message for topic: " + topic, throwable);
+            })
+            .onFailure().recoverWithItem(() -> {
+                // Recover from failures to prevent message processing from stopping
+                log.warn("Recovered from failure for topic: " + topic);
+                return null; 
+            });
     }
 
-    private String getLastSegmentFromTopic(String topic) {
-        String[] parts = topic.split("/");
-        return parts[parts.length - 1];
+    /**
+     * Pre-bound meters of one topic type, so that the per-message path never goes through the registry
+     */
+    private static final class TopicMeters {
+        final Counter received;
+        final Counter processedSuccess;
+        final Counter processedFailure;
+        final Counter noHandler;
+        final Counter dedupChecked;
+        final Counter duplicates;
+        final Timer successDuration;
+        final Timer failureDuration;
+
+        TopicMeters(MetricService metricsService, String topicType) {
+            this.received = metricsService.counter("mqtt_messages_received_total",
+                                                   "channel", CHANNEL,
+                                                   "topic_type", topicType);
+            this.processedSuccess = metricsService.counter("mqtt_messages_processed_total",
+                                                           "channel", CHANNEL,
+                                                           "topic_type", topicType,
+                                                           "result", "success");
+            this.processedFailure = metricsService.counter("mqtt_messages_processed_total",
+                                                           "channel", CHANNEL,
+                                                           "topic_type", topicType,
+                                                           "result", "failure");
+            this.noHandler = metricsService.counter("mqtt_no_handler_found_total",
+                                                    "channel", CHANNEL,
+                                                    "topic_type", topicType);
+            this.dedupChecked = metricsService.counter("mqtt_dedup_checked_total",
+                                                       "channel", CHANNEL,
+                                                       "topic_type", topicType);
+            this.duplicates = metricsService.counter("mqtt_duplicates_dropped_total",
+                                                     "channel", CHANNEL,
+                                                     "topic_type", topicType);
+            this.successDuration = metricsService.timer("mqtt_message_processing_duration_seconds",
+                                                        "channel", CHANNEL,
+                                                        "topic_type", topicType,
+                                                        "result", "success");
+            this.failureDuration = metricsService.timer("mqtt_message_processing_duration_seconds",
+                                                        "channel", CHANNEL,
+                                                        "topic_type", topicType,
+                                                        "result", "failure");
+        }
+
+        double dedupHitRatio() {
+            double checked = dedupChecked.count();
+            return checked == 0 ? 0 : duplicates.count() / checked;
+        }
     }
 }
@@ -1,10 +1,10 @@
 package org.quangdung.infrastructure.component.mqtt.dispatcher;
 
+import java.util.EnumMap;
 import java.util.Map;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 
 import org.quangdung.infrastructure.component.mqtt.handler.MessageHandler;
+import org.quangdung.infrastructure.component.mqtt.topic.TopicType;
 
 import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
@@ -17,15 +17,15 @@ public class MqttMessageDispatcher {
     @Inject
     Instance<MessageHandler> handlers;
 
-    private Map<String, MessageHandler> handlerMap;
+    private Map<TopicType, MessageHandler> handlerMap;
 
     @PostConstruct
     void init() {
-        this.handlerMap = handlers.stream()
-                .collect(Collectors.toMap(MessageHandler::getHandledTopicType, Function.identity()));
+        this.handlerMap = new EnumMap<>(TopicType.class);
+        handlers.forEach(handler -> handlerMap.put(handler.getHandledTopicType(), handler));
     }
 
-    public MessageHandler getHandler(String topicType) {
+    public MessageHandler getHandler(TopicType topicType) {
         return handlerMap.get(topicType);
     }
 }
@@ -1,17 +1,13 @@
 package org.quangdung.infrastructure.component.mqtt.handler;
 
-import java.time.LocalDateTime;
-import java.time.OffsetDateTime;
-import java.time.ZoneOffset;
-import java.util.Map;
-
 import org.jboss.logging.Logger;
+import org.quangdung.infrastructure.component.mqtt.parser.DevicePayload;
+import org.quangdung.infrastructure.component.mqtt.parser.DevicePayloadParser;
+import org.quangdung.infrastructure.component.mqtt.topic.ParsedTopic;
+import org.quangdung.infrastructure.component.mqtt.topic.TopicType;
 import org.quangdung.infrastructure.component.rabbitmq.RabbitMqMessageProducer;
 import org.quangdung.infrastructure.component.rabbitmq.model.DevicePowerOutageModel;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 import io.smallrye.mutiny.Uni;
 import io.smallrye.reactive.messaging.mqtt.MqttMessage;
 import jakarta.enterprise.context.ApplicationScoped;
@@ -20,23 +16,23 @@ import jakarta.inject.Inject;
 @ApplicationScoped
 public class PowerOutageHandler extends MessageHandler {
     private final Logger log;
-    private final ObjectMapper objectMapper;
+    private final DevicePayloadParser payloadParser;
     private final RabbitMqMessageProducer rabbitMqMessageProducer;
 
     @Inject
     public PowerOutageHandler(
         Logger log,
-        ObjectMapper objectMapper,
+        DevicePayloadParser payloadParser,
         RabbitMqMessageProducer rabbitMqMessageProducer
     ) {
         this.log = log;
-        this.objectMapper = objectMapper;
+        this.payloadParser = payloadParser;
         this.rabbitMqMessageProducer = rabbitMqMessageProducer;
     }
 
     @Override
-    public String getHandledTopicType() {
-        return "power_outage";
+    public TopicType getHandledTopicType() {
+        return TopicType.POWER_OUTAGE;
     }
 
     /**
@@ -45,48 +41,43 @@ public class PowerOutageHandler extends MessageHandler {
      * @return Uni<Void> representing the completion of message processing
      */
     @Override
-    public Uni<Void> handle(MqttMessage<byte[]> message) {
-        String data = new String(message.getPayload());
-        String clientId = this.getClientId(message);
+    public Uni<Void> handle(MqttMessage<byte[]> message, ParsedTopic topic) {
+        byte[] payload = message.getPayload();
+        String clientId = topic.getClientId();
         
         // Log all received messages
-        log.infof("Received power outage message from client: %s, topic: %s, payload: %s", 
-                 clientId, message.getTopic(), data);
+        log.infof("Received power outage message from client: %s, topic: %s", clientId, message.getTopic());
+        if (log.isDebugEnabled()) {
+            log.debugf("Power outage payload from client %s: %s", clientId, new String(payload));
+        }
         
-        Map<String, Object> payloadMap;
+        DevicePayload parsed;
         try {
-            payloadMap = objectMapper.readValue(data, new TypeReference<>() {});
+            parsed = payloadParser.parse(payload);
         } catch (Exception e) {
             log.error("Failed to parse power outage payload for topic: " + message.getTopic(), e);
             return Uni.createFrom().failure(e);
         }
     
-        Map<String, Object> dataMap = (Map<String, Object>) payloadMap.get("data");
-        String timestampStr = (String) payloadMap.get("timestamp");
+        int powerStatusIndex = parsed.indexOf("power_status");
     
-        if (dataMap == null || dataMap.isEmpty()) {
+        if (parsed.getFieldCount() == 0) {
             log.warn("Empty or null data map for client: " + clientId);
             return Uni.createFrom().voidItem();
         }
     
-        // Parse timestamp with timezone support
-        LocalDateTime timestamp;
-        try {
-            if (timestampStr.endsWith("Z")) {
-                // Parse ISO timestamp with UTC timezone
-                OffsetDateTime offsetDateTime = OffsetDateTime.parse(timestampStr);
-                timestamp = offsetDateTime.toLocalDateTime();
-            } else {
-                // Parse local datetime without timezone
-                timestamp = LocalDateTime.parse(timestampStr);
-            }
-        } catch (Exception e) {
-            log.errorf(e, "Failed to parse timestamp: %s for client: %s", timestampStr, clientId);
+        // The parser already resolved the offset: "...Z", "...+07:00" and offset-less (UTC) texts or epoch numbers
+        if (parsed.getTimestampKind() != DevicePayload.TimestampKind.VALID) {
+            IllegalArgumentException e = new IllegalArgumentException("Missing or invalid timestamp: " + parsed.getInvalidTimestamp());
+            log.errorf(e, "Failed to parse timestamp: %s for client: %s", parsed.getInvalidTimestamp(), clientId);
             return Uni.createFrom().failure(e);
         }
+        long timestamp = parsed.getTimestampNanos();
     
         // Giữ nguyên Integer (0 hoặc 1) thay vì chuyển thành String
-        Integer powerStatus = (Integer) dataMap.get("power_status");
+        Integer powerStatus = powerStatusIndex >= 0 && parsed.getFieldType(powerStatusIndex) == DevicePayload.TYPE_LONG
+            ? (int) parsed.getLong(powerStatusIndex)
+            : null;
         
         log.infof("Processing power outage for client: %s, status: %d, timestamp: %s", 
                  clientId, powerStatus, timestamp);
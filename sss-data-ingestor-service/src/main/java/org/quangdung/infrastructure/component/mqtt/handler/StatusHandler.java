@@ -1,15 +1,13 @@
 package org.quangdung.infrastructure.component.mqtt.handler;
 
-import java.time.LocalDateTime;
-import java.util.Map;
-
 import org.jboss.logging.Logger;
+import org.quangdung.core.utils.time_util.EpochNanos;
+import org.quangdung.infrastructure.component.mqtt.parser.DevicePayloadParser;
+import org.quangdung.infrastructure.component.mqtt.topic.ParsedTopic;
+import org.quangdung.infrastructure.component.mqtt.topic.TopicType;
 import org.quangdung.infrastructure.component.rabbitmq.RabbitMqMessageProducer;
 import org.quangdung.infrastructure.component.rabbitmq.model.DeviceStatusModel;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 import io.smallrye.mutiny.Uni;
 import io.smallrye.reactive.messaging.mqtt.MqttMessage;
 import jakarta.enterprise.context.ApplicationScoped;
@@ -18,40 +16,39 @@ import jakarta.inject.Inject;
 @ApplicationScoped
 public class StatusHandler extends MessageHandler {
     private final Logger log;
-    private final ObjectMapper objectMapper;
+    private final DevicePayloadParser payloadParser;
     private final RabbitMqMessageProducer rabbitMqMessageProducer;
 
     @Inject
     public StatusHandler(
         Logger log,
-        ObjectMapper objectMapper,
+        DevicePayloadParser payloadParser,
         RabbitMqMessageProducer rabbitMqMessageProducer
     ) {
         this.log = log;
-        this.objectMapper = objectMapper;
+        this.payloadParser = payloadParser;
         this.rabbitMqMessageProducer = rabbitMqMessageProducer;
     }
 
     @Override
-    public String getHandledTopicType() {
-        return "status";
+    public TopicType getHandledTopicType() {
+        return TopicType.STATUS;
     }
 
     @Override
-    public Uni<Void> handle(MqttMessage<byte[]> message) {
-        Map<String, Object> payloadMap;
+    public Uni<Void> handle(MqttMessage<byte[]> message, ParsedTopic topic) {
+        String status;
         try {
-            String data = new String(message.getPayload());
-            payloadMap = objectMapper.readValue(data, new TypeReference<>() {});
+            status = payloadParser.parse(message.getPayload()).getStatus();
         } catch (Exception e) {
             log.error("Failed to parse status payload for topic: " + message.getTopic(), e);
             return Uni.createFrom().failure(e);
         }
-        String clientId = this.getClientId(message);
+        String clientId = topic.getClientId();
         DeviceStatusModel deviceStatus = DeviceStatusModel.builder()
             .clientId(clientId)
-            .status((String) payloadMap.get("status"))
-            .timestamp(LocalDateTime.now())
+            .status(status)
+            .timestamp(EpochNanos.now())
             .build();
 
         return rabbitMqMessageProducer.publishDeviceStatusUpdate(deviceStatus)
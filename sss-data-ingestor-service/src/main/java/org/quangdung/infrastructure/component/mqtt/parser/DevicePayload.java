@@ -0,0 +1,181 @@
+package org.quangdung.infrastructure.component.mqtt.parser;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Mutable, reusable holder for a parsed device payload.
+ * Field names are the canonical (interned) instances handed out by the Jackson symbol table,
+ * numeric values are kept in primitive arrays so that parsing does not box sensor readings.
+ * An instance is owned by the parsing thread and is overwritten by the next parse on that thread.
+ */
+public final class DevicePayload {
+    public static final byte TYPE_DOUBLE = 0;
+    public static final byte TYPE_LONG = 1;
+    public static final byte TYPE_BOOLEAN = 2;
+    public static final byte TYPE_STRING = 3;
+
+    /**
+     * Outcome of reading the payload timestamp
+     */
+    public enum TimestampKind { NONE, VALID, INVALID }
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    private String[] fieldNames = new String[INITIAL_CAPACITY];
+    private byte[] fieldTypes = new byte[INITIAL_CAPACITY];
+    private double[] doubleValues = new double[INITIAL_CAPACITY];
+    private long[] longValues = new long[INITIAL_CAPACITY];
+    private String[] stringValues = new String[INITIAL_CAPACITY];
+    private int fieldCount;
+
+    private TimestampKind timestampKind = TimestampKind.NONE;
+    private long timestampNanos;
+    private String invalidTimestamp;
+
+    private String status;
+
+    void reset() {
+        // Drop references so that strings of the previous payload can be collected
+        Arrays.fill(stringValues, 0, fieldCount, null);
+        fieldCount = 0;
+        timestampKind = TimestampKind.NONE;
+        timestampNanos = 0;
+        invalidTimestamp = null;
+        status = null;
+    }
+
+    void addDouble(String name, double value) {
+        int index = nextSlot(name, TYPE_DOUBLE);
+        doubleValues[index] = value;
+    }
+
+    void addLong(String name, long value) {
+        int index = nextSlot(name, TYPE_LONG);
+        longValues[index] = value;
+    }
+
+    void addBoolean(String name, boolean value) {
+        int index = nextSlot(name, TYPE_BOOLEAN);
+        longValues[index] = value ? 1L : 0L;
+    }
+
+    void addString(String name, String value) {
+        int index = nextSlot(name, TYPE_STRING);
+        stringValues[index] = value;
+    }
+
+    void setTimestampNanos(long timestampNanos) {
+        this.timestampKind = TimestampKind.VALID;
+        this.timestampNanos = timestampNanos;
+    }
+
+    void setInvalidTimestamp(String invalidTimestamp) {
+        this.timestampKind = TimestampKind.INVALID;
+        this.invalidTimestamp = invalidTimestamp;
+    }
+
+    void setStatus(String status) {
+        this.status = status;
+    }
+
+    private int nextSlot(String name, byte type) {
+        if (fieldCount == fieldNames.length) {
+            int capacity = fieldCount * 2;
+            fieldNames = Arrays.copyOf(fieldNames, capacity);
+            fieldTypes = Arrays.copyOf(fieldTypes, capacity);
+            doubleValues = Arrays.copyOf(doubleValues, capacity);
+            longValues = Arrays.copyOf(longValues, capacity);
+            stringValues = Arrays.copyOf(stringValues, capacity);
+        }
+        int index = fieldCount++;
+        fieldNames[index] = name;
+        fieldTypes[index] = type;
+        return index;
+    }
+
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    public String getFieldName(int index) {
+        return fieldNames[index];
+    }
+
+    public byte getFieldType(int index) {
+        return fieldTypes[index];
+    }
+
+    public double getDouble(int index) {
+        return doubleValues[index];
+    }
+
+    public long getLong(int index) {
+        return longValues[index];
+    }
+
+    public boolean getBoolean(int index) {
+        return longValues[index] != 0L;
+    }
+
+    public String getString(int index) {
+        return stringValues[index];
+    }
+
+    /**
+     * Finds a data field by name
+     * @param name the field name
+     * @return index of the field, or -1 if the payload does not contain it
+     */
+    public int indexOf(String name) {
+        for (int i = 0; i < fieldCount; i++) {
+            if (fieldNames[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public TimestampKind getTimestampKind() {
+        return timestampKind;
+    }
+
+    /**
+     * @return the payload timestamp in epoch nanoseconds, valid when the kind is VALID
+     */
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    /**
+     * @return the raw timestamp that could not be parsed, set when the kind is INVALID
+     */
+    public String getInvalidTimestamp() {
+        return invalidTimestamp;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    /**
+     * Copies the data fields into a map, for publishing with the JSON wire format (the binary wire format
+     * encodes the primitive slots directly).
+     * This is the only place where sensor values are boxed.
+     * @return a new map holding the data fields in payload order
+     */
+    public Map<String, Object> toDataMap() {
+        Map<String, Object> data = new LinkedHashMap<>(fieldCount * 2);
+        for (int i = 0; i < fieldCount; i++) {
+            Object value = switch (fieldTypes[i]) {
+                case TYPE_DOUBLE -> doubleValues[i];
+                case TYPE_LONG -> longValues[i];
+                case TYPE_BOOLEAN -> longValues[i] != 0L;
+                default -> stringValues[i];
+            };
+            data.put(fieldNames[i], value);
+        }
+        return data;
+    }
+}
@@ -0,0 +1,139 @@
+package org.quangdung.infrastructure.component.mqtt.parser;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
+import org.msgpack.jackson.dataformat.MessagePackFactory;
+import org.quangdung.core.utils.time_util.EpochNanos;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Streaming parser for device payloads of the form
+ * {"data": {"temperature": 21.5, ...}, "timestamp": "...", "status": "..."}.
+ * The timestamp (ISO-8601 text or epoch number) is converted to epoch nanoseconds while reading.
+ * The same object may be encoded as JSON, CBOR or MessagePack; the encoding is detected from the
+ * first byte (see PayloadFormat) and all three are read by the same token loop.
+ * Reads the MQTT byte[] directly and fills a thread-local DevicePayload, so no intermediate
+ * String, Map or boxed value is created while parsing.
+ */
+@ApplicationScoped
+public class DevicePayloadParser {
+    private static final String DATA_FIELD = "data";
+    private static final String TIMESTAMP_FIELD = "timestamp";
+    private static final String STATUS_FIELD = "status";
+
+    private static final ThreadLocal<DevicePayload> PAYLOADS = ThreadLocal.withInitial(DevicePayload::new);
+
+    private final JsonFactory jsonFactory;
+    private final JsonFactory cborFactory;
+    private final JsonFactory msgpackFactory;
+
+    @Inject
+    public DevicePayloadParser(ObjectMapper objectMapper) {
+        // Field names are canonicalized by the factory symbol table and shared across parses
+        this.jsonFactory = objectMapper.getFactory();
+        this.cborFactory = new CBORFactory();
+        this.msgpackFactory = new MessagePackFactory();
+    }
+
+    /**
+     * Parses a payload, detecting its encoding.
+     * The returned instance is reused by the next call on the same thread and must be consumed before that.
+     * @param payload raw MQTT payload
+     * @return the parsed payload
+     * @throws IOException if the payload is not a valid object in the detected encoding
+     */
+    public DevicePayload parse(byte[] payload) throws IOException {
+        return parse(payload, PayloadFormat.detect(payload));
+    }
+
+    /**
+     * Parses a payload of a known encoding.
+     * The returned instance is reused by the next call on the same thread and must be consumed before that.
+     * @param payload raw MQTT payload
+     * @param format encoding of the payload
+     * @return the parsed payload
+     * @throws IOException if the payload is not a valid object in the given encoding
+     */
+    public DevicePayload parse(byte[] payload, PayloadFormat format) throws IOException {
+        DevicePayload result = PAYLOADS.get();
+        result.reset();
+        try (JsonParser parser = factoryFor(format).createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Expected an object payload");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                JsonToken token = parser.nextToken();
+                switch (name) {
+                    case DATA_FIELD -> readData(parser, token, result);
+                    case TIMESTAMP_FIELD -> readTimestamp(parser, token, result);
+                    case STATUS_FIELD -> {
+                        if (token == JsonToken.VALUE_STRING) {
+                            result.setStatus(parser.getText());
+                        }
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+        return result;
+    }
+
+    private JsonFactory factoryFor(PayloadFormat format) {
+        return switch (format) {
+            case CBOR -> cborFactory;
+            case MSGPACK -> msgpackFactory;
+            default -> jsonFactory;
+        };
+    }
+
+    private void readData(JsonParser parser, JsonToken token, DevicePayload result) throws IOException {
+        if (token != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            switch (parser.nextToken()) {
+                case VALUE_NUMBER_INT -> {
+                    if (parser.getNumberType() == JsonParser.NumberType.BIG_INTEGER) {
+                        result.addDouble(name, parser.getDoubleValue());
+                    } else {
+                        result.addLong(name, parser.getLongValue());
+                    }
+                }
+                case VALUE_NUMBER_FLOAT -> result.addDouble(name, parser.getDoubleValue());
+                case VALUE_TRUE -> result.addBoolean(name, true);
+                case VALUE_FALSE -> result.addBoolean(name, false);
+                case VALUE_STRING -> result.addString(name, parser.getText());
+                // Nested structures, nulls and binary values cannot be stored as sensor fields
+                default -> parser.skipChildren();
+            }
+        }
+    }
+
+    private void readTimestamp(JsonParser parser, JsonToken token, DevicePayload result) throws IOException {
+        try {
+            if (token == JsonToken.VALUE_STRING) {
+                // Parsed from the parser's own character buffer, the text is never materialized
+                result.setTimestampNanos(EpochNanos.parse(parser.getTextCharacters(), parser.getTextOffset(),
+                                                          parser.getTextLength()));
+            } else if (token == JsonToken.VALUE_NUMBER_INT) {
+                result.setTimestampNanos(EpochNanos.fromEpochNumber(parser.getLongValue()));
+            } else {
+                parser.skipChildren();
+            }
+        } catch (IllegalArgumentException e) {
+            result.setInvalidTimestamp(parser.getText());
+        }
+    }
+}
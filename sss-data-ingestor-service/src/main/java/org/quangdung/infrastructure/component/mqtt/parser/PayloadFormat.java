@@ -0,0 +1,41 @@
+package org.quangdung.infrastructure.component.mqtt.parser;
+
+/**
+ * Encoding of a device payload, detected from its first byte.
+ * A payload is always an object, and the encodings of an object never share a leading byte:
+ * JSON starts with '{' (or whitespace), a CBOR map with major type 5 (0xA0-0xBF) or the
+ * self-describe tag 0xD9, and a MessagePack map with 0x80-0x8F, 0xDE or 0xDF.
+ */
+public enum PayloadFormat {
+    JSON("json"),
+    CBOR("cbor"),
+    MSGPACK("msgpack");
+
+    private final String tagValue;
+
+    PayloadFormat(String tagValue) {
+        this.tagValue = tagValue;
+    }
+
+    public String tagValue() {
+        return tagValue;
+    }
+
+    /**
+     * @param payload raw MQTT payload
+     * @return the detected format, JSON when the first byte is not a binary map marker
+     */
+    public static PayloadFormat detect(byte[] payload) {
+        if (payload.length == 0) {
+            return JSON;
+        }
+        int lead = payload[0] & 0xFF;
+        if ((lead & 0xE0) == 0xA0 || lead == 0xD9) {
+            return CBOR;
+        }
+        if ((lead & 0xF0) == 0x80 || lead == 0xDE || lead == 0xDF) {
+            return MSGPACK;
+        }
+        return JSON;
+    }
+}
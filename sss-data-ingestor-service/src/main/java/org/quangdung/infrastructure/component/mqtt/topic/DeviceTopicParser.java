@@ -0,0 +1,117 @@
+package org.quangdung.infrastructure.component.mqtt.topic;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Parses sensors/{clientId}/{type} topics in a single pass over the characters.
+ * Client ids are interned in a bounded, open addressing table so that every message of a known
+ * device reuses the same String and ParsedTopic instances; a lookup that hits does not allocate.
+ */
+@ApplicationScoped
+public class DeviceTopicParser {
+    private static final int MAX_PROBES = 8;
+    private static final TopicType[] TYPES = TopicType.values();
+
+    private final Entry[] table;
+    private final int mask;
+    private final AtomicInteger size = new AtomicInteger();
+
+    @Inject
+    public DeviceTopicParser(
+        @ConfigProperty(name = "mqtt.topic.client-id-cache-size", defaultValue = "131072") int capacity
+    ) {
+        int tableSize = Integer.highestOneBit(Math.max(capacity, MAX_PROBES) - 1) << 1;
+        this.table = new Entry[tableSize];
+        this.mask = tableSize - 1;
+    }
+
+    /**
+     * Parses a topic. The client id is the second segment and the type is the last segment.
+     * @param topic the MQTT topic
+     * @return the parsed topic, or null if the topic has no client id segment
+     */
+    public ParsedTopic parse(String topic) {
+        int length = topic.length();
+        int firstSlash = -1;
+        int secondSlash = -1;
+        int lastSlash = -1;
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            char c = topic.charAt(i);
+            if (c == '/') {
+                if (firstSlash < 0) {
+                    firstSlash = i;
+                } else if (secondSlash < 0) {
+                    secondSlash = i;
+                }
+                lastSlash = i;
+            } else if (firstSlash >= 0 && secondSlash < 0) {
+                // Same function as String.hashCode so cached ids can be compared by hash first
+                hash = 31 * hash + c;
+            }
+        }
+        if (firstSlash < 0) {
+            return null;
+        }
+        int clientIdEnd = secondSlash < 0 ? length : secondSlash;
+        TopicType type = TopicType.fromSegment(topic, lastSlash + 1, length);
+        return intern(topic, firstSlash + 1, clientIdEnd, hash).topics[type.ordinal()];
+    }
+
+    /**
+     * @return approximate number of interned client ids
+     */
+    public int size() {
+        return size.get();
+    }
+
+    private Entry intern(String topic, int start, int end, int hash) {
+        int length = end - start;
+        // Sequential device names have clustered String hashes: mix the bits before probing
+        int spread = hash * 0x9E3779B9;
+        spread ^= spread >>> 16;
+        int freeSlot = -1;
+        for (int probe = 0; probe < MAX_PROBES; probe++) {
+            int slot = (spread + probe) & mask;
+            // Racy read is safe: entries are immutable and a missed entry only costs a new allocation
+            Entry entry = table[slot];
+            if (entry == null) {
+                freeSlot = slot;
+                break;
+            }
+            if (entry.hash == hash && entry.clientId.length() == length
+                    && topic.regionMatches(start, entry.clientId, 0, length)) {
+                return entry;
+            }
+        }
+        Entry created = new Entry(topic.substring(start, end), hash);
+        if (freeSlot >= 0) {
+            size.incrementAndGet();
+            table[freeSlot] = created;
+        } else {
+            // Table region is full: evict the entry in the home slot to keep memory bounded
+            table[spread & mask] = created;
+        }
+        return created;
+    }
+
+    private static final class Entry {
+        private final String clientId;
+        private final int hash;
+        private final ParsedTopic[] topics;
+
+        private Entry(String clientId, int hash) {
+            this.clientId = clientId;
+            this.hash = hash;
+            this.topics = new ParsedTopic[TYPES.length];
+            for (TopicType type : TYPES) {
+                topics[type.ordinal()] = new ParsedTopic(clientId, type);
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package org.quangdung.infrastructure.component.mqtt.topic;
+
+/**
+ * Immutable result of parsing a device topic. Instances are shared between messages of the same device and type.
+ */
+public final class ParsedTopic {
+    private final String clientId;
+    private final TopicType type;
+
+    ParsedTopic(String clientId, TopicType type) {
+        this.clientId = clientId;
+        this.type = type;
+    }
+
+    public String getClientId() {
+        return clientId;
+    }
+
+    public TopicType getType() {
+        return type;
+    }
+
+    @Override
+    public String toString() {
+        return "ParsedTopic{clientId='" + clientId + "', type=" + type + '}';
+    }
+}
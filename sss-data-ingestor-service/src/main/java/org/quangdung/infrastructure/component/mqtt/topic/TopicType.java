@@ -0,0 +1,43 @@
+package org.quangdung.infrastructure.component.mqtt.topic;
+
+/**
+ * Message types carried by the last segment of a sensors/{clientId}/{type} topic
+ */
+public enum TopicType {
+    TELEMETRY("telemetry"),
+    STATUS("status"),
+    POWER_OUTAGE("power_outage"),
+    UNKNOWN("unknown");
+
+    private static final TopicType[] KNOWN = { TELEMETRY, STATUS, POWER_OUTAGE };
+
+    private final String segment;
+
+    TopicType(String segment) {
+        this.segment = segment;
+    }
+
+    /**
+     * @return the topic segment identifying this type, also used as metric tag value
+     */
+    public String getSegment() {
+        return segment;
+    }
+
+    /**
+     * Resolves the type from a region of a topic without extracting the segment
+     * @param topic the full topic
+     * @param start start index of the segment (inclusive)
+     * @param end end index of the segment (exclusive)
+     * @return the matching type, or UNKNOWN
+     */
+    public static TopicType fromSegment(String topic, int start, int end) {
+        int length = end - start;
+        for (TopicType type : KNOWN) {
+            if (type.segment.length() == length && topic.regionMatches(start, type.segment, 0, length)) {
+                return type;
+            }
+        }
+        return UNKNOWN;
+    }
+}
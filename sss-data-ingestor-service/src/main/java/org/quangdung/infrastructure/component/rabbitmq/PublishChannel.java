@@ -0,0 +1,40 @@
+package org.quangdung.infrastructure.component.rabbitmq;
+
+import org.quangdung.infrastructure.component.rabbitmq.model.DeviceDataModel;
+import org.quangdung.infrastructure.component.rabbitmq.model.DevicePowerOutageModel;
+import org.quangdung.infrastructure.component.rabbitmq.model.DeviceStatusModel;
+
+/**
+ * Outgoing RabbitMQ channels and the model each of them carries
+ */
+public enum PublishChannel {
+    DEVICE_STATUS(RabbitMqMessageProducer.DEVICE_STATUS_CHANNEL, DeviceStatusModel.class),
+    DEVICE_DATA(RabbitMqMessageProducer.DEVICE_DATA_CHANNEL, DeviceDataModel.class),
+    POWER_OUTAGE(RabbitMqMessageProducer.POWER_OUTAGE_CHANNEL, DevicePowerOutageModel.class);
+
+    private static final PublishChannel[] VALUES = values();
+
+    private final String channelName;
+    private final Class<?> modelType;
+
+    PublishChannel(String channelName, Class<?> modelType) {
+        this.channelName = channelName;
+        this.modelType = modelType;
+    }
+
+    public String getChannelName() {
+        return channelName;
+    }
+
+    public Class<?> getModelType() {
+        return modelType;
+    }
+
+    /**
+     * @param ordinal the ordinal of a channel
+     * @return the channel, or null if the ordinal is out of range
+     */
+    public static PublishChannel fromOrdinal(int ordinal) {
+        return ordinal >= 0 && ordinal < VALUES.length ? VALUES[ordinal] : null;
+    }
+}
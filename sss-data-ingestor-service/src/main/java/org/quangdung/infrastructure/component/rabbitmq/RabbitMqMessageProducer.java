@@ -1,130 +1,317 @@
 package org.quangdung.infrastructure.component.rabbitmq;
 
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.logging.Logger;
+import org.quangdung.core.batch.MicroBatcher;
 import org.quangdung.core.metric.MetricService;
+import org.quangdung.infrastructure.component.mqtt.parser.DevicePayload;
+import org.quangdung.infrastructure.component.rabbitmq.codec.DeviceMessageCodec;
+import org.quangdung.infrastructure.component.rabbitmq.model.DeviceDataBatchModel;
 import org.quangdung.infrastructure.component.rabbitmq.model.DeviceDataModel;
 import org.quangdung.infrastructure.component.rabbitmq.model.DevicePowerOutageModel;
 import org.quangdung.infrastructure.component.rabbitmq.model.DeviceStatusModel;
+import org.quangdung.infrastructure.component.rabbitmq.spool.PublishSpool;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
 import io.smallrye.mutiny.Uni;
 import io.smallrye.reactive.messaging.MutinyEmitter;
 import io.smallrye.reactive.messaging.rabbitmq.OutgoingRabbitMQMetadata;
 
+import java.io.IOException;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.eclipse.microprofile.reactive.messaging.Channel;
 import org.eclipse.microprofile.reactive.messaging.Message;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 
 @ApplicationScoped
 public class RabbitMqMessageProducer {
+    public static final String MESSAGE_TYPE_HEADER = "message-type";
+    public static final String BATCH_SIZE_HEADER = "batch-size";
+
+    static final String DEVICE_STATUS_CHANNEL = "device-status-updates";
+    static final String DEVICE_DATA_CHANNEL = "device-data-distribution";
+    static final String POWER_OUTAGE_CHANNEL = "power-outage-alert";
+
+    private static final long SPOOL_REPLAY_INTERVAL_MS = 100;
+    private static final Duration SPOOL_REPLAY_SEND_TIMEOUT = Duration.ofSeconds(10);
+
     @Inject
     private Logger log;
 
     @Inject
-    @Channel("device-status-updates")
-    private MutinyEmitter<DeviceStatusModel> deviceStatusEmitter;
+    @Channel(DEVICE_STATUS_CHANNEL)
+    private MutinyEmitter<Object> deviceStatusEmitter;
 
+    // Carries either a single DeviceDataModel or a DeviceDataBatchModel envelope
+    // Payloads are models (JSON) or their DeviceMessageCodec encoding, depending on rabbitmq.wire-format
     @Inject
-    @Channel("device-data-distribution")
-    private MutinyEmitter<DeviceDataModel> deviceDataEmitter;
+    @Channel(DEVICE_DATA_CHANNEL)
+    private MutinyEmitter<Object> deviceDataEmitter;
 
     @Inject
-    @Channel("power-outage-alert")
-    private MutinyEmitter<DevicePowerOutageModel> powerOutageEmitter;
+    @Channel(POWER_OUTAGE_CHANNEL)
+    private MutinyEmitter<Object> powerOutageEmitter;
 
     @Inject
     private MetricService metricsService;
 
+    @Inject
+    private PublishSpool spool;
+
+    @Inject
+    private DeviceMessageCodec codec;
+
+    @Inject
+    @ConfigProperty(name = "rabbitmq.wire-format", defaultValue = "json")
+    String wireFormat;
+
+    @Inject
+    @ConfigProperty(name = "rabbitmq.batch.enabled", defaultValue = "false")
+    boolean batchEnabled;
+
+    @Inject
+    @ConfigProperty(name = "rabbitmq.batch.max-size", defaultValue = "500")
+    int batchMaxSize;
+
+    @Inject
+    @ConfigProperty(name = "rabbitmq.batch.max-delay-ms", defaultValue = "20")
+    long batchMaxDelayMs;
+
+    // Spooled messages sent at once per channel while replaying; the replay goes as fast as RabbitMQ confirms them
+    @Inject
+    @ConfigProperty(name = "rabbitmq.spool.replay-max-in-flight", defaultValue = "256")
+    int spoolReplayMaxInFlight;
+
+    private ScheduledExecutorService batchScheduler;
+    private MicroBatcher<DeviceDataModel> deviceDataBatcher;
+    private ScheduledExecutorService spoolReplayScheduler;
+
+    // Pre-bound meters, so that the publish path never goes through the registry
+    private ChannelMeters deviceStatusMeters;
+    private ChannelMeters deviceDataMeters;
+    private ChannelMeters powerOutageMeters;
+    private DistributionSummary batchSizeSummary;
+    private Counter[] batchesFlushedCounters; // indexed by FlushTrigger ordinal
+    private Timer batchSuccessDuration;
+    private Timer batchFailureDuration;
+    private Counter batchRecordsSuccess;
+    private Counter batchRecordsFailure;
+    private SpoolReplay[] spoolReplays; // indexed by PublishChannel ordinal
+    private boolean binaryWireFormat;
+
+    @PostConstruct
+    void init() {
+        binaryWireFormat = "binary".equalsIgnoreCase(wireFormat);
+        log.infof("Publishing with the %s wire format", binaryWireFormat ? "binary" : "json");
+        deviceStatusMeters = new ChannelMeters(metricsService, DEVICE_STATUS_CHANNEL);
+        deviceDataMeters = new ChannelMeters(metricsService, DEVICE_DATA_CHANNEL);
+        powerOutageMeters = new ChannelMeters(metricsService, POWER_OUTAGE_CHANNEL);
+
+        if (spool.isEnabled()) {
+            startSpoolReplay();
+        }
+        if (!batchEnabled) {
+            return;
+        }
+        log.infof("Device data batching enabled (max size: %d, max delay: %d ms)", batchMaxSize, batchMaxDelayMs);
+        batchSizeSummary = metricsService.summary("rabbitmq_batch_size", "channel", DEVICE_DATA_CHANNEL);
+        MicroBatcher.FlushTrigger[] triggers = MicroBatcher.FlushTrigger.values();
+        batchesFlushedCounters = new Counter[triggers.length];
+        for (MicroBatcher.FlushTrigger trigger : triggers) {
+            batchesFlushedCounters[trigger.ordinal()] = metricsService.counter("rabbitmq_batches_flushed_total",
+                                                                               "channel", DEVICE_DATA_CHANNEL,
+                                                                               "trigger", trigger.tagValue());
+        }
+        batchSuccessDuration = metricsService.timer("rabbitmq_batch_publish_duration_seconds",
+                                                    "channel", DEVICE_DATA_CHANNEL, "result", "success");
+        batchFailureDuration = metricsService.timer("rabbitmq_batch_publish_duration_seconds",
+                                                    "channel", DEVICE_DATA_CHANNEL, "result", "failure");
+        batchRecordsSuccess = metricsService.counter("rabbitmq_batch_records_published_total",
+                                                     "channel", DEVICE_DATA_CHANNEL, "result", "success");
+        batchRecordsFailure = metricsService.counter("rabbitmq_batch_records_published_total",
+                                                     "channel", DEVICE_DATA_CHANNEL, "result", "failure");
+        batchScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "device-data-batch-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        deviceDataBatcher = new MicroBatcher<>(batchMaxSize, TimeUnit.MILLISECONDS.toNanos(batchMaxDelayMs),
+                                               batchScheduler, this::publishDeviceDataBatch);
+    }
+
+    @PreDestroy
+    void close() {
+        if (spoolReplayScheduler != null) {
+            spoolReplayScheduler.shutdown();
+        }
+        if (deviceDataBatcher != null) {
+            deviceDataBatcher.close();
+            batchScheduler.shutdown();
+        }
+    }
+
+    private void startSpoolReplay() {
+        PublishChannel[] channels = PublishChannel.values();
+        spoolReplays = new SpoolReplay[channels.length];
+        for (PublishChannel channel : channels) {
+            spoolReplays[channel.ordinal()] = new SpoolReplay(channel);
+        }
+        spoolReplayScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rabbitmq-spool-replay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        spoolReplayScheduler.scheduleWithFixedDelay(() -> {
+            for (SpoolReplay replay : spoolReplays) {
+                replay.pump();
+            }
+        }, SPOOL_REPLAY_INTERVAL_MS, SPOOL_REPLAY_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
 
     public Uni<Void> publishDeviceStatusUpdate(DeviceStatusModel deviceStatusModel) {
         log.infof("Publishing device status update: {}", deviceStatusModel.getClientId());
 
+        if (mustSpool(PublishChannel.DEVICE_STATUS, deviceStatusEmitter, deviceStatusModel.getClientId())) {
+            return spool(PublishChannel.DEVICE_STATUS, deviceStatusModel.getClientId(), deviceStatusModel);
+        }
+
         // Record counter before message send
-        metricsService.incrementCounter("rabbitmq_messages_published_total", 
-                                        "channel", "device-status-updates",
-                                        "status", "attempt");
+        deviceStatusMeters.attempts.increment();
 
         long startTime = System.nanoTime();
 
-
-        Map<String, Object> headers = new HashMap<>();
-        headers.put("clientId", deviceStatusModel.getClientId());
-        headers.put("timestamp-sent", Instant.now().toString());
-        OutgoingRabbitMQMetadata rabbitmqMetadata = OutgoingRabbitMQMetadata.builder()
-                                                      .withHeaders(headers)
-                                                      .build();
-        Message<DeviceStatusModel> message = Message.of(deviceStatusModel).addMetadata(rabbitmqMetadata);
+        Message<Object> message = Message.of(wirePayload(deviceStatusModel))
+                                         .addMetadata(clientMetadata(deviceStatusModel.getClientId()));
 
         return deviceStatusEmitter.sendMessage(message)
             .onItem().invoke(()->{
-                long duration = System.nanoTime() - startTime; 
-                metricsService.recordTimer("rabbitmq_publish_duration_seconds", duration, TimeUnit.NANOSECONDS,
-                                            "channel", "device-status-updates",
-                                            "result", "success");
-                metricsService.incrementCounter("rabbitmq_messages_published_total",
-                                                "channel", "device-status-updates",
-                                                "result", "success");
+                deviceStatusMeters.successDuration.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+                deviceStatusMeters.published.increment();
                 log.infof("Device status update published successfully for client ID: %s", deviceStatusModel.getClientId());
             })
             .onFailure().invoke(throwable -> {
-                long duration = System.nanoTime() - startTime; 
-                metricsService.recordTimer("rabbitmq_publish_duration_seconds", duration, TimeUnit.NANOSECONDS,
-                                            "channel", "device-status-updates",
-                                            "result", "failure");
-                metricsService.incrementCounter("rabbitmq_messages_published_total",
-                                                "channel", "device-status-updates",
-                                                "result", "failure");
+                deviceStatusMeters.failureDuration.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+                deviceStatusMeters.failed.increment();
                 log.errorf(throwable, "Failed to publish device status update for client ID: %s: %s", deviceStatusModel.getClientId(), throwable.getMessage());
-            });
+            })
+            .onFailure().recoverWithUni(throwable -> spool(PublishChannel.DEVICE_STATUS, deviceStatusModel.getClientId(),
+                                                            deviceStatusModel, throwable));
     }
 
 
+    /**
+     * Builds the device data record of a parsed payload, before the next parse on this thread overwrites it.
+     * With the binary wire format the values are encoded straight from the payload's primitive slots into
+     * the message body; only the JSON wire format boxes them into a data map
+     * @param clientId the device client ID
+     * @param timestamp epoch nanoseconds (UTC)
+     * @param payload the parsed payload
+     * @return the record to publish
+     */
+    public DeviceDataModel toDeviceData(String clientId, long timestamp, DevicePayload payload) {
+        DeviceDataModel.DeviceDataModelBuilder deviceData = DeviceDataModel.builder()
+            .clientId(clientId)
+            .timestamp(timestamp);
+        if (binaryWireFormat) {
+            deviceData.encoded(codec.encodeDeviceData(clientId, timestamp, payload));
+        } else {
+            deviceData.data(payload.toDataMap());
+        }
+        return deviceData.build();
+    }
+
+    /**
+     * Publishes a device data record, either as its own message or as part of a batch envelope
+     * @param deviceDataModel the device data record
+     * @return Uni<Void> completing once the message (or the batch containing it) has been published
+     */
     public Uni<Void> publishDeviceDataUpdate(DeviceDataModel deviceDataModel) {
+        if (mustSpool(PublishChannel.DEVICE_DATA, deviceDataEmitter, deviceDataModel.getClientId())) {
+            return spool(PublishChannel.DEVICE_DATA, deviceDataModel.getClientId(), deviceDataModel);
+        }
+        if (batchEnabled) {
+            return deviceDataBatcher.submit(deviceDataModel);
+        }
+
         log.infof("Publishing device data update for client ID: %s", deviceDataModel.getClientId());
 
 
-        metricsService.incrementCounter("rabbitmq_messages_published_total", 
-                                        "channel", "device-data-distribution",
-                                        "status", "attempt");
+        deviceDataMeters.attempts.increment();
 
         long startTime = System.nanoTime();
 
-        Map<String, Object> headers = new HashMap<>();
-        headers.put("clientId", deviceDataModel.getClientId());
-        headers.put("timestamp-sent", Instant.now().toString());
-        OutgoingRabbitMQMetadata rabbitmqMetadata = OutgoingRabbitMQMetadata.builder()
-                                                      .withHeaders(headers)
-                                                      .build();
-                                                      
-        Message<DeviceDataModel> message = Message.of(deviceDataModel).addMetadata(rabbitmqMetadata);
+        Message<Object> message = Message.of(wirePayload(deviceDataModel))
+                                         .addMetadata(clientMetadata(deviceDataModel.getClientId()));
 
         return deviceDataEmitter.sendMessage(message)
             .onItem().invoke(()->{
-                long duration = System.nanoTime() - startTime;
-                metricsService.recordTimer("rabbitmq_publish_duration_seconds", duration, TimeUnit.NANOSECONDS,
-                                            "channel", "device-data-distribution",
-                                            "result", "success");
-                metricsService.incrementCounter("rabbitmq_messages_published_total",
-                                                "channel", "device-data-distribution",
-                                                "result", "success");
+                deviceDataMeters.successDuration.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+                deviceDataMeters.published.increment();
                 log.infof("Device data update published successfully for client ID: %s", deviceDataModel.getClientId());
             })
             .onFailure().invoke(throwable -> {
-                long duration = System.nanoTime() - startTime;
-                metricsService.recordTimer("rabbitmq_publish_duration_seconds", duration, TimeUnit.NANOSECONDS,
-                                            "channel", "device-data-distribution",
-                                            "result", "failure");
-                metricsService.incrementCounter("rabbitmq_messages_published_total",
-                                                "channel", "device-data-distribution",
-                                                "result", "failure");
+                deviceDataMeters.failureDuration.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+                deviceDataMeters.failed.increment();
                 log.errorf(throwable, "Failed to publish device data update for client ID: %s: %s", deviceDataModel.getClientId(), throwable.getMessage());
-            });
+            })
+            .onFailure().recoverWithUni(throwable -> spool(PublishChannel.DEVICE_DATA, deviceDataModel.getClientId(),
+                                                            deviceDataModel, throwable));
+    }
+
+    /**
+     * Publishes a batch of device data records as a single envelope message
+     * @param records the records of the batch
+     * @param trigger the reason the batch was flushed
+     * @return Uni<Void> representing the completion of the publish operation
+     */
+    private Uni<Void> publishDeviceDataBatch(List<DeviceDataModel> records, MicroBatcher.FlushTrigger trigger) {
+        int batchSize = records.size();
+        log.debugf("Publishing device data batch of %d records (trigger: %s)", batchSize, trigger);
+
+        batchSizeSummary.record(batchSize);
+        batchesFlushedCounters[trigger.ordinal()].increment();
+
+        long startTime = System.nanoTime();
+
+        Map<String, Object> headers = new HashMap<>();
+        headers.put(MESSAGE_TYPE_HEADER, DeviceDataBatchModel.MESSAGE_TYPE);
+        headers.put(BATCH_SIZE_HEADER, batchSize);
+        headers.put("timestamp-sent", Instant.now().toString());
+        DeviceDataBatchModel batch = DeviceDataBatchModel.builder()
+            .size(batchSize)
+            .records(records)
+            .build();
+        Message<Object> message = Message.of(wirePayload(batch)).addMetadata(metadata(headers));
+
+        return deviceDataEmitter.sendMessage(message)
+            .onItem().invoke(() -> {
+                batchSuccessDuration.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+                batchRecordsSuccess.increment(batchSize);
+            })
+            .onFailure().invoke(throwable -> {
+                batchFailureDuration.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+                batchRecordsFailure.increment(batchSize);
+                log.errorf(throwable, "Failed to publish device data batch of %d records: %s", batchSize, throwable.getMessage());
+            })
+            .onFailure().recoverWithUni(throwable -> spoolBatch(records, throwable));
     }
 
     /**
@@ -135,41 +322,261 @@ public class RabbitMqMessageProducer {
     public Uni<Void> publishDevicePowerOutageUpdate(DevicePowerOutageModel devicePowerOutageModel) {
         log.infof("Publishing device power outage update for client ID: %s", devicePowerOutageModel.getClientId());
 
-        metricsService.incrementCounter("rabbitmq_messages_published_total", 
-                                        "channel", "power-outage-alert",
-                                        "status", "attempt");
+        if (mustSpool(PublishChannel.POWER_OUTAGE, powerOutageEmitter, devicePowerOutageModel.getClientId())) {
+            return spool(PublishChannel.POWER_OUTAGE, devicePowerOutageModel.getClientId(), devicePowerOutageModel);
+        }
+
+        powerOutageMeters.attempts.increment();
 
         long startTime = System.nanoTime();
-     
-        Map<String, Object> headers = new HashMap<>();
-        headers.put("clientId", devicePowerOutageModel.getClientId());
-        headers.put("timestamp-sent", Instant.now().toString());
-        OutgoingRabbitMQMetadata rabbitmqMetadata = OutgoingRabbitMQMetadata.builder()
-                                                      .withHeaders(headers)
-                                                      .build();
-                                                      
-        Message<DevicePowerOutageModel> message = Message.of(devicePowerOutageModel).addMetadata(rabbitmqMetadata);
+
+        Message<Object> message = Message.of(wirePayload(devicePowerOutageModel))
+                                         .addMetadata(clientMetadata(devicePowerOutageModel.getClientId()));
         
         return powerOutageEmitter.sendMessage(message)
             .onItem().invoke(() -> {
-                long duration = System.nanoTime() - startTime;
-                metricsService.recordTimer("rabbitmq_publish_duration_seconds", duration, TimeUnit.NANOSECONDS,
-                                            "channel", "power-outage-alert",
-                                            "result", "success");
-                metricsService.incrementCounter("rabbitmq_messages_published_total",
-                                                "channel", "power-outage-alert",
-                                                "result", "success");
+                powerOutageMeters.successDuration.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+                powerOutageMeters.published.increment();
                 log.infof("Device power outage alert published successfully for client ID: %s", devicePowerOutageModel.getClientId());
             })
             .onFailure().invoke(throwable -> {
-                long duration = System.nanoTime() - startTime;
-                metricsService.recordTimer("rabbitmq_publish_duration_seconds", duration, TimeUnit.NANOSECONDS,
-                                            "channel", "power-outage-alert",
-                                            "result", "failure");
-                metricsService.incrementCounter("rabbitmq_messages_published_total",
-                                                "channel", "power-outage-alert",
-                                                "result", "failure");
+                powerOutageMeters.failureDuration.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+                powerOutageMeters.failed.increment();
                 log.errorf(throwable, "Failed to publish device power outage alert for client ID: %s: %s", devicePowerOutageModel.getClientId(), throwable.getMessage());
+            })
+            .onFailure().recoverWithUni(throwable -> spool(PublishChannel.POWER_OUTAGE, devicePowerOutageModel.getClientId(),
+                                                            devicePowerOutageModel, throwable));
+    }
+
+    private OutgoingRabbitMQMetadata clientMetadata(String clientId) {
+        Map<String, Object> headers = new HashMap<>();
+        headers.put("clientId", clientId);
+        headers.put("timestamp-sent", Instant.now().toString());
+        return metadata(headers);
+    }
+
+    /**
+     * The content type tells consumers which wire format the payload uses
+     */
+    private OutgoingRabbitMQMetadata metadata(Map<String, Object> headers) {
+        return OutgoingRabbitMQMetadata.builder()
+                                       .withHeaders(headers)
+                                       .withContentType(binaryWireFormat ? DeviceMessageCodec.CONTENT_TYPE : "application/json")
+                                       .build();
+    }
+
+    /**
+     * @param model one of the published models
+     * @return the model itself for JSON, or its binary encoding
+     */
+    private Object wirePayload(Object model) {
+        if (!binaryWireFormat) {
+            if (model instanceof DeviceDataModel deviceData && deviceData.getData() == null
+                && deviceData.getEncoded() != null) {
+                // Spooled while publishing in binary
+                try {
+                    return codec.decodeDeviceData(deviceData.getEncoded());
+                } catch (IOException e) {
+                    throw new IllegalStateException("Spooled device data message cannot be decoded", e);
+                }
+            }
+            return model;
+        }
+        if (model instanceof DeviceDataModel deviceData) {
+            return codec.encode(deviceData);
+        }
+        if (model instanceof DeviceDataBatchModel batch) {
+            return codec.encode(batch);
+        }
+        if (model instanceof DeviceStatusModel deviceStatus) {
+            return codec.encode(deviceStatus);
+        }
+        if (model instanceof DevicePowerOutageModel powerOutage) {
+            return codec.encode(powerOutage);
+        }
+        throw new IllegalArgumentException("No wire encoding for " + model.getClass().getName());
+    }
+
+    /**
+     * Messages go to the spool when the channel has no downstream demand, e.g. while RabbitMQ is unreachable,
+     * or while the spool still holds older messages of the same client for the channel (to keep them in order).
+     * Other clients publish directly while the spool is replayed.
+     */
+    private boolean mustSpool(PublishChannel channel, MutinyEmitter<?> emitter, String clientId) {
+        return spool.isEnabled() && (!emitter.hasRequests() || spool.hasPending(channel, clientId));
+    }
+
+    private Uni<Void> spool(PublishChannel channel, String clientId, Object model) {
+        return spool(channel, clientId, model,
+                     new IllegalStateException("Channel " + channel.getChannelName() + " is not accepting messages"));
+    }
+
+    private Uni<Void> spool(PublishChannel channel, String clientId, Object model, Throwable cause) {
+        if (spool.append(channel, clientId, model)) {
+            return Uni.createFrom().voidItem();
+        }
+        return Uni.createFrom().failure(cause);
+    }
+
+    /**
+     * The whole batch is spooled or none of it, matching the single result reported to the callers
+     */
+    private Uni<Void> spoolBatch(List<DeviceDataModel> records, Throwable cause) {
+        if (spool.appendAll(PublishChannel.DEVICE_DATA, records, DeviceDataModel::getClientId)) {
+            return Uni.createFrom().voidItem();
+        }
+        return Uni.createFrom().failure(cause);
+    }
+
+    private MutinyEmitter<?> emitterFor(PublishChannel channel) {
+        return switch (channel) {
+            case DEVICE_STATUS -> deviceStatusEmitter;
+            case DEVICE_DATA -> deviceDataEmitter;
+            case POWER_OUTAGE -> powerOutageEmitter;
+        };
+    }
+
+    private Uni<Void> sendSpooled(PublishChannel channel, PublishSpool.SpooledMessage spooled) {
+        return switch (channel) {
+            case DEVICE_STATUS -> {
+                DeviceStatusModel model = (DeviceStatusModel) spooled.getModel();
+                yield deviceStatusEmitter.sendMessage(Message.of(wirePayload(model)).addMetadata(clientMetadata(model.getClientId())));
+            }
+            case DEVICE_DATA -> {
+                DeviceDataModel model = (DeviceDataModel) spooled.getModel();
+                yield deviceDataEmitter.sendMessage(Message.of(wirePayload(model)).addMetadata(clientMetadata(model.getClientId())));
+            }
+            case POWER_OUTAGE -> {
+                DevicePowerOutageModel model = (DevicePowerOutageModel) spooled.getModel();
+                yield powerOutageEmitter.sendMessage(Message.of(wirePayload(model)).addMetadata(clientMetadata(model.getClientId())));
+            }
+        };
+    }
+
+    /**
+     * Pipelined replay of the spool of one channel. While the channel has demand, up to spoolReplayMaxInFlight
+     * spooled messages are sent at once, and they are committed in spool order as RabbitMQ confirms them.
+     * After a failed send no new message is sent until every send in flight has completed; the replay then
+     * restarts from the oldest uncommitted message, so messages confirmed after the failed one are published
+     * twice. All the state is only touched on the replay thread.
+     */
+    private final class SpoolReplay {
+        private static final int PENDING = 0;
+        private static final int CONFIRMED = 1;
+        private static final int FAILED = 2;
+
+        private final PublishChannel channel;
+        private final MutinyEmitter<?> emitter;
+        private final Counter replayed;
+        private final Deque<InFlight> inFlight = new ArrayDeque<>();
+        private final AtomicBoolean pumpScheduled = new AtomicBoolean();
+        private Throwable failure;
+
+        SpoolReplay(PublishChannel channel) {
+            this.channel = channel;
+            this.emitter = emitterFor(channel);
+            this.replayed = metricsService.counter("rabbitmq_spool_replayed_total", "channel", channel.getChannelName());
+        }
+
+        void pump() {
+            try {
+                while (!inFlight.isEmpty() && inFlight.peekFirst().state == CONFIRMED) {
+                    spool.commit(channel, inFlight.pollFirst().message);
+                    replayed.increment();
+                }
+                if (failure != null) {
+                    for (InFlight send : inFlight) {
+                        if (send.state == PENDING) {
+                            return;
+                        }
+                    }
+                    log.warnf("Spool replay of %s paused with %d messages to send again: %s",
+                              channel.getChannelName(), inFlight.size(), failure.getMessage());
+                    inFlight.clear();
+                    failure = null;
+                    spool.rewind(channel);
+                    // Retried on the next tick
+                    return;
+                }
+                while (inFlight.size() < spoolReplayMaxInFlight && emitter.hasRequests()) {
+                    PublishSpool.SpooledMessage spooled = spool.next(channel);
+                    if (spooled == null) {
+                        return;
+                    }
+                    InFlight send = new InFlight(spooled);
+                    inFlight.addLast(send);
+                    if (spooled.getModel() == null) {
+                        // Undecodable, dropped in order
+                        send.state = CONFIRMED;
+                        continue;
+                    }
+                    try {
+                        sendSpooled(channel, spooled)
+                            .ifNoItem().after(SPOOL_REPLAY_SEND_TIMEOUT).fail()
+                            .subscribe().with(ignored -> complete(send, null), throwable -> complete(send, throwable));
+                    } catch (RuntimeException e) {
+                        complete(send, e);
+                    }
+                }
+            } catch (IOException e) {
+                log.errorf(e, "Failed to read the publish spool of %s", channel.getChannelName());
+            }
+        }
+
+        // Called from any thread
+        private void complete(InFlight send, Throwable throwable) {
+            if (spoolReplayScheduler.isShutdown()) {
+                return;
+            }
+            spoolReplayScheduler.execute(() -> {
+                if (throwable == null) {
+                    send.state = CONFIRMED;
+                } else {
+                    send.state = FAILED;
+                    if (failure == null) {
+                        failure = throwable;
+                    }
+                }
+                if (pumpScheduled.compareAndSet(false, true)) {
+                    spoolReplayScheduler.execute(() -> {
+                        pumpScheduled.set(false);
+                        pump();
+                    });
+                }
             });
+        }
+    }
+
+    private static final class InFlight {
+        private final PublishSpool.SpooledMessage message;
+        private int state;
+
+        private InFlight(PublishSpool.SpooledMessage message) {
+            this.message = message;
+        }
+    }
+
+    /**
+     * Pre-bound publish meters of one outgoing channel
+     */
+    private static final class ChannelMeters {
+        final Counter attempts;
+        final Counter published;
+        final Counter failed;
+        final Timer successDuration;
+        final Timer failureDuration;
+
+        ChannelMeters(MetricService metricsService, String channel) {
+            this.attempts = metricsService.counter("rabbitmq_messages_published_total",
+                                                   "channel", channel, "result", "attempt");
+            this.published = metricsService.counter("rabbitmq_messages_published_total",
+                                                    "channel", channel, "result", "success");
+            this.failed = metricsService.counter("rabbitmq_messages_published_total",
+                                                 "channel", channel, "result", "failure");
+            this.successDuration = metricsService.timer("rabbitmq_publish_duration_seconds",
+                                                        "channel", channel, "result", "success");
+            this.failureDuration = metricsService.timer("rabbitmq_publish_duration_seconds",
+                                                        "channel", channel, "result", "failure");
+        }
     }
 }
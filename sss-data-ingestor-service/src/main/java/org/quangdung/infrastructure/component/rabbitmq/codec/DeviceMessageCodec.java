@@ -0,0 +1,376 @@
+package org.quangdung.infrastructure.component.rabbitmq.codec;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.quangdung.infrastructure.component.mqtt.parser.DevicePayload;
+import org.quangdung.infrastructure.component.rabbitmq.model.DeviceDataBatchModel;
+import org.quangdung.infrastructure.component.rabbitmq.model.DeviceDataModel;
+import org.quangdung.infrastructure.component.rabbitmq.model.DevicePowerOutageModel;
+import org.quangdung.infrastructure.component.rabbitmq.model.DeviceStatusModel;
+
+import jakarta.enterprise.context.ApplicationScoped;
+
+/**
+ * Versioned binary wire format of the messages published to RabbitMQ, used for messages whose
+ * content type is CONTENT_TYPE. Layout: [byte version][byte message type][body], where
+ * - integers are LEB128 varints, zigzag encoded when signed
+ * - strings are a varint (length + 1, 0 for null) followed by the UTF-8 bytes
+ * - timestamps are a presence byte followed by zigzag varint nanoseconds since the epoch (UTC), absent reads as 0
+ * - data values are a type byte followed by the value; doubles take 8 bytes, longs a zigzag varint
+ * The consumers hold their own copy of this codec: the format must stay identical in every service
+ * and any change to it needs a new version number.
+ */
+@ApplicationScoped
+public class DeviceMessageCodec {
+    public static final String CONTENT_TYPE = "application/x-sss-device-message";
+    public static final int VERSION = 1;
+
+    public static final int TYPE_DEVICE_DATA = 1;
+    public static final int TYPE_DEVICE_STATUS = 2;
+    public static final int TYPE_POWER_OUTAGE = 3;
+    public static final int TYPE_DEVICE_DATA_BATCH = 4;
+
+    private static final int VALUE_NULL = 0;
+    private static final int VALUE_DOUBLE = 1;
+    private static final int VALUE_LONG = 2;
+    private static final int VALUE_TRUE = 3;
+    private static final int VALUE_FALSE = 4;
+    private static final int VALUE_STRING = 5;
+
+    // Encoding buffers are reused per thread, only the final copy is allocated per message
+    private static final ThreadLocal<Writer> WRITERS = ThreadLocal.withInitial(Writer::new);
+
+    public byte[] encode(DeviceDataModel model) {
+        if (model.getEncoded() != null) {
+            return model.getEncoded();
+        }
+        Writer writer = start(TYPE_DEVICE_DATA);
+        writeDeviceData(writer, model);
+        return writer.toByteArray();
+    }
+
+    /**
+     * Encodes a device data message straight from the primitive slots of a parsed payload, without boxing
+     * its values
+     * @param clientId the device client ID
+     * @param timestamp epoch nanoseconds (UTC)
+     * @param payload the parsed payload; only read during the call
+     * @return the message, which DeviceDataModel.encoded can carry
+     */
+    public byte[] encodeDeviceData(String clientId, long timestamp, DevicePayload payload) {
+        Writer writer = start(TYPE_DEVICE_DATA);
+        writer.writeString(clientId);
+        writer.writeTimestamp(timestamp);
+        int fieldCount = payload.getFieldCount();
+        writer.writeVarLong(fieldCount);
+        for (int i = 0; i < fieldCount; i++) {
+            writer.writeString(payload.getFieldName(i));
+            switch (payload.getFieldType(i)) {
+                case DevicePayload.TYPE_DOUBLE -> {
+                    writer.writeByte(VALUE_DOUBLE);
+                    writer.writeLong(Double.doubleToRawLongBits(payload.getDouble(i)));
+                }
+                case DevicePayload.TYPE_LONG -> {
+                    writer.writeByte(VALUE_LONG);
+                    writer.writeVarLong(zigzag(payload.getLong(i)));
+                }
+                case DevicePayload.TYPE_BOOLEAN -> writer.writeByte(payload.getBoolean(i) ? VALUE_TRUE : VALUE_FALSE);
+                default -> writeValue(writer, payload.getString(i));
+            }
+        }
+        return writer.toByteArray();
+    }
+
+    public byte[] encode(DeviceDataBatchModel batch) {
+        Writer writer = start(TYPE_DEVICE_DATA_BATCH);
+        List<DeviceDataModel> records = batch.getRecords() != null ? batch.getRecords() : List.of();
+        writer.writeVarLong(records.size());
+        for (DeviceDataModel record : records) {
+            if (record.getEncoded() != null) {
+                // A batch record is the body of a device data message, without its version and type bytes
+                writer.writeBytes(record.getEncoded(), 2, record.getEncoded().length - 2);
+            } else {
+                writeDeviceData(writer, record);
+            }
+        }
+        return writer.toByteArray();
+    }
+
+    public byte[] encode(DeviceStatusModel model) {
+        Writer writer = start(TYPE_DEVICE_STATUS);
+        writer.writeString(model.getClientId());
+        writer.writeString(model.getStatus());
+        writer.writeTimestamp(model.getTimestamp());
+        return writer.toByteArray();
+    }
+
+    public byte[] encode(DevicePowerOutageModel model) {
+        Writer writer = start(TYPE_POWER_OUTAGE);
+        writer.writeString(model.getClientId());
+        if (model.getPowerStatus() == null) {
+            writer.writeByte(0);
+        } else {
+            writer.writeByte(1);
+            writer.writeVarLong(zigzag(model.getPowerStatus()));
+        }
+        writer.writeTimestamp(model.getTimestamp());
+        return writer.toByteArray();
+    }
+
+    /**
+     * Decodes a device data message
+     * @param bytes the message body
+     * @return the decoded record
+     * @throws IOException if the message is truncated, of another type or of an unsupported version
+     */
+    public DeviceDataModel decodeDeviceData(byte[] bytes) throws IOException {
+        ByteBuffer buffer = open(bytes, TYPE_DEVICE_DATA);
+        try {
+            return readDeviceData(buffer);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated device data message", e);
+        }
+    }
+
+    public DeviceDataBatchModel decodeDeviceDataBatch(byte[] bytes) throws IOException {
+        ByteBuffer buffer = open(bytes, TYPE_DEVICE_DATA_BATCH);
+        try {
+            int size = readCount(buffer, "record");
+            List<DeviceDataModel> records = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                records.add(readDeviceData(buffer));
+            }
+            return DeviceDataBatchModel.builder().size(size).records(records).build();
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated device data batch message", e);
+        }
+    }
+
+    public DeviceStatusModel decodeDeviceStatus(byte[] bytes) throws IOException {
+        ByteBuffer buffer = open(bytes, TYPE_DEVICE_STATUS);
+        try {
+            return DeviceStatusModel.builder()
+                .clientId(readString(buffer))
+                .status(readString(buffer))
+                .timestamp(readTimestamp(buffer))
+                .build();
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated device status message", e);
+        }
+    }
+
+    public DevicePowerOutageModel decodePowerOutage(byte[] bytes) throws IOException {
+        ByteBuffer buffer = open(bytes, TYPE_POWER_OUTAGE);
+        try {
+            String clientId = readString(buffer);
+            Integer powerStatus = buffer.get() == 0 ? null : (int) unzigzag(readVarLong(buffer));
+            return DevicePowerOutageModel.builder()
+                .clientId(clientId)
+                .powerStatus(powerStatus)
+                .timestamp(readTimestamp(buffer))
+                .build();
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated power outage message", e);
+        }
+    }
+
+    private static Writer start(int type) {
+        Writer writer = WRITERS.get();
+        writer.reset();
+        writer.writeByte(VERSION);
+        writer.writeByte(type);
+        return writer;
+    }
+
+    private static void writeDeviceData(Writer writer, DeviceDataModel model) {
+        writer.writeString(model.getClientId());
+        writer.writeTimestamp(model.getTimestamp());
+        Map<String, Object> data = model.getData();
+        if (data == null) {
+            writer.writeVarLong(0);
+            return;
+        }
+        writer.writeVarLong(data.size());
+        for (Map.Entry<String, Object> entry : data.entrySet()) {
+            writer.writeString(entry.getKey());
+            writeValue(writer, entry.getValue());
+        }
+    }
+
+    private static void writeValue(Writer writer, Object value) {
+        if (value == null) {
+            writer.writeByte(VALUE_NULL);
+        } else if (value instanceof Double || value instanceof Float) {
+            writer.writeByte(VALUE_DOUBLE);
+            writer.writeLong(Double.doubleToRawLongBits(((Number) value).doubleValue()));
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            writer.writeByte(VALUE_LONG);
+            writer.writeVarLong(zigzag(((Number) value).longValue()));
+        } else if (value instanceof Boolean) {
+            writer.writeByte((Boolean) value ? VALUE_TRUE : VALUE_FALSE);
+        } else {
+            writer.writeByte(VALUE_STRING);
+            writer.writeString(value.toString());
+        }
+    }
+
+    private static ByteBuffer open(byte[] bytes, int expectedType) throws IOException {
+        if (bytes.length < 2) {
+            throw new IOException("Message is too short");
+        }
+        if (bytes[0] != VERSION) {
+            throw new IOException("Unsupported wire format version " + bytes[0]);
+        }
+        if (bytes[1] != expectedType) {
+            throw new IOException("Expected message type " + expectedType + " but got " + bytes[1]);
+        }
+        return ByteBuffer.wrap(bytes, 2, bytes.length - 2);
+    }
+
+    private static DeviceDataModel readDeviceData(ByteBuffer buffer) throws IOException {
+        String clientId = readString(buffer);
+        long timestamp = readTimestamp(buffer);
+        int fields = readCount(buffer, "field");
+        Map<String, Object> data = new LinkedHashMap<>(Math.max(4, fields * 2));
+        for (int i = 0; i < fields; i++) {
+            String name = readString(buffer);
+            int type = buffer.get();
+            Object value = switch (type) {
+                case VALUE_NULL -> null;
+                case VALUE_DOUBLE -> buffer.getDouble();
+                case VALUE_LONG -> unzigzag(readVarLong(buffer));
+                case VALUE_TRUE -> Boolean.TRUE;
+                case VALUE_FALSE -> Boolean.FALSE;
+                case VALUE_STRING -> readString(buffer);
+                default -> throw new IOException("Unknown value type " + type + " for field " + name);
+            };
+            data.put(name, value);
+        }
+        return DeviceDataModel.builder()
+            .clientId(clientId)
+            .timestamp(timestamp)
+            .data(data)
+            .build();
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = (int) readVarLong(buffer) - 1;
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private static long readTimestamp(ByteBuffer buffer) {
+        return buffer.get() == 0 ? 0L : unzigzag(readVarLong(buffer));
+    }
+
+    /**
+     * Reads the number of records or fields that follow; every one takes at least a byte, so a count above the
+     * remaining bytes is corrupt and must not size an allocation
+     */
+    private static int readCount(ByteBuffer buffer, String element) throws IOException {
+        long count = readVarLong(buffer);
+        if (count < 0 || count > buffer.remaining()) {
+            throw new IOException("Invalid " + element + " count " + count + " with " + buffer.remaining()
+                                  + " bytes left");
+        }
+        return (int) count;
+    }
+
+    private static long readVarLong(ByteBuffer buffer) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0 && shift < 64);
+        return value;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static final class Writer {
+        private byte[] buffer = new byte[256];
+        private int position;
+
+        void reset() {
+            position = 0;
+        }
+
+        void writeByte(int value) {
+            ensure(1);
+            buffer[position++] = (byte) value;
+        }
+
+        void writeLong(long value) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[position++] = (byte) (value >>> shift);
+            }
+        }
+
+        void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        void writeBytes(byte[] bytes, int offset, int length) {
+            ensure(length);
+            System.arraycopy(bytes, offset, buffer, position, length);
+            position += length;
+        }
+
+        void writeString(String value) {
+            if (value == null) {
+                writeVarLong(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length + 1L);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        void writeTimestamp(long epochNanos) {
+            writeByte(1);
+            writeVarLong(zigzag(epochNanos));
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+
+        private void ensure(int extra) {
+            if (position + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + extra));
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package org.quangdung.infrastructure.component.rabbitmq.model;
+
+import java.util.List;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Envelope carrying several device data records in a single RabbitMQ message
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@RegisterForReflection
+public class DeviceDataBatchModel {
+    public static final String MESSAGE_TYPE = "device-data-batch";
+
+    private int size;
+    private List<DeviceDataModel> records;
+}
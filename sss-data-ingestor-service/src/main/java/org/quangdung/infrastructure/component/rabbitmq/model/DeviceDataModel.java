@@ -1,17 +1,31 @@
 package org.quangdung.infrastructure.component.rabbitmq.model;
 
-import java.time.LocalDateTime;
 import java.util.Map;
 
+import org.quangdung.core.utils.time_util.EpochNanosDeserializer;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+
 import io.quarkus.runtime.annotations.RegisterForReflection;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 @Data
 @Builder
+@NoArgsConstructor
+@AllArgsConstructor
 @RegisterForReflection
 public class DeviceDataModel {
     private String clientId;
-    private LocalDateTime timestamp;
+    // Epoch nanoseconds (UTC)
+    @JsonDeserialize(using = EpochNanosDeserializer.class)
+    private long timestamp;
+    // Null when the record was encoded straight from the parsed payload, see encoded
     private Map<String, Object> data;
+    // The record as a complete DeviceMessageCodec device data message, with the binary wire format
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private byte[] encoded;
 }
@@ -1,16 +1,24 @@
 package org.quangdung.infrastructure.component.rabbitmq.model;
 
-import java.time.LocalDateTime;
+import org.quangdung.core.utils.time_util.EpochNanosDeserializer;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 
 import io.quarkus.runtime.annotations.RegisterForReflection;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 @Data
 @Builder
+@NoArgsConstructor
+@AllArgsConstructor
 @RegisterForReflection
 public class DeviceStatusModel {
     private String clientId;
     private String status;
-    private LocalDateTime timestamp;
+    // Epoch nanoseconds (UTC)
+    @JsonDeserialize(using = EpochNanosDeserializer.class)
+    private long timestamp;
 }
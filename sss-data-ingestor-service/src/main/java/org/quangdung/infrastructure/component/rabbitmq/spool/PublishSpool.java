@@ -0,0 +1,324 @@
+package org.quangdung.infrastructure.component.rabbitmq.spool;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+import org.quangdung.core.metric.MetricService;
+import org.quangdung.core.spool.SegmentLog;
+import org.quangdung.infrastructure.component.rabbitmq.PublishChannel;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Disk-backed spool of messages that could not be published to RabbitMQ.
+ * Each channel has its own memory-mapped SegmentLog (a subdirectory named after the channel), so that
+ * a channel without demand does not hold back the replay of the others. Records are stored in order as
+ * [unsigned short client ID length][client ID][JSON model] and survive a restart of the service until
+ * they are replayed. The spool tracks which client IDs have records pending, so that only their new
+ * messages have to follow them through the spool to stay in order.
+ */
+@ApplicationScoped
+public class PublishSpool {
+    private static final int MAX_CLIENT_ID_BYTES = 0xFFFF;
+
+    /**
+     * A message read back from the spool
+     */
+    public static final class SpooledMessage {
+        private final String clientId;
+        private final Object model;
+        private final long spooledAtMillis;
+
+        private SpooledMessage(String clientId, Object model, long spooledAtMillis) {
+            this.clientId = clientId;
+            this.model = model;
+            this.spooledAtMillis = spooledAtMillis;
+        }
+
+        public String getClientId() {
+            return clientId;
+        }
+
+        /**
+         * @return the message payload, null if the record could not be decoded; it is then dropped on commit
+         */
+        public Object getModel() {
+            return model;
+        }
+
+        public long getSpooledAtMillis() {
+            return spooledAtMillis;
+        }
+    }
+
+    /**
+     * Spool of one channel
+     */
+    private static final class ChannelSpool {
+        private final SegmentLog log;
+        // Number of pending records per client ID, entries are removed when they reach 0
+        private final ConcurrentHashMap<String, Integer> pendingByClient = new ConcurrentHashMap<>();
+        private Counter appended;
+        private Counter rejected;
+
+        private ChannelSpool(SegmentLog log) {
+            this.log = log;
+        }
+    }
+
+    @Inject
+    private Logger log;
+
+    @Inject
+    private ObjectMapper objectMapper;
+
+    @Inject
+    private MetricService metricsService;
+
+    @Inject
+    @ConfigProperty(name = "rabbitmq.spool.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @Inject
+    @ConfigProperty(name = "rabbitmq.spool.directory", defaultValue = "data/spool")
+    String directory;
+
+    @Inject
+    @ConfigProperty(name = "rabbitmq.spool.segment-bytes", defaultValue = "16777216")
+    int segmentBytes;
+
+    // Cap of each channel
+    @Inject
+    @ConfigProperty(name = "rabbitmq.spool.max-bytes", defaultValue = "1073741824")
+    long maxBytes;
+
+    private ChannelSpool[] channels; // indexed by PublishChannel ordinal
+    private Counter corruptCounter;
+
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            return;
+        }
+        PublishChannel[] publishChannels = PublishChannel.values();
+        channels = new ChannelSpool[publishChannels.length];
+        try {
+            for (PublishChannel channel : publishChannels) {
+                channels[channel.ordinal()] = new ChannelSpool(
+                    new SegmentLog(Path.of(directory, channel.getChannelName()), segmentBytes, maxBytes));
+            }
+        } catch (IOException | RuntimeException e) {
+            // Publishing still works without the spool, failed messages are just not kept
+            log.errorf(e, "Failed to open publish spool in %s, spooling disabled", directory);
+            for (ChannelSpool channelSpool : channels) {
+                if (channelSpool != null) {
+                    channelSpool.log.close();
+                }
+            }
+            enabled = false;
+            return;
+        }
+
+        for (PublishChannel channel : publishChannels) {
+            ChannelSpool channelSpool = channels[channel.ordinal()];
+            String name = channel.getChannelName();
+            channelSpool.log.forEachPending(record ->
+                channelSpool.pendingByClient.merge(readClientId(record), 1, Integer::sum));
+            log.infof("Publish spool of %s opened in %s (%d pending records from %d clients, max %d bytes)",
+                      name, directory, channelSpool.log.pendingRecords(), channelSpool.pendingByClient.size(), maxBytes);
+
+            channelSpool.appended = metricsService.counter("rabbitmq_spool_appended_total", "channel", name);
+            channelSpool.rejected = metricsService.counter("rabbitmq_spool_rejected_total", "channel", name);
+            SegmentLog segmentLog = channelSpool.log;
+            metricsService.registerGauge("rabbitmq_spool_records", segmentLog, SegmentLog::pendingRecords, "channel", name);
+            metricsService.registerGauge("rabbitmq_spool_size_bytes", segmentLog, SegmentLog::pendingBytes, "channel", name);
+            metricsService.registerGauge("rabbitmq_spool_disk_bytes", segmentLog, SegmentLog::diskBytes, "channel", name);
+            metricsService.registerGauge("rabbitmq_spool_clients", channelSpool.pendingByClient, ConcurrentHashMap::size,
+                                          "channel", name);
+            metricsService.registerGauge("rabbitmq_spool_oldest_age_seconds", segmentLog, spool -> {
+                long oldest = spool.oldestAppendedAtMillis();
+                return oldest < 0 ? 0 : (System.currentTimeMillis() - oldest) / 1000.0;
+            }, "channel", name);
+        }
+        corruptCounter = metricsService.counter("rabbitmq_spool_corrupt_records_total");
+    }
+
+    @PreDestroy
+    void close() {
+        if (channels == null) {
+            return;
+        }
+        for (ChannelSpool channelSpool : channels) {
+            if (channelSpool != null) {
+                channelSpool.log.close();
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param channel a channel
+     * @param clientId a client ID
+     * @return true if the client has messages for the channel waiting in the spool; new ones must follow them
+     */
+    public boolean hasPending(PublishChannel channel, String clientId) {
+        return enabled && channels[channel.ordinal()].pendingByClient.containsKey(key(clientId));
+    }
+
+    /**
+     * Appends a message at the end of the spool of its channel
+     * @param channel the channel the message is meant for
+     * @param clientId the client ID the message belongs to
+     * @param model the message payload
+     * @return false if the spool is disabled, full or cannot be written
+     */
+    public boolean append(PublishChannel channel, String clientId, Object model) {
+        return appendAll(channel, List.of(model), ignored -> clientId);
+    }
+
+    /**
+     * Appends messages at the end of the spool of their channel, either all of them or none
+     * @param channel the channel the messages are meant for
+     * @param models the message payloads, in order
+     * @param clientIdOf gives the client ID of a message
+     * @return false if the spool is disabled, cannot hold all the messages or cannot be written
+     */
+    public <T> boolean appendAll(PublishChannel channel, List<T> models, Function<T, String> clientIdOf) {
+        if (!enabled) {
+            return false;
+        }
+        ChannelSpool channelSpool = channels[channel.ordinal()];
+        List<byte[]> records = new ArrayList<>(models.size());
+        List<String> clientIds = new ArrayList<>(models.size());
+        try {
+            for (T model : models) {
+                String clientId = key(clientIdOf.apply(model));
+                records.add(record(clientId, model));
+                clientIds.add(clientId);
+            }
+        } catch (IOException e) {
+            log.errorf(e, "Failed to spool messages for channel %s", channel.getChannelName());
+            channelSpool.rejected.increment(models.size());
+            return false;
+        }
+        // Counted before the records become visible to the replay, which uncounts them on commit
+        for (String clientId : clientIds) {
+            channelSpool.pendingByClient.merge(clientId, 1, Integer::sum);
+        }
+        try {
+            if (channelSpool.log.appendAll(records, System.currentTimeMillis())) {
+                channelSpool.appended.increment(records.size());
+                return true;
+            }
+            log.warnf("Publish spool of %s is full, dropping %d messages", channel.getChannelName(), records.size());
+        } catch (IOException e) {
+            log.errorf(e, "Failed to spool messages for channel %s", channel.getChannelName());
+        }
+        for (String clientId : clientIds) {
+            uncount(channelSpool, clientId);
+        }
+        channelSpool.rejected.increment(records.size());
+        return false;
+    }
+
+    /**
+     * Reads the message after the one returned by the previous call, without consuming it, so that
+     * several messages can be replayed at once. They must be committed in the order they were read.
+     * @param channel the channel to read
+     * @return the message, or null if every spooled message of the channel has been read
+     * @throws IOException if the spool cannot be read
+     */
+    public SpooledMessage next(PublishChannel channel) throws IOException {
+        if (!enabled) {
+            return null;
+        }
+        SegmentLog.Entry entry = channels[channel.ordinal()].log.next();
+        if (entry == null) {
+            return null;
+        }
+        byte[] record = entry.getPayload();
+        String clientId = readClientId(record);
+        int offset = modelOffset(record);
+        Object model = null;
+        try {
+            model = objectMapper.readValue(record, offset, record.length - offset, channel.getModelType());
+        } catch (IOException e) {
+            log.errorf(e, "Undecodable spooled message for channel %s, it will be dropped", channel.getChannelName());
+        }
+        return new SpooledMessage(clientId, model, entry.getAppendedAtMillis());
+    }
+
+    /**
+     * Consumes the oldest message of a channel
+     * @param channel the channel
+     * @param message the oldest message, as returned by next
+     * @throws IOException if the spool cannot be updated
+     */
+    public void commit(PublishChannel channel, SpooledMessage message) throws IOException {
+        ChannelSpool channelSpool = channels[channel.ordinal()];
+        channelSpool.log.commit();
+        uncount(channelSpool, message.getClientId());
+        if (message.getModel() == null) {
+            corruptCounter.increment();
+        }
+    }
+
+    /**
+     * Makes next read the oldest message of a channel again, for the messages that were read but not committed
+     * @param channel the channel
+     */
+    public void rewind(PublishChannel channel) {
+        channels[channel.ordinal()].log.rewind();
+    }
+
+    private byte[] record(String clientId, Object model) throws IOException {
+        byte[] key = clientId.getBytes(StandardCharsets.UTF_8);
+        if (key.length > MAX_CLIENT_ID_BYTES) {
+            throw new IOException("Client ID is too long to be spooled: " + key.length + " bytes");
+        }
+        byte[] json = objectMapper.writeValueAsBytes(model);
+        byte[] record = new byte[2 + key.length + json.length];
+        record[0] = (byte) (key.length >>> 8);
+        record[1] = (byte) key.length;
+        System.arraycopy(key, 0, record, 2, key.length);
+        System.arraycopy(json, 0, record, 2 + key.length, json.length);
+        return record;
+    }
+
+    private static String readClientId(byte[] record) {
+        int offset = modelOffset(record);
+        return offset > 2 ? new String(record, 2, offset - 2, StandardCharsets.UTF_8) : "";
+    }
+
+    // Start of the JSON model, bounded by the record for truncated records
+    private static int modelOffset(byte[] record) {
+        if (record.length < 2) {
+            return record.length;
+        }
+        return Math.min(2 + ((record[0] & 0xFF) << 8 | (record[1] & 0xFF)), record.length);
+    }
+
+    private static void uncount(ChannelSpool channelSpool, String clientId) {
+        channelSpool.pendingByClient.computeIfPresent(clientId, (ignored, count) -> count > 1 ? count - 1 : null);
+    }
+
+    private static String key(String clientId) {
+        return clientId != null ? clientId : "";
+    }
+}
@@ -0,0 +1,75 @@
+package org.quangdung.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.quangdung.infrastructure.component.mqtt.topic.DeviceTopicParser;
+import org.quangdung.infrastructure.component.mqtt.topic.ParsedTopic;
+
+/**
+ * Compares the previous topic handling (two topic.split("/") calls per message) with DeviceTopicParser.
+ * Run with: ./mvnw test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args=DeviceTopicParserBenchmark
+ * Add "-prof gc" to the arguments to compare allocation rates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeviceTopicParserBenchmark {
+
+    @Param({"50000"})
+    int devices;
+
+    private String[] topics;
+    private int cursor;
+    private DeviceTopicParser parser;
+
+    @Setup
+    public void setup() {
+        String[] types = { "telemetry", "status", "power_outage" };
+        topics = new String[devices];
+        for (int i = 0; i < devices; i++) {
+            topics[i] = "sensors/CLIENT" + String.format("%06d", i) + "/" + types[i % types.length];
+        }
+        parser = new DeviceTopicParser(131072);
+        // Steady state: every known device has been seen once
+        for (String topic : topics) {
+            parser.parse(topic);
+        }
+    }
+
+    private String nextTopic() {
+        String topic = topics[cursor];
+        cursor = cursor + 1 == topics.length ? 0 : cursor + 1;
+        return topic;
+    }
+
+    @Benchmark
+    public void splitTwice(Blackhole blackhole) {
+        String topic = nextTopic();
+        // MqttClientComponent.getLastSegmentFromTopic
+        String[] parts = topic.split("/");
+        blackhole.consume(parts[parts.length - 1]);
+        // MessageHandler.getClientId
+        String[] topicParts = topic.split("/");
+        blackhole.consume(topicParts.length < 2 ? "" : topicParts[1]);
+    }
+
+    @Benchmark
+    public ParsedTopic singlePassInterned() {
+        return parser.parse(nextTopic());
+    }
+}
@@ -0,0 +1,86 @@
+package org.quangdung.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.logging.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.quangdung.core.metric.MetricService;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Compares recording through MetricService.incrementCounter/recordTimer (builder, tag parsing and
+ * registry lookup on every call) with recording on handles pre-bound through MetricService.counter/timer.
+ * Run with: ./mvnw test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args=MetricServiceBenchmark
+ * Add "-prof gc" to the arguments to compare allocation rates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricServiceBenchmark {
+
+    private MetricService metricService;
+    private Counter processedCounter;
+    private Timer processingTimer;
+
+    @Setup
+    public void setup() {
+        metricService = new MetricService(new SimpleMeterRegistry(), Logger.getLogger(MetricServiceBenchmark.class));
+        processedCounter = metricService.counter("mqtt_messages_processed_total",
+                                                 "channel", "device-data-in",
+                                                 "topic_type", "telemetry",
+                                                 "result", "success");
+        processingTimer = metricService.timer("mqtt_message_processing_duration_seconds",
+                                              "channel", "device-data-in",
+                                              "topic_type", "telemetry",
+                                              "result", "success");
+    }
+
+    @Benchmark
+    public void dynamicCounter() {
+        metricService.incrementCounter("mqtt_messages_processed_total",
+                                       "channel", "device-data-in",
+                                       "topic_type", "telemetry",
+                                       "result", "success");
+    }
+
+    @Benchmark
+    public void dynamicCounterKeyValueStrings() {
+        metricService.incrementCounter("mqtt_messages_processed_total",
+                                       "channel=device-data-in",
+                                       "topic_type=telemetry",
+                                       "result=success");
+    }
+
+    @Benchmark
+    public void preBoundCounter() {
+        processedCounter.increment();
+    }
+
+    @Benchmark
+    public void dynamicTimer() {
+        metricService.recordTimer("mqtt_message_processing_duration_seconds", 1_250_000L, TimeUnit.NANOSECONDS,
+                                  "channel", "device-data-in",
+                                  "topic_type", "telemetry",
+                                  "result", "success");
+    }
+
+    @Benchmark
+    public void preBoundTimer() {
+        processingTimer.record(1_250_000L, TimeUnit.NANOSECONDS);
+    }
+}
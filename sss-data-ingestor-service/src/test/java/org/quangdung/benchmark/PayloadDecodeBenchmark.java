@@ -0,0 +1,77 @@
+package org.quangdung.benchmark;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.msgpack.jackson.dataformat.MessagePackFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.quangdung.infrastructure.component.mqtt.parser.DevicePayload;
+import org.quangdung.infrastructure.component.mqtt.parser.DevicePayloadParser;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
+/**
+ * Compares decode throughput of the same telemetry payload encoded as JSON, CBOR and MessagePack,
+ * going through DevicePayloadParser exactly as the MQTT handlers do (format detection included).
+ * The encoded sizes are printed during setup.
+ * Run with: ./mvnw test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args=PayloadDecodeBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PayloadDecodeBenchmark {
+
+    private DevicePayloadParser parser;
+    private byte[] json;
+    private byte[] cbor;
+    private byte[] msgpack;
+
+    @Setup
+    public void setup() throws Exception {
+        // Shape of the payload built by the ESP32 firmware in normal_mode.cpp
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("temperature", 23.750000);
+        data.put("humidity", 61.200001);
+        data.put("power_status", 1);
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("data", data);
+        payload.put("timestamp", "2025-07-14T09:26:53Z");
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        parser = new DevicePayloadParser(objectMapper);
+        json = objectMapper.writeValueAsBytes(payload);
+        cbor = new ObjectMapper(new CBORFactory()).writeValueAsBytes(payload);
+        msgpack = new ObjectMapper(new MessagePackFactory()).writeValueAsBytes(payload);
+        System.out.printf("%nPayload size: json=%d bytes, cbor=%d bytes, msgpack=%d bytes%n",
+                          json.length, cbor.length, msgpack.length);
+    }
+
+    @Benchmark
+    public DevicePayload decodeJson() throws Exception {
+        return parser.parse(json);
+    }
+
+    @Benchmark
+    public DevicePayload decodeCbor() throws Exception {
+        return parser.parse(cbor);
+    }
+
+    @Benchmark
+    public DevicePayload decodeMsgpack() throws Exception {
+        return parser.parse(msgpack);
+    }
+}
@@ -0,0 +1,132 @@
+package org.quangdung.benchmark;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.quangdung.core.utils.time_util.EpochNanos;
+import org.quangdung.infrastructure.component.rabbitmq.codec.DeviceMessageCodec;
+import org.quangdung.infrastructure.component.rabbitmq.model.DeviceDataBatchModel;
+import org.quangdung.infrastructure.component.rabbitmq.model.DeviceDataModel;
+import org.quangdung.infrastructure.component.rabbitmq.model.DeviceStatusModel;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Compares the JSON path of the consumers (the connector builds a JsonObject, which is encoded back to
+ * a String and read with ObjectMapper) with DeviceMessageCodec, for single records and batch envelopes.
+ * Bytes per message of both formats are printed during setup.
+ * Run with: ./mvnw test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args=WireFormatBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WireFormatBenchmark {
+    private static final int BATCH_SIZE = 100;
+    private static final long TIMESTAMP = EpochNanos.parse("2025-07-14T09:26:53Z");
+
+    private ObjectMapper objectMapper;
+    private DeviceMessageCodec codec;
+
+    private byte[] deviceDataJson;
+    private byte[] deviceDataBinary;
+    private byte[] batchJson;
+    private byte[] batchBinary;
+    private byte[] statusJson;
+    private byte[] statusBinary;
+
+    @Setup
+    public void setup() throws Exception {
+        objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        codec = new DeviceMessageCodec();
+
+        DeviceDataModel deviceData = deviceData(0);
+        List<DeviceDataModel> records = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            records.add(deviceData(i));
+        }
+        DeviceDataBatchModel batch = DeviceDataBatchModel.builder().size(BATCH_SIZE).records(records).build();
+        DeviceStatusModel status = DeviceStatusModel.builder()
+            .clientId("XVRAIF6Y")
+            .status("ONLINE")
+            .timestamp(TIMESTAMP)
+            .build();
+
+        deviceDataJson = objectMapper.writeValueAsBytes(deviceData);
+        deviceDataBinary = codec.encode(deviceData);
+        batchJson = objectMapper.writeValueAsBytes(batch);
+        batchBinary = codec.encode(batch);
+        statusJson = objectMapper.writeValueAsBytes(status);
+        statusBinary = codec.encode(status);
+        System.out.printf("%nBytes per message: device data json=%d binary=%d, batch of %d json=%d binary=%d, status json=%d binary=%d%n",
+                          deviceDataJson.length, deviceDataBinary.length, BATCH_SIZE, batchJson.length, batchBinary.length,
+                          statusJson.length, statusBinary.length);
+    }
+
+    private static DeviceDataModel deviceData(int i) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("temperature", 23.75 + i * 0.01);
+        data.put("humidity", 61.2);
+        data.put("power_status", 1L);
+        return DeviceDataModel.builder()
+            .clientId(String.format("CLIENT%06d", i))
+            .timestamp(TIMESTAMP + i * 1_000_000_000L)
+            .data(data)
+            .build();
+    }
+
+    @Benchmark
+    public DeviceDataModel decodeDeviceDataJson() throws Exception {
+        JsonObject payload = new JsonObject(Buffer.buffer(deviceDataJson));
+        return objectMapper.readValue(payload.encode(), DeviceDataModel.class);
+    }
+
+    @Benchmark
+    public DeviceDataModel decodeDeviceDataBinary() throws Exception {
+        return codec.decodeDeviceData(deviceDataBinary);
+    }
+
+    @Benchmark
+    public DeviceDataBatchModel decodeBatchJson() throws Exception {
+        JsonObject payload = new JsonObject(Buffer.buffer(batchJson));
+        return objectMapper.readValue(payload.encode(), DeviceDataBatchModel.class);
+    }
+
+    @Benchmark
+    public DeviceDataBatchModel decodeBatchBinary() throws Exception {
+        return codec.decodeDeviceDataBatch(batchBinary);
+    }
+
+    @Benchmark
+    public DeviceStatusModel decodeStatusJson() throws Exception {
+        JsonObject payload = new JsonObject(Buffer.buffer(statusJson));
+        return objectMapper.readValue(payload.encode(), DeviceStatusModel.class);
+    }
+
+    @Benchmark
+    public DeviceStatusModel decodeStatusBinary() throws Exception {
+        return codec.decodeDeviceStatus(statusBinary);
+    }
+}
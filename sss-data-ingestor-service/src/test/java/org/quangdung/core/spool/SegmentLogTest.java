@@ -0,0 +1,117 @@
+package org.quangdung.core.spool;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentLogTest {
+    // Header (8) + 4 records of 12 + 8 bytes
+    private static final int SEGMENT_BYTES = 88;
+
+    @TempDir
+    Path directory;
+
+    private static byte[] record(int index) {
+        return String.format("rec-%04d", index).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(SegmentLog.Entry entry) {
+        return new String(entry.getPayload(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    @DisplayName("Should read ahead across segments and consume in order")
+    void testReadAhead() throws IOException {
+        try (SegmentLog log = new SegmentLog(directory, SEGMENT_BYTES, SEGMENT_BYTES * 4L)) {
+            for (int i = 0; i < 10; i++) {
+                assertTrue(log.append(record(i), i));
+            }
+            for (int i = 0; i < 10; i++) {
+                assertEquals("rec-" + String.format("%04d", i), text(log.next()));
+            }
+            assertNull(log.next());
+
+            for (int i = 0; i < 6; i++) {
+                assertEquals("rec-" + String.format("%04d", i), text(log.peek()));
+                log.commit();
+            }
+            assertEquals(4, log.pendingRecords());
+            assertNull(log.next());
+
+            assertTrue(log.append(record(10), 10));
+            assertEquals("rec-0010", text(log.next()));
+        }
+    }
+
+    @Test
+    @DisplayName("Should read the uncommitted records again after a rewind")
+    void testRewind() throws IOException {
+        try (SegmentLog log = new SegmentLog(directory, SEGMENT_BYTES, SEGMENT_BYTES * 4L)) {
+            for (int i = 0; i < 6; i++) {
+                log.append(record(i), i);
+            }
+            log.next();
+            log.next();
+            log.next();
+            log.commit();
+
+            log.rewind();
+
+            assertEquals("rec-0001", text(log.next()));
+            assertEquals(5, log.pendingRecords());
+        }
+    }
+
+    @Test
+    @DisplayName("Should append all records or none of them at the size cap")
+    void testAppendAllAtCap() throws IOException {
+        try (SegmentLog log = new SegmentLog(directory, SEGMENT_BYTES, SEGMENT_BYTES * 2L)) {
+            for (int i = 0; i < 6; i++) {
+                assertTrue(log.append(record(i), i));
+            }
+
+            assertFalse(log.appendAll(List.of(record(6), record(7), record(8)), 6));
+            assertEquals(6, log.pendingRecords());
+
+            assertTrue(log.appendAll(List.of(record(6), record(7)), 6));
+            assertEquals(8, log.pendingRecords());
+
+            // Consuming the first segment makes room for a new one
+            for (int i = 0; i < 4; i++) {
+                log.commit();
+            }
+            assertTrue(log.appendAll(List.of(record(8), record(9), record(10)), 8));
+        }
+    }
+
+    @Test
+    @DisplayName("Should recover the unconsumed records after reopening")
+    void testRecovery() throws IOException {
+        try (SegmentLog log = new SegmentLog(directory, SEGMENT_BYTES, SEGMENT_BYTES * 4L)) {
+            for (int i = 0; i < 7; i++) {
+                log.append(record(i), i);
+            }
+            log.next();
+            log.commit();
+            log.next();
+            log.commit();
+        }
+
+        try (SegmentLog log = new SegmentLog(directory, SEGMENT_BYTES, SEGMENT_BYTES * 4L)) {
+            List<String> pending = new ArrayList<>();
+            log.forEachPending(payload -> pending.add(new String(payload, StandardCharsets.UTF_8)));
+
+            assertEquals(List.of("rec-0002", "rec-0003", "rec-0004", "rec-0005", "rec-0006"), pending);
+            assertEquals("rec-0002", text(log.next()));
+            assertEquals(2L, log.oldestAppendedAtMillis());
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package org.quangdung.core.utils.time_util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.OffsetDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EpochNanosTest {
+    // 2024-01-15T03:30:00Z
+    private static final long EPOCH_SECOND = 1_705_289_400L;
+    private static final long NANOS = EPOCH_SECOND * 1_000_000_000L;
+
+    @Test
+    @DisplayName("Should apply offsets in every accepted form")
+    void testOffsets() {
+        assertEquals(NANOS, EpochNanos.parse("2024-01-15T10:30:00+07:00"));
+        assertEquals(NANOS, EpochNanos.parse("2024-01-15T10:30:00+0700"));
+        assertEquals(NANOS, EpochNanos.parse("2024-01-15T10:30:00+07"));
+        assertEquals(NANOS, EpochNanos.parse("2024-01-14T22:00:00-05:30"));
+        assertEquals(NANOS, EpochNanos.parse("2024-01-15T03:30:00+00:00"));
+        // The offset moves the date across midnight
+        assertEquals(NANOS, EpochNanos.parse("2024-01-14T23:30:00-04:00"));
+    }
+
+    @Test
+    @DisplayName("Should read UTC designators and date-times without offset as UTC")
+    void testWithoutOffset() {
+        assertEquals(NANOS, EpochNanos.parse("2024-01-15T03:30:00Z"));
+        assertEquals(NANOS, EpochNanos.parse("2024-01-15t03:30:00z"));
+        assertEquals(NANOS, EpochNanos.parse("2024-01-15T03:30:00"));
+        assertEquals(NANOS, EpochNanos.parse("2024-01-15 03:30:00"));
+        assertEquals(NANOS, EpochNanos.parse("2024-01-15T03:30"));
+        assertEquals(NANOS, EpochNanos.parse("2024-01-15T03:30Z"));
+    }
+
+    @Test
+    @DisplayName("Should read fractional seconds of 1 to 9 digits")
+    void testFractionalSeconds() {
+        assertEquals(NANOS + 100_000_000L, EpochNanos.parse("2024-01-15T03:30:00.1Z"));
+        assertEquals(NANOS + 123_000_000L, EpochNanos.parse("2024-01-15T03:30:00.123+00:00"));
+        assertEquals(NANOS + 123_456_000L, EpochNanos.parse("2024-01-15T10:30:00.123456+07:00"));
+        assertEquals(NANOS + 123_456_789L, EpochNanos.parse("2024-01-15T03:30:00.123456789"));
+        assertEquals(NANOS + 5_000_000L, EpochNanos.parse("2024-01-15T03:30:00,005Z"));
+        assertThrows(IllegalArgumentException.class, () -> EpochNanos.parse("2024-01-15T03:30:00.1234567891Z"));
+        assertThrows(IllegalArgumentException.class, () -> EpochNanos.parse("2024-01-15T03:30:00.Z"));
+    }
+
+    @Test
+    @DisplayName("Should guess the unit of epoch numbers from their magnitude")
+    void testEpochNumbers() {
+        assertEquals(NANOS, EpochNanos.parse("1705289400"));
+        assertEquals(NANOS + 123_000_000L, EpochNanos.parse("1705289400123"));
+        assertEquals(NANOS + 123_456_000L, EpochNanos.parse("1705289400123456"));
+        assertEquals(NANOS + 123_456_789L, EpochNanos.parse("1705289400123456789"));
+
+        assertEquals(NANOS, EpochNanos.fromEpochNumber(EPOCH_SECOND));
+        assertEquals(NANOS + 123_000_000L, EpochNanos.fromEpochNumber(1_705_289_400_123L));
+        assertEquals(NANOS + 123_456_000L, EpochNanos.fromEpochNumber(1_705_289_400_123_456L));
+        assertEquals(NANOS + 123_456_789L, EpochNanos.fromEpochNumber(1_705_289_400_123_456_789L));
+        assertEquals(0L, EpochNanos.fromEpochNumber(0L));
+        assertThrows(IllegalArgumentException.class, () -> EpochNanos.fromEpochNumber(-1L));
+        assertThrows(IllegalArgumentException.class, () -> EpochNanos.parse("99999999999999999999"));
+    }
+
+    @Test
+    @DisplayName("Should read every unit from 1970-04-17 to 2262 without overflowing at the unit boundaries")
+    void testEpochNumberBoundaries() {
+        // 2000-02-29T12:00:00Z in nanoseconds, below 10^18
+        assertEquals(951_825_600_000_000_000L, EpochNanos.fromEpochNumber(951_825_600_000_000_000L));
+        assertEquals(951_825_600_000_000_000L, EpochNanos.parse("951825600000000000"));
+        // 2001-09-09T01:46:40Z in nanoseconds
+        assertEquals(1_000_000_000_000_000_000L, EpochNanos.fromEpochNumber(1_000_000_000_000_000_000L));
+        assertEquals(Long.MAX_VALUE, EpochNanos.fromEpochNumber(Long.MAX_VALUE));
+
+        // The largest value of a unit, then the smallest one read in the next finer unit
+        assertEquals(9_223_372_036_000_000_000L, EpochNanos.fromEpochNumber(9_223_372_036L));
+        assertEquals(9_223_372_037_000_000L, EpochNanos.fromEpochNumber(9_223_372_037L));
+        assertEquals(9_223_372_036_854_000_000L, EpochNanos.fromEpochNumber(9_223_372_036_854L));
+        assertEquals(9_223_372_036_855_000L, EpochNanos.fromEpochNumber(9_223_372_036_855L));
+        assertEquals(9_223_372_036_854_775_000L, EpochNanos.fromEpochNumber(9_223_372_036_854_775L));
+        assertEquals(9_223_372_036_854_776L, EpochNanos.fromEpochNumber(9_223_372_036_854_776L));
+    }
+
+    @Test
+    @DisplayName("Should agree with java.time")
+    void testAgainstJavaTime() {
+        String[] texts = {
+            "1970-01-01T00:00:00Z", "2000-02-29T12:00:00.5+01:00", "2262-04-11T23:47:16.854775807Z",
+            "1999-12-31T23:59:59.999999999-12:00", "2024-12-31T23:59:59+18:00"
+        };
+        for (String text : texts) {
+            OffsetDateTime expected = OffsetDateTime.parse(text);
+            long expectedNanos = expected.toEpochSecond() * 1_000_000_000L + expected.getNano();
+            assertEquals(expectedNanos, EpochNanos.parse(text), text);
+            assertEquals(expected.toInstant(), EpochNanos.toInstant(expectedNanos), text);
+        }
+    }
+
+    @Test
+    @DisplayName("Should parse a region of a character buffer")
+    void testCharacterRegion() {
+        char[] chars = "{\"timestamp\":\"2024-01-15T10:30:00+07:00\"}".toCharArray();
+
+        assertEquals(NANOS, EpochNanos.parse(chars, 14, 25));
+    }
+
+    @Test
+    @DisplayName("Should reject invalid timestamps")
+    void testInvalid() {
+        String[] texts = {
+            "", "now", "2024-01-15", "2024-02-30T00:00:00Z", "2023-02-29T00:00Z", "2024-13-01T00:00Z",
+            "2024-01-15T24:00:00Z", "2024-01-15T03:60Z", "2024-01-15T03:30:00+19:00", "2024-01-15T03:30:00+07:0",
+            "2024-01-15T03:30:00ZZ", "2024-01-15T03:30:0", "2024/01/15T03:30:00Z", "-1705289400",
+            "2263-01-01T00:00:00Z"
+        };
+        for (String text : texts) {
+            assertThrows(IllegalArgumentException.class, () -> EpochNanos.parse(text), text);
+        }
+    }
+}
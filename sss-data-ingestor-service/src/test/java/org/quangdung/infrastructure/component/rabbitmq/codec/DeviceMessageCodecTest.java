@@ -0,0 +1,183 @@
+package org.quangdung.infrastructure.component.rabbitmq.codec;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.quangdung.infrastructure.component.mqtt.parser.DevicePayload;
+import org.quangdung.infrastructure.component.mqtt.parser.DevicePayloadParser;
+import org.quangdung.infrastructure.component.rabbitmq.model.DeviceDataBatchModel;
+import org.quangdung.infrastructure.component.rabbitmq.model.DeviceDataModel;
+import org.quangdung.infrastructure.component.rabbitmq.model.DevicePowerOutageModel;
+import org.quangdung.infrastructure.component.rabbitmq.model.DeviceStatusModel;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The storage, alert and device services decode these messages with their own copy of the codec,
+ * and their DeviceMessageCodecTest decodes the same reference bytes: a change here must be made there too.
+ */
+class DeviceMessageCodecTest {
+    // 2024-01-15T03:30:00.123456789Z
+    static final long TIMESTAMP = 1_705_289_400_123_456_789L;
+
+    // Reference messages, see the models built below
+    static final String DEVICE_DATA = "01010a73656e736f722d303101aaf4c7d994ebb3aa2f070c74656d7065726174757265014035800000000000"
+        + "057273736902850107656e657267790280808080200672656c61790305646f6f720405726f6f6d050e5068c3b26e67206b68c3a1"
+        + "6368066572726f7200";
+    static final String DEVICE_DATA_BATCH = "0104020a73656e736f722d303101aaf4c7d994ebb3aa2f010c74656d7065726174757265"
+        + "01403580000000000000010000";
+    static final String DEVICE_STATUS = "01020a73656e736f722d3031076f6e6c696e6501aaf4c7d994ebb3aa2f";
+    static final String DEVICE_STATUS_WITHOUT_STATUS = "01020a73656e736f722d30310001aaf4c7d994ebb3aa2f";
+    static final String POWER_OUTAGE = "01030a73656e736f722d3031010001aaf4c7d994ebb3aa2f";
+    static final String POWER_OUTAGE_WITHOUT_CLIENT_OR_STATUS = "0103000001aaf4c7d994ebb3aa2f";
+
+    private final DeviceMessageCodec codec = new DeviceMessageCodec();
+
+    private static Map<String, Object> sensorData() {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("temperature", 21.5);
+        data.put("rssi", -67L);
+        data.put("energy", 4_294_967_296L);
+        data.put("relay", true);
+        data.put("door", false);
+        data.put("room", "Phòng khách");
+        data.put("error", null);
+        return data;
+    }
+
+    private static byte[] bytes(String hex) {
+        return HexFormat.of().parseHex(hex);
+    }
+
+    @Test
+    @DisplayName("Should encode every message type to the reference bytes")
+    void testReferenceBytes() {
+        assertArrayEquals(bytes(DEVICE_DATA), codec.encode(DeviceDataModel.builder()
+            .clientId("sensor-01").timestamp(TIMESTAMP).data(sensorData()).build()));
+        assertArrayEquals(bytes(DEVICE_DATA_BATCH), codec.encode(DeviceDataBatchModel.builder().size(2).records(List.of(
+            DeviceDataModel.builder().clientId("sensor-01").timestamp(TIMESTAMP).data(Map.of("temperature", 21.5)).build(),
+            DeviceDataModel.builder().build())).build()));
+        assertArrayEquals(bytes(DEVICE_STATUS), codec.encode(DeviceStatusModel.builder()
+            .clientId("sensor-01").status("online").timestamp(TIMESTAMP).build()));
+        assertArrayEquals(bytes(DEVICE_STATUS_WITHOUT_STATUS), codec.encode(DeviceStatusModel.builder()
+            .clientId("sensor-01").timestamp(TIMESTAMP).build()));
+        assertArrayEquals(bytes(POWER_OUTAGE), codec.encode(DevicePowerOutageModel.builder()
+            .clientId("sensor-01").powerStatus(0).timestamp(TIMESTAMP).build()));
+        assertArrayEquals(bytes(POWER_OUTAGE_WITHOUT_CLIENT_OR_STATUS), codec.encode(DevicePowerOutageModel.builder()
+            .timestamp(TIMESTAMP).build()));
+    }
+
+    @Test
+    @DisplayName("Should round-trip every value type, keeping field order")
+    void testDeviceDataRoundTrip() throws IOException {
+        DeviceDataModel decoded = codec.decodeDeviceData(bytes(DEVICE_DATA));
+
+        assertEquals("sensor-01", decoded.getClientId());
+        assertEquals(TIMESTAMP, decoded.getTimestamp());
+        assertEquals(sensorData(), decoded.getData());
+        assertEquals(List.copyOf(sensorData().keySet()), List.copyOf(decoded.getData().keySet()));
+        assertInstanceOf(Double.class, decoded.getData().get("temperature"));
+        assertInstanceOf(Long.class, decoded.getData().get("rssi"));
+        assertTrue(decoded.getData().containsKey("error"));
+    }
+
+    @Test
+    @DisplayName("Should round-trip extreme numbers")
+    void testNumberLimits() throws IOException {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("min", Long.MIN_VALUE);
+        data.put("max", Long.MAX_VALUE);
+        data.put("zero", 0L);
+        data.put("nan", Double.NaN);
+        data.put("negativeZero", -0.0);
+        data.put("infinity", Double.NEGATIVE_INFINITY);
+        byte[] encoded = codec.encode(DeviceDataModel.builder().clientId("c").timestamp(-1L).data(data).build());
+
+        DeviceDataModel decoded = codec.decodeDeviceData(encoded);
+
+        assertEquals(-1L, decoded.getTimestamp());
+        assertEquals(data, decoded.getData());
+        assertEquals(Double.doubleToRawLongBits(-0.0), Double.doubleToRawLongBits((Double) decoded.getData().get("negativeZero")));
+    }
+
+    @Test
+    @DisplayName("Should encode a parsed payload to the same bytes as its data map")
+    void testEncodeDeviceDataMatchesMapEncoding() throws IOException {
+        String json = "{\"timestamp\":\"2024-01-15T10:30:00.123456789+07:00\",\"data\":{\"temperature\":21.5,"
+            + "\"rssi\":-67,\"energy\":4294967296,\"relay\":true,\"door\":false,\"room\":\"Phòng khách\"}}";
+        DevicePayload payload = new DevicePayloadParser(new ObjectMapper()).parse(json.getBytes(StandardCharsets.UTF_8));
+
+        byte[] direct = codec.encodeDeviceData("sensor-01", payload.getTimestampNanos(), payload);
+        byte[] fromMap = codec.encode(DeviceDataModel.builder()
+            .clientId("sensor-01").timestamp(payload.getTimestampNanos()).data(payload.toDataMap()).build());
+
+        assertEquals(TIMESTAMP, payload.getTimestampNanos());
+        assertArrayEquals(fromMap, direct);
+    }
+
+    @Test
+    @DisplayName("Should batch pre-encoded records and map records alike")
+    void testBatchWithEncodedRecords() throws IOException {
+        DeviceDataModel mapRecord = DeviceDataModel.builder().clientId("sensor-01").timestamp(TIMESTAMP).data(sensorData()).build();
+        DeviceDataModel encodedRecord = DeviceDataModel.builder().clientId("sensor-01").timestamp(TIMESTAMP)
+            .encoded(bytes(DEVICE_DATA)).build();
+
+        DeviceDataBatchModel decoded = codec.decodeDeviceDataBatch(codec.encode(DeviceDataBatchModel.builder()
+            .size(2).records(List.of(mapRecord, encodedRecord)).build()));
+
+        assertEquals(2, decoded.getSize());
+        for (DeviceDataModel record : decoded.getRecords()) {
+            assertEquals("sensor-01", record.getClientId());
+            assertEquals(TIMESTAMP, record.getTimestamp());
+            assertEquals(sensorData(), record.getData());
+        }
+    }
+
+    @Test
+    @DisplayName("Should decode null strings and a missing power status as null")
+    void testNulls() throws IOException {
+        DeviceDataBatchModel batch = codec.decodeDeviceDataBatch(bytes(DEVICE_DATA_BATCH));
+        assertNull(batch.getRecords().get(1).getClientId());
+        assertEquals(Map.of(), batch.getRecords().get(1).getData());
+
+        assertNull(codec.decodeDeviceStatus(bytes(DEVICE_STATUS_WITHOUT_STATUS)).getStatus());
+
+        DevicePowerOutageModel powerOutage = codec.decodePowerOutage(bytes(POWER_OUTAGE_WITHOUT_CLIENT_OR_STATUS));
+        assertNull(powerOutage.getClientId());
+        assertNull(powerOutage.getPowerStatus());
+        assertEquals(TIMESTAMP, powerOutage.getTimestamp());
+        assertEquals(0, codec.decodePowerOutage(bytes(POWER_OUTAGE)).getPowerStatus());
+    }
+
+    @Test
+    @DisplayName("Should reject other versions, other message types and truncated messages")
+    void testRejectedMessages() {
+        byte[] otherVersion = bytes(DEVICE_STATUS);
+        otherVersion[0] = DeviceMessageCodec.VERSION + 1;
+        byte[] truncated = Arrays.copyOf(bytes(DEVICE_DATA), bytes(DEVICE_DATA).length - 3);
+
+        assertThrows(IOException.class, () -> codec.decodeDeviceStatus(otherVersion));
+        assertThrows(IOException.class, () -> codec.decodePowerOutage(bytes(DEVICE_STATUS)));
+        assertThrows(IOException.class, () -> codec.decodeDeviceData(truncated));
+        assertThrows(IOException.class, () -> codec.decodeDeviceStatus(new byte[]{DeviceMessageCodec.VERSION}));
+    }
+
+    @Test
+    @DisplayName("Should reject record and field counts the message cannot hold, before allocating for them")
+    void testOversizedCounts() {
+        // A batch claiming 2^31 - 1 records, then one claiming -1 (a 10 byte varint)
+        assertThrows(IOException.class, () -> codec.decodeDeviceDataBatch(bytes("0104ffffffff07")));
+        assertThrows(IOException.class, () -> codec.decodeDeviceDataBatch(bytes("0104ffffffffffffffffff01")));
+        // A record without client ID and timestamp claiming 2^31 - 1 fields
+        assertThrows(IOException.class, () -> codec.decodeDeviceData(bytes("01010000ffffffff07")));
+    }
+}
@@ -3,6 +3,7 @@ package com.quangdung.application.controller;
 import org.jboss.logging.Logger;
 
 import com.quangdung.application.dto.request.CreateDeviceRequest;
+import com.quangdung.application.dto.request.GetDevicesByUuidsRequest;
 import com.quangdung.application.service.DeviceService;
 import jakarta.inject.Inject;
 import jakarta.validation.Valid;
@@ -50,6 +51,20 @@ public class DeviceController {
         return deviceService.getDeviceInfoByUuid(deviceUuid);
     }
 
+    /**
+     * Get several devices by UUID with a single query, used by services resolving devices in bulk
+     * @param request UUIDs of the devices
+     * @return List of the devices found; unknown UUIDs are left out
+     */
+    @POST
+    @Path("/batch")
+    @WithSession
+    public Uni<Response> getDevicesByUuids(
+        @NotNull(message = "Request body missing") @Valid GetDevicesByUuidsRequest request
+    ){
+        return deviceService.getDevicesInfoByUuids(request.getDeviceUuids());
+    }
+
     /**
      * Get all devices with pagination support
      * @param page Page number (0-based, default: 0)
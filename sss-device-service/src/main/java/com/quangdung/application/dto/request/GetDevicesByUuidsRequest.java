@@ -0,0 +1,17 @@
+package com.quangdung.application.dto.request;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+@Data
+public class GetDevicesByUuidsRequest {
+    @NotNull(message = "device_uuids is required")
+    @Size(max = 1000, message = "At most 1000 device UUIDs per request")
+    @JsonProperty("device_uuids")
+    private List<String> deviceUuids;
+}
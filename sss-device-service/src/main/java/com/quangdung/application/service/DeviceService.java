@@ -8,8 +8,11 @@ import com.quangdung.core.exception.MqttUsernameAlreadyExistsException;
 import com.quangdung.domain.usecase.interfaces.ICheckMqttUsernameExistsUseCase;
 import com.quangdung.domain.usecase.interfaces.ICreateDeviceUseCase;
 import com.quangdung.domain.usecase.interfaces.IGetDeviceByUuidUseCase;
+import com.quangdung.domain.usecase.interfaces.IGetDevicesByUuidsUseCase;
 import com.quangdung.domain.usecase.interfaces.IGetAllDevicesUseCase;
 
+import java.util.List;
+
 import io.smallrye.mutiny.Uni;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
@@ -22,6 +25,7 @@ public class DeviceService {
     private final ICreateDeviceUseCase createDeviceUseCase;
     private final IGetDeviceByUuidUseCase getDeviceByUuidUseCase;
     private final IGetAllDevicesUseCase getAllDevicesUseCase;
+    private final IGetDevicesByUuidsUseCase getDevicesByUuidsUseCase;
 
     @Inject
     public DeviceService(
@@ -29,13 +33,15 @@ public class DeviceService {
         ICreateDeviceUseCase createDeviceUseCase,
         ICheckMqttUsernameExistsUseCase checkMqttUsernameExistsUseCase,
         IGetDeviceByUuidUseCase getDeviceByUuidUseCase,
-        IGetAllDevicesUseCase getAllDevicesUseCase
+        IGetAllDevicesUseCase getAllDevicesUseCase,
+        IGetDevicesByUuidsUseCase getDevicesByUuidsUseCase
     ){
         this.log = log;
         this.createDeviceUseCase = createDeviceUseCase;
         this.checkMqttUsernameExistsUseCase = checkMqttUsernameExistsUseCase;
         this.getDeviceByUuidUseCase = getDeviceByUuidUseCase;
         this.getAllDevicesUseCase = getAllDevicesUseCase;
+        this.getDevicesByUuidsUseCase = getDevicesByUuidsUseCase;
     }
 
     public Uni<Response> createDevice(CreateDeviceRequest request){
@@ -65,6 +71,18 @@ public class DeviceService {
         );
     }
 
+    /**
+     * Get the info of several devices at once
+     * @param deviceUuids UUIDs of the devices
+     * @return Response containing the list of devices found; unknown UUIDs are left out
+     */
+    public Uni<Response> getDevicesInfoByUuids(List<String> deviceUuids) {
+        log.debugf("Getting %d devices by UUID", deviceUuids.size());
+        return getDevicesByUuidsUseCase.execute(deviceUuids).onItem().transform(
+            devicesInfo -> Response.ok().entity(devicesInfo).build()
+        );
+    }
+
     /**
      * Get all devices with pagination support
      * @param page Page number (0-based)
@@ -10,6 +10,13 @@ public interface IDeviceRepository {
     Uni<Device> createDevice(Device device);
     Uni<Boolean> isMqttUsernameExist(String mqttUsername);
     Uni<Device> getDeviceByUuid(String deviceUuid);
+
+    /**
+     * Get the devices of several UUIDs with a single query
+     * @param deviceUuids UUIDs of the devices; malformed or unknown UUIDs are skipped
+     * @return the devices found, in no particular order
+     */
+    Uni<List<Device>> getDevicesByUuids(List<String> deviceUuids);
     
     /**
      * Get all devices with pagination support
@@ -0,0 +1,34 @@
+package com.quangdung.domain.usecase.implement;
+
+import java.util.List;
+
+import com.quangdung.application.dto.response.DeviceInfo;
+import com.quangdung.domain.repository.IDeviceRepository;
+import com.quangdung.domain.usecase.interfaces.IGetDevicesByUuidsUseCase;
+
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+@ApplicationScoped
+public class GetDevicesByUuidsUseCase implements IGetDevicesByUuidsUseCase {
+    private final IDeviceRepository deviceRepository;
+
+    @Inject
+    public GetDevicesByUuidsUseCase(IDeviceRepository deviceRepository) {
+        this.deviceRepository = deviceRepository;
+    }
+
+    @Override
+    public Uni<List<DeviceInfo>> execute(List<String> deviceUuids) {
+        return deviceRepository.getDevicesByUuids(deviceUuids).onItem().transform(
+            devices -> devices.stream()
+                .map(device -> DeviceInfo.builder()
+                    .deviceUuid(device.getDeviceUuid().toString())
+                    .deviceName(device.getDeviceName())
+                    .mqttUsername(device.getMqttUsername())
+                    .build())
+                .toList()
+        );
+    }
+}
@@ -0,0 +1,11 @@
+package com.quangdung.domain.usecase.interfaces;
+
+import java.util.List;
+
+import com.quangdung.application.dto.response.DeviceInfo;
+
+import io.smallrye.mutiny.Uni;
+
+public interface IGetDevicesByUuidsUseCase {
+    Uni<List<DeviceInfo>> execute(List<String> deviceUuids);
+}
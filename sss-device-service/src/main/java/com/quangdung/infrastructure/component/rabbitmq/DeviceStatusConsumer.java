@@ -1,8 +1,8 @@
 package com.quangdung.infrastructure.component.rabbitmq;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.quangdung.core.exception.DeviceNotFoundException;
+import com.quangdung.infrastructure.component.rabbitmq.codec.DeviceMessageCodec;
 import com.quangdung.infrastructure.dao.mqtt_dao.MqttDAO;
 import com.quangdung.infrastructure.entity.device_entity.DeviceEntity;
 import com.quangdung.infrastructure.entity.rabbitmq.DeviceStatusMessage;
@@ -20,6 +20,7 @@ import io.vertx.core.json.JsonObject;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 
+import java.io.IOException;
 import java.util.Optional;
 
 @ApplicationScoped
@@ -30,6 +31,9 @@ public class DeviceStatusConsumer {
     @Inject
     ObjectMapper objectMapper;
 
+    @Inject
+    DeviceMessageCodec codec;
+
     @Inject
     @RestClient
     MqttDAO mqttDAO;
@@ -37,11 +41,13 @@ public class DeviceStatusConsumer {
     @Merge
     @WithTransaction
     @Incoming("device-status-updates")
-    public Uni<Void> processDeviceStatusUpdate(Message<JsonObject> message) {
+    public Uni<Void> processDeviceStatusUpdate(Message<Object> message) {
         final DeviceStatusMessage deviceStatusMessage;
         try {
-            deviceStatusMessage = objectMapper.readValue(message.getPayload().encode(), DeviceStatusMessage.class);
-        } catch (JsonProcessingException e) {
+            deviceStatusMessage = DeviceMessageCodec.isBinary(message)
+                ? codec.decodeDeviceStatus((byte[]) message.getPayload())
+                : readJson(message.getPayload());
+        } catch (IOException e) {
             log.error("Failed to deserialize message payload. Acknowledging and discarding.", e);
             return Uni.createFrom().completionStage(message.ack());
         }
@@ -94,4 +100,22 @@ public class DeviceStatusConsumer {
         )
         .replaceWithVoid();
     }
-}
\ No newline at end of file
+
+    /**
+     * Reads a JSON message; the connector hands over a JsonObject for application/json bodies and the raw bytes otherwise
+     */
+    private DeviceStatusMessage readJson(Object payload) throws IOException {
+        if (payload instanceof JsonObject json) {
+            // Binds the tree the connector already parsed, instead of writing it back to text to parse it again
+            try {
+                return objectMapper.convertValue(json.getMap(), DeviceStatusMessage.class);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Invalid JSON device status message", e);
+            }
+        }
+        if (payload instanceof byte[] bytes) {
+            return objectMapper.readValue(bytes, DeviceStatusMessage.class);
+        }
+        return objectMapper.readValue(payload.toString(), DeviceStatusMessage.class);
+    }
+}
@@ -0,0 +1,96 @@
+package com.quangdung.infrastructure.component.rabbitmq.codec;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.eclipse.microprofile.reactive.messaging.Message;
+
+import com.quangdung.infrastructure.entity.rabbitmq.DeviceStatusMessage;
+
+import io.smallrye.reactive.messaging.rabbitmq.IncomingRabbitMQMetadata;
+import jakarta.enterprise.context.ApplicationScoped;
+
+/**
+ * Decoder of the versioned binary wire format published by the data ingestor (see DeviceMessageCodec there),
+ * used for messages whose content type is CONTENT_TYPE. Only device status messages are consumed here.
+ * Layout: [byte version][byte message type][body], where
+ * - integers are LEB128 varints, zigzag encoded when signed
+ * - strings are a varint (length + 1, 0 for null) followed by the UTF-8 bytes
+ * - timestamps are a presence byte followed by zigzag varint nanoseconds since the epoch (UTC)
+ */
+@ApplicationScoped
+public class DeviceMessageCodec {
+    public static final String CONTENT_TYPE = "application/x-sss-device-message";
+    public static final int VERSION = 1;
+
+    public static final int TYPE_DEVICE_STATUS = 2;
+
+    /**
+     * @param message an incoming RabbitMQ message
+     * @return true if the message is in this format, its payload is then the raw byte[] body
+     */
+    public static boolean isBinary(Message<?> message) {
+        return message.getMetadata(IncomingRabbitMQMetadata.class)
+            .flatMap(IncomingRabbitMQMetadata::getContentType)
+            .map(CONTENT_TYPE::equals)
+            .orElse(false);
+    }
+
+    /**
+     * Decodes a device status message
+     * @param bytes the message body
+     * @return the decoded status; the timestamp that follows it is not used here
+     * @throws IOException if the message is truncated, of another type or of an unsupported version
+     */
+    public DeviceStatusMessage decodeDeviceStatus(byte[] bytes) throws IOException {
+        ByteBuffer buffer = open(bytes, TYPE_DEVICE_STATUS);
+        try {
+            DeviceStatusMessage message = new DeviceStatusMessage();
+            message.setClientId(readString(buffer));
+            message.setStatus(readString(buffer));
+            return message;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated device status message", e);
+        }
+    }
+
+    private static ByteBuffer open(byte[] bytes, int expectedType) throws IOException {
+        if (bytes.length < 2) {
+            throw new IOException("Message is too short");
+        }
+        if (bytes[0] != VERSION) {
+            throw new IOException("Unsupported wire format version " + bytes[0]);
+        }
+        if (bytes[1] != expectedType) {
+            throw new IOException("Expected message type " + expectedType + " but got " + bytes[1]);
+        }
+        return ByteBuffer.wrap(bytes, 2, bytes.length - 2);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = (int) readVarLong(buffer) - 1;
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private static long readVarLong(ByteBuffer buffer) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0 && shift < 64);
+        return value;
+    }
+}
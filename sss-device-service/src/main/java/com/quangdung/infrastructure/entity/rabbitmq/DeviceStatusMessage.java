@@ -6,5 +6,6 @@ import lombok.Data;
 @Data
 @RegisterForReflection
 public class DeviceStatusMessage {
+    private String clientId;
     private String status;
 }
@@ -1,5 +1,6 @@
 package com.quangdung.infrastructure.repository;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -66,6 +67,27 @@ public class DeviceRepository implements IDeviceRepository{
             });
     }
 
+    @Override
+    public Uni<List<Device>> getDevicesByUuids(List<String> deviceUuids) {
+        List<UUID> uuids = new ArrayList<>(deviceUuids.size());
+        for (String deviceUuid : deviceUuids) {
+            try {
+                uuids.add(UUID.fromString(deviceUuid));
+            } catch (IllegalArgumentException e) {
+                log.warnf("Skipping invalid UUID format received: %s", deviceUuid);
+            }
+        }
+        if (uuids.isEmpty()) {
+            return Uni.createFrom().item(List.of());
+        }
+        return DeviceEntity.<DeviceEntity>list("deviceUuid in ?1", uuids)
+            .onItem().transform(entities -> entities.stream().map(Device::fromEntity).collect(Collectors.toList()))
+            .onFailure().transform(throwable -> {
+                log.error(throwable);
+                return new GetDeviceByUuidException("Problem when getting devices by UUIDs", throwable);
+            });
+    }
+
     /**
      * Get all devices with pagination support
      * @param page Page number (0-based)
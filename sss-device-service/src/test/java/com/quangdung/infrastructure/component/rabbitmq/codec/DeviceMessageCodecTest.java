@@ -0,0 +1,63 @@
+package com.quangdung.infrastructure.component.rabbitmq.codec;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.quangdung.infrastructure.entity.rabbitmq.DeviceStatusMessage;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Decodes the reference messages that the data ingestor's DeviceMessageCodecTest pins its encoder to,
+ * so both sides of the wire format are checked against the same bytes.
+ */
+class DeviceMessageCodecTest {
+    // sensor-01 went online at 2024-01-15T03:30:00.123456789Z
+    private static final String DEVICE_STATUS = "01020a73656e736f722d3031076f6e6c696e6501aaf4c7d994ebb3aa2f";
+    // sensor-01 without status
+    private static final String DEVICE_STATUS_WITHOUT_STATUS = "01020a73656e736f722d30310001aaf4c7d994ebb3aa2f";
+    // A power outage message, which is not consumed here
+    private static final String POWER_OUTAGE = "01030a73656e736f722d3031010001aaf4c7d994ebb3aa2f";
+
+    private final DeviceMessageCodec codec = new DeviceMessageCodec();
+
+    private static byte[] bytes(String hex) {
+        return HexFormat.of().parseHex(hex);
+    }
+
+    @Test
+    @DisplayName("Should decode an ingestor device status message")
+    void testDeviceStatus() throws IOException {
+        DeviceStatusMessage decoded = codec.decodeDeviceStatus(bytes(DEVICE_STATUS));
+
+        assertEquals("sensor-01", decoded.getClientId());
+        assertEquals("online", decoded.getStatus());
+    }
+
+    @Test
+    @DisplayName("Should decode a missing status as null")
+    void testMissingStatus() throws IOException {
+        DeviceStatusMessage decoded = codec.decodeDeviceStatus(bytes(DEVICE_STATUS_WITHOUT_STATUS));
+
+        assertEquals("sensor-01", decoded.getClientId());
+        assertNull(decoded.getStatus());
+    }
+
+    @Test
+    @DisplayName("Should reject other versions, other message types and truncated messages")
+    void testRejectedMessages() {
+        byte[] otherVersion = bytes(DEVICE_STATUS);
+        otherVersion[0] = DeviceMessageCodec.VERSION + 1;
+        // Cut inside the status string
+        byte[] truncated = Arrays.copyOf(bytes(DEVICE_STATUS), 14);
+
+        assertThrows(IOException.class, () -> codec.decodeDeviceStatus(otherVersion));
+        assertThrows(IOException.class, () -> codec.decodeDeviceStatus(bytes(POWER_OUTAGE)));
+        assertThrows(IOException.class, () -> codec.decodeDeviceStatus(truncated));
+        assertThrows(IOException.class, () -> codec.decodeDeviceStatus(new byte[]{DeviceMessageCodec.VERSION}));
+    }
+}
@@ -0,0 +1,63 @@
+package org.quangdung.application.controller;
+
+import java.util.List;
+
+import org.quangdung.application.dto.response.LatestValuesResponse;
+import org.quangdung.application.service.LatestValueService;
+
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.MediaType;
+
+/**
+ * Current readings of devices, served from memory: the last value and timestamp of each field as written to InfluxDB
+ */
+@Path("/api/v1/telemetry/latest")
+@Produces(MediaType.APPLICATION_JSON)
+public class LatestValueController {
+    @Inject
+    LatestValueService latestValueService;
+
+    /**
+     * Get the last value of every field of a device
+     * @param clientId Client ID of the device
+     * @return {clientId, deviceUuid, deviceName, fields: {name: {value, time}}}, 404 if the device has not reported
+     *         since the service started
+     */
+    @GET
+    @Path("/devices/{clientId}")
+    public Uni<LatestValuesResponse> getDeviceLatest(
+        @PathParam("clientId") String clientId
+    ){
+        return latestValueService.getDeviceLatest(clientId);
+    }
+
+    /**
+     * Get the last values of several devices
+     * @param clientIds Client IDs of the devices, repeatable (1 to 1000)
+     * @return List of the devices found; devices without values are left out
+     */
+    @GET
+    @Path("/devices")
+    public Uni<List<LatestValuesResponse>> getDevicesLatest(
+        @QueryParam("clientId") List<String> clientIds
+    ){
+        return latestValueService.getDevicesLatest(clientIds == null ? List.of() : clientIds);
+    }
+
+    /**
+     * Get the last values of every device, streamed as a JSON array
+     * @return List of all devices that reported since the service started
+     */
+    @GET
+    @Path("/fleet")
+    public Multi<LatestValuesResponse> getFleetLatest() {
+        return latestValueService.getFleetLatest();
+    }
+}
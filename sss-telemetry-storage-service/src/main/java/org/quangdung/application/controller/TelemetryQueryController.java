@@ -0,0 +1,119 @@
+package org.quangdung.application.controller;
+
+import java.util.List;
+
+import org.jboss.resteasy.reactive.ResponseHeader;
+import org.jboss.resteasy.reactive.RestStreamElementType;
+import org.jboss.resteasy.reactive.common.util.RestMediaType;
+import org.quangdung.application.dto.response.TelemetryExportRow;
+import org.quangdung.application.dto.response.TelemetryPointResponse;
+import org.quangdung.application.service.TelemetryQueryService;
+
+import io.smallrye.mutiny.Multi;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.DefaultValue;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.MediaType;
+
+/**
+ * Read side of the telemetry store. Results are returned as a Multi, which Quarkus REST writes as a chunked
+ * JSON array item by item while InfluxDB streams them, instead of building the whole response first.
+ * Quarkus REST requests the next item once the previous one is written, so a slow client slows the query down
+ * and a disconnected client cancels it.
+ */
+@Path("/api/v1/telemetry")
+@Produces(MediaType.APPLICATION_JSON)
+public class TelemetryQueryController {
+    @Inject
+    TelemetryQueryService telemetryQueryService;
+
+    /**
+     * Get the telemetry of a device over a time range, downsampled in InfluxDB
+     * @param clientId Client ID of the device
+     * @param start Start of the range, ISO-8601 or epoch number (default: 24 hours before stop)
+     * @param stop End of the range, ISO-8601 or epoch number (default: now)
+     * @param points Number of windows the range is divided into, i.e. points per field (default: 500)
+     * @param fn Aggregate of each window: mean, median, min, max, sum, count, first or last (default: mean)
+     * @param fields Fields to return, repeatable (default: all fields)
+     * @return JSON array of points {time, field, value} in time order, grouped by field within each cached time bucket
+     */
+    @GET
+    @Path("/devices/{clientId}")
+    public Multi<TelemetryPointResponse> getDeviceTelemetry(
+        @PathParam("clientId") String clientId,
+        @QueryParam("start") String start,
+        @QueryParam("stop") String stop,
+        @QueryParam("points") @DefaultValue("500") int points,
+        @QueryParam("fn") @DefaultValue("mean") String fn,
+        @QueryParam("fields") List<String> fields
+    ){
+        return telemetryQueryService.getDeviceTelemetry(clientId, start, stop, points, fn,
+                                                        fields == null ? List.of() : fields);
+    }
+
+    /**
+     * Get the fields a device wrote over a time range
+     * @param clientId Client ID of the device
+     * @param start Start of the range, ISO-8601 or epoch number (default: 24 hours before stop)
+     * @param stop End of the range, ISO-8601 or epoch number (default: now)
+     * @return JSON array of field names
+     */
+    @GET
+    @Path("/devices/{clientId}/fields")
+    public Multi<String> getDeviceFields(
+        @PathParam("clientId") String clientId,
+        @QueryParam("start") String start,
+        @QueryParam("stop") String stop
+    ){
+        return telemetryQueryService.getDeviceFields(clientId, start, stop);
+    }
+
+    /**
+     * Export the raw telemetry of devices over a time range as newline delimited JSON, one point per line
+     * @param clientIds Client IDs of the devices, repeatable (default: all devices)
+     * @param start Start of the range, ISO-8601 or epoch number (default: 24 hours before stop)
+     * @param stop End of the range, ISO-8601 or epoch number (default: now)
+     * @param fields Fields to export, repeatable (default: all fields)
+     * @return Lines of {time, clientId, deviceUuid, deviceName, field, value}, series by series in time order
+     */
+    @GET
+    @Path("/export/ndjson")
+    @Produces(RestMediaType.APPLICATION_NDJSON)
+    @RestStreamElementType(MediaType.APPLICATION_JSON)
+    @ResponseHeader(name = "Content-Disposition", value = "attachment; filename=\"telemetry.ndjson\"")
+    public Multi<TelemetryExportRow> exportNdjson(
+        @QueryParam("clientId") List<String> clientIds,
+        @QueryParam("start") String start,
+        @QueryParam("stop") String stop,
+        @QueryParam("fields") List<String> fields
+    ){
+        return telemetryQueryService.exportTelemetryNdjson(clientIds == null ? List.of() : clientIds, start, stop,
+                                                           fields == null ? List.of() : fields);
+    }
+
+    /**
+     * Export the raw telemetry of devices over a time range as CSV
+     * @param clientIds Client IDs of the devices, repeatable (default: all devices)
+     * @param start Start of the range, ISO-8601 or epoch number (default: 24 hours before stop)
+     * @param stop End of the range, ISO-8601 or epoch number (default: now)
+     * @param fields Fields to export, repeatable (default: all fields)
+     * @return CSV with the columns time, client_id, device_uuid, device_name, field, value
+     */
+    @GET
+    @Path("/export/csv")
+    @Produces("text/csv")
+    @ResponseHeader(name = "Content-Disposition", value = "attachment; filename=\"telemetry.csv\"")
+    public Multi<String> exportCsv(
+        @QueryParam("clientId") List<String> clientIds,
+        @QueryParam("start") String start,
+        @QueryParam("stop") String stop,
+        @QueryParam("fields") List<String> fields
+    ){
+        return telemetryQueryService.exportTelemetryCsv(clientIds == null ? List.of() : clientIds, start, stop,
+                                                        fields == null ? List.of() : fields);
+    }
+}
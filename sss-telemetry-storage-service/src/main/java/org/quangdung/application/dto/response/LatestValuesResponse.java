@@ -0,0 +1,46 @@
+package org.quangdung.application.dto.response;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.quangdung.infrastructure.entity.influx.LatestValuesEntity;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+@RegisterForReflection
+public class LatestValuesResponse {
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private String clientId;
+    private String deviceUuid;
+    private String deviceName;
+
+    /**
+     * Last value of each field
+     */
+    private Map<String, FieldValue> fields;
+
+    @Data
+    @AllArgsConstructor
+    @RegisterForReflection
+    public static class FieldValue {
+        private Object value;
+
+        /**
+         * Timestamp of the point the value came from
+         */
+        private Instant time;
+    }
+
+    public static LatestValuesResponse from(LatestValuesEntity latest) {
+        Map<String, FieldValue> fields = new LinkedHashMap<>(latest.getFields().size() * 2);
+        latest.getFields().forEach((name, field) -> fields.put(name, new FieldValue(field.getValue(),
+            Instant.ofEpochSecond(field.getTimestamp() / NANOS_PER_SECOND, field.getTimestamp() % NANOS_PER_SECOND))));
+        return new LatestValuesResponse(latest.getClientId(), latest.getDeviceUuid(), latest.getDeviceName(), fields);
+    }
+}
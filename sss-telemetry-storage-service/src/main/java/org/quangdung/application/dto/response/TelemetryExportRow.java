@@ -0,0 +1,72 @@
+package org.quangdung.application.dto.response;
+
+import java.time.Instant;
+
+import org.quangdung.infrastructure.entity.influx.TelemetryRecordEntity;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+@RegisterForReflection
+public class TelemetryExportRow {
+    public static final String CSV_HEADER = "time,client_id,device_uuid,device_name,field,value\n";
+
+    private Instant time;
+    private String clientId;
+    private String deviceUuid;
+    private String deviceName;
+    private String field;
+    private Object value;
+
+    public static TelemetryExportRow from(TelemetryRecordEntity record) {
+        return new TelemetryExportRow(record.getTime(), record.getClientId(), record.getDeviceUuid(),
+                                      record.getDeviceName(), record.getField(), record.getValue());
+    }
+
+    /**
+     * Appends this row as a CSV line (RFC 4180): values containing a comma, a double quote or a line break are quoted
+     * and their double quotes doubled, null values are left empty
+     */
+    public void appendCsv(StringBuilder csv) {
+        appendCsvValue(csv, time);
+        csv.append(',');
+        appendCsvValue(csv, clientId);
+        csv.append(',');
+        appendCsvValue(csv, deviceUuid);
+        csv.append(',');
+        appendCsvValue(csv, deviceName);
+        csv.append(',');
+        appendCsvValue(csv, field);
+        csv.append(',');
+        appendCsvValue(csv, value);
+        csv.append('\n');
+    }
+
+    private static void appendCsvValue(StringBuilder csv, Object value) {
+        if (value == null) {
+            return;
+        }
+        String text = value.toString();
+        boolean quoted = false;
+        for (int i = 0; i < text.length() && !quoted; i++) {
+            char c = text.charAt(i);
+            quoted = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quoted) {
+            csv.append(text);
+            return;
+        }
+        csv.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                csv.append('"');
+            }
+            csv.append(c);
+        }
+        csv.append('"');
+    }
+}
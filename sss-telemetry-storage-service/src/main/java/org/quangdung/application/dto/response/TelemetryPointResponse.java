@@ -0,0 +1,33 @@
+package org.quangdung.application.dto.response;
+
+import java.time.Instant;
+
+import org.quangdung.infrastructure.entity.influx.TelemetryPointEntity;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+@RegisterForReflection
+public class TelemetryPointResponse {
+    /**
+     * End of the aggregation window
+     */
+    private Instant time;
+
+    /**
+     * Name of the field
+     */
+    private String field;
+
+    /**
+     * Aggregated value, null for a window without data
+     */
+    private Object value;
+
+    public static TelemetryPointResponse from(TelemetryPointEntity point) {
+        return new TelemetryPointResponse(point.getTime(), point.getField(), point.getValue());
+    }
+}
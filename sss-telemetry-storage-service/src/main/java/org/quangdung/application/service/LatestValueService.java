@@ -0,0 +1,63 @@
+package org.quangdung.application.service;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import org.quangdung.application.dto.response.LatestValuesResponse;
+import org.quangdung.infrastructure.dao.latest_value.LatestValueDAO;
+import org.quangdung.infrastructure.entity.influx.LatestValuesEntity;
+
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.NotFoundException;
+
+/**
+ * Last values of devices, read from the in-memory table without querying InfluxDB
+ */
+@ApplicationScoped
+public class LatestValueService {
+    private static final int MAX_DEVICES_PER_REQUEST = 1000;
+
+    @Inject
+    LatestValueDAO latestValueDAO;
+
+    /**
+     * @param clientId client ID of the device
+     * @return the last value of every field of the device
+     * @throws NotFoundException if the device has not reported since startup
+     */
+    public Uni<LatestValuesResponse> getDeviceLatest(String clientId) {
+        LatestValuesEntity latest = latestValueDAO.getLatest(clientId);
+        if (latest == null) {
+            throw new NotFoundException("No values received from device: " + clientId);
+        }
+        return Uni.createFrom().item(LatestValuesResponse.from(latest));
+    }
+
+    /**
+     * @param clientIds client IDs of the devices, at most 1000
+     * @return the last values of the devices that reported since startup; the others are left out
+     * @throws BadRequestException if no or too many client IDs are given
+     */
+    public Uni<List<LatestValuesResponse>> getDevicesLatest(List<String> clientIds) {
+        if (clientIds.isEmpty() || clientIds.size() > MAX_DEVICES_PER_REQUEST) {
+            throw new BadRequestException("Between 1 and " + MAX_DEVICES_PER_REQUEST + " clientId values are required");
+        }
+        List<LatestValuesResponse> latest = latestValueDAO.getLatest(new LinkedHashSet<>(clientIds)).stream()
+            .map(LatestValuesResponse::from)
+            .toList();
+        return Uni.createFrom().item(latest);
+    }
+
+    /**
+     * @return the last values of every device that reported since startup, each device read as it is written out
+     */
+    public Multi<LatestValuesResponse> getFleetLatest() {
+        return Multi.createFrom().iterable(latestValueDAO.getClientIds())
+            .map(latestValueDAO::getLatest)
+            .map(LatestValuesResponse::from);
+    }
+}
@@ -0,0 +1,299 @@
+package org.quangdung.application.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+import org.quangdung.application.dto.response.TelemetryExportRow;
+import org.quangdung.application.dto.response.TelemetryPointResponse;
+import org.quangdung.core.metric.MetricService;
+import org.quangdung.core.utils.time_util.EpochNanos;
+import org.quangdung.infrastructure.dao.influx.AggregateFunction;
+import org.quangdung.infrastructure.dao.device_info.CachedDeviceInfoDAO;
+import org.quangdung.infrastructure.dao.influx.CachedTelemetryQueryDAO;
+import org.quangdung.infrastructure.dao.influx.InfluxDAO;
+import org.quangdung.infrastructure.entity.influx.TelemetryRecordEntity;
+
+import io.micrometer.core.instrument.Counter;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.Response;
+
+@ApplicationScoped
+public class TelemetryQueryService {
+    private static final String MEASUREMENT = "telemetry_data";
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    // Client ids and field names end up in Flux string literals: quotes, backslashes and control characters are refused
+    private static final Pattern IDENTIFIER = Pattern.compile("[^\"\\\\\\p{Cntrl}]{1,256}");
+    // Window lengths a range is rounded up to, so that nearby ranges share windows (and cached buckets)
+    private static final Duration[] WINDOW_STEPS = {
+        Duration.ofSeconds(1), Duration.ofSeconds(2), Duration.ofSeconds(5), Duration.ofSeconds(10),
+        Duration.ofSeconds(15), Duration.ofSeconds(30), Duration.ofMinutes(1), Duration.ofMinutes(2),
+        Duration.ofMinutes(5), Duration.ofMinutes(10), Duration.ofMinutes(15), Duration.ofMinutes(30),
+        Duration.ofHours(1), Duration.ofHours(2), Duration.ofHours(3), Duration.ofHours(6), Duration.ofHours(12),
+        Duration.ofDays(1)
+    };
+
+    @Inject
+    private Logger log;
+
+    @Inject
+    InfluxDAO influxDAO;
+
+    @Inject
+    CachedTelemetryQueryDAO cachedTelemetryQueryDAO;
+
+    @Inject
+    CachedDeviceInfoDAO deviceInfoDAO;
+
+    @Inject
+    MetricService metricService;
+
+    @Inject
+    @ConfigProperty(name = "telemetry.query.default-range", defaultValue = "24h")
+    Duration defaultRange;
+
+    @Inject
+    @ConfigProperty(name = "telemetry.query.max-points", defaultValue = "5000")
+    int maxPoints;
+
+    @Inject
+    @ConfigProperty(name = "telemetry.query.min-window", defaultValue = "1s")
+    Duration minWindow;
+
+    @Inject
+    @ConfigProperty(name = "telemetry.query.max-fields", defaultValue = "50")
+    int maxFields;
+
+    @Inject
+    @ConfigProperty(name = "telemetry.export.max-concurrent", defaultValue = "4")
+    int maxConcurrentExports;
+
+    @Inject
+    @ConfigProperty(name = "telemetry.export.csv-chunk-rows", defaultValue = "1000")
+    int csvChunkRows;
+
+    // Each running export holds an InfluxDB client thread while it waits for the HTTP client to read
+    private Semaphore exportPermits;
+    private Counter ndjsonRows;
+    private Counter csvRows;
+
+    @PostConstruct
+    void init() {
+        exportPermits = new Semaphore(maxConcurrentExports);
+        ndjsonRows = metricService.counter("telemetry_export_rows_total", "format", "ndjson");
+        csvRows = metricService.counter("telemetry_export_rows_total", "format", "csv");
+        metricService.registerGauge("telemetry_export_active", exportPermits,
+                                    permits -> maxConcurrentExports - permits.availablePermits());
+    }
+
+    /**
+     * Queries one device over a time range, downsampled to about the requested number of points per field
+     * @param clientId client ID of the device
+     * @param start start of the range (ISO-8601 or epoch number), defaults to the default range before stop
+     * @param stop end of the range (ISO-8601 or epoch number), defaults to now
+     * @param points number of windows the range is divided into
+     * @param function name of the aggregate applied to each window
+     * @param fields fields to return, all fields when empty
+     * @return the points in time order, streamed bucket by bucket and grouped by field within a bucket
+     * @throws BadRequestException if a parameter is invalid
+     */
+    public Multi<TelemetryPointResponse> getDeviceTelemetry(String clientId, String start, String stop, int points,
+                                                            String function, List<String> fields) {
+        requireIdentifier("clientId", clientId);
+        if (points < 1 || points > maxPoints) {
+            throw new BadRequestException("points must be between 1 and " + maxPoints);
+        }
+        if (fields.size() > maxFields) {
+            throw new BadRequestException("At most " + maxFields + " fields can be queried at once");
+        }
+        fields.forEach(field -> requireIdentifier("field", field));
+        AggregateFunction aggregate = parseFunction(function);
+        TimeRange range = resolveRange(start, stop);
+        Duration every = windowFor(range.start(), range.stop(), points);
+        log.debugf("Querying telemetry of %s from %s to %s with %s windows of %s", clientId, range.start(), range.stop(),
+                   aggregate.fluxName(), every);
+
+        long startNanos = System.nanoTime();
+        return cachedTelemetryQueryDAO.queryTelemetry(MEASUREMENT, clientId, range.start(), range.stop(), every,
+                                                      aggregate, fields)
+            .map(TelemetryPointResponse::from)
+            .onTermination().invoke((failure, cancelled) -> metricService.recordTimer("telemetry_query_duration",
+                System.nanoTime() - startNanos, TimeUnit.NANOSECONDS,
+                "fn", aggregate.fluxName(),
+                "result", failure != null ? "error" : cancelled ? "cancelled" : "success"));
+    }
+
+    /**
+     * Lists the fields one device wrote over a time range
+     * @param clientId client ID of the device
+     * @param start start of the range (ISO-8601 or epoch number), defaults to the default range before stop
+     * @param stop end of the range (ISO-8601 or epoch number), defaults to now
+     * @return the field names, streamed
+     * @throws BadRequestException if a parameter is invalid
+     */
+    public Multi<String> getDeviceFields(String clientId, String start, String stop) {
+        requireIdentifier("clientId", clientId);
+        TimeRange range = resolveRange(start, stop);
+        return influxDAO.queryFieldKeys(MEASUREMENT, clientId, range.start(), range.stop());
+    }
+
+    /**
+     * Exports the raw points of devices over a time range as NDJSON rows
+     * @param clientIds client IDs of the devices, all devices when empty
+     * @param start start of the range (ISO-8601 or epoch number), defaults to the default range before stop
+     * @param stop end of the range (ISO-8601 or epoch number), defaults to now
+     * @param fields fields to export, all fields when empty
+     * @return the rows, emitted as the subscriber requests them
+     * @throws BadRequestException if a parameter is invalid
+     */
+    public Multi<TelemetryExportRow> exportTelemetryNdjson(List<String> clientIds, String start, String stop,
+                                                           List<String> fields) {
+        return exportTelemetry("ndjson", clientIds, start, stop, fields)
+            .onItem().invoke(row -> ndjsonRows.increment());
+    }
+
+    /**
+     * Exports the raw points of devices over a time range as CSV, in chunks of up to csv-chunk-rows lines
+     * (or what was read within a second), starting with the header line
+     * @param clientIds client IDs of the devices, all devices when empty
+     * @param start start of the range (ISO-8601 or epoch number), defaults to the default range before stop
+     * @param stop end of the range (ISO-8601 or epoch number), defaults to now
+     * @param fields fields to export, all fields when empty
+     * @return the CSV text chunks
+     * @throws BadRequestException if a parameter is invalid
+     */
+    public Multi<String> exportTelemetryCsv(List<String> clientIds, String start, String stop, List<String> fields) {
+        boolean[] headerPending = {true};
+        return exportTelemetry("csv", clientIds, start, stop, fields)
+            .group().intoLists().of(csvChunkRows, Duration.ofSeconds(1))
+            .map(rows -> {
+                StringBuilder csv = new StringBuilder(rows.size() * 96);
+                if (headerPending[0]) {
+                    csv.append(TelemetryExportRow.CSV_HEADER);
+                    headerPending[0] = false;
+                }
+                rows.forEach(row -> row.appendCsv(csv));
+                csvRows.increment(rows.size());
+                return csv.toString();
+            })
+            .onCompletion().ifEmpty().continueWith(TelemetryExportRow.CSV_HEADER);
+    }
+
+    /**
+     * Validates an export and streams its rows; exports beyond the concurrency limit are refused with 429
+     */
+    private Multi<TelemetryExportRow> exportTelemetry(String format, List<String> clientIds, String start, String stop,
+                                                      List<String> fields) {
+        clientIds.forEach(clientId -> requireIdentifier("clientId", clientId));
+        if (fields.size() > maxFields) {
+            throw new BadRequestException("At most " + maxFields + " fields can be queried at once");
+        }
+        fields.forEach(field -> requireIdentifier("field", field));
+        TimeRange range = resolveRange(start, stop);
+
+        return Multi.createFrom().deferred(() -> {
+            if (!exportPermits.tryAcquire()) {
+                metricService.incrementCounter("telemetry_exports_total", "format", format, "result", "rejected");
+                return Multi.createFrom().failure(new WebApplicationException(
+                    "Too many exports running, retry later", Response.Status.TOO_MANY_REQUESTS));
+            }
+            log.infof("Exporting telemetry as %s from %s to %s (devices: %s, fields: %s)", format, range.start(),
+                      range.stop(), clientIds.isEmpty() ? "all" : clientIds, fields.isEmpty() ? "all" : fields);
+            long startNanos = System.nanoTime();
+            return influxDAO.exportTelemetry(MEASUREMENT, clientIds, range.start(), range.stop(), fields)
+                .onItem().transformToUniAndConcatenate(this::withDeviceInfo)
+                .map(TelemetryExportRow::from)
+                .onTermination().invoke((failure, cancelled) -> {
+                    exportPermits.release();
+                    String result = failure != null ? "error" : cancelled ? "cancelled" : "success";
+                    metricService.incrementCounter("telemetry_exports_total", "format", format, "result", result);
+                    log.infof("Telemetry %s export ended (%s) after %d ms", format, result,
+                              TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+                });
+        });
+    }
+
+    /**
+     * Fills in the device attributes of a point written with the identity tag strategy from the device registry
+     * (its L1 cache in the common case); a point of a device the registry no longer knows is exported as is
+     */
+    private Uni<TelemetryRecordEntity> withDeviceInfo(TelemetryRecordEntity record) {
+        if (record.getDeviceUuid() != null || record.getClientId() == null) {
+            return Uni.createFrom().item(record);
+        }
+        return deviceInfoDAO.getDeviceInfo(record.getClientId())
+            .map(info -> {
+                record.setDeviceUuid(info.getDeviceUuid());
+                record.setDeviceName(info.getDeviceName());
+                return record;
+            })
+            .onFailure().recoverWithItem(record);
+    }
+
+    /**
+     * The range divided by the number of points, never below the minimum window so a short range is not split finer
+     * than the data is written, then rounded up to the next window step (whole days beyond a day).
+     * The query may thus return fewer points than requested, but repeated and shifted ranges use the same windows.
+     */
+    private Duration windowFor(Instant start, Instant stop, int points) {
+        long rangeMillis = Duration.between(start, stop).toMillis();
+        long everyMillis = Math.max(minWindow.toMillis(), Math.max(1, (rangeMillis + points - 1) / points));
+        if (everyMillis < WINDOW_STEPS[0].toMillis()) {
+            // Only with a minimum window below the first step
+            return Duration.ofMillis(everyMillis);
+        }
+        for (Duration step : WINDOW_STEPS) {
+            if (step.toMillis() >= everyMillis) {
+                return step;
+            }
+        }
+        long dayMillis = Duration.ofDays(1).toMillis();
+        return Duration.ofMillis((everyMillis + dayMillis - 1) / dayMillis * dayMillis);
+    }
+
+    private TimeRange resolveRange(String start, String stop) {
+        Instant stopTime = stop == null || stop.isBlank() ? Instant.now() : parseTime("stop", stop);
+        Instant startTime = start == null || start.isBlank() ? stopTime.minus(defaultRange) : parseTime("start", start);
+        if (!startTime.isBefore(stopTime)) {
+            throw new BadRequestException("start must be before stop");
+        }
+        return new TimeRange(startTime, stopTime);
+    }
+
+    private static AggregateFunction parseFunction(String function) {
+        try {
+            return AggregateFunction.fromName(function);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Unsupported aggregate function: " + function);
+        }
+    }
+
+    private static Instant parseTime(String name, String text) {
+        try {
+            long nanos = EpochNanos.parse(text.trim());
+            return Instant.ofEpochSecond(nanos / NANOS_PER_SECOND, nanos % NANOS_PER_SECOND);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid " + name + " timestamp: " + text);
+        }
+    }
+
+    private static void requireIdentifier(String name, String value) {
+        if (value == null || !IDENTIFIER.matcher(value).matches()) {
+            throw new BadRequestException("Invalid " + name + ": " + value);
+        }
+    }
+
+    private record TimeRange(Instant start, Instant stop) {
+    }
+}
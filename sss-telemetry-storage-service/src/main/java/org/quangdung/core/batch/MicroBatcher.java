@@ -0,0 +1,156 @@
+package org.quangdung.core.batch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.UniEmitter;
+
+/**
+ * Groups submitted items into batches that are flushed when either the maximum
+ * batch size is reached or the oldest item has waited for the maximum delay.
+ * Each submitted item completes only when the batch containing it has been flushed.
+ * @param <T> the type of item being batched
+ */
+public class MicroBatcher<T> {
+
+    /**
+     * Reason a batch was flushed
+     */
+    public enum FlushTrigger {
+        SIZE, TIME, SHUTDOWN;
+
+        private final String tagValue = name().toLowerCase();
+
+        public String tagValue() {
+            return tagValue;
+        }
+    }
+
+    private final int maxSize;
+    private final long maxDelayNanos;
+    private final ScheduledExecutorService scheduler;
+    private final BiFunction<List<T>, FlushTrigger, Uni<Void>> flusher;
+
+    private List<T> items;
+    private List<UniEmitter<? super Void>> waiters;
+    private ScheduledFuture<?> timer;
+    private boolean closed;
+
+    /**
+     * @param maxSize maximum number of items per batch
+     * @param maxDelayNanos maximum time the first item of a batch waits before the batch is flushed
+     * @param scheduler scheduler used for time based flushes
+     * @param flusher function publishing a batch, invoked outside of any lock
+     */
+    public MicroBatcher(int maxSize, long maxDelayNanos, ScheduledExecutorService scheduler,
+                        BiFunction<List<T>, FlushTrigger, Uni<Void>> flusher) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Batch max size must be at least 1");
+        }
+        this.maxSize = maxSize;
+        this.maxDelayNanos = maxDelayNanos;
+        this.scheduler = scheduler;
+        this.flusher = flusher;
+        this.items = new ArrayList<>(maxSize);
+        this.waiters = new ArrayList<>(maxSize);
+    }
+
+    /**
+     * Adds an item to the current batch
+     * @param item the item to add
+     * @return Uni completing when the batch containing the item has been flushed
+     */
+    public Uni<Void> submit(T item) {
+        return Uni.createFrom().emitter(emitter -> {
+            List<T> readyItems = null;
+            List<UniEmitter<? super Void>> readyWaiters = null;
+            synchronized (this) {
+                if (closed) {
+                    emitter.fail(new IllegalStateException("Batcher is closed"));
+                    return;
+                }
+                items.add(item);
+                waiters.add(emitter);
+                if (items.size() >= maxSize) {
+                    readyItems = items;
+                    readyWaiters = waiters;
+                    swap();
+                } else if (items.size() == 1) {
+                    timer = scheduler.schedule(this::flushOnTimer, maxDelayNanos, TimeUnit.NANOSECONDS);
+                }
+            }
+            if (readyItems != null) {
+                flush(readyItems, readyWaiters, FlushTrigger.SIZE);
+            }
+        });
+    }
+
+    /**
+     * Flushes the pending batch and rejects further submissions
+     */
+    public void close() {
+        List<T> readyItems;
+        List<UniEmitter<? super Void>> readyWaiters;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            readyItems = items;
+            readyWaiters = waiters;
+            swap();
+        }
+        if (!readyItems.isEmpty()) {
+            flush(readyItems, readyWaiters, FlushTrigger.SHUTDOWN);
+        }
+    }
+
+    /**
+     * @return number of items waiting in the current batch
+     */
+    public synchronized int pending() {
+        return items.size();
+    }
+
+    private void flushOnTimer() {
+        List<T> readyItems;
+        List<UniEmitter<? super Void>> readyWaiters;
+        synchronized (this) {
+            if (items.isEmpty()) {
+                return;
+            }
+            readyItems = items;
+            readyWaiters = waiters;
+            swap();
+        }
+        flush(readyItems, readyWaiters, FlushTrigger.TIME);
+    }
+
+    // Must be called while holding the lock
+    private void swap() {
+        if (timer != null) {
+            timer.cancel(false);
+            timer = null;
+        }
+        items = new ArrayList<>(maxSize);
+        waiters = new ArrayList<>(maxSize);
+    }
+
+    private void flush(List<T> batch, List<UniEmitter<? super Void>> batchWaiters, FlushTrigger trigger) {
+        Uni<Void> publish;
+        try {
+            publish = flusher.apply(batch, trigger);
+        } catch (Exception e) {
+            publish = Uni.createFrom().failure(e);
+        }
+        publish.subscribe().with(
+            ignored -> batchWaiters.forEach(waiter -> waiter.complete(null)),
+            failure -> batchWaiters.forEach(waiter -> waiter.fail(failure))
+        );
+    }
+}
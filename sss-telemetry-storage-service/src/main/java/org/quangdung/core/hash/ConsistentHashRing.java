@@ -0,0 +1,70 @@
+package org.quangdung.core.hash;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Consistent hash ring assigning string keys to named nodes.
+ * Each node is placed at virtual-nodes points of a 64-bit ring derived from its name only, and a key belongs to
+ * the node owning the first point at or after the hash of the key, wrapping around. Adding a node therefore only
+ * moves the keys that fall just before its points (about 1/N of them) and removing a node only moves its own keys;
+ * the order nodes are listed in does not matter.
+ * The ring is immutable; a lookup is a binary search over a sorted array.
+ * @param <T> the type of node
+ */
+public final class ConsistentHashRing<T> {
+    private final long[] points;
+    private final Object[] owners;
+
+    /**
+     * @param nodes the nodes by name, at least one; names place the nodes on the ring
+     * @param virtualNodes points per node, more points spread the keys more evenly
+     */
+    public ConsistentHashRing(Map<String, T> nodes, int virtualNodes) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("A hash ring needs at least one node");
+        }
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("A node needs at least one virtual node");
+        }
+        List<Point> ring = new ArrayList<>(nodes.size() * virtualNodes);
+        for (Map.Entry<String, T> node : nodes.entrySet()) {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.add(new Point(Hash64.hash(node.getKey() + "#" + i), node.getKey(), node.getValue()));
+            }
+        }
+        // Names break the (unlikely) ties, so that the ring does not depend on the order of the nodes
+        ring.sort(Comparator.comparingLong(Point::hash).thenComparing(Point::name));
+        points = new long[ring.size()];
+        owners = new Object[ring.size()];
+        for (int i = 0; i < ring.size(); i++) {
+            points[i] = ring.get(i).hash();
+            owners[i] = ring.get(i).node();
+        }
+    }
+
+    /**
+     * @return the node owning the key
+     */
+    @SuppressWarnings("unchecked")
+    public T get(String key) {
+        long keyHash = Hash64.hash(key);
+        int low = 0;
+        int high = points.length;
+        // First point >= keyHash
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (points[middle] < keyHash) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return (T) owners[low == points.length ? 0 : low];
+    }
+
+    private record Point(long hash, String name, Object node) {
+    }
+}
@@ -0,0 +1,64 @@
+package org.quangdung.core.hash;
+
+/**
+ * 64-bit string hashing: FNV-1a over the UTF-16 characters, finished with the MurmurHash3 mixer so that similar
+ * strings get unrelated hashes. Several strings can be hashed as one key by appending them to the same state.
+ */
+public final class Hash64 {
+    /**
+     * State to start appending from
+     */
+    public static final long SEED = 0xcbf29ce484222325L;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+    // Appended between the parts of a key, so that ("ab", "c") and ("a", "bc") differ, and for null parts
+    private static final char SEPARATOR = '\uffff';
+    private static final char NULL = '\ufffe';
+
+    private Hash64() {
+    }
+
+    /**
+     * @return the hash of a single string
+     */
+    public static long hash(String value) {
+        return finish(append(SEED, value));
+    }
+
+    /**
+     * Appends the characters of a string to a hash state
+     */
+    public static long append(long state, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            state = append(state, value.charAt(i));
+        }
+        return state;
+    }
+
+    /**
+     * Appends one part of a composite key, which may be null, followed by a separator
+     */
+    public static long appendPart(long state, String part) {
+        return append(part != null ? append(state, part) : append(state, NULL), SEPARATOR);
+    }
+
+    /**
+     * Appends a character to a hash state
+     */
+    public static long append(long state, char c) {
+        state = (state ^ (c & 0xff)) * FNV_PRIME;
+        return (state ^ (c >>> 8)) * FNV_PRIME;
+    }
+
+    /**
+     * @return the hash of everything appended to the state
+     */
+    public static long finish(long state) {
+        state ^= state >>> 33;
+        state *= 0xff51afd7ed558ccdL;
+        state ^= state >>> 33;
+        state *= 0xc4ceb9fe1a85ec53L;
+        state ^= state >>> 33;
+        return state;
+    }
+}
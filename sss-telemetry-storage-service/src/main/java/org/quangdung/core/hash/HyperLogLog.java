@@ -0,0 +1,87 @@
+package org.quangdung.core.hash;
+
+import java.util.Arrays;
+
+/**
+ * HyperLogLog sketch estimating the number of distinct 64-bit hashes added to it, in 2^precision bytes
+ * whatever the number of hashes, with a standard error of about 1.04 / sqrt(2^precision)
+ * (0.8% at precision 14, for 16 KB).
+ * The hashes must be well mixed, such as those of Hash64. Not thread-safe.
+ */
+public final class HyperLogLog {
+    private final int precision;
+    private final byte[] registers;
+
+    /**
+     * @param precision number of hash bits selecting a register, from 4 to 18
+     */
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 18) {
+            throw new IllegalArgumentException("HyperLogLog precision must be between 4 and 18");
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * Adds a hash; adding the same hash again does not change the estimate
+     */
+    public void add(long hash) {
+        int index = (int) (hash >>> (64 - precision));
+        // Position of the first 1 bit in the remaining bits; the sentinel bit bounds it
+        long remaining = (hash << precision) | (1L << (precision - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(remaining) + 1);
+        if (registers[index] < rank) {
+            registers[index] = rank;
+        }
+    }
+
+    /**
+     * @return the estimated number of distinct hashes added
+     */
+    public long estimate() {
+        return estimate(this, null);
+    }
+
+    /**
+     * @return the estimated number of distinct hashes added to either sketch, as if both had been added to one
+     */
+    public static long estimateUnion(HyperLogLog left, HyperLogLog right) {
+        if (left.precision != right.precision) {
+            throw new IllegalArgumentException("Sketches of different precisions cannot be combined");
+        }
+        return estimate(left, right);
+    }
+
+    /**
+     * Forgets every hash
+     */
+    public void clear() {
+        Arrays.fill(registers, (byte) 0);
+    }
+
+    private static long estimate(HyperLogLog left, HyperLogLog right) {
+        int registerCount = left.registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (int i = 0; i < registerCount; i++) {
+            int rank = right != null ? Math.max(left.registers[i], right.registers[i]) : left.registers[i];
+            sum += 1.0 / (1L << rank);
+            if (rank == 0) {
+                zeros++;
+            }
+        }
+        double alpha = switch (registerCount) {
+            case 16 -> 0.673;
+            case 32 -> 0.697;
+            case 64 -> 0.709;
+            default -> 0.7213 / (1 + 1.079 / registerCount);
+        };
+        double estimate = alpha * registerCount * registerCount / sum;
+        if (estimate <= 2.5 * registerCount && zeros > 0) {
+            // Small range: linear counting of the empty registers is more accurate
+            estimate = registerCount * Math.log((double) registerCount / zeros);
+        }
+        return Math.round(estimate);
+    }
+}
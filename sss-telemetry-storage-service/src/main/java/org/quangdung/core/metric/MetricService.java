@@ -0,0 +1,276 @@
+package org.quangdung.core.metric;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.jboss.logging.Logger;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.Tags;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+@ApplicationScoped
+public class MetricService {
+
+    private final Logger log;
+    
+    // Micrometer components
+    private final MeterRegistry meterRegistry;
+
+    @Inject
+    public MetricService(MeterRegistry meterRegistry, Logger log) {
+        this.meterRegistry = meterRegistry;
+        this.log = log;
+    }
+    
+    /**
+     * Registers (or looks up) a counter once and returns its handle.
+     * Hot paths should keep the handle and call increment() on it directly,
+     * which involves no registry lookup and no allocation.
+     * @param name the name of the counter
+     * @param tags optional tags, either "key=value" strings or alternating key and value arguments
+     * @return the registered counter
+     */
+    public Counter counter(String name, String... tags) {
+        return Counter.builder(name)
+            .tags(parseTags(tags))
+            .register(meterRegistry);
+    }
+
+    /**
+     * Registers (or looks up) a timer once and returns its handle
+     * @param name the name of the timer
+     * @param tags optional tags, either "key=value" strings or alternating key and value arguments
+     * @return the registered timer
+     */
+    public Timer timer(String name, String... tags) {
+        return Timer.builder(name)
+            .tags(parseTags(tags))
+            .register(meterRegistry);
+    }
+
+    /**
+     * Registers (or looks up) a timer that also publishes histogram buckets, for latencies whose percentiles
+     * are aggregated across instances
+     * @param name the name of the timer
+     * @param tags optional tags, either "key=value" strings or alternating key and value arguments
+     * @return the registered timer
+     */
+    public Timer latencyTimer(String name, String... tags) {
+        return Timer.builder(name)
+            .tags(parseTags(tags))
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    }
+
+    /**
+     * Registers (or looks up) a distribution summary once and returns its handle
+     * @param name the name of the summary
+     * @param tags optional tags, either "key=value" strings or alternating key and value arguments
+     * @return the registered distribution summary
+     */
+    public DistributionSummary summary(String name, String... tags) {
+        return DistributionSummary.builder(name)
+            .tags(parseTags(tags))
+            .register(meterRegistry);
+    }
+
+    /**
+     * Registers (or looks up) a distribution summary that also publishes histogram buckets,
+     * so that percentiles can be aggregated across instances
+     * @param name the name of the histogram
+     * @param tags optional tags, either "key=value" strings or alternating key and value arguments
+     * @return the registered distribution summary
+     */
+    public DistributionSummary histogram(String name, String... tags) {
+        return DistributionSummary.builder(name)
+            .tags(parseTags(tags))
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    }
+
+    /**
+     * Increments a counter metric by 1
+     * @param name the name of the counter
+     * @param tags optional tags for the metric
+     */
+    public void incrementCounter(String name, String... tags) {
+        incrementCounter(name, 1.0, tags);
+    }
+    
+    /**
+     * Increments a counter metric by the specified amount
+     * @param name the name of the counter
+     * @param amount the amount to increment by
+     * @param tags optional tags for the metric
+     */
+    public void incrementCounter(String name, double amount, String... tags) {
+
+            try {
+                Counter counter = Counter.builder(name)
+                    .tags(parseTags(tags))
+                    .register(meterRegistry);
+                counter.increment(amount);
+            } catch (Exception e) {
+                log.warnf("Failed to increment counter %s: %s", name, e.getMessage());
+            }
+    }
+    
+    /**
+     * Records a timer metric
+     * @param name the name of the timer
+     * @param duration the duration to record
+     * @param unit the time unit of the duration
+     * @param tags optional tags for the metric
+     */
+    public void recordTimer(String name, long duration, TimeUnit unit, String... tags) {
+
+            try {
+                Timer timer = Timer.builder(name)
+                    .tags(parseTags(tags))
+                    .register(meterRegistry);
+                timer.record(duration, unit);
+            } catch (Exception e) {
+                log.warnf("Failed to record timer %s: %s", name, e.getMessage());
+            }
+    }
+    
+    /**
+     * Records a value in a distribution summary metric
+     * @param name the name of the summary
+     * @param amount the value to record
+     * @param tags optional tags for the metric
+     */
+    public void recordSummary(String name, double amount, String... tags) {
+
+            try {
+                DistributionSummary summary = DistributionSummary.builder(name)
+                    .tags(parseTags(tags))
+                    .register(meterRegistry);
+                summary.record(amount);
+            } catch (Exception e) {
+                log.warnf("Failed to record summary %s: %s", name, e.getMessage());
+            }
+    }
+
+    /**
+     * Times a runnable operation
+     * @param name the name of the timer
+     * @param runnable the operation to time
+     * @param tags optional tags for the metric
+     */
+    public void timeOperation(String name, Runnable runnable, String... tags) {
+            try {
+                Timer timer = Timer.builder(name)
+                    .tags(parseTags(tags))
+                    .register(meterRegistry);
+                timer.recordCallable(() -> {
+                    runnable.run();
+                    return null;
+                });
+            } catch (Exception e) {
+                log.warnf("Failed to time operation %s: %s", name, e.getMessage());
+                // Still execute the runnable even if timing fails
+                runnable.run();
+            }
+    }
+    
+    /**
+     * Times a supplier operation and returns its result
+     * @param <T> the return type of the supplier
+     * @param name the name of the timer
+     * @param supplier the operation to time
+     * @param tags optional tags for the metric
+     * @return the result of the supplier
+     */
+    public <T> T timeOperation(String name, Supplier<T> supplier, String... tags) {
+            try {
+                Timer timer = Timer.builder(name)
+                    .tags(parseTags(tags))
+                    .register(meterRegistry);
+                return timer.recordCallable(supplier::get);
+            } catch (Exception e) {
+                log.warnf("Failed to time operation %s: %s", name, e.getMessage());
+                // Still execute the supplier even if timing fails
+                return supplier.get();
+            }
+    }
+    
+    /**
+     * Registers a gauge metric
+     * @param name the name of the gauge
+     * @param value the value supplier for the gauge
+     * @param tags optional tags for the metric
+     */
+    public void registerGauge(String name, Supplier<Number> value, String... tags) {
+            try {
+                Gauge.builder(name, value)
+                    .tags(parseTags(tags))
+                    .register(meterRegistry);
+            } catch (Exception e) {
+                log.warnf("Failed to register gauge %s: %s", name, e.getMessage());
+            }
+
+    }
+    
+    /**
+     * Registers a gauge metric for an object
+     * @param <T> the type of the object to gauge
+     * @param name the name of the gauge
+     * @param obj the object to gauge
+     * @param valueFunction function to extract numeric value from the object
+     * @param tags optional tags for the metric
+     */
+    public <T> void registerGauge(String name, T obj, java.util.function.ToDoubleFunction<T> valueFunction, String... tags) {
+
+            try {
+                Gauge.builder(name, obj, valueFunction)
+                    .tags(parseTags(tags))
+                    .register(meterRegistry);
+            } catch (Exception e) {
+                log.warnf("Failed to register gauge %s: %s", name, e.getMessage());
+            }
+    }
+    
+    /**
+     * Gets the MeterRegistry if available
+     * @return Optional containing the MeterRegistry if present
+     */
+    public MeterRegistry getMeterRegistry() {
+        return meterRegistry;
+    }
+    
+    /**
+     * Parses tag strings into Micrometer Tags
+     * @param tags array of tag strings in format "key=value", or alternating key and value strings
+     * @return Tags object
+     */
+    private Tags parseTags(String... tags) {
+        if (tags == null || tags.length == 0) {
+            return Tags.empty();
+        }
+        
+        Tags result = Tags.empty();
+        for (int i = 0; i < tags.length; i++) {
+            String tag = tags[i];
+            if (tag == null) {
+                continue;
+            }
+            int separator = tag.indexOf('=');
+            if (separator > 0) {
+                result = result.and(tag.substring(0, separator).trim(), tag.substring(separator + 1).trim());
+            } else if (i + 1 < tags.length && tags[i + 1] != null) {
+                // Separate key and value arguments, e.g. ("channel", "device-data-in")
+                result = result.and(tag.trim(), tags[i + 1].trim());
+                i++;
+            }
+        }
+        return result;
+    }
+}
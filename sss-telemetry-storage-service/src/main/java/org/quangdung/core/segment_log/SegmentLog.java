@@ -0,0 +1,336 @@
+package org.quangdung.core.segment_log;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of byte records kept in numbered segment files within one directory.
+ * Records are appended to the active segment, which is sealed once it would exceed the segment size (or when
+ * a reader asks for the oldest segment); sealed segments are immutable and are read and then deleted as a whole,
+ * oldest first. The log survives restarts: existing segments are picked up, in order, when it is opened.
+ * A record is written as: int payload length, int item count, int CRC32 of the payload, payload.
+ * The item count is the caller's (e.g. the number of points a record holds) and only feeds the size accounting.
+ * A record cut short by a crash, or whose checksum does not match, ends the reading of its segment.
+ * Appends are thread-safe; a sealed segment may be read while records are appended.
+ */
+public final class SegmentLog implements Closeable {
+    private static final String SUFFIX = ".seg";
+    private static final int HEADER_BYTES = 12;
+    private static final int READ_BUFFER_BYTES = 64 * 1024;
+
+    /**
+     * How the reading of a segment ended
+     */
+    public enum ReadResult {
+        // Every record was read
+        COMPLETE,
+        // The consumer asked to stop
+        STOPPED,
+        // A record was truncated or did not match its checksum, the records after it cannot be read
+        CORRUPT
+    }
+
+    /**
+     * Receives the records of a segment
+     */
+    @FunctionalInterface
+    public interface RecordConsumer {
+        /**
+         * @param payload the record, valid until the next call
+         * @param length length of the record in the payload array
+         * @param count the item count the record was appended with
+         * @return true to read the next record, false to stop
+         */
+        boolean accept(byte[] payload, int length, int count) throws IOException;
+    }
+
+    /**
+     * A segment file and what it holds
+     */
+    public static final class Segment {
+        private final Path path;
+        private final long sequence;
+        private long bytes;
+        private long records;
+        private long count;
+
+        private Segment(Path path, long sequence) {
+            this.path = path;
+            this.sequence = sequence;
+        }
+
+        public Path path() {
+            return path;
+        }
+
+        public long bytes() {
+            return bytes;
+        }
+
+        public long records() {
+            return records;
+        }
+
+        public long count() {
+            return count;
+        }
+    }
+
+    private final Path directory;
+    private final long maxSegmentBytes;
+    private final long maxTotalBytes;
+    private final boolean fsync;
+
+    private final Deque<Segment> sealed = new ArrayDeque<>();
+    private Segment active;
+    private FileChannel activeChannel;
+    private long nextSequence;
+    private final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+    private final CRC32 crc = new CRC32();
+
+    private volatile long totalBytes;
+    private volatile long totalRecords;
+    private volatile long totalCount;
+
+    /**
+     * Opens the log, taking over the segments already in the directory
+     * @param directory directory of the segment files, created if missing
+     * @param maxSegmentBytes size at which the active segment is sealed
+     * @param maxTotalBytes size of all segments beyond which appends are refused
+     * @param fsync true to force every append to disk before it returns
+     */
+    public SegmentLog(Path directory, long maxSegmentBytes, long maxTotalBytes, boolean fsync) throws IOException {
+        this.directory = directory;
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.maxTotalBytes = maxTotalBytes;
+        this.fsync = fsync;
+        Files.createDirectories(directory);
+        List<Segment> existing = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> file.getFileName().toString().endsWith(SUFFIX)).forEach(file -> {
+                String name = file.getFileName().toString();
+                try {
+                    existing.add(new Segment(file, Long.parseLong(name.substring(0, name.length() - SUFFIX.length()))));
+                } catch (NumberFormatException e) {
+                    // Not one of ours
+                }
+            });
+        }
+        existing.sort((left, right) -> Long.compare(left.sequence, right.sequence));
+        for (Segment segment : existing) {
+            scan(segment);
+            if (segment.records == 0) {
+                Files.deleteIfExists(segment.path);
+                continue;
+            }
+            sealed.addLast(segment);
+            add(segment.bytes, segment.records, segment.count);
+        }
+        nextSequence = existing.isEmpty() ? 1 : existing.get(existing.size() - 1).sequence + 1;
+    }
+
+    /**
+     * Appends a record to the active segment
+     * @param data the record
+     * @param offset start of the record in data
+     * @param length length of the record
+     * @param count number of items the record holds
+     * @return false if the record would take the log over its maximum size, in which case nothing is written
+     */
+    public synchronized boolean append(byte[] data, int offset, int length, int count) throws IOException {
+        long recordBytes = HEADER_BYTES + (long) length;
+        if (totalBytes + recordBytes > maxTotalBytes) {
+            return false;
+        }
+        if (active == null) {
+            openActive();
+        } else if (active.bytes > 0 && active.bytes + recordBytes > maxSegmentBytes) {
+            sealActive();
+            openActive();
+        }
+        crc.reset();
+        crc.update(data, offset, length);
+        header.clear();
+        header.putInt(length).putInt(count).putInt((int) crc.getValue()).flip();
+        ByteBuffer[] buffers = {header, ByteBuffer.wrap(data, offset, length)};
+        try {
+            long written = 0;
+            while (written < recordBytes) {
+                written += activeChannel.write(buffers);
+            }
+            if (fsync) {
+                activeChannel.force(false);
+            }
+        } catch (IOException e) {
+            // Drop what was written of the record (e.g. on a full disk) so that later records stay readable
+            activeChannel.truncate(active.bytes);
+            throw e;
+        }
+        active.bytes += recordBytes;
+        active.records++;
+        active.count += count;
+        add(recordBytes, 1, count);
+        return true;
+    }
+
+    /**
+     * Seals the active segment if the log holds no other records, so that everything appended so far can be read
+     * @return the oldest sealed segment, null if the log is empty
+     */
+    public synchronized Segment oldest() throws IOException {
+        if (sealed.isEmpty() && active != null && active.records > 0) {
+            sealActive();
+        }
+        return sealed.peekFirst();
+    }
+
+    /**
+     * Reads the records of a sealed segment in order
+     * @return how the reading ended
+     */
+    public ReadResult read(Segment segment, RecordConsumer consumer) throws IOException {
+        try (InputStream file = Files.newInputStream(segment.path);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(file, READ_BUFFER_BYTES))) {
+            byte[] payload = new byte[1024];
+            CRC32 checksum = new CRC32();
+            for (long read = 0; read < segment.records; read++) {
+                int length = in.readInt();
+                int count = in.readInt();
+                int expectedCrc = in.readInt();
+                if (length < 0 || length > segment.bytes) {
+                    return ReadResult.CORRUPT;
+                }
+                if (payload.length < length) {
+                    payload = new byte[Math.max(length, payload.length * 2)];
+                }
+                in.readFully(payload, 0, length);
+                checksum.reset();
+                checksum.update(payload, 0, length);
+                if ((int) checksum.getValue() != expectedCrc) {
+                    return ReadResult.CORRUPT;
+                }
+                if (!consumer.accept(payload, length, count)) {
+                    return ReadResult.STOPPED;
+                }
+            }
+            return ReadResult.COMPLETE;
+        } catch (EOFException e) {
+            return ReadResult.CORRUPT;
+        }
+    }
+
+    /**
+     * Deletes a sealed segment once its records are no longer needed
+     */
+    public synchronized void delete(Segment segment) throws IOException {
+        if (sealed.remove(segment)) {
+            Files.deleteIfExists(segment.path);
+            add(-segment.bytes, -segment.records, -segment.count);
+        }
+    }
+
+    /**
+     * @return size of all segments in bytes
+     */
+    public long sizeBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * @return number of records in all segments
+     */
+    public long records() {
+        return totalRecords;
+    }
+
+    /**
+     * @return sum of the item counts of all records
+     */
+    public long count() {
+        return totalCount;
+    }
+
+    /**
+     * @return number of segments holding records
+     */
+    public synchronized int segments() {
+        return sealed.size() + (active != null && active.records > 0 ? 1 : 0);
+    }
+
+    /**
+     * Seals the active segment; a later append starts a new one
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (active != null) {
+            sealActive();
+        }
+    }
+
+    private void openActive() throws IOException {
+        active = new Segment(directory.resolve(String.format("%020d%s", nextSequence, SUFFIX)), nextSequence);
+        nextSequence++;
+        activeChannel = FileChannel.open(active.path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    }
+
+    private void sealActive() throws IOException {
+        activeChannel.force(false);
+        activeChannel.close();
+        activeChannel = null;
+        if (active.records > 0) {
+            sealed.addLast(active);
+        } else {
+            Files.deleteIfExists(active.path);
+        }
+        active = null;
+    }
+
+    /**
+     * Counts the valid records of a segment from their headers, without reading the payloads
+     */
+    private void scan(Segment segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment.path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer recordHeader = ByteBuffer.allocate(HEADER_BYTES);
+            long position = 0;
+            while (position + HEADER_BYTES <= size) {
+                recordHeader.clear();
+                while (recordHeader.hasRemaining()) {
+                    if (channel.read(recordHeader, position + recordHeader.position()) < 0) {
+                        break;
+                    }
+                }
+                int length = recordHeader.getInt(0);
+                int count = recordHeader.getInt(4);
+                if (length < 0 || position + HEADER_BYTES + length > size) {
+                    break;
+                }
+                position += HEADER_BYTES + length;
+                segment.records++;
+                segment.count += count;
+            }
+            segment.bytes = position;
+        }
+    }
+
+    private void add(long bytes, long records, long count) {
+        totalBytes += bytes;
+        totalRecords += records;
+        totalCount += count;
+    }
+}
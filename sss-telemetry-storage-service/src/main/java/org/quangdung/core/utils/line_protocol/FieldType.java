@@ -0,0 +1,54 @@
+package org.quangdung.core.utils.line_protocol;
+
+import java.util.Locale;
+
+/**
+ * Types of line protocol field values. InfluxDB fixes the type of a field with its first value (per shard group)
+ * and rejects values of any other type.
+ */
+public enum FieldType {
+    FLOAT,
+    INTEGER,
+    STRING,
+    BOOLEAN;
+
+    private final String tagValue = name().toLowerCase(Locale.ROOT);
+
+    public String tagValue() {
+        return tagValue;
+    }
+
+    /**
+     * @return the type a decoded payload value is written as (see LineProtocolEncoder.field(String, Object)),
+     *         null for values that are not written
+     */
+    public static FieldType of(Object value) {
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return INTEGER;
+        }
+        if (value instanceof Number number) {
+            return Double.isFinite(number.doubleValue()) ? FLOAT : null;
+        }
+        if (value instanceof Boolean) {
+            return BOOLEAN;
+        }
+        if (value instanceof String) {
+            return STRING;
+        }
+        return null;
+    }
+
+    /**
+     * @param name type name as InfluxDB reports it ("float", "integer", "string", "boolean"), case insensitive
+     * @return the type, null for types this service does not write (such as unsigned)
+     */
+    public static FieldType fromInfluxName(String name) {
+        return switch (name.trim().toLowerCase(Locale.ROOT)) {
+            case "float" -> FLOAT;
+            case "integer", "int" -> INTEGER;
+            case "string" -> STRING;
+            case "boolean", "bool" -> BOOLEAN;
+            default -> null;
+        };
+    }
+}
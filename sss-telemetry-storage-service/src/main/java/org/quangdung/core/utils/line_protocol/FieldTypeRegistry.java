@@ -0,0 +1,189 @@
+package org.quangdung.core.utils.line_protocol;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Established type of every field of every measurement, so that values can be converted to it before they are
+ * encoded: InfluxDB rejects a value whose type differs from the field's, and with it the rest of the batch.
+ * A field gets the type of its first value unless the type was set before (e.g. from the InfluxDB schema or from
+ * the type conflict InfluxDB reported). Conversions:
+ * - to float: integers and numeric strings
+ * - to integer: floats (rounded, which loses the fraction) and numeric strings
+ * - to boolean: 0 and 1, "true" and "false"
+ * - to string: any value, as its text
+ * Other values cannot be converted and are left out of the point.
+ * Thread-safe; at most maxFieldsPerMeasurement fields are tracked per measurement, values of further fields are
+ * written as they are.
+ */
+public final class FieldTypeRegistry {
+    // InfluxDB 2 error message of a field type conflict, e.g. input field "humidity" on measurement "telemetry_data"
+    // is type float, already exists as type integer
+    private static final Pattern CONFLICT = Pattern.compile(
+        "input field \"((?:[^\"\\\\]|\\\\.)*)\" on measurement \"((?:[^\"\\\\]|\\\\.)*)\" is type (\\w+), "
+        + "already exists as type (\\w+)");
+
+    /**
+     * Notified of every conversion, from the thread encoding the value
+     */
+    public interface CoercionListener {
+        /**
+         * @param lossy true if the value changed (a float rounded to an integer)
+         */
+        void coerced(FieldType from, FieldType to, boolean lossy);
+
+        /**
+         * A value that cannot be converted was left out
+         */
+        void dropped(FieldType from, FieldType to);
+    }
+
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, FieldType>> types = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final int maxFieldsPerMeasurement;
+    private final CoercionListener listener;
+
+    public FieldTypeRegistry(int maxFieldsPerMeasurement, CoercionListener listener) {
+        this.maxFieldsPerMeasurement = maxFieldsPerMeasurement;
+        this.listener = listener;
+    }
+
+    /**
+     * @return the established type of a field, null if none
+     */
+    public FieldType typeOf(String measurement, String field) {
+        ConcurrentHashMap<String, FieldType> fields = types.get(measurement);
+        return fields != null ? fields.get(field) : null;
+    }
+
+    /**
+     * Sets the type of a field, replacing the type it had
+     */
+    public void establish(String measurement, String field, FieldType type) {
+        ConcurrentHashMap<String, FieldType> fields = types.computeIfAbsent(measurement, key -> new ConcurrentHashMap<>());
+        if (fields.containsKey(field) || fields.size() < maxFieldsPerMeasurement) {
+            if (fields.put(field, type) == null) {
+                size.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Sets the types InfluxDB reported in a field type conflict error
+     * @param message the error message of a rejected write
+     * @return number of field types changed
+     */
+    public int learnConflicts(String message) {
+        if (message == null) {
+            return 0;
+        }
+        int learned = 0;
+        Matcher matcher = CONFLICT.matcher(message);
+        while (matcher.find()) {
+            FieldType existing = FieldType.fromInfluxName(matcher.group(4));
+            String measurement = unescape(matcher.group(2));
+            String field = unescape(matcher.group(1));
+            if (existing != null && existing != typeOf(measurement, field)) {
+                establish(measurement, field, existing);
+                learned++;
+            }
+        }
+        return learned;
+    }
+
+    /**
+     * Converts a value to the established type of its field, establishing the type of the value for a new field
+     * @return the value to write, null to leave the field out
+     */
+    public Object coerce(String measurement, String field, Object value) {
+        FieldType valueType = FieldType.of(value);
+        if (valueType == null) {
+            return value;
+        }
+        ConcurrentHashMap<String, FieldType> fields = types.computeIfAbsent(measurement, key -> new ConcurrentHashMap<>());
+        FieldType established = fields.get(field);
+        if (established == null) {
+            if (fields.size() < maxFieldsPerMeasurement) {
+                established = fields.putIfAbsent(field, valueType);
+                if (established == null) {
+                    size.incrementAndGet();
+                }
+            }
+            if (established == null) {
+                return value;
+            }
+        }
+        if (established == valueType) {
+            return value;
+        }
+        Object converted = convert(value, established);
+        if (converted == null) {
+            listener.dropped(valueType, established);
+            return null;
+        }
+        listener.coerced(valueType, established,
+                         established == FieldType.INTEGER && valueType != FieldType.INTEGER
+                         && ((Number) converted).doubleValue() != numericValue(value));
+        return converted;
+    }
+
+    /**
+     * @return number of fields with an established type
+     */
+    public int size() {
+        return size.get();
+    }
+
+    private static Object convert(Object value, FieldType type) {
+        switch (type) {
+            case FLOAT -> {
+                double number = numericValue(value);
+                return Double.isFinite(number) ? number : null;
+            }
+            case INTEGER -> {
+                if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                    return ((Number) value).longValue();
+                }
+                double number = numericValue(value);
+                return Double.isFinite(number) && Math.abs(number) < 0x1p63 ? Math.round(number) : null;
+            }
+            case BOOLEAN -> {
+                if (value instanceof String string) {
+                    return "true".equalsIgnoreCase(string) ? Boolean.TRUE
+                        : "false".equalsIgnoreCase(string) ? Boolean.FALSE : null;
+                }
+                double number = numericValue(value);
+                return number == 1 ? Boolean.TRUE : number == 0 ? Boolean.FALSE : null;
+            }
+            case STRING -> {
+                return String.valueOf(value);
+            }
+            default -> {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * @return the value as a double, NaN if it is not a number or a numeric string
+     */
+    private static double numericValue(Object value) {
+        if (value instanceof Number number) {
+            return number.doubleValue();
+        }
+        if (value instanceof String string) {
+            try {
+                return Double.parseDouble(string.trim());
+            } catch (NumberFormatException e) {
+                return Double.NaN;
+            }
+        }
+        return Double.NaN;
+    }
+
+    private static String unescape(String quoted) {
+        return quoted.indexOf('\\') < 0 ? quoted : quoted.replaceAll("\\\\(.)", "$1");
+    }
+}
@@ -0,0 +1,399 @@
+package org.quangdung.core.utils.line_protocol;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Writes InfluxDB line protocol points straight into a growable, reusable UTF-8 byte buffer.
+ * Points are appended one after the other, separated by newlines, so one encoder holds a whole write batch:
+ * measurement(...), then tag(...) calls, then field(...) calls, then endPoint(timestamp).
+ * Escaping follows the line protocol reference:
+ * - measurement: comma and space
+ * - tag keys, tag values and field keys: comma, equals sign and space
+ * - string field values: double quote and backslash
+ * Backslashes in names and tag values are doubled so that a trailing one cannot escape the next delimiter, and
+ * newlines, which line protocol cannot carry outside string fields, are written as spaces.
+ * Integer fields get the "i" suffix; floats are written in their shortest round-trip decimal form without allocating,
+ * NaN and infinities (which InfluxDB rejects) are skipped. A point without any field is rolled back.
+ * Not thread-safe: an encoder is owned by one writer at a time.
+ */
+public final class LineProtocolEncoder {
+    private static final int MAX_SAFE_INTEGER_DIGITS = 15;
+    private static final long MAX_EXACT_LONG = 1L << 53;
+    private static final double[] POWERS_OF_TEN = new double[MAX_SAFE_INTEGER_DIGITS + 1];
+    private static final byte[] TRUE = {'t', 'r', 'u', 'e'};
+    private static final byte[] FALSE = {'f', 'a', 'l', 's', 'e'};
+    private static final byte[] MIN_LONG = Long.toString(Long.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+
+    static {
+        double power = 1;
+        for (int i = 0; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = power;
+            power *= 10;
+        }
+    }
+
+    private enum Escape { MEASUREMENT, KEY, STRING_VALUE }
+
+    private byte[] buffer;
+    private int size;
+    private int pointStart = -1;
+    private int fieldCount;
+    private int pointCount;
+
+    public LineProtocolEncoder() {
+        this(1024);
+    }
+
+    /**
+     * @param initialCapacity initial buffer size in bytes, the buffer grows as needed
+     */
+    public LineProtocolEncoder(int initialCapacity) {
+        this.buffer = new byte[Math.max(16, initialCapacity)];
+    }
+
+    /**
+     * Starts a new point
+     * @param measurement the measurement name
+     * @return this encoder
+     */
+    public LineProtocolEncoder measurement(String measurement) {
+        if (pointStart >= 0) {
+            throw new IllegalStateException("Previous point was not ended");
+        }
+        pointStart = size;
+        fieldCount = 0;
+        if (pointCount > 0) {
+            writeByte('\n');
+        }
+        writeEscaped(measurement, Escape.MEASUREMENT);
+        return this;
+    }
+
+    /**
+     * Adds a tag to the current point, tags must come before fields; null or empty values are skipped
+     * (InfluxDB does not store empty tag values)
+     * @return this encoder
+     */
+    public LineProtocolEncoder tag(String key, String value) {
+        requirePoint();
+        if (fieldCount > 0) {
+            throw new IllegalStateException("Tags must be written before fields");
+        }
+        if (value != null && !value.isEmpty()) {
+            writeByte(',');
+            writeEscaped(key, Escape.KEY);
+            writeByte('=');
+            writeEscaped(value, Escape.KEY);
+        }
+        return this;
+    }
+
+    /**
+     * Adds a float field; NaN and infinite values are skipped
+     * @return this encoder
+     */
+    public LineProtocolEncoder field(String key, double value) {
+        if (Double.isFinite(value)) {
+            startField(key);
+            writeDouble(value);
+        }
+        return this;
+    }
+
+    /**
+     * Adds an integer field, written with the "i" suffix
+     * @return this encoder
+     */
+    public LineProtocolEncoder field(String key, long value) {
+        startField(key);
+        writeLong(value);
+        writeByte('i');
+        return this;
+    }
+
+    public LineProtocolEncoder field(String key, boolean value) {
+        startField(key);
+        writeBytes(value ? TRUE : FALSE);
+        return this;
+    }
+
+    /**
+     * Adds a string field; null values are skipped
+     * @return this encoder
+     */
+    public LineProtocolEncoder field(String key, String value) {
+        if (value != null) {
+            startField(key);
+            writeByte('"');
+            writeEscaped(value, Escape.STRING_VALUE);
+            writeByte('"');
+        }
+        return this;
+    }
+
+    /**
+     * Adds a field of a decoded payload value: Long, Integer, Short and Byte are integers, other numbers are floats;
+     * Booleans and Strings keep their type, null and other types are skipped
+     * @return this encoder
+     */
+    public LineProtocolEncoder field(String key, Object value) {
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return field(key, ((Number) value).longValue());
+        }
+        if (value instanceof Number number) {
+            return field(key, number.doubleValue());
+        }
+        if (value instanceof Boolean bool) {
+            return field(key, bool.booleanValue());
+        }
+        if (value instanceof String string) {
+            return field(key, string);
+        }
+        return this;
+    }
+
+    /**
+     * Ends the current point with its timestamp
+     * @param timestampNanos epoch nanoseconds
+     * @return true if the point was written, false if it had no field and was rolled back
+     */
+    public boolean endPoint(long timestampNanos) {
+        requirePoint();
+        if (fieldCount == 0) {
+            size = pointStart;
+            pointStart = -1;
+            return false;
+        }
+        writeByte(' ');
+        writeLong(timestampNanos);
+        pointStart = -1;
+        pointCount++;
+        return true;
+    }
+
+    /**
+     * Drops a point that was started but not ended
+     */
+    public void abortPoint() {
+        if (pointStart >= 0) {
+            size = pointStart;
+            pointStart = -1;
+        }
+    }
+
+    /**
+     * Empties the encoder for the next batch, keeping its buffer
+     */
+    public void reset() {
+        size = 0;
+        pointStart = -1;
+        fieldCount = 0;
+        pointCount = 0;
+    }
+
+    /**
+     * @return number of points written since the last reset
+     */
+    public int pointCount() {
+        return pointCount;
+    }
+
+    /**
+     * @return number of bytes written since the last reset
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the internal buffer, valid from 0 to size(); it is overwritten after reset()
+     */
+    public byte[] array() {
+        return buffer;
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(buffer, 0, size);
+    }
+
+    /**
+     * @return the encoded points, newline separated
+     */
+    @Override
+    public String toString() {
+        return new String(buffer, 0, size, StandardCharsets.UTF_8);
+    }
+
+    private void startField(String key) {
+        requirePoint();
+        writeByte(fieldCount == 0 ? ' ' : ',');
+        writeEscaped(key, Escape.KEY);
+        writeByte('=');
+        fieldCount++;
+    }
+
+    private void requirePoint() {
+        if (pointStart < 0) {
+            throw new IllegalStateException("No point started, call measurement() first");
+        }
+    }
+
+    private void writeEscaped(String value, Escape escape) {
+        int length = value.length();
+        ensureCapacity(length);
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                writeAscii(c, escape);
+            } else if (c < 0x800) {
+                ensureCapacity(2);
+                buffer[size++] = (byte) (0xC0 | (c >> 6));
+                buffer[size++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                ensureCapacity(4);
+                buffer[size++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[size++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[size++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[size++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // Unpaired surrogate, as String.getBytes does
+                writeByte('?');
+            } else {
+                ensureCapacity(3);
+                buffer[size++] = (byte) (0xE0 | (c >> 12));
+                buffer[size++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[size++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    private void writeAscii(char c, Escape escape) {
+        switch (escape) {
+            case STRING_VALUE -> {
+                if (c == '"' || c == '\\') {
+                    writeByte('\\');
+                }
+            }
+            case KEY -> {
+                if (c == ',' || c == '=' || c == ' ' || c == '\\') {
+                    writeByte('\\');
+                } else if (c == '\n' || c == '\r') {
+                    c = ' ';
+                    writeByte('\\');
+                }
+            }
+            case MEASUREMENT -> {
+                if (c == ',' || c == ' ' || c == '\\') {
+                    writeByte('\\');
+                } else if (c == '\n' || c == '\r') {
+                    c = ' ';
+                    writeByte('\\');
+                }
+            }
+        }
+        writeByte(c);
+    }
+
+    private void writeLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            writeBytes(MIN_LONG);
+            return;
+        }
+        ensureCapacity(20);
+        if (value < 0) {
+            buffer[size++] = '-';
+            value = -value;
+        }
+        int digits = digitCount(value);
+        int end = size + digits;
+        for (int i = end - 1; i >= size; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        size = end;
+    }
+
+    /**
+     * Writes the shortest decimal with at most 15 fraction digits that reads back as exactly this value,
+     * e.g. 25.3 rather than the 25.300000000000000710542735760100185871124267578125 the double holds.
+     * For such a decimal m / 10^d with m below 2^53, the division is exact in its operands and correctly rounded,
+     * which is also what parsing the decimal yields, so the round trip check is exact.
+     * Values that need more digits fall back to Double.toString.
+     */
+    private void writeDouble(double value) {
+        double magnitude = Math.abs(value);
+        for (int scale = 0; scale <= MAX_SAFE_INTEGER_DIGITS; scale++) {
+            double scaled = magnitude * POWERS_OF_TEN[scale];
+            if (scaled >= MAX_EXACT_LONG) {
+                break;
+            }
+            long mantissa = Math.round(scaled);
+            if (mantissa / POWERS_OF_TEN[scale] == magnitude) {
+                writeDecimal(value < 0, mantissa, scale);
+                return;
+            }
+        }
+        writeAsciiString(Double.toString(value));
+    }
+
+    private void writeDecimal(boolean negative, long mantissa, int scale) {
+        ensureCapacity(MAX_SAFE_INTEGER_DIGITS + 4);
+        if (negative && mantissa != 0) {
+            buffer[size++] = '-';
+        }
+        if (scale == 0) {
+            writeLong(mantissa);
+            return;
+        }
+        int digits = Math.max(digitCount(mantissa), scale + 1);
+        int end = size + digits + 1;
+        int pointPosition = end - scale - 1;
+        for (int i = end - 1; i >= size; i--) {
+            if (i == pointPosition) {
+                buffer[i] = '.';
+            } else {
+                buffer[i] = (byte) ('0' + mantissa % 10);
+                mantissa /= 10;
+            }
+        }
+        size = end;
+    }
+
+    private void writeAsciiString(String value) {
+        int length = value.length();
+        ensureCapacity(length);
+        for (int i = 0; i < length; i++) {
+            buffer[size++] = (byte) value.charAt(i);
+        }
+    }
+
+    private static int digitCount(long value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    private void writeByte(int b) {
+        ensureCapacity(1);
+        buffer[size++] = (byte) b;
+    }
+
+    private void writeBytes(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (size + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+        }
+    }
+}
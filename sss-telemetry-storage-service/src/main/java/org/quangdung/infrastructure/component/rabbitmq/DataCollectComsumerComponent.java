@@ -1,73 +1,393 @@
 package org.quangdung.infrastructure.component.rabbitmq;
-import java.time.ZoneOffset;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.reactive.messaging.Incoming;
 import org.eclipse.microprofile.reactive.messaging.Message;
-import org.eclipse.microprofile.rest.client.inject.RestClient;
 import org.jboss.logging.Logger;
-import org.quangdung.infrastructure.dao.device_info.DeviceInfoDAO;
+import org.quangdung.core.batch.MicroBatcher;
+import org.quangdung.core.metric.MetricService;
+import org.quangdung.infrastructure.component.rabbitmq.codec.DeviceMessageCodec;
+import org.quangdung.infrastructure.dao.device_info.CachedDeviceInfoDAO;
 import org.quangdung.infrastructure.dao.influx.InfluxDAO;
+import org.quangdung.infrastructure.dao.latest_value.LatestValueDAO;
+import org.quangdung.infrastructure.entity.DeviceDataBatchEntity;
 import org.quangdung.infrastructure.entity.DeviceDataEntity;
+import org.quangdung.infrastructure.entity.auth_acl_service.DeviceInfoResponse;
 import org.quangdung.infrastructure.entity.influx.TelemetryDataEntity;
 import io.smallrye.reactive.messaging.annotations.Merge;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
 import io.smallrye.mutiny.Uni;
+import io.smallrye.reactive.messaging.rabbitmq.IncomingRabbitMQMetadata;
 import io.vertx.core.json.JsonObject;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 
 @ApplicationScoped
 public class DataCollectComsumerComponent {
+    private static final String CHANNEL = "device-data-in-from-rabbitmq";
+    private static final String MESSAGE_TYPE_HEADER = "message-type";
+    private static final String MEASUREMENT = "telemetry_data";
+
     @Inject
     private  Logger log;
     @Inject
     private  ObjectMapper objectMapper;
+    @Inject
+    private DeviceMessageCodec codec;
 
     @Inject
-    @RestClient
-    private DeviceInfoDAO deviceInfoDAO;
+    private CachedDeviceInfoDAO deviceInfoDAO;
 
     @Inject
     private InfluxDAO influxDAO;
+
+    @Inject
+    private LatestValueDAO latestValueDAO;
+
+    @Inject
+    private MetricService metricsService;
+
+    @Inject
+    @ConfigProperty(name = "rabbitmq.device-data.batch.enabled", defaultValue = "true")
+    boolean batchEnabled;
+
+    @Inject
+    @ConfigProperty(name = "rabbitmq.device-data.batch.max-size", defaultValue = "500")
+    int batchMaxSize;
+
+    @Inject
+    @ConfigProperty(name = "rabbitmq.device-data.batch.max-wait-ms", defaultValue = "50")
+    long batchMaxWaitMs;
+
+    @Inject
+    @ConfigProperty(name = "rabbitmq.nack.initial-delay", defaultValue = "500ms")
+    Duration nackInitialDelay;
+
+    @Inject
+    @ConfigProperty(name = "rabbitmq.nack.max-delay", defaultValue = "30s")
+    Duration nackMaxDelay;
+
+    private ScheduledExecutorService batchScheduler;
+    private MicroBatcher<Delivery> deliveryBatcher;
+    private DistributionSummary batchSizeHistogram;
+    private Counter[] batchesCounters; // indexed by FlushTrigger ordinal
+    private DeliveryTracker deliveryTracker;
+    // Device info lookups and conversion of the records into points
+    private Timer enrichmentTimer;
+
+    @PostConstruct
+    void init() {
+        deliveryTracker = new DeliveryTracker(metricsService, CHANNEL, nackInitialDelay, nackMaxDelay);
+        enrichmentTimer = metricsService.latencyTimer("telemetry_enrichment_duration", "channel", CHANNEL);
+        if (!batchEnabled) {
+            return;
+        }
+        log.infof("Device data batch consumption enabled (max size: %d, max wait: %d ms)", batchMaxSize, batchMaxWaitMs);
+        batchSizeHistogram = metricsService.histogram("rabbitmq_consume_batch_size", "channel", CHANNEL);
+        MicroBatcher.FlushTrigger[] triggers = MicroBatcher.FlushTrigger.values();
+        batchesCounters = new Counter[triggers.length];
+        for (MicroBatcher.FlushTrigger trigger : triggers) {
+            batchesCounters[trigger.ordinal()] = metricsService.counter("rabbitmq_consume_batches_total",
+                                                                        "channel", CHANNEL,
+                                                                        "trigger", trigger.tagValue());
+        }
+        batchScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "device-data-consume-batcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        deliveryBatcher = new MicroBatcher<>(batchMaxSize, TimeUnit.MILLISECONDS.toNanos(batchMaxWaitMs),
+                                             batchScheduler, this::storeDeliveries);
+    }
+
+    @PreDestroy
+    void close() {
+        if (deliveryBatcher != null) {
+            deliveryBatcher.close();
+            batchScheduler.shutdown();
+        }
+        deliveryTracker.close();
+    }
     
     @Merge(Merge.Mode.MERGE)
-    @Incoming("device-data-in-from-rabbitmq") 
-    public Uni<Void> processDeviceData(Message<JsonObject> message) { 
+    @Incoming(CHANNEL) 
+    public Uni<Void> processDeviceData(Message<Object> message) { 
+        long receivedNanos = deliveryTracker.received();
+        if (deliveryBatcher != null) {
+            // The batch acks its deliveries once stored; not waiting here lets the next deliveries join the batch
+            deliveryBatcher.submit(new Delivery(message, receivedNanos)).subscribe().with(
+                ignored -> { },
+                failure -> deliveryTracker.nack(message, receivedNanos, failure)
+            );
+            return Uni.createFrom().voidItem();
+        }
+        if (isBatch(message)) {
+            return processDeviceDataBatch(message, receivedNanos);
+        }
+
         DeviceDataEntity deviceData;
         try {
-            deviceData = objectMapper.readValue(message.getPayload().encode(), DeviceDataEntity.class);
+            deviceData = DeviceMessageCodec.isBinary(message)
+                ? codec.decodeDeviceData((byte[]) message.getPayload())
+                : readJson(message.getPayload(), DeviceDataEntity.class);
             log.infof("Received and deserialized message for clientId: %s", deviceData.getClientId());
         } catch (Exception e) {
             log.error("Failed to deserialize message. Acknowledging and discarding.", e);
-            message.ack(); 
+            deliveryTracker.ack(message, receivedNanos);
             return Uni.createFrom().voidItem();
         }
 
-        return deviceInfoDAO.getDeviceInfo(deviceData.getClientId())
-            .onItem().transformToUni(info -> {
+        return ackWhenDone(storeDeviceData(deviceData), message, receivedNanos);
+    }
+
+    /**
+     * Unpacks a batch envelope and stores every record it contains, acknowledging the
+     * RabbitMQ message once all records have been processed
+     * @param message the message carrying a DeviceDataBatchEntity payload
+     * @param receivedNanos when the message was received, see DeliveryTracker
+     * @return Uni<Void> representing the completion of the batch processing
+     */
+    private Uni<Void> processDeviceDataBatch(Message<Object> message, long receivedNanos) {
+        DeviceDataBatchEntity batch;
+        try {
+            batch = DeviceMessageCodec.isBinary(message)
+                ? codec.decodeDeviceDataBatch((byte[]) message.getPayload())
+                : readJson(message.getPayload(), DeviceDataBatchEntity.class);
+            log.debugf("Received device data batch of %d records", batch.getSize());
+        } catch (Exception e) {
+            log.error("Failed to deserialize batch message. Acknowledging and discarding.", e);
+            deliveryTracker.ack(message, receivedNanos);
+            return Uni.createFrom().voidItem();
+        }
+
+        List<DeviceDataEntity> records = batch.getRecords();
+        if (records == null || records.isEmpty()) {
+            deliveryTracker.ack(message, receivedNanos);
+            return Uni.createFrom().voidItem();
+        }
+
+        List<Uni<Void>> stored = records.stream()
+            .map(this::storeDeviceData)
+            .toList();
+
+        return ackWhenDone(Uni.join().all(stored).andCollectFailures(), message, receivedNanos);
+    }
 
+    /**
+     * Acknowledges the message once its records are written (or kept in the InfluxDB write buffer), without holding
+     * back the next deliveries: InfluxDAO batches writes, so waiting here would cap the consumer at one message
+     * per batch. A message that could not be stored is nacked after the DeliveryTracker's backoff delay, and requeued
+     * by the channel's failure strategy.
+     * The number of unacknowledged messages is bounded by the channel's max-outstanding-messages.
+     */
+    private Uni<Void> ackWhenDone(Uni<?> processing, Message<Object> message, long receivedNanos) {
+        processing.subscribe().with(result -> deliveryTracker.ack(message, receivedNanos),
+                                    failure -> deliveryTracker.nack(message, receivedNanos, failure));
+        return Uni.createFrom().voidItem();
+    }
 
-                TelemetryDataEntity telemetryData = TelemetryDataEntity.builder()
-                        .clientId(deviceData.getClientId())
-                        .deviceUuid(info.getDeviceUuid())
-                        .deviceName(info.getDeviceName())
-                        .mqttUsername(info.getMqttUsername())
-                        .timestamp(deviceData.getTimestamp().toInstant(ZoneOffset.UTC))
-                        .data(deviceData.getData())
-                        .build();
+    /**
+     * Stores the records of a batch of deliveries with one device info lookup per distinct device and
+     * a single InfluxDB write, then settles every delivery of the batch:
+     * - deliveries whose records were written, or kept in the InfluxDB write buffer, are acknowledged,
+     *   as are deliveries that cannot be decoded and records of devices the auth-acl service does not know
+     * - deliveries holding a record whose device info lookup failed are nacked, to be redelivered after a backoff
+     * - every delivery is nacked if the write failed and the write buffer could not keep the points
+     * @param deliveries the deliveries, in arrival order
+     * @param trigger why the batch was flushed
+     * @return Uni completing once the deliveries have been settled
+     */
+    private Uni<Void> storeDeliveries(List<Delivery> deliveries, MicroBatcher.FlushTrigger trigger) {
+        batchSizeHistogram.record(deliveries.size());
+        batchesCounters[trigger.ordinal()].increment();
 
-                String line = telemetryData.toLineProtocol("telemetry_data");
+        List<DeviceDataEntity> records = new ArrayList<>(deliveries.size());
+        // Records of delivery i are records[recordEnds[i - 1], recordEnds[i])
+        int[] recordEnds = new int[deliveries.size()];
+        for (int i = 0; i < deliveries.size(); i++) {
+            try {
+                readRecords(deliveries.get(i).message(), records);
+            } catch (Exception e) {
+                log.error("Failed to deserialize message. Acknowledging and discarding.", e);
+            }
+            recordEnds[i] = records.size();
+        }
 
-                return influxDAO.createTelemetryDataByLineProtocol(line);
+        return storeRecords(records)
+            .onFailure().invoke(failure -> log.errorf(failure, "Failed to store batch of %d records", records.size()))
+            .onItemOrFailure().transformToUni((unresolved, failure) -> {
+                // The connector settles deliveries one by one, in delivery order, right after each other
+                int recordStart = 0;
+                for (int i = 0; i < deliveries.size(); i++) {
+                    Delivery delivery = deliveries.get(i);
+                    if (failure != null) {
+                        deliveryTracker.nack(delivery.message(), delivery.receivedNanos(), failure);
+                    } else if (hasUnresolvedDevice(records, recordStart, recordEnds[i], unresolved)) {
+                        deliveryTracker.nack(delivery.message(), delivery.receivedNanos(),
+                                             new IllegalStateException("Device info lookup failed, redelivering"));
+                    } else {
+                        deliveryTracker.ack(delivery.message(), delivery.receivedNanos());
+                    }
+                    recordStart = recordEnds[i];
+                }
+                return Uni.createFrom().voidItem();
+            });
+    }
+
+    private static boolean hasUnresolvedDevice(List<DeviceDataEntity> records, int start, int end,
+                                               Set<String> unresolved) {
+        if (unresolved.isEmpty()) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (unresolved.contains(records.get(i).getClientId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Decodes a delivery, a single record or a batch envelope, into the given list
+     */
+    private void readRecords(Message<Object> message, List<DeviceDataEntity> records) throws IOException {
+        if (isBatch(message)) {
+            DeviceDataBatchEntity batch = DeviceMessageCodec.isBinary(message)
+                ? codec.decodeDeviceDataBatch((byte[]) message.getPayload())
+                : readJson(message.getPayload(), DeviceDataBatchEntity.class);
+            if (batch.getRecords() != null) {
+                records.addAll(batch.getRecords());
+            }
+        } else {
+            records.add(DeviceMessageCodec.isBinary(message)
+                ? codec.decodeDeviceData((byte[]) message.getPayload())
+                : readJson(message.getPayload(), DeviceDataEntity.class));
+        }
+    }
+
+    /**
+     * Writes the records of known devices
+     * @return Uni with the client IDs whose device info lookup failed (not with a 404): their records are not
+     *         written
+     */
+    private Uni<Set<String>> storeRecords(List<DeviceDataEntity> records) {
+        if (records.isEmpty()) {
+            return Uni.createFrom().item(Set.of());
+        }
+        long enrichmentStart = System.nanoTime();
+        Set<String> clientIds = new LinkedHashSet<>();
+        records.forEach(record -> clientIds.add(record.getClientId()));
+        List<String> lookupIds = new ArrayList<>(clientIds);
+        Set<String> unresolved = ConcurrentHashMap.newKeySet();
+        List<Uni<DeviceInfoResponse>> lookups = new ArrayList<>(lookupIds.size());
+        for (String clientId : lookupIds) {
+            lookups.add(deviceInfoDAO.getDeviceInfo(clientId)
+                .onFailure().invoke(failure -> {
+                    log.errorf(failure, "Failed to get device info for clientId: %s", clientId);
+                    if (!CachedDeviceInfoDAO.isNotFound(failure)) {
+                        unresolved.add(clientId);
+                    }
+                })
+                .onFailure().recoverWithNull());
+        }
+
+        return Uni.join().all(lookups).andFailFast()
+            .onItem().transformToUni(infos -> {
+                Map<String, DeviceInfoResponse> infoByClientId = new HashMap<>(lookupIds.size() * 2);
+                for (int i = 0; i < lookupIds.size(); i++) {
+                    if (infos.get(i) != null) {
+                        infoByClientId.put(lookupIds.get(i), infos.get(i));
+                    }
+                }
+                List<TelemetryDataEntity> points = new ArrayList<>(records.size());
+                for (DeviceDataEntity record : records) {
+                    DeviceInfoResponse info = infoByClientId.get(record.getClientId());
+                    // Records of unknown devices are dropped, as in the per-message path
+                    if (info != null) {
+                        points.add(toTelemetryData(record, info));
+                    }
+                }
+                enrichmentTimer.record(System.nanoTime() - enrichmentStart, TimeUnit.NANOSECONDS);
+                return influxDAO.createTelemetryData(MEASUREMENT, points)
+                    .invoke(() -> latestValueDAO.update(points))
+                    .replaceWith(unresolved);
+            });
+    }
+
+    private Uni<Void> storeDeviceData(DeviceDataEntity deviceData) {
+        long enrichmentStart = System.nanoTime();
+        return deviceInfoDAO.getDeviceInfo(deviceData.getClientId())
+            .onItem().transformToUni(info -> {
+                TelemetryDataEntity point = toTelemetryData(deviceData, info);
+                enrichmentTimer.record(System.nanoTime() - enrichmentStart, TimeUnit.NANOSECONDS);
+                return influxDAO.createTelemetryData(MEASUREMENT, point)
+                    .invoke(() -> latestValueDAO.update(point));
             })
             .onFailure().invoke(failure -> {
                 log.errorf(failure, "Failed to process message for clientId: %s", deviceData.getClientId());
             })
-            .onItemOrFailure().transformToUni((result, failure) -> {
-                message.ack();
-                return Uni.createFrom().voidItem();
+            // Records of unknown devices are dropped, other failures are redelivered
+            .onFailure(CachedDeviceInfoDAO::isNotFound).recoverWithNull()
+            .replaceWithVoid();
+    }
 
-            });
+    private static TelemetryDataEntity toTelemetryData(DeviceDataEntity deviceData, DeviceInfoResponse info) {
+        return TelemetryDataEntity.builder()
+                .clientId(deviceData.getClientId())
+                .deviceUuid(info.getDeviceUuid())
+                .deviceName(info.getDeviceName())
+                .mqttUsername(info.getMqttUsername())
+                .timestamp(deviceData.getTimestamp())
+                .data(deviceData.getData())
+                .build();
+    }
+
+    /**
+     * A delivery waiting in the consume batch, with its arrival time
+     */
+    private record Delivery(Message<Object> message, long receivedNanos) {
+    }
+
+    private boolean isBatch(Message<Object> message) {
+        return message.getMetadata(IncomingRabbitMQMetadata.class)
+            .map(metadata -> metadata.getHeaders().get(MESSAGE_TYPE_HEADER))
+            .map(type -> DeviceDataBatchEntity.MESSAGE_TYPE.equals(type.toString()))
+            .orElse(false);
+    }
+
+    /**
+     * Reads a JSON message; the connector hands over a JsonObject for application/json bodies and the raw bytes otherwise
+     */
+    private <T> T readJson(Object payload, Class<T> type) throws IOException {
+        if (payload instanceof JsonObject json) {
+            // Binds the tree the connector already parsed, instead of writing it back to text to parse it again
+            try {
+                return objectMapper.convertValue(json.getMap(), type);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Invalid JSON for " + type.getSimpleName(), e);
+            }
+        }
+        if (payload instanceof byte[] bytes) {
+            return objectMapper.readValue(bytes, type);
+        }
+        return objectMapper.readValue(payload.toString(), type);
     }
 }
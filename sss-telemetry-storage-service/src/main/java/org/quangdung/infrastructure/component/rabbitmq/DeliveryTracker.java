@@ -0,0 +1,118 @@
+package org.quangdung.infrastructure.component.rabbitmq;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.microprofile.reactive.messaging.Message;
+import org.quangdung.core.metric.MetricService;
+
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Settles the deliveries of one channel and measures, per outcome, the time from their arrival in the consumer
+ * to their ack or nack, along with the number of deliveries not yet settled.
+ * The meters are registered once, settling a delivery does not allocate.
+ *
+ * Nacked deliveries are requeued by the broker and redelivered at once, so a failing dependency (auth-acl, Redis,
+ * a full write buffer) would otherwise be retried in a tight loop. Nacks are therefore held back by a delay that
+ * starts at the initial delay and doubles, up to the max delay, each time deliveries keep failing after a delay
+ * has passed; any ack resets it. Held deliveries stay unacknowledged, which also slows the broker down through
+ * the channel's max-outstanding-messages.
+ */
+final class DeliveryTracker {
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Timer ackLatency;
+    private final Timer nackLatency;
+    private final long initialDelayNanos;
+    private final long maxDelayNanos;
+    private final ScheduledExecutorService nackScheduler;
+    // Current nack delay, 0 while deliveries are acked
+    private volatile long nackDelayNanos;
+    // When the current nack delay may be doubled, once the deliveries it held back failed again
+    private long nackDelayDeadlineNanos;
+
+    DeliveryTracker(MetricService metricsService, String channel, Duration initialNackDelay, Duration maxNackDelay) {
+        ackLatency = metricsService.latencyTimer("rabbitmq_delivery_settle_duration", "channel", channel,
+                                                 "outcome", "ack");
+        nackLatency = metricsService.latencyTimer("rabbitmq_delivery_settle_duration", "channel", channel,
+                                                  "outcome", "nack");
+        metricsService.registerGauge("rabbitmq_deliveries_in_flight", inFlight, AtomicInteger::get,
+                                     "channel", channel);
+        metricsService.registerGauge("rabbitmq_nack_delay_seconds", this,
+                                     tracker -> tracker.nackDelayNanos / 1e9, "channel", channel);
+        initialDelayNanos = initialNackDelay.toNanos();
+        maxDelayNanos = Math.max(initialDelayNanos, maxNackDelay.toNanos());
+        nackScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, channel + "-nack");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Counts a delivery in, to be settled with ack or nack
+     * @return the arrival time, in System.nanoTime() terms
+     */
+    long received() {
+        inFlight.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    void ack(Message<?> message, long receivedNanos) {
+        if (nackDelayNanos != 0) {
+            nackDelayNanos = 0;
+        }
+        settled(ackLatency, receivedNanos);
+        message.ack();
+    }
+
+    /**
+     * Nacks the delivery after the current nack delay
+     */
+    void nack(Message<?> message, long receivedNanos, Throwable failure) {
+        long delayNanos = nextNackDelay();
+        if (delayNanos == 0) {
+            nackNow(message, receivedNanos, failure);
+            return;
+        }
+        try {
+            nackScheduler.schedule(() -> nackNow(message, receivedNanos, failure), delayNanos, TimeUnit.NANOSECONDS);
+        } catch (RuntimeException e) {
+            // Shutting down
+            nackNow(message, receivedNanos, failure);
+        }
+    }
+
+    /**
+     * Nacks the deliveries still held back, for the broker to redeliver them to the next consumer
+     */
+    void close() {
+        nackScheduler.shutdownNow().forEach(Runnable::run);
+    }
+
+    private synchronized long nextNackDelay() {
+        long now = System.nanoTime();
+        if (nackDelayNanos == 0) {
+            nackDelayNanos = initialDelayNanos;
+            nackDelayDeadlineNanos = now + initialDelayNanos;
+        } else if (now - nackDelayDeadlineNanos >= 0) {
+            // Nacks within one delay share it, e.g. the deliveries of one failed batch
+            nackDelayNanos = Math.min(maxDelayNanos, nackDelayNanos * 2);
+            nackDelayDeadlineNanos = now + nackDelayNanos;
+        }
+        return nackDelayNanos;
+    }
+
+    private void nackNow(Message<?> message, long receivedNanos, Throwable failure) {
+        settled(nackLatency, receivedNanos);
+        message.nack(failure);
+    }
+
+    private void settled(Timer latency, long receivedNanos) {
+        inFlight.decrementAndGet();
+        latency.record(System.nanoTime() - receivedNanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -1,53 +1,98 @@
 package org.quangdung.infrastructure.component.rabbitmq;
 
-import java.time.ZoneOffset;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
 
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.reactive.messaging.Incoming;
 import org.eclipse.microprofile.reactive.messaging.Message;
-import org.eclipse.microprofile.rest.client.inject.RestClient;
 import org.jboss.logging.Logger;
-import org.quangdung.infrastructure.dao.device_info.DeviceInfoDAO;
+import org.quangdung.core.metric.MetricService;
+import org.quangdung.infrastructure.component.rabbitmq.codec.DeviceMessageCodec;
+import org.quangdung.infrastructure.dao.device_info.CachedDeviceInfoDAO;
 import org.quangdung.infrastructure.dao.influx.InfluxDAO;
+import org.quangdung.infrastructure.dao.latest_value.LatestValueDAO;
 import org.quangdung.infrastructure.entity.influx.PowerStatusEntity;
 import org.quangdung.infrastructure.entity.influx.TelemetryDataEntity;
 import io.smallrye.reactive.messaging.annotations.Merge;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import io.micrometer.core.instrument.Timer;
 import io.smallrye.mutiny.Uni;
 import io.vertx.core.json.JsonObject;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 
 @ApplicationScoped
 public class PowerOutageAlertConsumerComponent {
+    private static final String CHANNEL = "power-outage-alert-from-rabbitmq";
+
     @Inject
     private  Logger log;
     @Inject
     private  ObjectMapper objectMapper;
+    @Inject
+    private DeviceMessageCodec codec;
 
     @Inject
-    @RestClient
-    private DeviceInfoDAO deviceInfoDAO;
+    private CachedDeviceInfoDAO deviceInfoDAO;
 
     @Inject
     private InfluxDAO influxDAO;
 
+    @Inject
+    private LatestValueDAO latestValueDAO;
+
+    @Inject
+    private MetricService metricsService;
+
+    @Inject
+    @ConfigProperty(name = "rabbitmq.nack.initial-delay", defaultValue = "500ms")
+    Duration nackInitialDelay;
+
+    @Inject
+    @ConfigProperty(name = "rabbitmq.nack.max-delay", defaultValue = "30s")
+    Duration nackMaxDelay;
+
+    private DeliveryTracker deliveryTracker;
+    private Timer enrichmentTimer;
+
+    @PostConstruct
+    void init() {
+        deliveryTracker = new DeliveryTracker(metricsService, CHANNEL, nackInitialDelay, nackMaxDelay);
+        enrichmentTimer = metricsService.latencyTimer("telemetry_enrichment_duration", "channel", CHANNEL);
+    }
+
+    @PreDestroy
+    void close() {
+        deliveryTracker.close();
+    }
+
     @Merge(Merge.Mode.MERGE)
-    @Incoming("power-outage-alert-from-rabbitmq")
-    public Uni<Void> processPowerOutageAlert(Message<JsonObject> message) {
+    @Incoming(CHANNEL)
+    public Uni<Void> processPowerOutageAlert(Message<Object> message) {
+        long receivedNanos = deliveryTracker.received();
         PowerStatusEntity powerStatusData;
         
         try {
-            powerStatusData = objectMapper.readValue(message.getPayload().encode(), PowerStatusEntity.class);
+            powerStatusData = DeviceMessageCodec.isBinary(message)
+                ? codec.decodePowerOutage((byte[]) message.getPayload())
+                : readJson(message.getPayload(), PowerStatusEntity.class);
             log.infof("Received power outage alert for clientId: %s, status: %s", 
                      powerStatusData.getClientId(), powerStatusData.getPowerStatus());
         } catch (Exception e) {
             log.error("Failed to deserialize power outage alert message. Acknowledging and discarding.", e);
-            message.ack();
+            deliveryTracker.ack(message, receivedNanos);
             return Uni.createFrom().voidItem();
         }
 
-        return deviceInfoDAO.getDeviceInfo(powerStatusData.getClientId())
+        // Acknowledged once written or buffered, without holding back the next deliveries (InfluxDAO batches writes);
+        // alerts of unknown devices are dropped, other failures are nacked to be redelivered after a backoff
+        long enrichmentStart = System.nanoTime();
+        deviceInfoDAO.getDeviceInfo(powerStatusData.getClientId())
             .onItem().transformToUni(info -> {
                 // Create telemetry data with only power_status update
                 TelemetryDataEntity telemetryData = TelemetryDataEntity.builder()
@@ -55,21 +100,39 @@ public class PowerOutageAlertConsumerComponent {
                         .deviceUuid(info.getDeviceUuid())
                         .deviceName(info.getDeviceName())
                         .mqttUsername(info.getMqttUsername())
-                        .timestamp(powerStatusData.getTimestamp().toInstant(ZoneOffset.UTC))
+                        .timestamp(powerStatusData.getTimestamp())
                         .data(java.util.Map.of("power_status", powerStatusData.getPowerStatus()))
                         .build();
+                enrichmentTimer.record(System.nanoTime() - enrichmentStart, TimeUnit.NANOSECONDS);
 
-                String line = telemetryData.toLineProtocol("telemetry_data");
-                return influxDAO.createTelemetryDataByLineProtocol(line);
+                return influxDAO.createTelemetryData("telemetry_data", telemetryData)
+                    .invoke(() -> latestValueDAO.update(telemetryData));
             })
             .onFailure().invoke(failure -> {
                 log.errorf(failure, "Failed to process power outage alert for clientId: %s", 
                           powerStatusData.getClientId());
             })
-            .onItemOrFailure().transformToUni((result, failure) -> {
-                message.ack();
-                return Uni.createFrom().voidItem();
-            });
+            .onFailure(CachedDeviceInfoDAO::isNotFound).recoverWithNull()
+            .subscribe().with(result -> deliveryTracker.ack(message, receivedNanos),
+                              failure -> deliveryTracker.nack(message, receivedNanos, failure));
+        return Uni.createFrom().voidItem();
     }
 
+    /**
+     * Reads a JSON message; the connector hands over a JsonObject for application/json bodies and the raw bytes otherwise
+     */
+    private <T> T readJson(Object payload, Class<T> type) throws IOException {
+        if (payload instanceof JsonObject json) {
+            // Binds the tree the connector already parsed, instead of writing it back to text to parse it again
+            try {
+                return objectMapper.convertValue(json.getMap(), type);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Invalid JSON for " + type.getSimpleName(), e);
+            }
+        }
+        if (payload instanceof byte[] bytes) {
+            return objectMapper.readValue(bytes, type);
+        }
+        return objectMapper.readValue(payload.toString(), type);
+    }
 }
@@ -0,0 +1,183 @@
+package org.quangdung.infrastructure.component.rabbitmq.codec;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.microprofile.reactive.messaging.Message;
+import org.quangdung.infrastructure.entity.DeviceDataBatchEntity;
+import org.quangdung.infrastructure.entity.DeviceDataEntity;
+import org.quangdung.infrastructure.entity.influx.PowerStatusEntity;
+
+import io.smallrye.reactive.messaging.rabbitmq.IncomingRabbitMQMetadata;
+import jakarta.enterprise.context.ApplicationScoped;
+
+/**
+ * Decoder of the versioned binary wire format published by the data ingestor (see DeviceMessageCodec there),
+ * used for messages whose content type is CONTENT_TYPE. Layout: [byte version][byte message type][body], where
+ * - integers are LEB128 varints, zigzag encoded when signed
+ * - strings are a varint (length + 1, 0 for null) followed by the UTF-8 bytes
+ * - timestamps are a presence byte followed by zigzag varint nanoseconds since the epoch (UTC), absent reads as 0
+ * - data values are a type byte followed by the value; doubles take 8 bytes, longs a zigzag varint
+ */
+@ApplicationScoped
+public class DeviceMessageCodec {
+    public static final String CONTENT_TYPE = "application/x-sss-device-message";
+    public static final int VERSION = 1;
+
+    public static final int TYPE_DEVICE_DATA = 1;
+    public static final int TYPE_DEVICE_STATUS = 2;
+    public static final int TYPE_POWER_OUTAGE = 3;
+    public static final int TYPE_DEVICE_DATA_BATCH = 4;
+
+    private static final int VALUE_NULL = 0;
+    private static final int VALUE_DOUBLE = 1;
+    private static final int VALUE_LONG = 2;
+    private static final int VALUE_TRUE = 3;
+    private static final int VALUE_FALSE = 4;
+    private static final int VALUE_STRING = 5;
+
+    /**
+     * @param message an incoming RabbitMQ message
+     * @return true if the message is in this format, its payload is then the raw byte[] body
+     */
+    public static boolean isBinary(Message<?> message) {
+        return message.getMetadata(IncomingRabbitMQMetadata.class)
+            .flatMap(IncomingRabbitMQMetadata::getContentType)
+            .map(CONTENT_TYPE::equals)
+            .orElse(false);
+    }
+
+    /**
+     * Decodes a device data message
+     * @param bytes the message body
+     * @return the decoded record
+     * @throws IOException if the message is truncated, of another type or of an unsupported version
+     */
+    public DeviceDataEntity decodeDeviceData(byte[] bytes) throws IOException {
+        ByteBuffer buffer = open(bytes, TYPE_DEVICE_DATA);
+        try {
+            return readDeviceData(buffer);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated device data message", e);
+        }
+    }
+
+    public DeviceDataBatchEntity decodeDeviceDataBatch(byte[] bytes) throws IOException {
+        ByteBuffer buffer = open(bytes, TYPE_DEVICE_DATA_BATCH);
+        try {
+            int size = readCount(buffer, "record");
+            List<DeviceDataEntity> records = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                records.add(readDeviceData(buffer));
+            }
+            DeviceDataBatchEntity batch = new DeviceDataBatchEntity();
+            batch.setSize(size);
+            batch.setRecords(records);
+            return batch;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated device data batch message", e);
+        }
+    }
+
+    public PowerStatusEntity decodePowerOutage(byte[] bytes) throws IOException {
+        ByteBuffer buffer = open(bytes, TYPE_POWER_OUTAGE);
+        try {
+            PowerStatusEntity powerStatus = new PowerStatusEntity();
+            powerStatus.setClientId(readString(buffer));
+            powerStatus.setPowerStatus(buffer.get() == 0 ? null : (int) unzigzag(readVarLong(buffer)));
+            powerStatus.setTimestamp(readTimestamp(buffer));
+            return powerStatus;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated power outage message", e);
+        }
+    }
+
+    private static ByteBuffer open(byte[] bytes, int expectedType) throws IOException {
+        if (bytes.length < 2) {
+            throw new IOException("Message is too short");
+        }
+        if (bytes[0] != VERSION) {
+            throw new IOException("Unsupported wire format version " + bytes[0]);
+        }
+        if (bytes[1] != expectedType) {
+            throw new IOException("Expected message type " + expectedType + " but got " + bytes[1]);
+        }
+        return ByteBuffer.wrap(bytes, 2, bytes.length - 2);
+    }
+
+    private static DeviceDataEntity readDeviceData(ByteBuffer buffer) throws IOException {
+        DeviceDataEntity deviceData = new DeviceDataEntity();
+        deviceData.setClientId(readString(buffer));
+        deviceData.setTimestamp(readTimestamp(buffer));
+        int fields = readCount(buffer, "field");
+        Map<String, Object> data = new LinkedHashMap<>(Math.max(4, fields * 2));
+        for (int i = 0; i < fields; i++) {
+            String name = readString(buffer);
+            int type = buffer.get();
+            Object value = switch (type) {
+                case VALUE_NULL -> null;
+                case VALUE_DOUBLE -> buffer.getDouble();
+                case VALUE_LONG -> unzigzag(readVarLong(buffer));
+                case VALUE_TRUE -> Boolean.TRUE;
+                case VALUE_FALSE -> Boolean.FALSE;
+                case VALUE_STRING -> readString(buffer);
+                default -> throw new IOException("Unknown value type " + type + " for field " + name);
+            };
+            data.put(name, value);
+        }
+        deviceData.setData(data);
+        return deviceData;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = (int) readVarLong(buffer) - 1;
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private static long readTimestamp(ByteBuffer buffer) {
+        return buffer.get() == 0 ? 0L : unzigzag(readVarLong(buffer));
+    }
+
+    /**
+     * Reads the number of records or fields that follow; every one takes at least a byte, so a count above the
+     * remaining bytes is corrupt and must not size an allocation
+     */
+    private static int readCount(ByteBuffer buffer, String element) throws IOException {
+        long count = readVarLong(buffer);
+        if (count < 0 || count > buffer.remaining()) {
+            throw new IOException("Invalid " + element + " count " + count + " with " + buffer.remaining()
+                                  + " bytes left");
+        }
+        return (int) count;
+    }
+
+    private static long readVarLong(ByteBuffer buffer) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0 && shift < 64);
+        return value;
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,383 @@
+package org.quangdung.infrastructure.dao.device_info;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+import org.jboss.logging.Logger;
+import org.quangdung.core.batch.MicroBatcher;
+import org.quangdung.core.metric.MetricService;
+import org.quangdung.infrastructure.entity.auth_acl_service.DeviceInfoBatchRequest;
+import org.quangdung.infrastructure.entity.auth_acl_service.DeviceInfoResponse;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.quarkus.cache.Cache;
+import io.quarkus.cache.CacheName;
+import io.quarkus.cache.redis.RedisCache;
+import io.smallrye.mutiny.Uni;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.NotFoundException;
+import jakarta.ws.rs.WebApplicationException;
+
+/**
+ * Device info lookups through two cache tiers in front of the auth-acl service:
+ * - L1: bounded in-process cache (size-based eviction and TTL), which serves the steady state without any network call
+ * - L2: the shared Redis cache "device-info-cache", which also survives restarts and is shared between instances
+ * Client ids the auth-acl service does not know (404) are remembered in L1 for a short negative TTL, so that
+ * a misconfigured device does not cost a Redis and an HTTP round trip for each of its messages.
+ * The L1 TTL bounds how long a device rename takes to show up in new points, so it is kept well below the L2 TTL.
+ *
+ * Concurrent misses for one client id share a single in-flight lookup (single flight), so an expiry or a restart
+ * costs one Redis/HTTP round trip per device rather than one per message. Entries that are still being read once
+ * older than the refresh-after age are reloaded from the auth-acl service in the background, written to both tiers,
+ * and keep being served meanwhile: popular devices never miss, and their Redis entries are renewed before expiring.
+ *
+ * Lookups that reach the auth-acl service (Redis misses and refreshes) are gathered for up to bulk max-wait-ms and
+ * resolved with one bulk request per bulk max-size client ids, so a cold start costs O(N / batch) round trips.
+ */
+@ApplicationScoped
+public class CachedDeviceInfoDAO {
+    public static final String CACHE_NAME = "device-info-cache";
+
+    @Inject
+    private Logger log;
+
+    @Inject
+    @RestClient
+    private DeviceInfoDAO deviceInfoDAO;
+
+    @Inject
+    @CacheName(CACHE_NAME)
+    private Cache redisCache;
+
+    @Inject
+    private MetricService metricsService;
+
+    @Inject
+    @ConfigProperty(name = "device-info.cache.l1.max-size", defaultValue = "10000")
+    long l1MaxSize;
+
+    @Inject
+    @ConfigProperty(name = "device-info.cache.l1.ttl", defaultValue = "5m")
+    Duration l1Ttl;
+
+    @Inject
+    @ConfigProperty(name = "device-info.cache.l1.refresh-after", defaultValue = "4m")
+    Duration refreshAfter;
+
+    @Inject
+    @ConfigProperty(name = "device-info.cache.l1.negative-max-size", defaultValue = "1000")
+    long negativeMaxSize;
+
+    @Inject
+    @ConfigProperty(name = "device-info.cache.l1.negative-ttl", defaultValue = "30s")
+    Duration negativeTtl;
+
+    @Inject
+    @ConfigProperty(name = "device-info.bulk.enabled", defaultValue = "true")
+    boolean bulkEnabled;
+
+    @Inject
+    @ConfigProperty(name = "device-info.bulk.max-size", defaultValue = "200")
+    int bulkMaxSize;
+
+    @Inject
+    @ConfigProperty(name = "device-info.bulk.max-wait-ms", defaultValue = "10")
+    long bulkMaxWaitMs;
+
+    private com.github.benmanes.caffeine.cache.Cache<String, CachedDeviceInfo> l1Cache;
+    // Client ids answered with 404, the value is unused
+    private com.github.benmanes.caffeine.cache.Cache<String, Boolean> unknownDevices;
+    // Lookups and refreshes in progress, one per client id
+    private final ConcurrentMap<String, CompletableFuture<DeviceInfoResponse>> inFlight = new ConcurrentHashMap<>();
+    private long refreshAfterNanos;
+
+    private ScheduledExecutorService bulkScheduler;
+    private MicroBatcher<PendingLookup> lookupBatcher;
+    private DistributionSummary bulkSizeHistogram;
+
+    private Counter l1Hits;
+    private Counter l1NegativeHits;
+    private Counter l1Misses;
+    private Counter l2Hits;
+    private Counter l2Misses;
+    private Counter coalesced;
+    private Counter refreshes;
+    private Counter refreshFailures;
+    private Counter[] l1Evictions; // indexed by RemovalCause ordinal
+    private Counter[] negativeEvictions; // indexed by RemovalCause ordinal
+
+    @PostConstruct
+    void init() {
+        l1Hits = cacheRequests("l1", "hit");
+        l1NegativeHits = cacheRequests("l1", "negative_hit");
+        l1Misses = cacheRequests("l1", "miss");
+        l2Hits = cacheRequests("l2", "hit");
+        l2Misses = cacheRequests("l2", "miss");
+        coalesced = metricsService.counter("device_info_cache_coalesced_total", "cache", CACHE_NAME);
+        refreshes = metricsService.counter("device_info_cache_refreshes_total", "cache", CACHE_NAME, "result", "success");
+        refreshFailures = metricsService.counter("device_info_cache_refreshes_total", "cache", CACHE_NAME, "result", "failure");
+        l1Evictions = evictionCounters("l1");
+        negativeEvictions = evictionCounters("l1_negative");
+
+        l1Cache = Caffeine.newBuilder()
+            .maximumSize(l1MaxSize)
+            .expireAfterWrite(l1Ttl)
+            .<String, CachedDeviceInfo>removalListener((key, value, cause) -> countEviction(l1Evictions, cause))
+            .build();
+        unknownDevices = Caffeine.newBuilder()
+            .maximumSize(negativeMaxSize)
+            .expireAfterWrite(negativeTtl)
+            .<String, Boolean>removalListener((key, value, cause) -> countEviction(negativeEvictions, cause))
+            .build();
+
+        refreshAfterNanos = refreshAfter.toNanos();
+        if (bulkEnabled) {
+            bulkSizeHistogram = metricsService.histogram("device_info_bulk_lookup_size", "cache", CACHE_NAME);
+            bulkScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "device-info-lookup-batcher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            lookupBatcher = new MicroBatcher<>(bulkMaxSize, TimeUnit.MILLISECONDS.toNanos(bulkMaxWaitMs),
+                                               bulkScheduler, (lookups, trigger) -> lookupBulk(lookups));
+            log.infof("Device info bulk lookups enabled (max size: %d, max wait: %d ms)", bulkMaxSize, bulkMaxWaitMs);
+        }
+        metricsService.registerGauge("device_info_cache_in_flight", inFlight, map -> map.size(), "cache", CACHE_NAME);
+        metricsService.registerGauge("device_info_cache_size", l1Cache, cache -> cache.estimatedSize(), "tier", "l1");
+        metricsService.registerGauge("device_info_cache_size", unknownDevices, cache -> cache.estimatedSize(),
+                                     "tier", "l1_negative");
+        // Since startup; rates of device_info_cache_requests_total give the ratio over a window
+        metricsService.registerGauge("device_info_cache_hit_ratio", this,
+                                     dao -> hitRatio(dao.l1Hits.count() + dao.l1NegativeHits.count(), dao.l1Misses.count()),
+                                     "cache", CACHE_NAME, "tier", "l1");
+        metricsService.registerGauge("device_info_cache_hit_ratio", this,
+                                     dao -> hitRatio(dao.l2Hits.count(), dao.l2Misses.count()),
+                                     "cache", CACHE_NAME, "tier", "l2");
+        log.infof("Device info L1 cache enabled (max size: %d, TTL: %s, refresh after: %s, negative TTL: %s)",
+                  l1MaxSize, l1Ttl, refreshAfter, negativeTtl);
+    }
+
+    /**
+     * Looks up the device info of a client id, from L1, then Redis, then the auth-acl service
+     * @param clientId the device client id
+     * @return Uni with the device info, failing with NotFoundException if the device is unknown
+     */
+    public Uni<DeviceInfoResponse> getDeviceInfo(String clientId) {
+        CachedDeviceInfo cached = l1Cache.getIfPresent(clientId);
+        if (cached != null) {
+            l1Hits.increment();
+            if (System.nanoTime() - cached.loadedAtNanos() > refreshAfterNanos) {
+                refresh(clientId);
+            }
+            return Uni.createFrom().item(cached.info());
+        }
+        if (unknownDevices.getIfPresent(clientId) != null) {
+            l1NegativeHits.increment();
+            return Uni.createFrom().failure(new NotFoundException("Unknown device clientId: " + clientId));
+        }
+        l1Misses.increment();
+        return singleFlight(clientId, false);
+    }
+
+    /**
+     * Joins the lookup in flight for a client id, or starts one
+     * @param fromOrigin true to bypass Redis and reload from the auth-acl service
+     */
+    private Uni<DeviceInfoResponse> singleFlight(String clientId, boolean fromOrigin) {
+        CompletableFuture<DeviceInfoResponse> created = new CompletableFuture<>();
+        CompletableFuture<DeviceInfoResponse> existing = inFlight.putIfAbsent(clientId, created);
+        if (existing != null) {
+            coalesced.increment();
+            return Uni.createFrom().completionStage(existing);
+        }
+        (fromOrigin ? loadFromOrigin(clientId) : loadFromRedis(clientId)).subscribe().with(
+            info -> {
+                // Removed before completing: callers arriving from now on find the value in L1
+                inFlight.remove(clientId, created);
+                created.complete(info);
+            },
+            failure -> {
+                inFlight.remove(clientId, created);
+                created.completeExceptionally(failure);
+            }
+        );
+        return Uni.createFrom().completionStage(created);
+    }
+
+    /**
+     * Reloads an entry in the background while its current value keeps being served
+     */
+    private void refresh(String clientId) {
+        if (inFlight.containsKey(clientId)) {
+            return;
+        }
+        singleFlight(clientId, true).subscribe().with(
+            info -> refreshes.increment(),
+            failure -> {
+                refreshFailures.increment();
+                log.warnf("Failed to refresh device info for clientId: %s, serving the cached value (%s)",
+                          clientId, failure.getMessage());
+            }
+        );
+    }
+
+    private Uni<DeviceInfoResponse> loadFromRedis(String clientId) {
+        boolean[] loaded = new boolean[1];
+        return redisCache.<String, DeviceInfoResponse>getAsync(clientId, id -> {
+                loaded[0] = true;
+                return loadFromService(id);
+            })
+            .onItem().invoke(info -> {
+                (loaded[0] ? l2Misses : l2Hits).increment();
+                l1Cache.put(clientId, new CachedDeviceInfo(info, System.nanoTime()));
+            })
+            .onFailure().invoke(failure -> {
+                if (loaded[0]) {
+                    l2Misses.increment();
+                }
+                if (isNotFound(failure)) {
+                    log.debugf("Device info not found for clientId: %s, caching for %s", clientId, negativeTtl);
+                    unknownDevices.put(clientId, Boolean.TRUE);
+                }
+            });
+    }
+
+    private Uni<DeviceInfoResponse> loadFromOrigin(String clientId) {
+        return loadFromService(clientId)
+            .call(info -> redisCache.as(RedisCache.class).put(clientId, info))
+            .onItem().invoke(info -> l1Cache.put(clientId, new CachedDeviceInfo(info, System.nanoTime())))
+            .onFailure().invoke(failure -> {
+                if (isNotFound(failure)) {
+                    // The device was removed: stop serving it
+                    log.infof("Device info no longer found for clientId: %s, dropping it from the cache", clientId);
+                    l1Cache.invalidate(clientId);
+                    unknownDevices.put(clientId, Boolean.TRUE);
+                    redisCache.invalidate(clientId).subscribe().with(ignored -> { }, ignored -> { });
+                }
+            });
+    }
+
+    /**
+     * Loads a client id from the auth-acl service, as part of the next bulk request when bulk lookups are enabled
+     */
+    private Uni<DeviceInfoResponse> loadFromService(String clientId) {
+        if (lookupBatcher == null) {
+            return deviceInfoDAO.getDeviceInfo(clientId);
+        }
+        PendingLookup lookup = new PendingLookup(clientId, new CompletableFuture<>());
+        return lookupBatcher.submit(lookup)
+            .onItem().transformToUni(ignored -> Uni.createFrom().completionStage(lookup.result()));
+    }
+
+    /**
+     * Resolves a batch of lookups with one bulk request; client ids missing from the answer fail with NotFoundException
+     */
+    private Uni<Void> lookupBulk(List<PendingLookup> lookups) {
+        bulkSizeHistogram.record(lookups.size());
+        // Single flight keeps at most one lookup per client id in flight, so the ids are distinct
+        List<String> clientIds = lookups.stream().map(PendingLookup::clientId).toList();
+        return deviceInfoDAO.getDeviceInfos(new DeviceInfoBatchRequest(clientIds))
+            .onItem().invoke(infos -> {
+                Map<String, DeviceInfoResponse> infoByClientId = new HashMap<>(infos.size() * 2);
+                infos.forEach(info -> infoByClientId.put(info.getClientId(), info));
+                for (PendingLookup lookup : lookups) {
+                    DeviceInfoResponse info = infoByClientId.get(lookup.clientId());
+                    if (info != null) {
+                        lookup.result().complete(info);
+                    } else {
+                        lookup.result().completeExceptionally(
+                            new NotFoundException("Unknown device clientId: " + lookup.clientId()));
+                    }
+                }
+            })
+            .onFailure().invoke(failure -> {
+                log.errorf(failure, "Bulk device info lookup of %d clientIds failed", lookups.size());
+                lookups.forEach(lookup -> lookup.result().completeExceptionally(failure));
+            })
+            .replaceWithVoid();
+    }
+
+    @PreDestroy
+    void close() {
+        if (lookupBatcher != null) {
+            lookupBatcher.close();
+            bulkScheduler.shutdown();
+        }
+    }
+
+    /**
+     * Drops a client id from L1 and Redis, e.g. after its device was updated
+     * @param clientId the device client id
+     * @return Uni completing once the Redis entry is removed
+     */
+    public Uni<Void> invalidate(String clientId) {
+        l1Cache.invalidate(clientId);
+        unknownDevices.invalidate(clientId);
+        return redisCache.invalidate(clientId);
+    }
+
+    /**
+     * An L1 entry with the (monotonic) time it was loaded, which drives early refresh
+     */
+    private record CachedDeviceInfo(DeviceInfoResponse info, long loadedAtNanos) {
+    }
+
+    /**
+     * A client id waiting for the next bulk request, completed with its device info
+     */
+    private record PendingLookup(String clientId, CompletableFuture<DeviceInfoResponse> result) {
+    }
+
+    private static double hitRatio(double hits, double misses) {
+        return hits + misses > 0 ? hits / (hits + misses) : Double.NaN;
+    }
+
+    private Counter cacheRequests(String tier, String result) {
+        return metricsService.counter("device_info_cache_requests_total", "cache", CACHE_NAME, "tier", tier, "result", result);
+    }
+
+    private Counter[] evictionCounters(String tier) {
+        RemovalCause[] causes = RemovalCause.values();
+        Counter[] counters = new Counter[causes.length];
+        for (RemovalCause cause : causes) {
+            counters[cause.ordinal()] = metricsService.counter("device_info_cache_evictions_total",
+                                                               "cache", CACHE_NAME,
+                                                               "tier", tier,
+                                                               "cause", cause.name().toLowerCase());
+        }
+        return counters;
+    }
+
+    private static void countEviction(Counter[] counters, RemovalCause cause) {
+        // Replacements and explicit invalidations are not evictions
+        if (cause.wasEvicted()) {
+            counters[cause.ordinal()].increment();
+        }
+    }
+
+    /**
+     * @return true if a lookup failed because the device is unknown, rather than because the lookup itself failed
+     */
+    public static boolean isNotFound(Throwable failure) {
+        return failure instanceof WebApplicationException webFailure
+            && webFailure.getResponse() != null
+            && webFailure.getResponse().getStatus() == 404;
+    }
+}
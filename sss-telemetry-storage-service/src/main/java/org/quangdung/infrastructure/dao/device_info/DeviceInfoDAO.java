@@ -1,19 +1,32 @@
 package org.quangdung.infrastructure.dao.device_info;
 
+import java.util.List;
+
 import org.eclipse.microprofile.rest.client.inject.RegisterRestClient;
+import org.quangdung.infrastructure.entity.auth_acl_service.DeviceInfoBatchRequest;
 import org.quangdung.infrastructure.entity.auth_acl_service.DeviceInfoResponse;
 
-import io.quarkus.cache.CacheResult;
 import io.smallrye.mutiny.Uni;
 import jakarta.ws.rs.GET;
+import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 
+/**
+ * REST client of the auth-acl device info endpoint, uncached; lookups go through CachedDeviceInfoDAO
+ */
 @Path("/api/v1/mqtt/device-info")
 @RegisterRestClient(configKey = "device-info-api")
 public interface DeviceInfoDAO {
     @GET
     @Path("/{clientId}")
-    @CacheResult(cacheName = "device-info-cache")
     Uni<DeviceInfoResponse> getDeviceInfo(@PathParam("clientId") String clientId);
+
+    /**
+     * @param request up to 1000 client ids
+     * @return the device info of the client ids known to auth-acl, unknown ones are left out
+     */
+    @POST
+    @Path("/batch")
+    Uni<List<DeviceInfoResponse>> getDeviceInfos(DeviceInfoBatchRequest request);
 }
@@ -0,0 +1,67 @@
+package org.quangdung.infrastructure.dao.influx;
+
+import java.util.Locale;
+
+/**
+ * Aggregates allowed in aggregateWindow when downsampling a telemetry query.
+ * Numeric aggregates only see numeric fields, the others apply to every field type.
+ */
+public enum AggregateFunction {
+    MEAN("mean", true),
+    MEDIAN("median", true),
+    MIN("min", true),
+    MAX("max", true),
+    SUM("sum", true),
+    COUNT("count", false),
+    FIRST("first", false),
+    LAST("last", false);
+
+    private final String fluxName;
+    private final boolean numeric;
+
+    AggregateFunction(String fluxName, boolean numeric) {
+        this.fluxName = fluxName;
+        this.numeric = numeric;
+    }
+
+    public String fluxName() {
+        return fluxName;
+    }
+
+    public boolean isNumeric() {
+        return numeric;
+    }
+
+    /**
+     * Combines the values two shards computed for the same window, which only happens when a device moved to
+     * another shard within the window. Exact for min, max, sum and count; mean and median are approximated by the
+     * mean of both values, and first and last keep the first value, as shards do not tell which one came earlier
+     * @return the combined value, the non-null one if the other is null
+     */
+    public Object combine(Object left, Object right) {
+        if (left == null) {
+            return right;
+        }
+        if (!(left instanceof Number leftNumber) || !(right instanceof Number rightNumber)) {
+            return left;
+        }
+        return switch (this) {
+            case MIN -> leftNumber.doubleValue() <= rightNumber.doubleValue() ? left : right;
+            case MAX -> leftNumber.doubleValue() >= rightNumber.doubleValue() ? left : right;
+            case SUM, COUNT -> left instanceof Long && right instanceof Long
+                ? (Object) (leftNumber.longValue() + rightNumber.longValue())
+                : (Object) (leftNumber.doubleValue() + rightNumber.doubleValue());
+            case MEAN, MEDIAN -> (leftNumber.doubleValue() + rightNumber.doubleValue()) / 2;
+            case FIRST, LAST -> left;
+        };
+    }
+
+    /**
+     * @param name the Flux name of the aggregate, case insensitive
+     * @return the aggregate
+     * @throws IllegalArgumentException if the name is not an allowed aggregate
+     */
+    public static AggregateFunction fromName(String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+}
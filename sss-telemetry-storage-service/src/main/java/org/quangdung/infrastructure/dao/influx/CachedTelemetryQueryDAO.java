@@ -0,0 +1,277 @@
+package org.quangdung.infrastructure.dao.influx;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+import org.quangdung.core.metric.MetricService;
+import org.quangdung.infrastructure.dao.influx.InfluxShard.TelemetryPoint;
+import org.quangdung.infrastructure.entity.influx.TelemetryPointEntity;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+
+import io.micrometer.core.instrument.Counter;
+import io.smallrye.mutiny.Multi;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Telemetry queries served from a cache of aligned time buckets, for dashboards repeating the same query every
+ * few seconds. A query is split into buckets of windows-per-bucket aggregation windows, aligned to the epoch like
+ * the windows of aggregateWindow, and each bucket is cached per (device, field, aggregate, window, bucket start):
+ * - closed buckets, which ended more than close-delay ago, are read from InfluxDB once and then served from memory
+ *   until their TTL; the close delay leaves late points of devices time to arrive before a bucket is frozen
+ * - the open bucket holding the live edge is always queried and never cached
+ * Points arriving later than that (replayed from the ingestor's publish spool or from the local InfluxDB write
+ * buffer after an outage) drop the closed buckets they change once InfluxDB has stored them: the buckets of their
+ * device over their time span, or every bucket for write buffer batches, whose points are only known as text.
+ * A bucket whose load overlapped such a drop is served but not cached.
+ * Buckets only partly inside the requested range are loaded whole and trimmed, so that shifting a range reuses them.
+ * The cache is bounded by an estimate of its memory use rather than by its number of entries.
+ */
+@ApplicationScoped
+public class CachedTelemetryQueryDAO {
+    private static final String CACHE_NAME = "telemetry-query-cache";
+    // Cache key used when a query does not select fields
+    private static final String ALL_FIELDS = "*";
+    // Estimated heap use of a cached point (entity, Instant, boxed value, list slot) and of a key with its list
+    private static final int POINT_WEIGHT_BYTES = 96;
+    private static final int ENTRY_WEIGHT_BYTES = 160;
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+
+    @Inject
+    private Logger log;
+
+    @Inject
+    InfluxDAO influxDAO;
+
+    @Inject
+    private MetricService metricsService;
+
+    @Inject
+    @ConfigProperty(name = "telemetry.query.cache.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @Inject
+    @ConfigProperty(name = "telemetry.query.cache.max-memory-mb", defaultValue = "64")
+    long maxMemoryMb;
+
+    @Inject
+    @ConfigProperty(name = "telemetry.query.cache.ttl", defaultValue = "24h")
+    Duration ttl;
+
+    @Inject
+    @ConfigProperty(name = "telemetry.query.cache.windows-per-bucket", defaultValue = "100")
+    int windowsPerBucket;
+
+    @Inject
+    @ConfigProperty(name = "telemetry.query.cache.close-delay", defaultValue = "1m")
+    Duration closeDelay;
+
+    private Cache<BucketKey, List<TelemetryPointEntity>> buckets;
+    // Incremented by every drop of late buckets, so that loads started before it do not cache stale results
+    private final AtomicLong generation = new AtomicLong();
+
+    private Counter hits;
+    private Counter misses;
+    private Counter liveQueries;
+    private Counter lateInvalidations;
+    private Counter[] evictions; // indexed by RemovalCause ordinal
+
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            log.info("Telemetry query cache disabled");
+            return;
+        }
+        hits = cacheRequests("hit");
+        misses = cacheRequests("miss");
+        liveQueries = cacheRequests("live");
+        lateInvalidations = metricsService.counter("telemetry_query_cache_late_invalidations_total", "cache", CACHE_NAME);
+        RemovalCause[] causes = RemovalCause.values();
+        evictions = new Counter[causes.length];
+        for (RemovalCause cause : causes) {
+            evictions[cause.ordinal()] = metricsService.counter("telemetry_query_cache_evictions_total",
+                                                                "cache", CACHE_NAME,
+                                                                "cause", cause.name().toLowerCase());
+        }
+
+        buckets = Caffeine.newBuilder()
+            .maximumWeight(maxMemoryMb * 1024 * 1024)
+            .<BucketKey, List<TelemetryPointEntity>>weigher((key, points) ->
+                ENTRY_WEIGHT_BYTES + points.size() * POINT_WEIGHT_BYTES)
+            .expireAfterWrite(ttl)
+            .<BucketKey, List<TelemetryPointEntity>>removalListener((key, points, cause) -> {
+                // Replacements and explicit invalidations are not evictions
+                if (cause.wasEvicted()) {
+                    evictions[cause.ordinal()].increment();
+                }
+            })
+            .build();
+        metricsService.registerGauge("telemetry_query_cache_size", buckets, cache -> cache.estimatedSize(),
+                                     "cache", CACHE_NAME);
+        metricsService.registerGauge("telemetry_query_cache_weight_bytes", buckets,
+                                     cache -> cache.policy().eviction()
+                                         .map(eviction -> eviction.weightedSize().orElse(0))
+                                         .orElse(0L),
+                                     "cache", CACHE_NAME);
+        influxDAO.addWriteListener(new InfluxWriteListener() {
+            @Override
+            public void written(List<TelemetryPoint> points) {
+                invalidateLate(points);
+            }
+
+            @Override
+            public void replayed() {
+                generation.incrementAndGet();
+                lateInvalidations.increment();
+                buckets.invalidateAll();
+            }
+        });
+        log.infof("Telemetry query cache enabled (max memory: %d MB, TTL: %s, windows per bucket: %d, close delay: %s)",
+                  maxMemoryMb, ttl, windowsPerBucket, closeDelay);
+    }
+
+    /**
+     * Drops the closed buckets that points written after their close delay change. Points are late only after
+     * an outage, so the cache is scanned only for those batches, once per batch.
+     */
+    private void invalidateLate(List<TelemetryPoint> points) {
+        long closedBeforeNanos = (System.currentTimeMillis() - closeDelay.toMillis()) * NANOS_PER_MILLI;
+        // Time span of the late points of each device, in milliseconds
+        Map<String, long[]> lateSpans = null;
+        for (TelemetryPoint point : points) {
+            long timestamp = point.data().getTimestamp();
+            if (timestamp >= closedBeforeNanos) {
+                continue;
+            }
+            if (lateSpans == null) {
+                lateSpans = new HashMap<>();
+            }
+            long millis = Math.floorDiv(timestamp, NANOS_PER_MILLI);
+            long[] span = lateSpans.computeIfAbsent(point.data().getClientId(), clientId -> new long[]{millis, millis});
+            span[0] = Math.min(span[0], millis);
+            span[1] = Math.max(span[1], millis);
+        }
+        if (lateSpans == null) {
+            return;
+        }
+        generation.incrementAndGet();
+        lateInvalidations.increment();
+        Map<String, long[]> spans = lateSpans;
+        buckets.asMap().keySet().removeIf(key -> {
+            long[] span = spans.get(key.clientId());
+            return span != null && key.bucketStartMillis() <= span[1]
+                && key.bucketStartMillis() + key.everyMillis() * windowsPerBucket > span[0];
+        });
+    }
+
+    /**
+     * Same query as InfluxDAO.queryTelemetry, with the range widened to whole windows and closed buckets served
+     * from the cache
+     * @return the points, bucket after bucket in time order, grouped by field within a bucket
+     */
+    public Multi<TelemetryPointEntity> queryTelemetry(String measurement, String clientId, Instant start, Instant stop,
+                                                      Duration every, AggregateFunction function, List<String> fields) {
+        if (!enabled) {
+            return influxDAO.queryTelemetry(measurement, clientId, start, stop, every, function, fields);
+        }
+        long everyMillis = every.toMillis();
+        long bucketMillis = everyMillis * windowsPerBucket;
+        long rangeStart = Math.floorDiv(start.toEpochMilli(), everyMillis) * everyMillis;
+        long rangeStop = Math.floorDiv(stop.toEpochMilli() + everyMillis - 1, everyMillis) * everyMillis;
+        long closedBefore = System.currentTimeMillis() - closeDelay.toMillis();
+
+        List<long[]> bucketRanges = new ArrayList<>();
+        for (long bucketStart = Math.floorDiv(rangeStart, bucketMillis) * bucketMillis; bucketStart < rangeStop;
+             bucketStart += bucketMillis) {
+            bucketRanges.add(new long[]{bucketStart, bucketStart + bucketMillis});
+        }
+        return Multi.createFrom().iterable(bucketRanges)
+            .concatMap(bucket -> {
+                long bucketStart = bucket[0];
+                long bucketStop = bucket[1];
+                if (bucketStop > closedBefore) {
+                    liveQueries.increment();
+                    return influxDAO.queryTelemetry(measurement, clientId,
+                                                    Instant.ofEpochMilli(Math.max(bucketStart, rangeStart)),
+                                                    Instant.ofEpochMilli(Math.min(bucketStop, rangeStop)),
+                                                    every, function, fields);
+                }
+                return closedBucket(measurement, clientId, bucketStart, everyMillis, bucketMillis, function, fields)
+                    .select().where(point -> isInRange(point, everyMillis, rangeStart, rangeStop));
+            });
+    }
+
+    /**
+     * Serves a closed bucket from the cache, loading the fields it misses with one query
+     */
+    private Multi<TelemetryPointEntity> closedBucket(String measurement, String clientId, long bucketStart,
+                                                     long everyMillis, long bucketMillis, AggregateFunction function,
+                                                     List<String> fields) {
+        List<String> keyFields = fields.isEmpty() ? List.of(ALL_FIELDS) : fields;
+        Map<String, List<TelemetryPointEntity>> cached = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String field : keyFields) {
+            List<TelemetryPointEntity> points = buckets.getIfPresent(
+                new BucketKey(measurement, clientId, field, function, everyMillis, bucketStart));
+            if (points != null) {
+                hits.increment();
+                cached.put(field, points);
+            } else {
+                misses.increment();
+                missing.add(field);
+            }
+        }
+        if (missing.isEmpty()) {
+            return Multi.createFrom().iterable(keyFields).onItem()
+                .transformToIterable(cached::get);
+        }
+
+        List<String> queriedFields = fields.isEmpty() ? List.of() : missing;
+        long loadGeneration = generation.get();
+        return influxDAO.queryTelemetry(measurement, clientId, Instant.ofEpochMilli(bucketStart),
+                                        Instant.ofEpochMilli(bucketStart + bucketMillis), Duration.ofMillis(everyMillis),
+                                        function, queriedFields)
+            .collect().asList()
+            .onItem().transformToMulti(loaded -> {
+                for (String field : missing) {
+                    List<TelemetryPointEntity> points = field.equals(ALL_FIELDS)
+                        ? loaded
+                        : loaded.stream().filter(point -> field.equals(point.getField())).toList();
+                    // Fields without data are cached as empty too
+                    if (generation.get() == loadGeneration) {
+                        buckets.put(new BucketKey(measurement, clientId, field, function, everyMillis, bucketStart),
+                                    List.copyOf(points));
+                    }
+                    cached.put(field, points);
+                }
+                return Multi.createFrom().iterable(keyFields).onItem().transformToIterable(cached::get);
+            });
+    }
+
+    /**
+     * A point is the end of its window: it is kept if the whole window lies in the requested range
+     */
+    private static boolean isInRange(TelemetryPointEntity point, long everyMillis, long rangeStart, long rangeStop) {
+        long windowStop = point.getTime().toEpochMilli();
+        return windowStop - everyMillis >= rangeStart && windowStop <= rangeStop;
+    }
+
+    private Counter cacheRequests(String result) {
+        return metricsService.counter("telemetry_query_cache_requests_total", "cache", CACHE_NAME, "result", result);
+    }
+
+    private record BucketKey(String measurement, String clientId, String field, AggregateFunction function,
+                             long everyMillis, long bucketStartMillis) {
+    }
+}
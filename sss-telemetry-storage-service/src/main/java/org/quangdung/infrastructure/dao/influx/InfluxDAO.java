@@ -1,25 +1,70 @@
 package org.quangdung.infrastructure.dao.influx;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+import org.eclipse.microprofile.config.Config;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.logging.Logger;
+import org.quangdung.core.hash.ConsistentHashRing;
+import org.quangdung.core.metric.MetricService;
+import org.quangdung.infrastructure.dao.influx.InfluxShard.TelemetryPoint;
+import org.quangdung.infrastructure.entity.influx.TagStrategy;
+import org.quangdung.infrastructure.entity.influx.TelemetryDataEntity;
+import org.quangdung.infrastructure.entity.influx.TelemetryPointEntity;
+import org.quangdung.infrastructure.entity.influx.TelemetryRecordEntity;
 
-import com.influxdb.client.InfluxDBClient;
-import com.influxdb.client.InfluxDBClientFactory;
-import com.influxdb.client.WriteApiBlocking;
-import com.influxdb.client.domain.WritePrecision;
+import com.influxdb.Cancellable;
+import com.influxdb.query.FluxRecord;
+import com.influxdb.query.dsl.Flux;
+import com.influxdb.query.dsl.functions.restriction.Restrictions;
 
+import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
-import io.smallrye.mutiny.infrastructure.Infrastructure;
+import io.smallrye.mutiny.subscription.MultiEmitter;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 
+/**
+ * Reads and writes telemetry in InfluxDB, spread over one or more shards (endpoint and bucket pairs).
+ * Points are routed to a shard by a consistent hash of their deviceUuid, so that all points of a device land on
+ * the same shard and adding a shard only moves about 1/N of the devices to it. Points written before a device
+ * moved stay on its previous shard, so queries ask every shard and merge their results.
+ * Without influxClient.shards, a single shard is built from influxClient.url, token, org and bucketName.
+ */
 @ApplicationScoped
 public class InfluxDAO {
+    private static final long DEMAND_WAIT_MS = 100;
+    // Shard names become directory names of their write buffer
+    private static final Pattern SHARD_NAME = Pattern.compile("[A-Za-z0-9_-]+");
+
     @Inject
     private Logger log;
 
+    @Inject
+    private MetricService metricsService;
+
+    @Inject
+    InfluxWriteBuffer writeBuffer;
+
+    @Inject
+    SeriesCardinalityTracker seriesTracker;
+
+    @Inject
+    Config config;
 
     @Inject
     @ConfigProperty(name = "influxClient.url")
@@ -37,34 +82,353 @@ public class InfluxDAO {
     @ConfigProperty(name = "influxClient.bucketName")
     String bucketName;
 
-    private InfluxDBClient influxDBClient;
+    @Inject
+    @ConfigProperty(name = "influxClient.shards")
+    Optional<List<String>> shardNames;
 
+    @Inject
+    @ConfigProperty(name = "influxClient.shard-virtual-nodes", defaultValue = "256")
+    int shardVirtualNodes;
 
+    @Inject
+    @ConfigProperty(name = "influxClient.gzip", defaultValue = "true")
+    boolean gzip;
+
+    @Inject
+    @ConfigProperty(name = "influxClient.tags.strategy", defaultValue = "all")
+    String tagStrategyName;
+
+    @Inject
+    @ConfigProperty(name = "influxClient.batch.max-size", defaultValue = "5000")
+    int batchMaxSize;
+
+    @Inject
+    @ConfigProperty(name = "influxClient.batch.max-delay-ms", defaultValue = "100")
+    long batchMaxDelayMs;
+
+    @Inject
+    @ConfigProperty(name = "influxClient.batch.max-in-flight", defaultValue = "4")
+    int batchMaxInFlight;
+
+    @Inject
+    @ConfigProperty(name = "influxClient.field-types.enabled", defaultValue = "true")
+    boolean fieldTypesEnabled;
+
+    @Inject
+    @ConfigProperty(name = "influxClient.field-types.seed-range", defaultValue = "7d")
+    Duration fieldTypesSeedRange;
+
+    @Inject
+    @ConfigProperty(name = "influxClient.field-types.max-fields-per-measurement", defaultValue = "10000")
+    int fieldTypesMaxFields;
+
+    private TagStrategy tagStrategy;
+    private final List<InfluxWriteListener> writeListeners = new CopyOnWriteArrayList<>();
+    private List<InfluxShard> shards;
+    private ConsistentHashRing<InfluxShard> shardRing;
 
     @PostConstruct
     private void init(){
         log.info("Initializing InfluxDB connection");
-        log.info(bucketName);
-        this.influxDBClient = InfluxDBClientFactory.create(url, token.toCharArray(), org, bucketName);
-    }
-
-    public Uni<Void> createTelemetryDataByLineProtocol(String line){
-        return Uni.createFrom().voidItem()
-            .runSubscriptionOn(Infrastructure.getDefaultWorkerPool()) 
-            .onItem().invoke(() -> {
-                log.info("Writing telemetry data to InfluxDB: " +line);
-                WriteApiBlocking writeApi = influxDBClient.getWriteApiBlocking();
-                writeApi.writeRecord(WritePrecision.NS, line);
-            })
-            .onFailure().invoke(failure -> {
-                // It's good practice to handle potential errors from the DAO
-                log.error("Failed to write to InfluxDB", failure);
+        try {
+            tagStrategy = TagStrategy.fromName(tagStrategyName);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Unknown InfluxDB tag strategy: " + tagStrategyName, e);
+        }
+        Map<String, InfluxShard> shardsByName = new LinkedHashMap<>();
+        if (shardNames.isEmpty() || shardNames.get().isEmpty()) {
+            shardsByName.put(InfluxShard.DEFAULT_SHARD, openShard(InfluxShard.DEFAULT_SHARD, url, token, org, bucketName));
+        } else {
+            for (String name : shardNames.get()) {
+                if (!SHARD_NAME.matcher(name).matches() || shardsByName.containsKey(name)) {
+                    throw new IllegalStateException("Invalid or duplicate InfluxDB shard name: " + name);
+                }
+                String prefix = "influxClient.shard." + name + ".";
+                shardsByName.put(name, openShard(name,
+                    config.getValue(prefix + "url", String.class),
+                    config.getOptionalValue(prefix + "token", String.class).orElse(token),
+                    config.getOptionalValue(prefix + "org", String.class).orElse(org),
+                    config.getOptionalValue(prefix + "bucket", String.class).orElse(bucketName)));
+            }
+        }
+        shards = List.copyOf(shardsByName.values());
+        shardRing = new ConsistentHashRing<>(shardsByName, shardVirtualNodes);
+        log.infof("InfluxDB writes spread over %d shard(s): %s", shards.size(), shardsByName.keySet());
+    }
+
+    private InfluxShard openShard(String name, String shardUrl, String shardToken, String shardOrg, String bucket) {
+        return new InfluxShard(name, new InfluxShard.Settings(shardUrl, shardToken, shardOrg, bucket, gzip, tagStrategy,
+                                                              batchMaxSize, batchMaxDelayMs, batchMaxInFlight,
+                                                              new InfluxShard.FieldTypeSettings(fieldTypesEnabled,
+                                                                  fieldTypesSeedRange, fieldTypesMaxFields)),
+                               writeBuffer, seriesTracker, writeListeners, metricsService, log);
+    }
+
+    /**
+     * Registers a listener told about the points of every shard once they are stored
+     */
+    void addWriteListener(InfluxWriteListener listener) {
+        writeListeners.add(listener);
+    }
+
+    /**
+     * @return the shard a device's points are written to, by deviceUuid (clientId for points without one)
+     */
+    private InfluxShard shardOf(TelemetryDataEntity telemetryData) {
+        if (shards.size() == 1) {
+            return shards.get(0);
+        }
+        String key = telemetryData.getDeviceUuid() != null ? telemetryData.getDeviceUuid() : telemetryData.getClientId();
+        return shardRing.get(key != null ? key : "");
+    }
+
+    /**
+     * Queues a point for the next batch write of its shard
+     * @param measurement the measurement to write the point into
+     * @param telemetryData the point, with a nanosecond timestamp; points without any valid field are not written
+     * @return Uni completing once the batch containing the point has been accepted by InfluxDB or kept in the
+     *         write buffer, or failing with the error of that batch write
+     */
+    public Uni<Void> createTelemetryData(String measurement, TelemetryDataEntity telemetryData) {
+        return shardOf(telemetryData).submit(new TelemetryPoint(measurement, telemetryData));
+    }
+
+    /**
+     * Writes points that are already batched by the caller with a single request per shard, bypassing the point
+     * batchers
+     * @param measurement the measurement to write the points into
+     * @param telemetryData the points, with nanosecond timestamps
+     * @return Uni completing once every shard has accepted its points or kept them in its write buffer
+     */
+    public Uni<Void> createTelemetryData(String measurement, List<TelemetryDataEntity> telemetryData) {
+        if (telemetryData.isEmpty()) {
+            return Uni.createFrom().voidItem();
+        }
+        if (shards.size() == 1) {
+            return shards.get(0).writeBatch(telemetryData.stream()
+                .map(data -> new TelemetryPoint(measurement, data))
+                .toList());
+        }
+        Map<InfluxShard, List<TelemetryPoint>> pointsByShard = new LinkedHashMap<>();
+        for (TelemetryDataEntity data : telemetryData) {
+            pointsByShard.computeIfAbsent(shardOf(data), shard -> new ArrayList<>())
+                .add(new TelemetryPoint(measurement, data));
+        }
+        List<Uni<Void>> writes = new ArrayList<>(pointsByShard.size());
+        pointsByShard.forEach((shard, points) -> writes.add(shard.writeBatch(points)));
+        return Uni.join().all(writes).andCollectFailures().replaceWithVoid();
+    }
+
+    /**
+     * Queries the fields of one device over a time range, downsampled by InfluxDB with aggregateWindow
+     * so that at most one point per field and window leaves the database: the series of a field (one per tag set,
+     * several once the device was renamed or the tag strategy changed) are grouped by field first. Numeric
+     * aggregates read the values as floats, as integer and float series of a field cannot share a table.
+     * With one shard, records are streamed as InfluxDB returns them (ordered by field, then time) and are not
+     * collected. With several, the (bounded) results of every shard are collected and merged per field and window,
+     * ordered by field, then time
+     * @param measurement the measurement to read
+     * @param clientId client ID of the device
+     * @param start start of the range, inclusive
+     * @param stop end of the range, exclusive
+     * @param every window length
+     * @param function aggregate applied to each window; numeric aggregates skip non-numeric fields
+     * @param fields fields to read, all fields when empty
+     * @return the points; cancelling the subscription cancels the query
+     */
+    public Multi<TelemetryPointEntity> queryTelemetry(String measurement, String clientId, Instant start, Instant stop,
+                                            Duration every, AggregateFunction function, List<String> fields) {
+        Function<InfluxShard, Multi<TelemetryPointEntity>> shardQuery = shard -> {
+            Flux flux = Flux.from(shard.bucket())
+                .range(start, stop)
+                .filter(deviceRestriction(measurement, List.of(clientId), fields));
+            if (function.isNumeric()) {
+                flux = flux
+                    .expression("filter(fn: (r) => types.isNumeric(v: r._value))")
+                    .expression("toFloat()");
+            }
+            flux = flux
+                .groupBy("_field")
+                .aggregateWindow(every.toMillis(), ChronoUnit.MILLIS, function.fluxName())
+                .keep(new String[]{"_time", "_field", "_value"});
+            String query = function.isNumeric() ? "import \"types\"\n" + flux : flux.toString();
+            return query(shard, query)
+                .map(record -> new TelemetryPointEntity(record.getTime(), record.getField(), record.getValue()));
+        };
+        if (shards.size() == 1) {
+            return shardQuery.apply(shards.get(0));
+        }
+        List<Uni<List<TelemetryPointEntity>>> results = shards.stream()
+            .map(shard -> shardQuery.apply(shard).collect().asList())
+            .toList();
+        return Uni.join().all(results).andFailFast()
+            .onItem().transformToMulti(shardPoints -> Multi.createFrom().iterable(mergeWindows(shardPoints, function)));
+    }
+
+    /**
+     * Merges the windows several shards returned for one device. A window only has data on more than one shard
+     * when the device moved between shards within it; the values are then combined with AggregateFunction.combine
+     */
+    private static List<TelemetryPointEntity> mergeWindows(List<List<TelemetryPointEntity>> shardPoints,
+                                                           AggregateFunction function) {
+        Map<String, TreeMap<Instant, Object>> windowsByField = new TreeMap<>();
+        int pointCount = 0;
+        for (List<TelemetryPointEntity> points : shardPoints) {
+            for (TelemetryPointEntity point : points) {
+                TreeMap<Instant, Object> windows = windowsByField.computeIfAbsent(point.getField(), field -> new TreeMap<>());
+                // Windows without data come back as null values, which must not hide another shard's value
+                if (!windows.containsKey(point.getTime())) {
+                    windows.put(point.getTime(), point.getValue());
+                    pointCount++;
+                } else {
+                    windows.put(point.getTime(), function.combine(windows.get(point.getTime()), point.getValue()));
+                }
+            }
+        }
+        List<TelemetryPointEntity> merged = new ArrayList<>(pointCount);
+        windowsByField.forEach((field, windows) -> windows.forEach((time, value) ->
+            merged.add(new TelemetryPointEntity(time, field, value))));
+        return merged;
+    }
+
+    /**
+     * Lists the fields a device wrote over a time range
+     * @param measurement the measurement to read
+     * @param clientId client ID of the device
+     * @param start start of the range, inclusive
+     * @param stop end of the range, exclusive
+     * @return the field names, streamed, each once even if several shards hold it
+     */
+    public Multi<String> queryFieldKeys(String measurement, String clientId, Instant start, Instant stop) {
+        Multi<String> fieldKeys = Multi.createFrom().iterable(shards).onItem().transformToMultiAndMerge(shard -> {
+            Flux flux = Flux.from(shard.bucket())
+                .range(start, stop)
+                .filter(deviceRestriction(measurement, List.of(clientId), List.of()))
+                .keep(new String[]{"_field"})
+                .groupBy("_field")
+                .distinct("_field");
+            return query(shard, flux.toString()).map(record -> String.valueOf(record.getValue()));
         });
+        return shards.size() == 1 ? fieldKeys : fieldKeys.select().distinct();
+    }
+
+    /**
+     * Streams the raw points of devices over a time range, for exports, with the device tags they were written
+     * with (only clientId with the identity tag strategy, TelemetryQueryService then fills deviceUuid and deviceName
+     * in from the device registry). The response is read only as fast as
+     * the subscriber requests records, so memory use does not depend on the size of the range.
+     * Shards are read one after the other; a point lives on a single shard, so nothing needs merging
+     * @param measurement the measurement to read
+     * @param clientIds client IDs of the devices, all devices when empty
+     * @param start start of the range, inclusive
+     * @param stop end of the range, exclusive
+     * @param fields fields to read, all fields when empty
+     * @return the points, shard by shard and within a shard series by series (device and field) in time order;
+     *         cancelling the subscription cancels the query
+     */
+    public Multi<TelemetryRecordEntity> exportTelemetry(String measurement, List<String> clientIds, Instant start,
+                                                        Instant stop, List<String> fields) {
+        return Multi.createFrom().iterable(shards).onItem().transformToMultiAndConcatenate(shard -> {
+            Flux flux = Flux.from(shard.bucket())
+                .range(start, stop)
+                .filter(deviceRestriction(measurement, clientIds, fields))
+                .keep(new String[]{"_time", "_field", "_value", "clientId", "deviceUuid", "deviceName"});
+            return query(shard, flux.toString()).map(record -> TelemetryRecordEntity.builder()
+                .time(record.getTime())
+                .clientId(tagValue(record, "clientId"))
+                .deviceUuid(tagValue(record, "deviceUuid"))
+                .deviceName(tagValue(record, "deviceName"))
+                .field(record.getField())
+                .value(record.getValue())
+                .build());
+        });
+    }
+
+    private static String tagValue(FluxRecord record, String tag) {
+        Object value = record.getValueByKey(tag);
+        return value != null ? value.toString() : null;
+    }
+
+    private static Restrictions deviceRestriction(String measurement, List<String> clientIds, List<String> fields) {
+        List<Restrictions> restrictions = new ArrayList<>();
+        restrictions.add(Restrictions.measurement().equal(measurement));
+        if (!clientIds.isEmpty()) {
+            restrictions.add(Restrictions.or(clientIds.stream()
+                .map(clientId -> Restrictions.tag("clientId").equal(clientId))
+                .toArray(Restrictions[]::new)));
+        }
+        if (!fields.isEmpty()) {
+            restrictions.add(Restrictions.or(fields.stream()
+                .map(field -> Restrictions.field().equal(field))
+                .toArray(Restrictions[]::new)));
+        }
+        return Restrictions.and(restrictions.toArray(Restrictions[]::new));
+    }
+
+    /**
+     * Runs a query with the client's asynchronous callback API and emits its records one by one,
+     * so the result is never held in memory as a whole.
+     * Records are only emitted on demand: without demand the client's response thread waits, which stops
+     * the response from being read and lets TCP flow control hold InfluxDB back.
+     */
+    private Multi<FluxRecord> query(InfluxShard shard, String query) {
+        log.debugf("Querying InfluxDB shard %s:%n%s", shard.name(), query);
+        return Multi.createFrom().emitter(emitter -> {
+            Object demandSignal = new Object();
+            AtomicReference<Cancellable> running = new AtomicReference<>();
+            emitter.onRequest(requested -> signal(demandSignal));
+            emitter.onCancellation(() -> {
+                Cancellable cancellable = running.get();
+                if (cancellable != null && !cancellable.isCancelled()) {
+                    cancellable.cancel();
+                }
+                signal(demandSignal);
+            });
+            shard.client().getQueryApi().query(query,
+                (cancellable, record) -> {
+                    running.set(cancellable);
+                    if (awaitDemand(emitter, demandSignal)) {
+                        emitter.emit(record);
+                    } else {
+                        cancellable.cancel();
+                    }
+                },
+                failure -> {
+                    log.errorf(failure, "InfluxDB query on shard %s failed", shard.name());
+                    emitter.fail(failure);
+                },
+                emitter::complete);
+        });
+    }
+
+    /**
+     * Blocks the calling (client response) thread until the subscriber requests records
+     * @return false if the subscription was cancelled meanwhile
+     */
+    private static boolean awaitDemand(MultiEmitter<?> emitter, Object demandSignal) {
+        synchronized (demandSignal) {
+            while (emitter.requested() == 0 && !emitter.isCancelled()) {
+                try {
+                    // Timed, in case a request is signalled between the check and the wait
+                    demandSignal.wait(DEMAND_WAIT_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return !emitter.isCancelled();
+    }
+
+    private static void signal(Object demandSignal) {
+        synchronized (demandSignal) {
+            demandSignal.notifyAll();
+        }
     }
 
     @PreDestroy
     private void close(){
-        log.info("Closing InfluxDB connection");
-        influxDBClient.close();
+        log.info("Flushing pending InfluxDB writes and closing InfluxDB connections");
+        shards.forEach(InfluxShard::close);
     }
 }
@@ -0,0 +1,109 @@
+package org.quangdung.infrastructure.dao.influx;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.zip.GZIPOutputStream;
+
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Posts line protocol to the InfluxDB v2 write endpoint straight from a byte buffer.
+ * The client library only takes text, so writing through it copied every batch into a String and encoded it back
+ * into bytes; here the encoder's buffer is the request body (or the input of the gzip stream) as it is.
+ */
+final class InfluxLineWriter {
+    // The client library's default read and write timeout
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private final HttpClient httpClient;
+    private final URI writeUri;
+    private final String authorization;
+    private final boolean gzip;
+    // Reused compression buffers of the writer threads
+    private final ThreadLocal<GzipBuffer> gzipBuffers = ThreadLocal.withInitial(GzipBuffer::new);
+
+    InfluxLineWriter(String url, String token, String org, String bucket, boolean gzip) {
+        String base = url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+        this.writeUri = URI.create(base + "/api/v2/write?org=" + URLEncoder.encode(org, StandardCharsets.UTF_8)
+                                   + "&bucket=" + URLEncoder.encode(bucket, StandardCharsets.UTF_8)
+                                   + "&precision=ns");
+        this.authorization = "Token " + token;
+        this.gzip = gzip;
+        this.httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(TIMEOUT)
+            .build();
+    }
+
+    /**
+     * Writes newline separated line protocol points, blocking until InfluxDB has answered
+     * @param lineProtocol buffer holding the points, not kept after the call
+     * @param length number of bytes of the buffer to write
+     * @throws InfluxWriteException if the write failed or InfluxDB did not accept it
+     */
+    void write(byte[] lineProtocol, int length) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(writeUri)
+            .timeout(TIMEOUT)
+            .header("Authorization", authorization)
+            .header("Content-Type", "text/plain; charset=utf-8");
+        byte[] body = lineProtocol;
+        int bodyLength = length;
+        if (gzip) {
+            GzipBuffer buffer = gzipBuffers.get();
+            buffer.compress(lineProtocol, length);
+            body = buffer.array();
+            bodyLength = buffer.size();
+            request.header("Content-Encoding", "gzip");
+        }
+        HttpResponse<String> response;
+        try {
+            response = httpClient.send(request.POST(HttpRequest.BodyPublishers.ofByteArray(body, 0, bodyLength))
+                                           .build(),
+                                       HttpResponse.BodyHandlers.ofString());
+        } catch (IOException e) {
+            throw new InfluxWriteException(0, "Failed to write to " + writeUri + ": " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InfluxWriteException(0, "Interrupted while writing to " + writeUri, e);
+        }
+        if (response.statusCode() / 100 != 2) {
+            throw new InfluxWriteException(response.statusCode(), errorMessage(response.body()), null);
+        }
+    }
+
+    /**
+     * @return the message of an InfluxDB error body ({"code": ..., "message": ...}), the body itself otherwise
+     */
+    private static String errorMessage(String body) {
+        try {
+            String message = new JsonObject(body).getString("message");
+            return message != null ? message : body;
+        } catch (DecodeException | ClassCastException e) {
+            return body;
+        }
+    }
+
+    private static final class GzipBuffer extends ByteArrayOutputStream {
+        void compress(byte[] bytes, int length) {
+            reset();
+            try (GZIPOutputStream gzipStream = new GZIPOutputStream(this, 8192)) {
+                gzipStream.write(bytes, 0, length);
+            } catch (IOException e) {
+                // Not thrown by an in-memory stream
+                throw new IllegalStateException(e);
+            }
+        }
+
+        byte[] array() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,370 @@
+package org.quangdung.infrastructure.dao.influx;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.logging.Logger;
+import org.quangdung.core.batch.MicroBatcher;
+import org.quangdung.core.metric.MetricService;
+import org.quangdung.core.utils.line_protocol.FieldType;
+import org.quangdung.core.utils.line_protocol.FieldTypeRegistry;
+import org.quangdung.core.utils.line_protocol.LineProtocolEncoder;
+import org.quangdung.infrastructure.entity.influx.TagStrategy;
+import org.quangdung.infrastructure.entity.influx.TelemetryDataEntity;
+
+import com.influxdb.client.InfluxDBClient;
+import com.influxdb.client.InfluxDBClientFactory;
+import com.influxdb.client.domain.HealthCheck;
+import com.influxdb.query.FluxRecord;
+import com.influxdb.query.FluxTable;
+import com.influxdb.query.dsl.Flux;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.smallrye.mutiny.Uni;
+
+/**
+ * One InfluxDB endpoint and bucket points are written to, with its own batch queue, writer threads and
+ * write buffer (and so its own health state): a slow or failing shard does not hold back the others.
+ */
+final class InfluxShard {
+    /**
+     * Name of the only shard when no shards are configured
+     */
+    static final String DEFAULT_SHARD = "default";
+
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+    // Initial size of the per-writer batch buffer, about 200 bytes per point
+    private static final int ENCODER_INITIAL_CAPACITY = 256 * 1024;
+    // Type of the last value of each series, in the names of FieldType.fromInfluxName
+    private static final String FIELD_TYPE_EXPRESSION = "map(fn: (r) => ({_measurement: r._measurement, "
+        + "_field: r._field, _value: if types.isType(v: r._value, type: \"float\") then \"float\" "
+        + "else if types.isType(v: r._value, type: \"int\") then \"integer\" "
+        + "else if types.isType(v: r._value, type: \"bool\") then \"boolean\" "
+        + "else if types.isType(v: r._value, type: \"string\") then \"string\" else \"unsigned\"}))";
+
+    /**
+     * Connection and batching settings of a shard
+     */
+    record Settings(String url, String token, String org, String bucket, boolean gzip, TagStrategy tagStrategy,
+                    int batchMaxSize, long batchMaxDelayMs, int batchMaxInFlight, FieldTypeSettings fieldTypes) {
+    }
+
+    /**
+     * Field type coercion settings of a shard
+     * @param seedRange how far back the field types are read from InfluxDB at startup
+     */
+    record FieldTypeSettings(boolean enabled, Duration seedRange, int maxFieldsPerMeasurement) {
+    }
+
+    private final String name;
+    private final String bucket;
+    private final TagStrategy tagStrategy;
+    private final SeriesCardinalityTracker seriesTracker;
+    private final List<InfluxWriteListener> writeListeners;
+    private final Logger log;
+    private final InfluxDBClient influxDBClient;
+    // Writes the encoded batches, the client is used for queries and health checks
+    private final InfluxLineWriter lineWriter;
+    private final InfluxWriteBuffer.ShardBuffer writeBuffer;
+    // Null when field type coercion is disabled
+    private final FieldTypeRegistry fieldTypes;
+
+    private final ScheduledExecutorService batchScheduler;
+    // One thread per in-flight batch: at most batchMaxInFlight write requests run at once, later batches queue
+    private final ExecutorService writerPool;
+    private final MicroBatcher<TelemetryPoint> pointBatcher;
+    // One reusable batch buffer per writer thread
+    private final ThreadLocal<LineProtocolEncoder> encoders =
+        ThreadLocal.withInitial(() -> new LineProtocolEncoder(ENCODER_INITIAL_CAPACITY));
+
+    private final Counter writtenPoints;
+    private final Counter rejectedPoints;
+    private final Counter fieldTypeConflicts;
+    private final Timer encodeTimer;
+    private final Timer writeTimer;
+    private final Timer failedWriteTimer;
+    private final DistributionSummary batchPointsHistogram;
+    private final DistributionSummary batchBytesHistogram;
+    // Batches queued for or being written on the writer pool
+    private final AtomicInteger batchesInFlight = new AtomicInteger();
+    // By from type, to type and lossy, see coercionIndex
+    private final Counter[] coercions = new Counter[FieldType.values().length * FieldType.values().length * 2];
+    // By from type and to type
+    private final Counter[] droppedValues = new Counter[FieldType.values().length * FieldType.values().length];
+
+    InfluxShard(String name, Settings settings, InfluxWriteBuffer writeBuffers, SeriesCardinalityTracker seriesTracker,
+                List<InfluxWriteListener> writeListeners, MetricService metricsService, Logger log) {
+        this.name = name;
+        this.bucket = settings.bucket();
+        this.tagStrategy = settings.tagStrategy();
+        this.seriesTracker = seriesTracker;
+        this.writeListeners = writeListeners;
+        this.log = log;
+        this.influxDBClient = InfluxDBClientFactory.create(settings.url(), settings.token().toCharArray(),
+                                                           settings.org(), settings.bucket());
+        if (settings.gzip()) {
+            influxDBClient.enableGzip();
+        }
+        this.lineWriter = new InfluxLineWriter(settings.url(), settings.token(), settings.org(), settings.bucket(),
+                                               settings.gzip());
+        writtenPoints = metricsService.counter("influx_write_points_total", "shard", name);
+        rejectedPoints = metricsService.counter("influx_write_rejected_points_total", "shard", name);
+        fieldTypeConflicts = metricsService.counter("influx_field_type_conflicts_total", "shard", name);
+        encodeTimer = metricsService.latencyTimer("influx_encode_duration", "shard", name);
+        writeTimer = metricsService.latencyTimer("influx_write_duration", "shard", name, "result", "success");
+        failedWriteTimer = metricsService.latencyTimer("influx_write_duration", "shard", name, "result", "failure");
+        batchPointsHistogram = metricsService.histogram("influx_write_batch_points", "shard", name);
+        batchBytesHistogram = metricsService.histogram("influx_write_batch_bytes", "shard", name);
+        metricsService.registerGauge("influx_write_batches_in_flight", batchesInFlight, AtomicInteger::get,
+                                     "shard", name);
+        fieldTypes = settings.fieldTypes().enabled() ? openFieldTypes(settings.fieldTypes(), metricsService) : null;
+
+        AtomicInteger writerCount = new AtomicInteger();
+        writerPool = Executors.newFixedThreadPool(settings.batchMaxInFlight(), runnable -> {
+            Thread thread = new Thread(runnable, "influx-batch-writer-" + name + "-" + writerCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        batchScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "influx-batch-flusher-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        pointBatcher = new MicroBatcher<>(settings.batchMaxSize(),
+                                          TimeUnit.MILLISECONDS.toNanos(settings.batchMaxDelayMs()),
+                                          batchScheduler, (points, trigger) -> writeBatch(points));
+        metricsService.registerGauge("influx_batch_pending_points", pointBatcher, MicroBatcher::pending, "shard", name);
+        this.writeBuffer = writeBuffers.open(name, new InfluxWriteBuffer.ReplayTarget() {
+            @Override
+            public boolean isHealthy() {
+                try {
+                    return influxDBClient.health().getStatus() == HealthCheck.StatusEnum.PASS;
+                } catch (RuntimeException e) {
+                    return false;
+                }
+            }
+
+            @Override
+            public void write(byte[] lineProtocol, int length) {
+                lineWriter.write(lineProtocol, length);
+                writeListeners.forEach(InfluxWriteListener::replayed);
+            }
+        });
+        log.infof("InfluxDB shard %s: %s, bucket %s (batch max size: %d, max delay: %d ms, max in flight: %d, gzip: %s, "
+                  + "tags: %s)", name, settings.url(), bucket, settings.batchMaxSize(), settings.batchMaxDelayMs(),
+                  settings.batchMaxInFlight(), settings.gzip(), tagStrategy);
+        if (fieldTypes != null) {
+            Duration seedRange = settings.fieldTypes().seedRange();
+            writerPool.execute(() -> seedFieldTypes(seedRange));
+        }
+    }
+
+    private FieldTypeRegistry openFieldTypes(FieldTypeSettings settings, MetricService metricsService) {
+        for (FieldType from : FieldType.values()) {
+            for (FieldType to : FieldType.values()) {
+                if (from == to) {
+                    continue;
+                }
+                for (boolean lossy : new boolean[]{false, true}) {
+                    coercions[coercionIndex(from, to, lossy)] = metricsService.counter("influx_field_coercions_total",
+                        "shard", name, "from", from.tagValue(), "to", to.tagValue(), "lossy", String.valueOf(lossy));
+                }
+                droppedValues[coercionIndex(from, to, false) / 2] = metricsService.counter(
+                    "influx_field_values_dropped_total", "shard", name, "from", from.tagValue(), "to", to.tagValue());
+            }
+        }
+        FieldTypeRegistry registry = new FieldTypeRegistry(settings.maxFieldsPerMeasurement(),
+            new FieldTypeRegistry.CoercionListener() {
+                @Override
+                public void coerced(FieldType from, FieldType to, boolean lossy) {
+                    coercions[coercionIndex(from, to, lossy)].increment();
+                }
+
+                @Override
+                public void dropped(FieldType from, FieldType to) {
+                    droppedValues[coercionIndex(from, to, false) / 2].increment();
+                }
+            });
+        metricsService.registerGauge("influx_field_types", registry, FieldTypeRegistry::size, "shard", name);
+        return registry;
+    }
+
+    private static int coercionIndex(FieldType from, FieldType to, boolean lossy) {
+        return (from.ordinal() * FieldType.values().length + to.ordinal()) * 2 + (lossy ? 1 : 0);
+    }
+
+    /**
+     * Reads the type of every field written to the bucket within the seed range, from the last value of each
+     * series, so that points are encoded with the types InfluxDB holds rather than with the types of the first
+     * values this instance sees. A field found with several types (its type changed between shard groups) is
+     * given the float type when it is one of them, as integers convert to floats without loss.
+     * Points written before the types are read are encoded with the types of their own values.
+     */
+    private void seedFieldTypes(Duration seedRange) {
+        try {
+            Flux flux = Flux.from(bucket)
+                .range(-seedRange.toSeconds(), ChronoUnit.SECONDS)
+                .last()
+                .expression(FIELD_TYPE_EXPRESSION)
+                .groupBy(new String[]{"_measurement", "_field"})
+                .distinct("_value");
+            List<FluxTable> tables = influxDBClient.getQueryApi().query("import \"types\"\n" + flux);
+            int seeded = 0;
+            for (FluxTable table : tables) {
+                FieldType seededType = null;
+                FluxRecord first = null;
+                for (FluxRecord record : table.getRecords()) {
+                    FieldType type = FieldType.fromInfluxName(String.valueOf(record.getValue()));
+                    if (type != null && (seededType == null || type == FieldType.FLOAT)) {
+                        seededType = type;
+                        first = record;
+                    }
+                }
+                if (seededType != null) {
+                    fieldTypes.establish(String.valueOf(first.getValueByKey("_measurement")), first.getField(),
+                                         seededType);
+                    seeded++;
+                }
+            }
+            log.infof("Read the types of %d fields from InfluxDB shard %s", seeded, name);
+        } catch (RuntimeException e) {
+            log.warnf(e, "Could not read the field types of InfluxDB shard %s, they are learnt from the points "
+                      + "written instead", name);
+        }
+    }
+
+    String name() {
+        return name;
+    }
+
+    String bucket() {
+        return bucket;
+    }
+
+    InfluxDBClient client() {
+        return influxDBClient;
+    }
+
+    /**
+     * Queues a point for the shard's next batch write
+     */
+    Uni<Void> submit(TelemetryPoint point) {
+        return pointBatcher.submit(point);
+    }
+
+    /**
+     * Encodes one batch into the writer thread's buffer and writes it in a single (gzip compressed) request
+     * on the writer pool.
+     * A batch that fails with a retryable error, or that arrives while InfluxDB is known to be down, is kept in the
+     * local write buffer and replayed later: the Uni then completes, it only fails if the buffer cannot keep it.
+     * A batch InfluxDB rejects for a field type conflict is encoded again with the types InfluxDB reported and
+     * written once more (InfluxDB stores the other points of a rejected batch, writing them again is harmless).
+     * A batch InfluxDB rejects as invalid otherwise is dropped and counted, retrying it would fail the same way.
+     */
+    Uni<Void> writeBatch(List<TelemetryPoint> points) {
+        return Uni.createFrom().voidItem()
+            .onSubscription().invoke(batchesInFlight::incrementAndGet)
+            .runSubscriptionOn(writerPool)
+            .onItem().invoke(() -> {
+                long startTime = System.nanoTime();
+                LineProtocolEncoder encoder = encoders.get();
+                encode(encoder, points);
+                if (encoder.pointCount() == 0) {
+                    return;
+                }
+                batchPointsHistogram.record(encoder.pointCount());
+                batchBytesHistogram.record(encoder.size());
+                seriesTracker.record(name, tagStrategy, points);
+                if (!writeBuffer.isInfluxAvailable()) {
+                    if (!writeBuffer.store(encoder)) {
+                        throw new IllegalStateException("InfluxDB shard " + name + " is unavailable and the write "
+                                                        + "buffer cannot keep " + encoder.pointCount() + " points");
+                    }
+                    return;
+                }
+                boolean reencoded = false;
+                while (true) {
+                    if (log.isTraceEnabled()) {
+                        log.tracef("Writing telemetry data to InfluxDB shard %s:%n%s", name, encoder);
+                    }
+                    long writeStart = System.nanoTime();
+                    try {
+                        lineWriter.write(encoder.array(), encoder.size());
+                        writeTimer.record(System.nanoTime() - writeStart, TimeUnit.NANOSECONDS);
+                        break;
+                    } catch (RuntimeException e) {
+                        failedWriteTimer.record(System.nanoTime() - writeStart, TimeUnit.NANOSECONDS);
+                        if (!InfluxWriteBuffer.isRetryable(e)) {
+                            if (!reencoded && fieldTypes != null && fieldTypes.learnConflicts(e.getMessage()) > 0) {
+                                log.warnf("InfluxDB shard %s rejected a field type: %s; writing the batch again with "
+                                          + "the established type", name, e.getMessage());
+                                fieldTypeConflicts.increment();
+                                reencoded = true;
+                                encode(encoder, points);
+                                continue;
+                            }
+                            log.errorf(e, "InfluxDB shard %s rejected batch of %d points, dropping it", name,
+                                       encoder.pointCount());
+                            rejectedPoints.increment(encoder.pointCount());
+                            return;
+                        }
+                        writeBuffer.markInfluxUnavailable(e);
+                        if (!writeBuffer.store(encoder)) {
+                            throw e;
+                        }
+                        log.debugf("Buffered batch of %d points locally after a failed write", encoder.pointCount());
+                        return;
+                    }
+                }
+                writtenPoints.increment(encoder.pointCount());
+                for (InfluxWriteListener listener : writeListeners) {
+                    listener.written(points);
+                }
+                log.debugf("Wrote batch of %d points (%d bytes) to InfluxDB shard %s in %d ms", encoder.pointCount(),
+                           encoder.size(), name, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+            })
+            .onFailure().invoke(failure -> {
+                log.errorf(failure, "Failed to write batch of %d points to InfluxDB shard %s", points.size(), name);
+            })
+            .onTermination().invoke(batchesInFlight::decrementAndGet);
+    }
+
+    private void encode(LineProtocolEncoder encoder, List<TelemetryPoint> points) {
+        long startTime = System.nanoTime();
+        encoder.reset();
+        for (TelemetryPoint point : points) {
+            point.data().writeLineProtocol(encoder, point.measurement(), tagStrategy, fieldTypes);
+        }
+        encodeTimer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Flushes the current batch onto the writer pool, which then drains before the client is closed
+     */
+    void close() {
+        log.infof("Flushing pending writes of InfluxDB shard %s", name);
+        pointBatcher.close();
+        batchScheduler.shutdown();
+        writerPool.shutdown();
+        try {
+            if (!writerPool.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                log.warnf("Writes to InfluxDB shard %s still pending after %d s, closing anyway", name,
+                          SHUTDOWN_TIMEOUT_SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        influxDBClient.close();
+    }
+
+    record TelemetryPoint(String measurement, TelemetryDataEntity data) {
+    }
+}
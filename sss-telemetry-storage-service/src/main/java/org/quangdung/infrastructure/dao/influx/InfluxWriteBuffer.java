@@ -0,0 +1,340 @@
+package org.quangdung.infrastructure.dao.influx;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+import org.quangdung.core.metric.MetricService;
+import org.quangdung.core.segment_log.SegmentLog;
+import org.quangdung.core.utils.line_protocol.LineProtocolEncoder;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Local durable buffer for InfluxDB writes that could not be delivered, so that an InfluxDB outage delays points
+ * instead of losing them. Every InfluxDB shard gets its own buffer, with its own segment log and health state.
+ * Batches whose write failed with a retryable error (anything but invalid data) are appended, as the line protocol
+ * that was sent, to a segment log on disk, and the shard is marked unavailable: from then on new batches go straight
+ * to the log without waiting on a failing InfluxDB, so consumption keeps up. A replayer checks the InfluxDB health
+ * every replay interval; once it passes, live writes resume and the log is replayed oldest segment first, with at
+ * most replay max-concurrency writes in flight. A segment is deleted once all its batches were written.
+ * Replaying a batch twice (after a crash or a failure within a segment) is harmless, since InfluxDB overwrites
+ * a point with the same series and timestamp. Batches InfluxDB rejects as invalid are logged and dropped.
+ */
+@ApplicationScoped
+public class InfluxWriteBuffer {
+    private static final long MEGABYTE = 1024L * 1024L;
+
+    /**
+     * Where buffered batches are replayed to
+     */
+    public interface ReplayTarget {
+        /**
+         * @return true if InfluxDB reports itself healthy
+         */
+        boolean isHealthy();
+
+        /**
+         * Writes newline separated line protocol points
+         * @param lineProtocol buffer holding the points, not kept after the call
+         * @param length number of bytes of the buffer to write
+         */
+        void write(byte[] lineProtocol, int length);
+    }
+
+    @Inject
+    private Logger log;
+
+    @Inject
+    private MetricService metricsService;
+
+    @Inject
+    @ConfigProperty(name = "influxClient.buffer.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @Inject
+    @ConfigProperty(name = "influxClient.buffer.directory", defaultValue = "data/influx-buffer")
+    String directory;
+
+    @Inject
+    @ConfigProperty(name = "influxClient.buffer.segment-size-mb", defaultValue = "16")
+    long segmentSizeMb;
+
+    @Inject
+    @ConfigProperty(name = "influxClient.buffer.max-size-mb", defaultValue = "1024")
+    long maxSizeMb;
+
+    @Inject
+    @ConfigProperty(name = "influxClient.buffer.fsync", defaultValue = "true")
+    boolean fsync;
+
+    @Inject
+    @ConfigProperty(name = "influxClient.buffer.replay.interval", defaultValue = "5s")
+    Duration replayInterval;
+
+    @Inject
+    @ConfigProperty(name = "influxClient.buffer.replay.max-concurrency", defaultValue = "2")
+    int replayMaxConcurrency;
+
+    private final List<ShardBuffer> shardBuffers = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService replayScheduler;
+    private ExecutorService replayPool;
+
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            log.warn("InfluxDB write buffer disabled, batches that fail to be written are not kept");
+            return;
+        }
+        AtomicInteger replayerCount = new AtomicInteger();
+        replayPool = Executors.newFixedThreadPool(replayMaxConcurrency, runnable -> {
+            Thread thread = new Thread(runnable, "influx-buffer-replayer-" + replayerCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        replayScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "influx-buffer-replay-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMs = replayInterval.toMillis();
+        // Shards are replayed one after the other
+        replayScheduler.scheduleWithFixedDelay(() -> shardBuffers.forEach(ShardBuffer::replay),
+                                               intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Opens the buffer of a shard, taking over what a previous run left in it, and starts replaying it
+     * @param shard name of the shard; the default shard keeps its segments in the buffer directory itself,
+     *              other shards in a subdirectory named after them
+     * @param target the shard's InfluxDB
+     * @return the shard's buffer, which keeps nothing if buffering is disabled
+     */
+    ShardBuffer open(String shard, ReplayTarget target) {
+        if (!enabled) {
+            return new ShardBuffer(shard, null, target);
+        }
+        Path shardDirectory = InfluxShard.DEFAULT_SHARD.equals(shard)
+            ? Path.of(directory)
+            : Path.of(directory, shard);
+        SegmentLog segmentLog;
+        try {
+            segmentLog = new SegmentLog(shardDirectory, segmentSizeMb * MEGABYTE, maxSizeMb * MEGABYTE, fsync);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open the InfluxDB write buffer in " + shardDirectory, e);
+        }
+        ShardBuffer shardBuffer = new ShardBuffer(shard, segmentLog, target);
+        shardBuffers.add(shardBuffer);
+        log.infof("InfluxDB write buffer of shard %s in %s (max size: %d MB, fsync: %s), %d points (%d bytes) pending",
+                  shard, shardDirectory.toAbsolutePath(), maxSizeMb, fsync, segmentLog.count(), segmentLog.sizeBytes());
+        return shardBuffer;
+    }
+
+    /**
+     * A write failure may succeed later unless InfluxDB rejected the data itself (400 Bad Request, 413 Payload Too
+     * Large, 422 Unprocessable Entity); authorization or missing bucket errors are kept until an operator fixes them
+     * @return true if the batch should be kept and written again
+     */
+    public static boolean isRetryable(Throwable failure) {
+        if (failure instanceof InfluxWriteException writeFailure) {
+            int status = writeFailure.status();
+            return status != 400 && status != 413 && status != 422;
+        }
+        return true;
+    }
+
+    @PreDestroy
+    void close() {
+        if (!enabled) {
+            return;
+        }
+        replayScheduler.shutdownNow();
+        replayPool.shutdown();
+        for (ShardBuffer shardBuffer : shardBuffers) {
+            try {
+                shardBuffer.segmentLog.close();
+            } catch (IOException e) {
+                log.errorf(e, "Failed to close the InfluxDB write buffer of shard %s", shardBuffer.shard);
+            }
+        }
+    }
+
+    /**
+     * The buffer and health state of one shard
+     */
+    public final class ShardBuffer {
+        private final String shard;
+        // Null when buffering is disabled
+        private final SegmentLog segmentLog;
+        private final ReplayTarget target;
+        private volatile boolean influxAvailable = true;
+
+        private Counter storedPoints;
+        private Counter storeFailures;
+        private Counter replayedPoints;
+        private Counter replayedBytes;
+        private Counter rejectedPoints;
+        private Counter corruptSegments;
+        private Timer segmentReplayTimer;
+
+        private ShardBuffer(String shard, SegmentLog segmentLog, ReplayTarget target) {
+            this.shard = shard;
+            this.segmentLog = segmentLog;
+            this.target = target;
+            if (segmentLog == null) {
+                return;
+            }
+            storedPoints = metricsService.counter("influx_buffer_stored_points_total", "shard", shard);
+            storeFailures = metricsService.counter("influx_buffer_store_failures_total", "shard", shard);
+            replayedPoints = metricsService.counter("influx_buffer_replayed_points_total", "shard", shard);
+            replayedBytes = metricsService.counter("influx_buffer_replayed_bytes_total", "shard", shard);
+            rejectedPoints = metricsService.counter("influx_buffer_rejected_points_total", "shard", shard);
+            corruptSegments = metricsService.counter("influx_buffer_corrupt_segments_total", "shard", shard);
+            segmentReplayTimer = metricsService.timer("influx_buffer_segment_replay_duration", "shard", shard);
+            metricsService.registerGauge("influx_buffer_bytes", segmentLog, SegmentLog::sizeBytes, "shard", shard);
+            metricsService.registerGauge("influx_buffer_points", segmentLog, SegmentLog::count, "shard", shard);
+            metricsService.registerGauge("influx_buffer_batches", segmentLog, SegmentLog::records, "shard", shard);
+            metricsService.registerGauge("influx_buffer_segments", segmentLog, SegmentLog::segments, "shard", shard);
+            metricsService.registerGauge("influx_write_available", this, buffer -> buffer.influxAvailable ? 1 : 0,
+                                         "shard", shard);
+            if (segmentLog.records() > 0) {
+                // Replay what a previous run left behind before trusting InfluxDB again
+                influxAvailable = false;
+            }
+        }
+
+        /**
+         * @return false while the shard's InfluxDB is considered down: batches should then be stored without
+         *         trying it
+         */
+        public boolean isInfluxAvailable() {
+            return influxAvailable || segmentLog == null;
+        }
+
+        /**
+         * Marks the shard's InfluxDB down until its health check passes again
+         */
+        public void markInfluxUnavailable(Throwable failure) {
+            if (segmentLog != null && influxAvailable) {
+                influxAvailable = false;
+                log.warnf("InfluxDB shard %s unavailable (%s), buffering its writes locally until it is healthy again",
+                          shard, failure.getMessage());
+            }
+        }
+
+        /**
+         * Appends the batch held by the encoder to the buffer
+         * @return false if the buffer is disabled, full or failed to write: the batch is not kept
+         */
+        public boolean store(LineProtocolEncoder encoder) {
+            if (segmentLog == null) {
+                return false;
+            }
+            try {
+                if (segmentLog.append(encoder.array(), 0, encoder.size(), encoder.pointCount())) {
+                    storedPoints.increment(encoder.pointCount());
+                    return true;
+                }
+                log.errorf("InfluxDB write buffer of shard %s is full (%d MB), cannot keep %d more points", shard,
+                           maxSizeMb, encoder.pointCount());
+            } catch (IOException e) {
+                log.errorf(e, "Failed to append %d points to the InfluxDB write buffer of shard %s",
+                           encoder.pointCount(), shard);
+            }
+            storeFailures.increment();
+            return false;
+        }
+
+        private void replay() {
+            try {
+                if (!influxAvailable) {
+                    if (!target.isHealthy()) {
+                        return;
+                    }
+                    influxAvailable = true;
+                    log.infof("InfluxDB shard %s is healthy again, replaying %d buffered points", shard,
+                              segmentLog.count());
+                }
+                SegmentLog.Segment segment;
+                while (influxAvailable && (segment = segmentLog.oldest()) != null) {
+                    if (!replaySegment(segment)) {
+                        return;
+                    }
+                    segmentLog.delete(segment);
+                }
+            } catch (Exception e) {
+                log.errorf(e, "Failed to replay the InfluxDB write buffer of shard %s", shard);
+            }
+        }
+
+        /**
+         * Writes the batches of a segment with at most replay max-concurrency writes in flight
+         * @return true if the segment is done with and can be deleted
+         */
+        private boolean replaySegment(SegmentLog.Segment segment) throws IOException {
+            long startTime = System.nanoTime();
+            Semaphore inFlight = new Semaphore(replayMaxConcurrency);
+            AtomicBoolean failed = new AtomicBoolean();
+            SegmentLog.ReadResult result = segmentLog.read(segment, (payload, length, points) -> {
+                inFlight.acquireUninterruptibly();
+                if (failed.get()) {
+                    inFlight.release();
+                    return false;
+                }
+                // The payload array is reused for the next record
+                byte[] lineProtocol = Arrays.copyOf(payload, length);
+                replayPool.execute(() -> {
+                    try {
+                        target.write(lineProtocol, length);
+                        replayedPoints.increment(points);
+                        replayedBytes.increment(length);
+                    } catch (RuntimeException e) {
+                        if (isRetryable(e)) {
+                            failed.set(true);
+                            markInfluxUnavailable(e);
+                        } else {
+                            log.errorf(e, "InfluxDB shard %s rejected %d buffered points, dropping them", shard,
+                                       points);
+                            rejectedPoints.increment(points);
+                        }
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+                return true;
+            });
+            // Wait for the writes still in flight
+            inFlight.acquireUninterruptibly(replayMaxConcurrency);
+            if (failed.get()) {
+                return false;
+            }
+            if (result == SegmentLog.ReadResult.CORRUPT) {
+                log.warnf("Buffer segment %s ends with a truncated or corrupt record, the rest of it is lost",
+                          segment.path());
+                corruptSegments.increment();
+            }
+            segmentReplayTimer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+            log.infof("Replayed buffer segment %s of shard %s (%d points), %d points left",
+                      segment.path().getFileName(), shard, segment.count(), segmentLog.count() - segment.count());
+            return true;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package org.quangdung.infrastructure.dao.influx;
+
+/**
+ * A write InfluxDB did not accept, see InfluxLineWriter
+ */
+final class InfluxWriteException extends RuntimeException {
+    private final int status;
+
+    InfluxWriteException(int status, String message, Throwable cause) {
+        super(message, cause);
+        this.status = status;
+    }
+
+    /**
+     * @return HTTP status of the response, 0 if there was none (connection failure, timeout)
+     */
+    int status() {
+        return status;
+    }
+}
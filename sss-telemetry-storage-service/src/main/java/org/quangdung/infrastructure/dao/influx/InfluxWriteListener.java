@@ -0,0 +1,21 @@
+package org.quangdung.infrastructure.dao.influx;
+
+import java.util.List;
+
+import org.quangdung.infrastructure.dao.influx.InfluxShard.TelemetryPoint;
+
+/**
+ * Told about points once InfluxDB has stored them, e.g. to drop the cached query results they change.
+ * Called on the shard writer and write buffer replay threads.
+ */
+interface InfluxWriteListener {
+    /**
+     * @param points the points of a batch that was written
+     */
+    void written(List<TelemetryPoint> points);
+
+    /**
+     * A batch kept in the local write buffer was written; its points are only known as line protocol
+     */
+    void replayed();
+}
@@ -0,0 +1,175 @@
+package org.quangdung.infrastructure.dao.influx;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+import org.quangdung.core.hash.HyperLogLog;
+import org.quangdung.core.metric.MetricService;
+import org.quangdung.infrastructure.dao.influx.InfluxShard.TelemetryPoint;
+import org.quangdung.infrastructure.entity.influx.TagStrategy;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Estimates, per shard and measurement, the number of live series written (distinct measurement, tag set and
+ * field key), with HyperLogLog sketches fed by the batch writers, and warns before it reaches the series limit
+ * the InfluxDB deployment is sized for: past that point the index outgrows memory and writes and queries slow down.
+ * A series is live if it was written within the last one to two windows: each measurement keeps a current and
+ * a previous sketch, and the previous one is dropped every window.
+ */
+@ApplicationScoped
+public class SeriesCardinalityTracker {
+    // 16 KB per sketch, about 0.8% standard error
+    private static final int PRECISION = 14;
+
+    @Inject
+    private Logger log;
+
+    @Inject
+    private MetricService metricsService;
+
+    @Inject
+    @ConfigProperty(name = "influxClient.series.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @Inject
+    @ConfigProperty(name = "influxClient.series.window", defaultValue = "24h")
+    Duration window;
+
+    @Inject
+    @ConfigProperty(name = "influxClient.series.limit", defaultValue = "1000000")
+    long seriesLimit;
+
+    @Inject
+    @ConfigProperty(name = "influxClient.series.warn-ratio", defaultValue = "0.8")
+    double warnRatio;
+
+    @Inject
+    @ConfigProperty(name = "influxClient.series.check-interval", defaultValue = "1m")
+    Duration checkInterval;
+
+    private final ConcurrentHashMap<Scope, Sketches> sketches = new ConcurrentHashMap<>();
+    private ScheduledExecutorService checkScheduler;
+
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            return;
+        }
+        checkScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "influx-series-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMs = checkInterval.toMillis();
+        checkScheduler.scheduleWithFixedDelay(this::check, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        log.infof("InfluxDB series cardinality tracking enabled (window: %s, limit: %d, warn at: %.0f%%)", window,
+                  seriesLimit, warnRatio * 100);
+    }
+
+    /**
+     * Adds the series of a batch written to a shard
+     */
+    void record(String shard, TagStrategy tagStrategy, List<TelemetryPoint> points) {
+        if (!enabled) {
+            return;
+        }
+        long now = System.nanoTime();
+        Sketches current = null;
+        String currentMeasurement = null;
+        for (TelemetryPoint point : points) {
+            // Batches rarely mix measurements
+            if (!point.measurement().equals(currentMeasurement)) {
+                currentMeasurement = point.measurement();
+                current = sketches.computeIfAbsent(new Scope(shard, currentMeasurement), this::register);
+            }
+            Sketches target = current;
+            synchronized (target) {
+                target.rotateIfDue(now);
+                point.data().seriesHashes(point.measurement(), tagStrategy, target.current::add);
+            }
+        }
+    }
+
+    private Sketches register(Scope scope) {
+        Sketches created = new Sketches(System.nanoTime());
+        metricsService.registerGauge("influx_series_estimate", created, sketch -> sketch.estimate,
+                                     "shard", scope.shard(), "measurement", scope.measurement());
+        metricsService.registerGauge("influx_series_limit_ratio", created,
+                                     sketch -> (double) sketch.estimate / seriesLimit,
+                                     "shard", scope.shard(), "measurement", scope.measurement());
+        return created;
+    }
+
+    /**
+     * Refreshes the estimates (a full pass over the registers, too costly for every batch) and warns once
+     * per crossing of the warning threshold
+     */
+    private void check() {
+        long now = System.nanoTime();
+        long warnAt = (long) (seriesLimit * warnRatio);
+        sketches.forEach((scope, sketch) -> {
+            long estimate;
+            synchronized (sketch) {
+                sketch.rotateIfDue(now);
+                estimate = HyperLogLog.estimateUnion(sketch.current, sketch.previous);
+            }
+            sketch.estimate = estimate;
+            if (estimate >= warnAt && !sketch.warned) {
+                sketch.warned = true;
+                log.warnf("About %d live series in measurement %s of InfluxDB shard %s, %.0f%% of the %d series limit: "
+                          + "check the tag strategy and the tags devices send", estimate, scope.measurement(),
+                          scope.shard(), 100.0 * estimate / seriesLimit, seriesLimit);
+            } else if (estimate < warnAt * 0.9 && sketch.warned) {
+                // Some hysteresis, so that an estimate hovering around the threshold does not warn every check
+                sketch.warned = false;
+                log.infof("Live series in measurement %s of InfluxDB shard %s back to about %d", scope.measurement(),
+                          scope.shard(), estimate);
+            }
+        });
+    }
+
+    @PreDestroy
+    void close() {
+        if (checkScheduler != null) {
+            checkScheduler.shutdownNow();
+        }
+    }
+
+    private record Scope(String shard, String measurement) {
+    }
+
+    /**
+     * Sketches of one shard and measurement, guarded by their own monitor
+     */
+    private final class Sketches {
+        HyperLogLog current = new HyperLogLog(PRECISION);
+        HyperLogLog previous = new HyperLogLog(PRECISION);
+        long rotatedAtNanos;
+        volatile long estimate;
+        boolean warned;
+
+        Sketches(long nowNanos) {
+            this.rotatedAtNanos = nowNanos;
+        }
+
+        void rotateIfDue(long nowNanos) {
+            if (nowNanos - rotatedAtNanos >= window.toNanos()) {
+                HyperLogLog expired = previous;
+                previous = current;
+                expired.clear();
+                current = expired;
+                rotatedAtNanos = nowNanos;
+            }
+        }
+    }
+}
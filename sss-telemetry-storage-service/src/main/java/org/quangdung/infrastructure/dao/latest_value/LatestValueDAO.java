@@ -0,0 +1,241 @@
+package org.quangdung.infrastructure.dao.latest_value;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+import org.quangdung.core.metric.MetricService;
+import org.quangdung.infrastructure.entity.influx.LatestValuesEntity;
+import org.quangdung.infrastructure.entity.influx.TelemetryDataEntity;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * In-memory table of the last value and timestamp of every field of every device, fed with the points written
+ * to InfluxDB, so that "what is this device reading now" is answered without a last() query.
+ * Each device keeps its fields in parallel primitive arrays (a long slot holds integers, the bits of floats and
+ * booleans as 0/1; only strings are references) guarded by a StampedLock: writers of one device are serialized,
+ * readers copy optimistically without locking and only retry under the read lock if a write interleaved.
+ * A field only moves forward in time: a point older than the stored value of a field does not replace it.
+ * The table is not persisted, after a restart devices show up again as they report.
+ */
+@ApplicationScoped
+public class LatestValueDAO {
+    private static final byte LONG = 1;
+    private static final byte DOUBLE = 2;
+    private static final byte BOOLEAN = 3;
+    private static final byte STRING = 4;
+    private static final int INITIAL_FIELDS = 8;
+
+    @Inject
+    private Logger log;
+
+    @Inject
+    private MetricService metricsService;
+
+    @Inject
+    @ConfigProperty(name = "latest-values.max-fields-per-device", defaultValue = "256")
+    int maxFieldsPerDevice;
+
+    private final ConcurrentHashMap<String, DeviceValues> devices = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        metricsService.registerGauge("latest_values_devices", devices, map -> map.size());
+    }
+
+    /**
+     * Records the fields of written points
+     * @param points the points, with their device tags; fields of unsupported types are ignored
+     */
+    public void update(Collection<TelemetryDataEntity> points) {
+        for (TelemetryDataEntity point : points) {
+            update(point);
+        }
+    }
+
+    /**
+     * Records the fields of a written point
+     * @param point the point, with its device tags; fields of unsupported types are ignored
+     */
+    public void update(TelemetryDataEntity point) {
+        if (point.getClientId() == null || point.getData() == null || point.getData().isEmpty()) {
+            return;
+        }
+        DeviceValues values = devices.computeIfAbsent(point.getClientId(), DeviceValues::new);
+        long stamp = values.lock.writeLock();
+        try {
+            if (point.getDeviceUuid() != null) {
+                values.deviceUuid = point.getDeviceUuid();
+            }
+            if (point.getDeviceName() != null) {
+                values.deviceName = point.getDeviceName();
+            }
+            long timestamp = point.getTimestamp();
+            for (Map.Entry<String, Object> entry : point.getData().entrySet()) {
+                Object value = entry.getValue();
+                if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                    values.set(entry.getKey(), timestamp, LONG, ((Number) value).longValue(), null);
+                } else if (value instanceof Number number) {
+                    double doubleValue = number.doubleValue();
+                    if (Double.isFinite(doubleValue)) {
+                        values.set(entry.getKey(), timestamp, DOUBLE, Double.doubleToRawLongBits(doubleValue), null);
+                    }
+                } else if (value instanceof Boolean bool) {
+                    values.set(entry.getKey(), timestamp, BOOLEAN, bool ? 1 : 0, null);
+                } else if (value instanceof String string) {
+                    values.set(entry.getKey(), timestamp, STRING, 0, string);
+                }
+            }
+        } finally {
+            values.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @param clientId client ID of the device
+     * @return the last values of the device, null if it has not reported since startup
+     */
+    public LatestValuesEntity getLatest(String clientId) {
+        DeviceValues values = devices.get(clientId);
+        return values != null ? values.snapshot() : null;
+    }
+
+    /**
+     * @param clientIds client IDs of the devices
+     * @return the last values of the devices that reported since startup, in the requested order
+     */
+    public List<LatestValuesEntity> getLatest(Collection<String> clientIds) {
+        List<LatestValuesEntity> snapshots = new ArrayList<>(clientIds.size());
+        for (String clientId : clientIds) {
+            LatestValuesEntity snapshot = getLatest(clientId);
+            if (snapshot != null) {
+                snapshots.add(snapshot);
+            }
+        }
+        return snapshots;
+    }
+
+    /**
+     * @return client IDs of all devices that reported since startup, for walking the whole fleet
+     */
+    public List<String> getClientIds() {
+        return new ArrayList<>(devices.keySet());
+    }
+
+    private final class DeviceValues {
+        final StampedLock lock = new StampedLock();
+        final String clientId;
+        boolean fieldLimitReported;
+        String deviceUuid;
+        String deviceName;
+        int size;
+        String[] names = new String[INITIAL_FIELDS];
+        byte[] types = new byte[INITIAL_FIELDS];
+        long[] bits = new long[INITIAL_FIELDS];
+        long[] timestamps = new long[INITIAL_FIELDS];
+        String[] strings = new String[INITIAL_FIELDS];
+
+        DeviceValues(String clientId) {
+            this.clientId = clientId;
+        }
+
+        // Called under the write lock; devices have a handful of fields, so a linear scan beats hashing
+        void set(String name, long timestamp, byte type, long valueBits, String string) {
+            int index = indexOf(name);
+            if (index < 0) {
+                if (size == maxFieldsPerDevice) {
+                    if (!fieldLimitReported) {
+                        fieldLimitReported = true;
+                        log.warnf("Device %s reached %d fields, ignoring its new fields such as %s", clientId,
+                                  maxFieldsPerDevice, name);
+                    }
+                    return;
+                }
+                if (size == names.length) {
+                    grow();
+                }
+                index = size++;
+                names[index] = name;
+            } else if (timestamp < timestamps[index]) {
+                return;
+            }
+            types[index] = type;
+            bits[index] = valueBits;
+            strings[index] = string;
+            timestamps[index] = timestamp;
+        }
+
+        int indexOf(String name) {
+            for (int i = 0; i < size; i++) {
+                if (names[i].equals(name)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        void grow() {
+            int capacity = Math.min(names.length * 2, maxFieldsPerDevice);
+            names = Arrays.copyOf(names, capacity);
+            types = Arrays.copyOf(types, capacity);
+            bits = Arrays.copyOf(bits, capacity);
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            strings = Arrays.copyOf(strings, capacity);
+        }
+
+        LatestValuesEntity snapshot() {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                LatestValuesEntity snapshot = copy();
+                if (snapshot != null && lock.validate(stamp)) {
+                    return snapshot;
+                }
+            }
+            stamp = lock.readLock();
+            try {
+                return copy();
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        /**
+         * Copies the fields; without a lock it may see a torn state (even arrays of different lengths),
+         * which the caller detects with validate() and then discards
+         */
+        private LatestValuesEntity copy() {
+            try {
+                int count = size;
+                String[] currentNames = names;
+                byte[] currentTypes = types;
+                long[] currentBits = bits;
+                long[] currentTimestamps = timestamps;
+                String[] currentStrings = strings;
+                Map<String, LatestValuesEntity.FieldValue> fields = new LinkedHashMap<>(count * 2);
+                for (int i = 0; i < count; i++) {
+                    Object value = switch (currentTypes[i]) {
+                        case LONG -> currentBits[i];
+                        case DOUBLE -> Double.longBitsToDouble(currentBits[i]);
+                        case BOOLEAN -> currentBits[i] != 0;
+                        case STRING -> currentStrings[i];
+                        default -> null;
+                    };
+                    fields.put(currentNames[i], new LatestValuesEntity.FieldValue(value, currentTimestamps[i]));
+                }
+                return new LatestValuesEntity(clientId, deviceUuid, deviceName, fields);
+            } catch (RuntimeException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package org.quangdung.infrastructure.entity;
+
+import java.util.List;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import lombok.Data;
+
+/**
+ * Envelope published by the data ingestor when device data batching is enabled
+ */
+@Data
+@RegisterForReflection
+public class DeviceDataBatchEntity {
+    public static final String MESSAGE_TYPE = "device-data-batch";
+
+    private int size;
+    private List<DeviceDataEntity> records;
+}
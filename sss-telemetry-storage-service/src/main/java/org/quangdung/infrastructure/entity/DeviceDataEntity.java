@@ -1,8 +1,11 @@
 package org.quangdung.infrastructure.entity;
 
-import java.time.LocalDateTime;
 import java.util.Map;
 
+import org.quangdung.core.utils.time_util.EpochNanosDeserializer;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+
 import io.quarkus.runtime.annotations.RegisterForReflection;
 import lombok.Data;
 
@@ -10,6 +13,8 @@ import lombok.Data;
 @RegisterForReflection
 public class DeviceDataEntity {
     private String clientId;
-    private LocalDateTime timestamp;
+    // Epoch nanoseconds (UTC)
+    @JsonDeserialize(using = EpochNanosDeserializer.class)
+    private long timestamp;
     private Map<String, Object> data;
 }
@@ -0,0 +1,14 @@
+package org.quangdung.infrastructure.entity.auth_acl_service;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeviceInfoBatchRequest {
+    private List<String> clientIds;
+}
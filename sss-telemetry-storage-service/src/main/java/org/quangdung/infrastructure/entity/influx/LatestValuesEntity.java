@@ -0,0 +1,27 @@
+package org.quangdung.infrastructure.entity.influx;
+
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Snapshot of the last value of every field of one device
+ */
+@Data
+@AllArgsConstructor
+public class LatestValuesEntity {
+    private String clientId;
+    private String deviceUuid;
+    private String deviceName;
+    // Field name to its last value, in the order the fields were first seen
+    private Map<String, FieldValue> fields;
+
+    @Data
+    @AllArgsConstructor
+    public static class FieldValue {
+        private Object value;
+        // Epoch nanoseconds (UTC) of the point the value came from
+        private long timestamp;
+    }
+}
@@ -1,6 +1,8 @@
 package org.quangdung.infrastructure.entity.influx;
 
-import java.time.LocalDateTime;
+import org.quangdung.core.utils.time_util.EpochNanosDeserializer;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 
 import io.quarkus.runtime.annotations.RegisterForReflection;
 import lombok.Data;
@@ -14,9 +16,10 @@ public class PowerStatusEntity {
     private String clientId;
     
     /**
-     * Timestamp when the power status event occurred
+     * Timestamp when the power status event occurred, in epoch nanoseconds (UTC)
      */
-    private LocalDateTime timestamp;
+    @JsonDeserialize(using = EpochNanosDeserializer.class)
+    private long timestamp;
     
     /**
      * Power status of the device (1 = powered on, 0 = powered off)
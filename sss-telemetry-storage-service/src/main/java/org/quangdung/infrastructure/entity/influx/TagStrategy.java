@@ -0,0 +1,63 @@
+package org.quangdung.infrastructure.entity.influx;
+
+import java.util.Locale;
+
+import org.quangdung.core.hash.Hash64;
+import org.quangdung.core.utils.line_protocol.LineProtocolEncoder;
+
+/**
+ * Which device attributes are written as tags on every point. Every tag value is part of the series key and
+ * of the InfluxDB index, so renaming a device or changing its MQTT user starts new series for all its fields.
+ */
+public enum TagStrategy {
+    /**
+     * clientId, deviceUuid, deviceName and mqttUsername, the default
+     */
+    ALL,
+    /**
+     * clientId only, the identity queries filter on. The other attributes are not stored in InfluxDB at all:
+     * Flux queries and dashboards filtering on them no longer match new points. Exports fill deviceUuid and
+     * deviceName in from the device registry (TelemetryQueryService), so they show the current attributes of
+     * the device rather than the ones it had when the point was written, and none once it is deleted
+     */
+    IDENTITY;
+
+    /**
+     * @param name "all" or "identity", case insensitive
+     * @return the strategy
+     * @throws IllegalArgumentException if the name is not a strategy
+     */
+    public static TagStrategy fromName(String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Writes the tags of a point, after its measurement
+     */
+    void writeTags(LineProtocolEncoder encoder, TelemetryDataEntity telemetryData) {
+        encoder.tag("clientId", telemetryData.getClientId());
+        if (this == ALL) {
+            encoder.tag("deviceUuid", telemetryData.getDeviceUuid())
+                .tag("deviceName", telemetryData.getDeviceName())
+                .tag("mqttUsername", telemetryData.getMqttUsername());
+        }
+    }
+
+    /**
+     * Appends the tag values of a point to a series key hash state
+     */
+    long appendTags(long state, TelemetryDataEntity telemetryData) {
+        state = appendTag(state, telemetryData.getClientId());
+        if (this == ALL) {
+            state = appendTag(state, telemetryData.getDeviceUuid());
+            state = appendTag(state, telemetryData.getDeviceName());
+            state = appendTag(state, telemetryData.getMqttUsername());
+        }
+        return state;
+    }
+
+    private static long appendTag(long state, String value) {
+        // Empty tags are not written, like missing ones
+        return Hash64.appendPart(state, value == null || value.isEmpty() ? null : value);
+    }
+}
@@ -4,9 +4,12 @@ package org.quangdung.infrastructure.entity.influx;
 import lombok.Builder;
 import lombok.Data;
 
-import java.time.Instant;
 import java.util.Map;
-import java.util.StringJoiner;
+import java.util.function.LongConsumer;
+
+import org.quangdung.core.hash.Hash64;
+import org.quangdung.core.utils.line_protocol.FieldTypeRegistry;
+import org.quangdung.core.utils.line_protocol.LineProtocolEncoder;
 
 @Data
 @Builder
@@ -15,73 +18,77 @@ public class TelemetryDataEntity {
     private String deviceUuid;
     private String deviceName;
     private String mqttUsername;
-    private Instant timestamp;
+    // Epoch nanoseconds (UTC), the line protocol precision
+    private long timestamp;
     private Map<String, Object> data;
 
     /**
-     * Converts this object into a string that complies with the InfluxDB Line Protocol syntax.
+     * Appends this object as one InfluxDB line protocol point, with all device attributes as tags
      *
+     * @param encoder The batch encoder to append to.
      * @param measurement The name of the measurement to write the data into.
-     * @return A Line Protocol string, or null if there are no valid fields.
+     * @return true if the point was written, false if it has no valid field (InfluxDB requires at least one).
      */
-    public String toLineProtocol(String measurement) {
-        // Use StringBuilder for efficient string construction
-        StringBuilder line = new StringBuilder();
-
-        // --- 1. Append Measurement and Tags ---
-        line.append(measurement);
-
-        // Append tags, separated by commas
-        appendTag(line, "clientId", this.clientId);
-        appendTag(line, "deviceUuid", this.deviceUuid);
-        appendTag(line, "deviceName", this.deviceName);
-        appendTag(line, "mqttUsername", this.mqttUsername);
+    public boolean writeLineProtocol(LineProtocolEncoder encoder, String measurement) {
+        return writeLineProtocol(encoder, measurement, TagStrategy.ALL);
+    }
 
-        // Add a space to separate tags from fields
-        line.append(" ");
+    /**
+     * Appends this object as one InfluxDB line protocol point
+     *
+     * @param encoder The batch encoder to append to.
+     * @param measurement The name of the measurement to write the data into.
+     * @param tagStrategy Which device attributes are written as tags.
+     * @return true if the point was written, false if it has no valid field (InfluxDB requires at least one).
+     */
+    public boolean writeLineProtocol(LineProtocolEncoder encoder, String measurement, TagStrategy tagStrategy) {
+        return writeLineProtocol(encoder, measurement, tagStrategy, null);
+    }
 
-        // --- 2. Append Fields ---
-        // Use StringJoiner to handle commas between fields
-        StringJoiner fieldJoiner = new StringJoiner(",");
-        if (this.data != null && !this.data.isEmpty()) {
+    /**
+     * Appends this object as one InfluxDB line protocol point, with its field values converted to the types
+     * already established for the fields
+     *
+     * @param encoder The batch encoder to append to.
+     * @param measurement The name of the measurement to write the data into.
+     * @param tagStrategy Which device attributes are written as tags.
+     * @param fieldTypes The established field types, null to write the values as they are.
+     * @return true if the point was written, false if it has no valid field (InfluxDB requires at least one).
+     */
+    public boolean writeLineProtocol(LineProtocolEncoder encoder, String measurement, TagStrategy tagStrategy,
+                                     FieldTypeRegistry fieldTypes) {
+        encoder.measurement(measurement);
+        tagStrategy.writeTags(encoder, this);
+        if (this.data != null) {
             for (Map.Entry<String, Object> entry : this.data.entrySet()) {
-                String key = entry.getKey();
                 Object value = entry.getValue();
-
-                if (value instanceof String) {
-                    // String values must be enclosed in double quotes
-                    fieldJoiner.add(key + "=\"" + value + "\"");
-                } else if (value instanceof Number || value instanceof Boolean) {
-                    // Numbers and Booleans do not need double quotes
-                    fieldJoiner.add(key + "=" + value);
+                if (fieldTypes != null) {
+                    value = fieldTypes.coerce(measurement, entry.getKey(), value);
                 }
+                encoder.field(entry.getKey(), value);
             }
         }
-        
-        // InfluxDB requires at least one field, otherwise the point is invalid.
-        if (fieldJoiner.length() == 0) {
-            return null; // or throw an exception
-        }
-
-        line.append(fieldJoiner);
-
-        // --- 3. Append Timestamp ---
-        // Add a space to separate fields from the timestamp
-        line.append(" ");
-        // The timestamp must be in nanosecond precision
-        long timestampNanos = this.timestamp.getEpochSecond() * 1_000_000_000L + this.timestamp.getNano();
-        line.append(timestampNanos);
-
-        return line.toString();
+        // The timestamp is in nanosecond precision
+        return encoder.endPoint(this.timestamp);
     }
 
     /**
-     * Helper method to append a tag to the string builder.
+     * Hashes the keys of the series this point writes to (measurement, tags and field key, one per field),
+     * for estimating the series cardinality
+     *
+     * @param measurement The name of the measurement the point is written into.
+     * @param tagStrategy Which device attributes are written as tags.
+     * @param seriesHashes Receives the hash of each series key.
      */
-    private void appendTag(StringBuilder builder, String key, String value) {
-        // Only append the tag if the value is not null or empty
-        if (value != null && !value.isEmpty()) {
-            builder.append(",").append(key).append("=").append(value);
+    public void seriesHashes(String measurement, TagStrategy tagStrategy, LongConsumer seriesHashes) {
+        if (this.data == null) {
+            return;
+        }
+        long tagsState = tagStrategy.appendTags(Hash64.appendPart(Hash64.SEED, measurement), this);
+        for (Map.Entry<String, Object> entry : this.data.entrySet()) {
+            if (entry.getValue() != null) {
+                seriesHashes.accept(Hash64.finish(Hash64.append(tagsState, entry.getKey())));
+            }
         }
     }
 }
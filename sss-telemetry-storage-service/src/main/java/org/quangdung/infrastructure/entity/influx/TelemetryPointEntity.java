@@ -0,0 +1,30 @@
+package org.quangdung.infrastructure.entity.influx;
+
+import java.time.Instant;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * One aggregated point of a telemetry query
+ */
+@Data
+@AllArgsConstructor
+@RegisterForReflection
+public class TelemetryPointEntity {
+    /**
+     * End of the aggregation window
+     */
+    private Instant time;
+
+    /**
+     * Name of the field
+     */
+    private String field;
+
+    /**
+     * Aggregated value, null for a window without data
+     */
+    private Object value;
+}
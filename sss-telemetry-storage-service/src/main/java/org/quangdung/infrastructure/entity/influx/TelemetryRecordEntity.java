@@ -0,0 +1,22 @@
+package org.quangdung.infrastructure.entity.influx;
+
+import java.time.Instant;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * One raw stored point, with the device tags it was written with
+ */
+@Data
+@Builder
+@RegisterForReflection
+public class TelemetryRecordEntity {
+    private Instant time;
+    private String clientId;
+    private String deviceUuid;
+    private String deviceName;
+    private String field;
+    private Object value;
+}
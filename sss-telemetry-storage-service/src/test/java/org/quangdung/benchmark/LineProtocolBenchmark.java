@@ -0,0 +1,127 @@
+package org.quangdung.benchmark;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.quangdung.core.utils.line_protocol.LineProtocolEncoder;
+import org.quangdung.infrastructure.entity.influx.TelemetryDataEntity;
+
+/**
+ * Compares encoding a write batch with the previous StringBuilder/StringJoiner based toLineProtocol
+ * (one String per point, then joined by the client) against LineProtocolEncoder appending every point
+ * to one reused buffer.
+ * Run with: ./mvnw test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args="LineProtocolBenchmark -prof gc"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LineProtocolBenchmark {
+    private static final String MEASUREMENT = "telemetry_data";
+
+    @Param({"1", "1000"})
+    int batchSize;
+
+    private List<TelemetryDataEntity> points;
+    private LineProtocolEncoder encoder;
+
+    @Setup
+    public void setup() {
+        points = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            Map<String, Object> data = new LinkedHashMap<>();
+            data.put("temperature", 20 + (i % 100) / 10.0);
+            data.put("humidity", 55.25 + i % 7);
+            data.put("battery", 80L + i % 20);
+            data.put("door_open", i % 2 == 0);
+            data.put("status", "OK");
+            points.add(TelemetryDataEntity.builder()
+                .clientId("XVRAIF6Y")
+                .deviceUuid("4c1e7d52-8a3b-4f0e-9d2c-6b5a1f3e7c90")
+                .deviceName("Living room sensor " + (i % 50))
+                .mqttUsername("device_" + (i % 50))
+                .timestamp(1752485213000000000L + i * 1_000_000L)
+                .data(data)
+                .build());
+        }
+        encoder = new LineProtocolEncoder(256 * 1024);
+    }
+
+    @Benchmark
+    public void stringBuilderPerPoint(Blackhole blackhole) {
+        List<String> lines = new ArrayList<>(points.size());
+        for (TelemetryDataEntity point : points) {
+            lines.add(legacyLineProtocol(point));
+        }
+        // What the client does with a list of records
+        blackhole.consume(String.join("\n", lines));
+    }
+
+    @Benchmark
+    public void encoderBatch(Blackhole blackhole) {
+        encoder.reset();
+        for (TelemetryDataEntity point : points) {
+            point.writeLineProtocol(encoder, MEASUREMENT);
+        }
+        blackhole.consume(encoder.size());
+    }
+
+    @Benchmark
+    public void encoderBatchToString(Blackhole blackhole) {
+        encoder.reset();
+        for (TelemetryDataEntity point : points) {
+            point.writeLineProtocol(encoder, MEASUREMENT);
+        }
+        // What the shards handed to the client before posting the encoder's buffer as it is
+        blackhole.consume(encoder.toString());
+    }
+
+    // The former TelemetryDataEntity.toLineProtocol, kept here as the baseline (it did not escape anything)
+    private static String legacyLineProtocol(TelemetryDataEntity point) {
+        StringBuilder line = new StringBuilder();
+        line.append(MEASUREMENT);
+        appendTag(line, "clientId", point.getClientId());
+        appendTag(line, "deviceUuid", point.getDeviceUuid());
+        appendTag(line, "deviceName", point.getDeviceName());
+        appendTag(line, "mqttUsername", point.getMqttUsername());
+        line.append(" ");
+        StringJoiner fieldJoiner = new StringJoiner(",");
+        for (Map.Entry<String, Object> entry : point.getData().entrySet()) {
+            String key = entry.getKey();
+            Object value = entry.getValue();
+            if (value instanceof String) {
+                fieldJoiner.add(key + "=\"" + value + "\"");
+            } else if (value instanceof Number || value instanceof Boolean) {
+                fieldJoiner.add(key + "=" + value);
+            }
+        }
+        line.append(fieldJoiner);
+        line.append(" ");
+        line.append(point.getTimestamp());
+        return line.toString();
+    }
+
+    private static void appendTag(StringBuilder builder, String key, String value) {
+        if (value != null && !value.isEmpty()) {
+            builder.append(",").append(key).append("=").append(value);
+        }
+    }
+}
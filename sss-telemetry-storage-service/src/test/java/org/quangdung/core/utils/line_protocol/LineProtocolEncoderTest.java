@@ -0,0 +1,160 @@
+package org.quangdung.core.utils.line_protocol;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.quangdung.infrastructure.entity.influx.TelemetryDataEntity;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LineProtocolEncoderTest {
+
+    private static String encode(TelemetryDataEntity telemetryData) {
+        LineProtocolEncoder encoder = new LineProtocolEncoder(16);
+        telemetryData.writeLineProtocol(encoder, "telemetry_data");
+        return encoder.toString();
+    }
+
+    @Test
+    @DisplayName("Should escape spaces, commas and equals signs in tag keys and values")
+    void testTagEscaping() {
+        LineProtocolEncoder encoder = new LineProtocolEncoder();
+        encoder.measurement("telemetry_data")
+            .tag("deviceName", "Living room, sensor=1")
+            .tag("tag key", "a\\b")
+            .field("temperature", 21.5);
+        assertTrue(encoder.endPoint(1L));
+
+        assertEquals("telemetry_data,deviceName=Living\\ room\\,\\ sensor\\=1,tag\\ key=a\\\\b temperature=21.5 1",
+            encoder.toString());
+    }
+
+    @Test
+    @DisplayName("Should escape commas and spaces but not equals signs in the measurement")
+    void testMeasurementEscaping() {
+        LineProtocolEncoder encoder = new LineProtocolEncoder();
+        encoder.measurement("my measurement,x=y").field("value", 1L);
+        encoder.endPoint(0L);
+
+        assertEquals("my\\ measurement\\,x=y value=1i 0", encoder.toString());
+    }
+
+    @Test
+    @DisplayName("Should escape field keys and double quotes and backslashes in string values")
+    void testFieldEscaping() {
+        LineProtocolEncoder encoder = new LineProtocolEncoder();
+        encoder.measurement("m")
+            .field("field key=1", "say \"hi\" C:\\tmp, ok=yes");
+        encoder.endPoint(42L);
+
+        assertEquals("m field\\ key\\=1=\"say \\\"hi\\\" C:\\\\tmp, ok=yes\" 42", encoder.toString());
+    }
+
+    @Test
+    @DisplayName("Should not let newlines split a point")
+    void testNewlineInTagValue() {
+        LineProtocolEncoder encoder = new LineProtocolEncoder();
+        encoder.measurement("m").tag("deviceName", "line1\nline2").field("value", true);
+        encoder.endPoint(7L);
+
+        assertEquals("m,deviceName=line1\\ line2 value=true 7", encoder.toString());
+        assertEquals(1, encoder.toString().lines().count());
+    }
+
+    @Test
+    @DisplayName("Should write integers with the i suffix and floats without it")
+    void testNumericFieldTypes() {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("count", 42L);
+        data.put("small", 7);
+        data.put("negative", -15L);
+        data.put("min", Long.MIN_VALUE);
+        data.put("ratio", 0.05);
+        data.put("whole", 25.0);
+        data.put("temperature", -21.3);
+        data.put("huge", 1.0e20);
+        TelemetryDataEntity telemetryData = TelemetryDataEntity.builder()
+            .clientId("XVRAIF6Y")
+            .timestamp(1752485213000000000L)
+            .data(data)
+            .build();
+
+        assertEquals("telemetry_data,clientId=XVRAIF6Y count=42i,small=7i,negative=-15i,min=-9223372036854775808i,"
+            + "ratio=0.05,whole=25,temperature=-21.3,huge=1.0E20 1752485213000000000", encode(telemetryData));
+    }
+
+    @Test
+    @DisplayName("Should write doubles in a form that reads back as the same value")
+    void testDoubleRoundTrip() {
+        double[] values = {0.1, 0.2 + 0.1, 1.0 / 3, 123456.789, 1e-7, 9007199254740993.0, Double.MIN_VALUE, -0.0, 98.6};
+        for (double value : values) {
+            LineProtocolEncoder encoder = new LineProtocolEncoder();
+            encoder.measurement("m").field("v", value);
+            encoder.endPoint(0L);
+            String text = encoder.toString();
+            String number = text.substring(text.indexOf('=') + 1, text.lastIndexOf(' '));
+            assertEquals(value, Double.parseDouble(number), 0.0, "Round trip of " + value + " written as " + number);
+        }
+    }
+
+    @Test
+    @DisplayName("Should skip NaN, infinite and null fields and roll back a point without fields")
+    void testPointWithoutValidField() {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("nan", Double.NaN);
+        data.put("infinite", Double.POSITIVE_INFINITY);
+        data.put("missing", null);
+        LineProtocolEncoder encoder = new LineProtocolEncoder();
+        encoder.measurement("m").field("value", 1.5);
+        encoder.endPoint(1L);
+
+        boolean written = TelemetryDataEntity.builder().clientId("A").timestamp(2L).data(data).build()
+            .writeLineProtocol(encoder, "m");
+
+        assertFalse(written);
+        assertEquals(1, encoder.pointCount());
+        assertEquals("m value=1.5 1", encoder.toString());
+    }
+
+    @Test
+    @DisplayName("Should append several points to one batch separated by newlines and reuse the buffer after reset")
+    void testBatchAndReset() {
+        LineProtocolEncoder encoder = new LineProtocolEncoder(16);
+        for (int i = 0; i < 3; i++) {
+            encoder.measurement("m").tag("id", "d" + i).field("value", (long) i);
+            encoder.endPoint(i);
+        }
+        assertEquals(3, encoder.pointCount());
+        assertEquals("m,id=d0 value=0i 0\nm,id=d1 value=1i 1\nm,id=d2 value=2i 2", encoder.toString());
+
+        byte[] buffer = encoder.array();
+        encoder.reset();
+        encoder.measurement("m").field("value", 1L);
+        encoder.endPoint(9L);
+        assertSame(buffer, encoder.array());
+        assertEquals("m value=1i 9", encoder.toString());
+    }
+
+    @Test
+    @DisplayName("Should encode non-ASCII text as UTF-8")
+    void testUtf8() {
+        LineProtocolEncoder encoder = new LineProtocolEncoder();
+        encoder.measurement("m").tag("deviceName", "Phòng khách 🌡").field("note", "nhiệt độ");
+        encoder.endPoint(0L);
+
+        String expected = "m,deviceName=Phòng\\ khách\\ 🌡 note=\"nhiệt độ\" 0";
+        assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8),
+            java.util.Arrays.copyOf(encoder.array(), encoder.size()));
+    }
+
+    @Test
+    @DisplayName("Should reject tags written after fields")
+    void testTagAfterField() {
+        LineProtocolEncoder encoder = new LineProtocolEncoder();
+        encoder.measurement("m").field("value", 1L);
+        assertThrows(IllegalStateException.class, () -> encoder.tag("late", "tag"));
+    }
+}
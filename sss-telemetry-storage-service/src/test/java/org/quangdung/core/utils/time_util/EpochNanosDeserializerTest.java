@@ -0,0 +1,58 @@
+package org.quangdung.core.utils.time_util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.quangdung.infrastructure.entity.DeviceDataEntity;
+import org.quangdung.infrastructure.entity.influx.PowerStatusEntity;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Timestamps of the JSON device data and power outage messages published by the data ingestor
+ */
+class EpochNanosDeserializerTest {
+    // 2024-01-15T03:30:00.123456789Z
+    private static final long NANOS = 1_705_289_400_123_456_789L;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private long deviceDataTimestamp(String timestamp) throws Exception {
+        return objectMapper.readValue("{\"clientId\":\"sensor-01\",\"timestamp\":" + timestamp + ",\"data\":{}}",
+                                      DeviceDataEntity.class).getTimestamp();
+    }
+
+    @Test
+    @DisplayName("Should read the epoch nanoseconds the ingestor publishes, including those before 2001")
+    void testEpochNanos() throws Exception {
+        assertEquals(NANOS, deviceDataTimestamp("1705289400123456789"));
+        // Replayed or backfilled records of devices with a clock reset, read as nanoseconds, not microseconds
+        assertEquals(951_825_600_000_000_000L, deviceDataTimestamp("951825600000000000"));
+        assertEquals(1_000_000_000_000_000_000L, deviceDataTimestamp("1000000000000000000"));
+    }
+
+    @Test
+    @DisplayName("Should read the ISO-8601 and epoch millisecond timestamps of messages queued before epoch nanos")
+    void testLegacyTimestamps() throws Exception {
+        assertEquals(NANOS, deviceDataTimestamp("\"2024-01-15T10:30:00.123456789+07:00\""));
+        assertEquals(1_705_289_400_123_000_000L, deviceDataTimestamp("1705289400123"));
+
+        PowerStatusEntity powerStatus = objectMapper.readValue(
+            "{\"clientId\":\"sensor-01\",\"powerStatus\":0,\"timestamp\":\"2024-01-15T03:30:00.123456789Z\"}",
+            PowerStatusEntity.class);
+        assertEquals(NANOS, powerStatus.getTimestamp());
+    }
+
+    @Test
+    @DisplayName("Should read null and absent timestamps as 0 and reject invalid ones")
+    void testMissingAndInvalid() throws Exception {
+        assertEquals(0L, deviceDataTimestamp("null"));
+        assertEquals(0L, objectMapper.readValue("{\"clientId\":\"sensor-01\"}", DeviceDataEntity.class).getTimestamp());
+
+        assertThrows(JsonMappingException.class, () -> deviceDataTimestamp("\"yesterday\""));
+        assertThrows(JsonMappingException.class, () -> deviceDataTimestamp("-1"));
+        assertThrows(JsonMappingException.class, () -> deviceDataTimestamp("true"));
+    }
+}
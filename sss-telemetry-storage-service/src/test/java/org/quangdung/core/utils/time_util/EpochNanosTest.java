@@ -0,0 +1,45 @@
+package org.quangdung.core.utils.time_util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The start and stop parameters of the telemetry query API, as dashboards and scripts send them
+ */
+class EpochNanosTest {
+    // 2024-01-15T03:30:00Z
+    private static final long NANOS = 1_705_289_400_000_000_000L;
+
+    @Test
+    @DisplayName("Should read ISO-8601 range bounds, with or without offset and seconds")
+    void testDateTimes() {
+        assertEquals(NANOS, EpochNanos.parse("2024-01-15T03:30:00Z"));
+        assertEquals(NANOS, EpochNanos.parse("2024-01-15T10:30:00+07:00"));
+        assertEquals(NANOS, EpochNanos.parse("2024-01-15T10:30+07:00"));
+        assertEquals(NANOS, EpochNanos.parse("2024-01-15T03:30"));
+        // JavaScript's Date.toISOString()
+        assertEquals(NANOS + 250_000_000L, EpochNanos.parse("2024-01-15T03:30:00.250Z"));
+    }
+
+    @Test
+    @DisplayName("Should read range bounds in epoch seconds, milliseconds and nanoseconds")
+    void testEpochNumbers() {
+        assertEquals(NANOS, EpochNanos.parse("1705289400"));
+        // JavaScript's Date.now()
+        assertEquals(NANOS + 250_000_000L, EpochNanos.parse("1705289400250"));
+        // A point timestamp copied from an export
+        assertEquals(NANOS + 1L, EpochNanos.parse("1705289400000000001"));
+        assertEquals(0L, EpochNanos.parse("0"));
+    }
+
+    @Test
+    @DisplayName("Should reject relative, date-only and negative bounds")
+    void testInvalid() {
+        String[] texts = {"", "now", "-1h", "2024-01-15", "-1705289400", "2024-01-15T03:30:00+07:0"};
+        for (String text : texts) {
+            assertThrows(IllegalArgumentException.class, () -> EpochNanos.parse(text), text);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package org.quangdung.infrastructure.component.rabbitmq.codec;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.quangdung.infrastructure.entity.DeviceDataBatchEntity;
+import org.quangdung.infrastructure.entity.DeviceDataEntity;
+import org.quangdung.infrastructure.entity.influx.PowerStatusEntity;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Decodes the reference messages that the data ingestor's DeviceMessageCodecTest pins its encoder to,
+ * so both sides of the wire format are checked against the same bytes.
+ */
+class DeviceMessageCodecTest {
+    // 2024-01-15T03:30:00.123456789Z
+    private static final long TIMESTAMP = 1_705_289_400_123_456_789L;
+
+    // Device data from sensor-01 holding every value type
+    private static final String DEVICE_DATA = "01010a73656e736f722d303101aaf4c7d994ebb3aa2f070c74656d7065726174757265014035800000000000"
+        + "057273736902850107656e657267790280808080200672656c61790305646f6f720405726f6f6d050e5068c3b26e67206b68c3a1"
+        + "6368066572726f7200";
+    // A record from sensor-01 followed by one without client ID, timestamp or data
+    private static final String DEVICE_DATA_BATCH = "0104020a73656e736f722d303101aaf4c7d994ebb3aa2f010c74656d7065726174757265"
+        + "01403580000000000000010000";
+    // Power status 0 from sensor-01
+    private static final String POWER_OUTAGE = "01030a73656e736f722d3031010001aaf4c7d994ebb3aa2f";
+    // Neither client ID nor power status
+    private static final String POWER_OUTAGE_WITHOUT_CLIENT_OR_STATUS = "0103000001aaf4c7d994ebb3aa2f";
+
+    private final DeviceMessageCodec codec = new DeviceMessageCodec();
+
+    private static byte[] bytes(String hex) {
+        return HexFormat.of().parseHex(hex);
+    }
+
+    @Test
+    @DisplayName("Should decode every value type of an ingestor device data message, keeping field order")
+    void testDeviceData() throws IOException {
+        Map<String, Object> expected = new LinkedHashMap<>();
+        expected.put("temperature", 21.5);
+        expected.put("rssi", -67L);
+        expected.put("energy", 4_294_967_296L);
+        expected.put("relay", true);
+        expected.put("door", false);
+        expected.put("room", "Phòng khách");
+        expected.put("error", null);
+
+        DeviceDataEntity decoded = codec.decodeDeviceData(bytes(DEVICE_DATA));
+
+        assertEquals("sensor-01", decoded.getClientId());
+        assertEquals(TIMESTAMP, decoded.getTimestamp());
+        assertEquals(expected, decoded.getData());
+        assertEquals(List.copyOf(expected.keySet()), List.copyOf(decoded.getData().keySet()));
+        assertInstanceOf(Double.class, decoded.getData().get("temperature"));
+        assertInstanceOf(Long.class, decoded.getData().get("rssi"));
+        assertTrue(decoded.getData().containsKey("error"));
+    }
+
+    @Test
+    @DisplayName("Should decode an ingestor batch, including a record with null client ID and no data")
+    void testDeviceDataBatch() throws IOException {
+        DeviceDataBatchEntity decoded = codec.decodeDeviceDataBatch(bytes(DEVICE_DATA_BATCH));
+
+        assertEquals(2, decoded.getSize());
+        assertEquals("sensor-01", decoded.getRecords().get(0).getClientId());
+        assertEquals(TIMESTAMP, decoded.getRecords().get(0).getTimestamp());
+        assertEquals(Map.of("temperature", 21.5), decoded.getRecords().get(0).getData());
+        assertNull(decoded.getRecords().get(1).getClientId());
+        assertEquals(0L, decoded.getRecords().get(1).getTimestamp());
+        assertEquals(Map.of(), decoded.getRecords().get(1).getData());
+    }
+
+    @Test
+    @DisplayName("Should decode ingestor power outage messages, with and without power status")
+    void testPowerOutage() throws IOException {
+        PowerStatusEntity decoded = codec.decodePowerOutage(bytes(POWER_OUTAGE));
+        assertEquals("sensor-01", decoded.getClientId());
+        assertEquals(0, decoded.getPowerStatus());
+        assertEquals(TIMESTAMP, decoded.getTimestamp());
+
+        PowerStatusEntity empty = codec.decodePowerOutage(bytes(POWER_OUTAGE_WITHOUT_CLIENT_OR_STATUS));
+        assertNull(empty.getClientId());
+        assertNull(empty.getPowerStatus());
+        assertEquals(TIMESTAMP, empty.getTimestamp());
+    }
+
+    @Test
+    @DisplayName("Should reject other versions, other message types and truncated messages")
+    void testRejectedMessages() {
+        byte[] otherVersion = bytes(DEVICE_DATA);
+        otherVersion[0] = DeviceMessageCodec.VERSION + 1;
+        byte[] truncated = Arrays.copyOf(bytes(DEVICE_DATA), bytes(DEVICE_DATA).length - 3);
+
+        assertThrows(IOException.class, () -> codec.decodeDeviceData(otherVersion));
+        assertThrows(IOException.class, () -> codec.decodeDeviceDataBatch(bytes(DEVICE_DATA)));
+        assertThrows(IOException.class, () -> codec.decodeDeviceData(truncated));
+        assertThrows(IOException.class, () -> codec.decodePowerOutage(new byte[]{DeviceMessageCodec.VERSION}));
+    }
+
+    @Test
+    @DisplayName("Should reject record and field counts the message cannot hold, before allocating for them")
+    void testOversizedCounts() {
+        // A batch claiming 2^31 - 1 records, then one claiming -1 (a 10 byte varint)
+        assertThrows(IOException.class, () -> codec.decodeDeviceDataBatch(bytes("0104ffffffff07")));
+        assertThrows(IOException.class, () -> codec.decodeDeviceDataBatch(bytes("0104ffffffffffffffffff01")));
+        // A record without client ID and timestamp claiming 2^31 - 1 fields
+        assertThrows(IOException.class, () -> codec.decodeDeviceData(bytes("01010000ffffffff07")));
+    }
+}